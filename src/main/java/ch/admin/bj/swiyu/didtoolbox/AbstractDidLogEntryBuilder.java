@@ -3,8 +3,6 @@ package ch.admin.bj.swiyu.didtoolbox;
 import ch.admin.bj.swiyu.didtoolbox.context.DidLogCreatorStrategyException;
 import ch.admin.bj.swiyu.didtoolbox.context.IncompleteDidLogEntryBuilderException;
 import ch.admin.bj.swiyu.didtoolbox.model.*;
-import ch.admin.eid.did_sidekicks.DidSidekicksException;
-import ch.admin.eid.did_sidekicks.JcsSha256Hasher;
 import com.google.gson.*;
 
 import java.net.URL;
@@ -22,6 +20,21 @@ public abstract class AbstractDidLogEntryBuilder {
     protected DidLogMeta didLogMeta;
 
     protected static JsonObject buildVerificationMethodWithPublicKeyJwk(String did, String fragmentId, String publicKeyJwk) {
+        return buildVerificationMethodWithPublicKeyJwk(did, fragmentId, JsonParser.parseString(publicKeyJwk).getAsJsonObject());
+    }
+
+    /**
+     * A variant of {@link #buildVerificationMethodWithPublicKeyJwk(String, String, String)} that embeds the JWK already parsed by
+     * a {@link JwkVerificationMethod}, thus sparing re-parsing of its {@link VerificationMaterial#getPublicKeyJwk()}.
+     */
+    protected static JsonObject buildVerificationMethodWithPublicKeyJwk(String did, VerificationMethod vm) {
+        if (vm instanceof JwkVerificationMethod jwkVm) {
+            return buildVerificationMethodWithPublicKeyJwk(did, vm.getIdFragment(), jwkVm.getPublicKeyJwkJsonObject());
+        }
+        return buildVerificationMethodWithPublicKeyJwk(did, vm.getIdFragment(), vm.getVerificationMaterial().getPublicKeyJwk());
+    }
+
+    private static JsonObject buildVerificationMethodWithPublicKeyJwk(String did, String fragmentId, JsonObject publicKeyJwk) {
         var verificationMethodObj = new JsonObject();
         verificationMethodObj.addProperty("id", did + "#" + fragmentId);
         // According to swiss profile (https://confluence.bit.admin.ch/x/VL8VTQ)
@@ -32,7 +45,7 @@ public abstract class AbstractDidLogEntryBuilder {
         verificationMethodObj.addProperty("type", "JsonWebKey2020");
         // CAUTION The "publicKeyMultibase" property must not be present w.r.t.:
         // - https://confluence.bit.admin.ch/x/3e0EMw
-        verificationMethodObj.add("publicKeyJwk", JsonParser.parseString(publicKeyJwk).getAsJsonObject());
+        verificationMethodObj.add("publicKeyJwk", publicKeyJwk);
 
         return verificationMethodObj;
     }
@@ -50,9 +63,9 @@ public abstract class AbstractDidLogEntryBuilder {
      * @throws DidLogCreatorStrategyException
      */
     protected static String buildSCID(JsonElement didLogEntryWithoutProofAndSignature) throws DidLogCreatorStrategyException {
-        try (var hasher = JcsSha256Hasher.Companion.build()) {
-            return hasher.base58btcEncodeMultihash(didLogEntryWithoutProofAndSignature.toString());
-        } catch (DidSidekicksException e) {
+        try {
+            return HashingService.base58btcEncodeMultihash(didLogEntryWithoutProofAndSignature);
+        } catch (IllegalArgumentException e) {
             throw new DidLogCreatorStrategyException(e);
         }
     }
@@ -253,7 +266,7 @@ public abstract class AbstractDidLogEntryBuilder {
             var authentication = new JsonArray();
             for (var vm : authentications) {
                 authentication.add(did + "#" + vm.getIdFragment());
-                verificationMethod.add(buildVerificationMethodWithPublicKeyJwk(did, vm.getIdFragment(), vm.getVerificationMaterial().getPublicKeyJwk()));
+                verificationMethod.add(buildVerificationMethodWithPublicKeyJwk(did, vm));
             }
 
             didDoc.add("authentication", authentication);
@@ -264,7 +277,7 @@ public abstract class AbstractDidLogEntryBuilder {
             var assertionMethod = new JsonArray();
             for (var vm : assertionMethods) {
                 assertionMethod.add(did + "#" + vm.getIdFragment());
-                verificationMethod.add(buildVerificationMethodWithPublicKeyJwk(did, vm.getIdFragment(), vm.getVerificationMaterial().getPublicKeyJwk()));
+                verificationMethod.add(buildVerificationMethodWithPublicKeyJwk(did, vm));
             }
 
             didDoc.add("assertionMethod", assertionMethod);
@@ -71,8 +71,26 @@ public final class Base58 {
      * @return the base58-encoded string
      */
     public static String encode(byte[] input) {
+        return encode(input, false);
+    }
+
+    /**
+     * Encodes the given bytes as a <a href="https://www.w3.org/TR/cid/#multibase-0">base-58-btc Multibase</a> string,
+     * i.e. a base58 string prepended with the {@code z} header.
+     * <p>
+     * As opposed to {@code 'z' + Base58.encode(input)}, no intermediate copy of the encoded data is left behind,
+     * as suitable for secret keys.
+     *
+     * @param input the bytes to encode
+     * @return the base-58-btc Multibase string
+     */
+    public static String encodeMultibase(byte[] input) {
+        return encode(input, true);
+    }
+
+    private static String encode(byte[] input, boolean multibase) {
         if (input.length == 0) {
-            return "";
+            return multibase ? "z" : "";
         }
 
         // Count leading zeros.
@@ -83,7 +101,7 @@ public final class Base58 {
 
         // Convert base-256 digits to base-58 digits (plus conversion to ASCII characters)
         var in = Arrays.copyOf(input, input.length); // since we modify it in-place
-        char[] encoded = new char[in.length * 2]; // upper bound
+        char[] encoded = new char[in.length * 2 + 1]; // upper bound (incl. Multibase header)
         int outputStart = encoded.length;
         for (int inputStart = zeros; inputStart < in.length; ) {
             encoded[--outputStart] = ALPHABET[divmod(in, inputStart, 256, 58)];
@@ -100,9 +118,17 @@ public final class Base58 {
         while (--zeros >= 0) {
             encoded[--outputStart] = ENCODED_ZERO;
         }
+        if (multibase) {
+            encoded[--outputStart] = 'z';
+        }
 
         // Return encoded string (including encoded leading zeros).
-        return new String(encoded, outputStart, encoded.length - outputStart);
+        try {
+            return new String(encoded, outputStart, encoded.length - outputStart);
+        } finally {
+            Arrays.fill(in, (byte) 0);
+            Arrays.fill(encoded, '\u0000');
+        }
     }
 
     /**
@@ -0,0 +1,156 @@
+package ch.admin.bj.swiyu.didtoolbox;
+
+import ch.admin.bj.swiyu.didtoolbox.jcommander.CreateProofOfPossessionCommand;
+import ch.admin.bj.swiyu.didtoolbox.jcommander.VerifyProofOfPossessionCommand;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Runs all the operations listed by a manifest (in JSON Lines format) within a single process, as required by the {@code batch} command.
+ * <p>
+ * Each manifest line is a JSON object like {@code {"id":"my-op-01","op":"update","args":["--did-log-file","did.jsonl"]}},
+ * where {@code op} is the name of a command (or any of its aliases, e.g. {@code pop-create}) and {@code args} are its parameters.
+ * Blank lines are ignored.
+ * <p>
+ * The manifest is read lazily, while up to {@code parallelism} operations run at once (each on a virtual thread of its own),
+ * all of them sharing the very same in-process caches (e.g. {@link KeyPool}, {@link KeyMaterialCache}, loaded key stores and native libraries).
+ * The result of each operation is delivered as a single JSON line, in order of completion:
+ * {@code {"line":..., "id":..., "op":..., "exitCode":..., "durationMicros":..., "output":..., "error":...}},
+ * whereas {@code error} is only set if the operation failed.
+ */
+final class BatchRunner {
+
+    /**
+     * Operation aliases, as commonly used in manifests, mapped to the actual command names
+     */
+    static final Map<String, String> OP_ALIASES = Map.of(
+            "pop-create", CreateProofOfPossessionCommand.COMMAND_NAME,
+            "pop-verify", VerifyProofOfPossessionCommand.COMMAND_NAME);
+
+    private final int parallelism;
+
+    /**
+     * @param parallelism the maximum number of operations to run at once. Must be positive.
+     */
+    BatchRunner(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("The parallelism must be positive, but got " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Runs all the operations listed by the supplied manifest, returning only once all of them are completed.
+     *
+     * @param manifest   to read the operations from
+     * @param resultSink to deliver the result of each operation to (as a JSON line). Never called concurrently.
+     *                   Once it fails (e.g. by throwing {@link java.io.UncheckedIOException}), no further operations are started.
+     * @return the number of failed operations
+     * @throws IOException          if the manifest cannot be read, or any of the results could not be delivered to the {@code resultSink}
+     * @throws InterruptedException if interrupted while waiting for an operation to complete
+     */
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    long run(BufferedReader manifest, Consumer<String> resultSink) throws IOException, InterruptedException {
+        var failures = new LongAdder();
+        var undelivered = new LongAdder();
+        var sinkFailure = new AtomicReference<RuntimeException>();
+        var permits = new Semaphore(this.parallelism);
+        var sinkLock = new Object();
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) { // waits for all the operations upon closing
+            String line;
+            var lineNumber = 0;
+            // no point in running any further operations, as their results would be lost anyway
+            while (sinkFailure.get() == null && (line = manifest.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                permits.acquire();
+                var entry = line;
+                var entryLineNumber = lineNumber;
+                executor.execute(() -> {
+                    try {
+                        var result = runEntry(entryLineNumber, entry);
+                        if (result.has("error")) {
+                            failures.increment();
+                        }
+                        synchronized (sinkLock) {
+                            if (sinkFailure.get() != null) {
+                                undelivered.increment();
+                            } else {
+                                try {
+                                    resultSink.accept(result.toString());
+                                } catch (RuntimeException e) {
+                                    // otherwise, merely reported by the default uncaught exception handler of the (virtual) thread
+                                    undelivered.increment();
+                                    sinkFailure.set(e);
+                                }
+                            }
+                        }
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        }
+
+        var failure = sinkFailure.get();
+        if (failure != null) {
+            throw new IOException("Failed to deliver " + undelivered.sum() + " result(s): " + failure.getLocalizedMessage(),
+                    failure instanceof UncheckedIOException uncheckedIOException ? uncheckedIOException.getCause() : failure);
+        }
+        return failures.sum();
+    }
+
+    private static JsonObject runEntry(int lineNumber, String entry) {
+        var result = new JsonObject();
+        result.addProperty("line", lineNumber);
+
+        String op;
+        CommandDispatcher.Result commandResult;
+        try {
+            var json = JsonParser.parseString(entry).getAsJsonObject();
+            var id = json.get("id");
+            if (id != null) {
+                result.add("id", id);
+            }
+            var opElement = json.get("op");
+            op = opElement != null ? opElement.getAsString() : null;
+            result.addProperty("op", op);
+
+            var commandName = op != null ? OP_ALIASES.getOrDefault(op, op) : null;
+            if (commandName == null || !CommandDispatcher.isSupported(commandName)) {
+                result.addProperty("error", "Unsupported op: " + op);
+                return result;
+            }
+
+            commandResult = CommandDispatcher.run(commandName, CommandDispatcher.toArgs(json.get("args")));
+        } catch (JsonParseException | IllegalStateException | UnsupportedOperationException e) {
+            result.addProperty("error", "Malformed manifest entry: " + e.getMessage());
+            return result;
+        }
+
+        result.addProperty("exitCode", commandResult.exitCode());
+        result.addProperty("durationMicros", TimeUnit.NANOSECONDS.toMicros(commandResult.durationNanos()));
+        result.addProperty("output", commandResult.output());
+        if (commandResult.exitCode() != 0) {
+            // the very first line of the output describes what went wrong
+            result.addProperty("error", commandResult.output().strip().lines().findFirst().orElse("Exit code " + commandResult.exitCode()));
+        }
+        return result;
+    }
+}
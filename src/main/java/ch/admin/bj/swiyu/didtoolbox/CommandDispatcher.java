@@ -0,0 +1,122 @@
+package ch.admin.bj.swiyu.didtoolbox;
+
+import ch.admin.bj.swiyu.didtoolbox.jcommander.CreateDidLogCommand;
+import ch.admin.bj.swiyu.didtoolbox.jcommander.CreateProofOfPossessionCommand;
+import ch.admin.bj.swiyu.didtoolbox.jcommander.DeactivateDidLogCommand;
+import ch.admin.bj.swiyu.didtoolbox.jcommander.UpdateDidLogCommand;
+import ch.admin.bj.swiyu.didtoolbox.jcommander.VerifyProofOfPossessionCommand;
+import com.beust.jcommander.internal.Console;
+import com.google.gson.JsonElement;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs a single CLI command in-process (i.e. using the very same logic as {@link Main#run(String[])}) while capturing its output,
+ * as required by long-running processes such as the {@code serve} and {@code batch} commands.
+ * <p>
+ * The class is thread-safe, as each run features its own (freshly parsed) command objects.
+ */
+final class CommandDispatcher {
+
+    /**
+     * The names of all the commands that may be dispatched, i.e. excluding those starting a long-running process themselves.
+     */
+    static final List<String> COMMAND_NAMES = List.of(
+            CreateDidLogCommand.COMMAND_NAME,
+            UpdateDidLogCommand.COMMAND_NAME,
+            DeactivateDidLogCommand.COMMAND_NAME,
+            CreateProofOfPossessionCommand.COMMAND_NAME,
+            VerifyProofOfPossessionCommand.COMMAND_NAME);
+
+    /**
+     * The outcome of a single command run.
+     *
+     * @param exitCode      as returned by {@link Main#run(String[])}
+     * @param output        the whole (captured) output of the command
+     * @param durationNanos the wall-clock duration of the run
+     * @param crashed       {@code true} if the command failed due to an unexpected (runtime) exception
+     */
+    record Result(int exitCode, String output, long durationNanos, boolean crashed) {
+    }
+
+    /**
+     * Captures the whole output of a single command run.
+     */
+    private static final class BufferedConsole implements Console {
+        private final StringBuilder output = new StringBuilder();
+
+        @Override
+        public void print(CharSequence msg) {
+            output.append(msg);
+        }
+
+        @Override
+        public void println(CharSequence msg) {
+            output.append(msg).append(System.lineSeparator());
+        }
+
+        @Override
+        public char[] readPassword(boolean echoInput) {
+            return new char[0]; // never interactive
+        }
+    }
+
+    private CommandDispatcher() {
+    }
+
+    /**
+     * @param commandName one of {@link #COMMAND_NAMES}
+     * @return true if and only if the command may be dispatched
+     */
+    static boolean isSupported(String commandName) {
+        return COMMAND_NAMES.contains(commandName);
+    }
+
+    /**
+     * Converts a JSON array of command parameters, e.g. {@code ["--did-log-file","did.jsonl"]}.
+     *
+     * @param argsElement a JSON array of strings, or {@code null} (denoting no parameters at all)
+     * @return the command parameters, as if supplied via CLI
+     * @throws IllegalStateException if the supplied JSON element is not an array of strings
+     */
+    static List<String> toArgs(JsonElement argsElement) {
+        var args = new ArrayList<String>();
+        if (argsElement != null) {
+            for (JsonElement arg : argsElement.getAsJsonArray()) {
+                args.add(arg.getAsJsonPrimitive().getAsString());
+            }
+        }
+        return args;
+    }
+
+    /**
+     * @param commandName one of {@link #COMMAND_NAMES}
+     * @param args        the command parameters, as if supplied via CLI
+     * @return the outcome of the command
+     * @throws IllegalArgumentException if the command is not supported
+     */
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    static Result run(String commandName, List<String> args) {
+        if (!isSupported(commandName)) {
+            throw new IllegalArgumentException("Unsupported command: " + commandName);
+        }
+
+        var cliArgs = new ArrayList<String>(args.size() + 1);
+        cliArgs.add(commandName);
+        cliArgs.addAll(args);
+
+        var console = new BufferedConsole();
+        var start = System.nanoTime();
+        int exitCode;
+        var crashed = false;
+        try {
+            exitCode = new Main(console, true).run(cliArgs.toArray(new String[0]));
+        } catch (RuntimeException e) {
+            console.println("Running command '" + commandName + "' failed due to: " + e.getLocalizedMessage());
+            exitCode = 1;
+            crashed = true;
+        }
+        return new Result(exitCode, console.output.toString(), System.nanoTime() - start, crashed);
+    }
+}
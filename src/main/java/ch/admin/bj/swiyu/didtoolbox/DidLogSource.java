@@ -0,0 +1,51 @@
+package ch.admin.bj.swiyu.didtoolbox;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+/**
+ * A (pluggable) source of DID logs, as used by {@link ProofOfPossessionVerifierRegistry} for the purpose of looking up
+ * the DID log of the issuer of a PoP JWT.
+ * <p>
+ * Implementations must be thread-safe.
+ *
+ * @since 2.0.1
+ */
+@FunctionalInterface
+public interface DidLogSource {
+
+    /**
+     * The file extension of DID logs, as expected by {@link #ofDirectory(Path)}
+     */
+    String DID_LOG_FILE_EXTENSION = ".jsonl";
+
+    /**
+     * Yet another static factory method of the interface.
+     * <p>
+     * The returned source looks up the DID log of a DID in the supplied directory, in a file named after the (URL-encoded) DID,
+     * e.g. {@code did%3Awebvh%3AQmSCID%3Aexample.com.jsonl} for {@code did:webvh:QmSCID:example.com}.
+     *
+     * @param directory featuring DID log files
+     * @return a source of DID logs stored in the supplied directory
+     */
+    static DidLogSource ofDirectory(Path directory) {
+        return did -> {
+            try {
+                return Files.readString(directory.resolve(URLEncoder.encode(did, StandardCharsets.UTF_8) + DID_LOG_FILE_EXTENSION));
+            } catch (NoSuchFileException e) {
+                return null;
+            }
+        };
+    }
+
+    /**
+     * @param did to look up the DID log for
+     * @return the whole DID log (in JSON Lines format), or {@code null} if unknown
+     * @throws IOException if the DID log cannot be read
+     */
+    String getDidLog(String did) throws IOException;
+}
@@ -0,0 +1,327 @@
+package ch.admin.bj.swiyu.didtoolbox;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.Inet6Address;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An embedded (JDK) HTTP server exposing the CLI commands to local clients, as started by the {@code serve} command.
+ * <p>
+ * Each request is handled on a virtual thread of its own, by running the very same logic as the CLI does (see {@link CommandDispatcher}),
+ * while the output of the command is captured and returned as JSON. Since the process is long-running, all the in-process caches
+ * (e.g. {@link KeyPool}, {@link KeyMaterialCache}, loaded key stores and native libraries) stay warm across requests.
+ * <p>
+ * Endpoints:
+ * <ul>
+ *     <li>{@code POST /commands/<command>} featuring a JSON body like {@code {"args":["--did-log-file","did.jsonl"]}},
+ *     responding with {@code {"command":..., "exitCode":..., "output":..., "durationMicros":...}}
+ *     (and status 200 if the command succeeded, 422 otherwise)</li>
+ *     <li>{@code GET /health}</li>
+ *     <li>{@code GET /metrics}, featuring the number of runs, failures and latencies per command</li>
+ * </ul>
+ * Since the commands deal with private key material, listening on a loopback address is not enough, as any local process
+ * (or a web page rebinding its own host name to the loopback address) might reach the server. Therefore, except for {@code /health}:
+ * <ul>
+ *     <li>a request must feature the {@code Authorization: Bearer <token>} header (otherwise 401), whereas the token is either
+ *     generated at start (see {@link #generateToken()}) or read from a file accessible to the current user only
+ *     (see {@link #readOrCreateTokenFile(Path)}),</li>
+ *     <li>the {@code Host} header must denote the bound loopback address (or {@code localhost}) and port, and
+ *     no {@code Origin} header may be present at all, i.e. requests issued by web browsers are rejected (403).</li>
+ * </ul>
+ */
+final class DidToolboxHttpServer implements AutoCloseable {
+
+    static final String COMMANDS_PATH = "/commands/";
+    static final String HEALTH_PATH = "/health";
+    static final String METRICS_PATH = "/metrics";
+
+    private static final int MAX_REQUEST_BODY_BYTES = 1 << 20;
+    private static final String CONTENT_TYPE_JSON = "application/json; charset=utf-8";
+    private static final String BEARER_PREFIX = "Bearer ";
+    private static final int TOKEN_LENGTH_BYTES = 32;
+    private static final Set<PosixFilePermission> OWNER_ONLY_PERMISSIONS = EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE);
+
+    /**
+     * Self-explanatory.
+     */
+    private static final class CommandMetrics {
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private final LongAdder failures = new LongAdder();
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final byte[] expectedAuthorization;
+    private final Set<String> allowedHosts = new HashSet<>();
+    // command name -> metrics, all the supported commands (and only those) are known in advance
+    private final Map<String, CommandMetrics> metrics = new LinkedHashMap<>();
+    private final long startedAtNanos = System.nanoTime();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    /**
+     * @param address to listen on. Must be a loopback address.
+     * @param token   the bearer token to expect from clients, e.g. as delivered by {@link #generateToken()}
+     * @throws IOException              if the server cannot be bound to the supplied address
+     * @throws IllegalArgumentException if the address is not a loopback one, or the token is blank
+     */
+    DidToolboxHttpServer(InetSocketAddress address, String token) throws IOException {
+        if (address.getAddress() == null || !address.getAddress().isLoopbackAddress()) {
+            throw new IllegalArgumentException("Only a loopback address may be listened on, but got: " + address);
+        }
+        if (token == null || token.isBlank()) {
+            throw new IllegalArgumentException("A bearer token is required");
+        }
+        this.expectedAuthorization = (BEARER_PREFIX + token).getBytes(StandardCharsets.UTF_8);
+        for (var commandName : CommandDispatcher.COMMAND_NAMES) {
+            this.metrics.put(commandName, new CommandMetrics());
+        }
+
+        this.server = HttpServer.create(address, 0);
+        var port = this.server.getAddress().getPort();
+        var hostAddress = address.getAddress().getHostAddress();
+        this.allowedHosts.add((address.getAddress() instanceof Inet6Address ? "[" + hostAddress + "]" : hostAddress) + ":" + port);
+        this.allowedHosts.add("localhost:" + port);
+
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.server.setExecutor(this.executor);
+        this.server.createContext(COMMANDS_PATH, this::handleCommand);
+        this.server.createContext(HEALTH_PATH, this::handleHealth);
+        this.server.createContext(METRICS_PATH, this::handleMetrics);
+    }
+
+    void start() {
+        this.server.start();
+    }
+
+    /**
+     * @return a new random bearer token (256 bits, base64url-encoded)
+     */
+    static String generateToken() {
+        var bytes = new byte[TOKEN_LENGTH_BYTES];
+        new SecureRandom().nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * Reads the bearer token from the supplied file or, if the file does not exist yet, creates it (with access restricted
+     * to the current user only) featuring a new token (see {@link #generateToken()}).
+     *
+     * @param tokenFile to read the token from (or to write it to)
+     * @return the token
+     * @throws IOException if the file cannot be read or written, is accessible to anyone but the current user, or features no token
+     */
+    static String readOrCreateTokenFile(Path tokenFile) throws IOException {
+        if (Files.notExists(tokenFile)) {
+            var token = generateToken();
+            FilesPrivacy.createPrivateFile(tokenFile, false);
+            Files.writeString(tokenFile, token, StandardCharsets.UTF_8);
+            return token;
+        }
+
+        if (Files.getFileAttributeView(tokenFile, PosixFileAttributeView.class) != null
+                && !OWNER_ONLY_PERMISSIONS.containsAll(Files.getPosixFilePermissions(tokenFile))) {
+            throw new IOException("The token file must be accessible to the current user only (i.e. mode 0600): " + tokenFile);
+        }
+        var token = Files.readString(tokenFile, StandardCharsets.UTF_8).strip();
+        if (token.isEmpty()) {
+            throw new IOException("The token file features no token: " + tokenFile);
+        }
+        return token;
+    }
+
+    /**
+     * @return the port actually listened on, which is relevant if bound to port 0
+     */
+    int getPort() {
+        return this.server.getAddress().getPort();
+    }
+
+    /**
+     * Blocks until the server is {@link #close() closed}.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void awaitStop() throws InterruptedException {
+        this.stopped.await();
+    }
+
+    /**
+     * Stops the server, while letting the ongoing requests complete for up to a second.
+     */
+    @Override
+    public void close() {
+        if (this.stopped.getCount() == 0) {
+            return;
+        }
+        this.server.stop(1);
+        this.executor.shutdown();
+        this.stopped.countDown();
+    }
+
+    /**
+     * Rejects (i.e. responds to) any request not issued by a local (non-browser) client knowing the token.
+     *
+     * @return {@code true} if the request has been rejected already
+     */
+    private boolean reject(HttpExchange exchange) throws IOException {
+        var headers = exchange.getRequestHeaders();
+        var host = headers.getFirst("Host");
+        if (host == null || !this.allowedHosts.contains(host.toLowerCase(Locale.ROOT))) {
+            sendError(exchange, 403, "Unexpected Host header: " + host);
+            return true;
+        }
+        if (headers.containsKey("Origin")) {
+            sendError(exchange, 403, "Requests featuring an Origin header are not allowed");
+            return true;
+        }
+
+        var authorization = headers.getFirst("Authorization");
+        // compared in constant time
+        if (authorization == null || !MessageDigest.isEqual(this.expectedAuthorization, authorization.getBytes(StandardCharsets.UTF_8))) {
+            exchange.getResponseHeaders().set("WWW-Authenticate", "Bearer");
+            sendError(exchange, 401, "Missing or invalid bearer token");
+            return true;
+        }
+        return false;
+    }
+
+    private void handleCommand(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (reject(exchange)) {
+                return;
+            }
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "Method not allowed: " + exchange.getRequestMethod());
+                return;
+            }
+
+            var commandName = exchange.getRequestURI().getPath().substring(COMMANDS_PATH.length());
+            var commandMetrics = this.metrics.get(commandName);
+            if (commandMetrics == null) {
+                sendError(exchange, 404, "Unsupported command: " + commandName);
+                return;
+            }
+
+            var body = exchange.getRequestBody().readNBytes(MAX_REQUEST_BODY_BYTES + 1);
+            if (body.length > MAX_REQUEST_BODY_BYTES) {
+                sendError(exchange, 413, "The request body exceeds " + MAX_REQUEST_BODY_BYTES + " bytes");
+                return;
+            }
+
+            List<String> args;
+            try {
+                args = parseArgs(new String(body, StandardCharsets.UTF_8));
+            } catch (JsonParseException | IllegalStateException e) {
+                sendError(exchange, 400, "Expected a JSON object like {\"args\":[...]}, but got: " + e.getMessage());
+                return;
+            }
+
+            var result = CommandDispatcher.run(commandName, args);
+
+            commandMetrics.latencies.record(result.durationNanos());
+            var status = 200;
+            if (result.exitCode() != 0) {
+                commandMetrics.failures.increment();
+                status = result.crashed() ? 500 : 422;
+            }
+
+            var response = new JsonObject();
+            response.addProperty("command", commandName);
+            response.addProperty("exitCode", result.exitCode());
+            response.addProperty("output", result.output());
+            response.addProperty("durationMicros", TimeUnit.NANOSECONDS.toMicros(result.durationNanos()));
+            sendJson(exchange, status, response);
+        }
+    }
+
+    private static List<String> parseArgs(String body) {
+        return CommandDispatcher.toArgs(JsonParser.parseString(body).getAsJsonObject().get("args"));
+    }
+
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "Method not allowed: " + exchange.getRequestMethod());
+                return;
+            }
+
+            var response = new JsonObject();
+            response.addProperty("status", "UP");
+            response.addProperty("uptimeSeconds", getUptimeSeconds());
+            sendJson(exchange, 200, response);
+        }
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (reject(exchange)) {
+                return;
+            }
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "Method not allowed: " + exchange.getRequestMethod());
+                return;
+            }
+
+            var commands = new JsonObject();
+            this.metrics.forEach((commandName, commandMetrics) -> {
+                var latencies = commandMetrics.latencies;
+                var obj = new JsonObject();
+                obj.addProperty("count", latencies.getCount());
+                obj.addProperty("failures", commandMetrics.failures.sum());
+                obj.addProperty("meanMicros", TimeUnit.NANOSECONDS.toMicros(latencies.getMeanNanos()));
+                obj.addProperty("p50Micros", TimeUnit.NANOSECONDS.toMicros(latencies.getPercentileNanos(50)));
+                obj.addProperty("p99Micros", TimeUnit.NANOSECONDS.toMicros(latencies.getPercentileNanos(99)));
+                obj.addProperty("maxMicros", TimeUnit.NANOSECONDS.toMicros(latencies.getMaxNanos()));
+                commands.add(commandName, obj);
+            });
+
+            var response = new JsonObject();
+            response.addProperty("uptimeSeconds", getUptimeSeconds());
+            response.add("commands", commands);
+            sendJson(exchange, 200, response);
+        }
+    }
+
+    private long getUptimeSeconds() {
+        return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - this.startedAtNanos);
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        var response = new JsonObject();
+        response.addProperty("error", message);
+        sendJson(exchange, status, response);
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, JsonObject response) throws IOException {
+        var bytes = response.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE_JSON);
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+}
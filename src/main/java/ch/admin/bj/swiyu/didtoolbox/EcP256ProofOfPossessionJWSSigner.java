@@ -19,8 +19,18 @@ import java.util.Date;
 import java.util.Set;
 
 public class EcP256ProofOfPossessionJWSSigner implements ProofOfPossessionJWSSigner {
+    private static final JWSHeader ES256_HEADER = new JWSHeader(JWSAlgorithm.ES256);
+
     protected ECKey signingKey;
 
+    /**
+     * The signer is thread-safe, hence built only once per {@link #signingKey} (rather than on every call of {@link #sign(JWSHeader, byte[])}).
+     */
+    private volatile CachedSigner cachedSigner;
+
+    private record CachedSigner(ECKey key, ECDSASigner signer) {
+    }
+
     public EcP256ProofOfPossessionJWSSigner(String keyId) throws JOSEException {
         this.signingKey = new ECKeyGenerator(Curve.P_256).keyUse(KeyUse.SIGNATURE).keyID(keyId).issueTime(new Date()).generate();
     }
@@ -48,9 +58,18 @@ public class EcP256ProofOfPossessionJWSSigner implements ProofOfPossessionJWSSig
     @Override
     public Base64URL sign(JWSHeader jwsHeader, byte[] bytes) throws JOSEException {
         try {
-            return new ECDSASigner(signingKey.toECPrivateKey()).sign(new JWSHeader(JWSAlgorithm.ES256), bytes);
+            return getECDSASigner().sign(ES256_HEADER, bytes);
         } catch (JOSEException e) {
             throw new RuntimeException(e);
         }
     }
+
+    private ECDSASigner getECDSASigner() throws JOSEException {
+        var cached = this.cachedSigner;
+        if (cached == null || cached.key() != this.signingKey) { // the (protected) signing key might have been replaced meanwhile
+            cached = new CachedSigner(this.signingKey, new ECDSASigner(this.signingKey.toECPrivateKey()));
+            this.cachedSigner = cached;
+        }
+        return cached.signer();
+    }
 }
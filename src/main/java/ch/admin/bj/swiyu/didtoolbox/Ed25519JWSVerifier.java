@@ -0,0 +1,110 @@
+package ch.admin.bj.swiyu.didtoolbox;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.crypto.impl.CriticalHeaderParamsDeferral;
+import com.nimbusds.jose.jca.JCAContext;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.util.Base64URL;
+
+import java.security.GeneralSecurityException;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.util.Set;
+
+/**
+ * A {@link JWSVerifier} of <a href="https://www.rfc-editor.org/rfc/rfc8037">Ed25519</a> signatures,
+ * relying solely on the JCA (i.e. the {@code SunEC} provider), as opposed to {@code com.nimbusds.jose.crypto.Ed25519Verifier},
+ * which requires the (otherwise unnecessary) Tink library at runtime.
+ * <p>
+ * The verifier is thread-safe, as each verification obtains a {@link Signature} instance of its own (which is cheap),
+ * rather than caching one per thread, since verifications typically run on a (short-lived) virtual thread each.
+ *
+ * @since 2.0.1
+ */
+public final class Ed25519JWSVerifier implements JWSVerifier {
+
+    private static final int ED25519_SIGNATURE_LENGTH = 64;
+
+    private static final Set<JWSAlgorithm> SUPPORTED_ALGORITHMS = Set.of(JWSAlgorithm.Ed25519, JWSAlgorithm.EdDSA);
+
+    private final PublicKey publicKey;
+    private final CriticalHeaderParamsDeferral critPolicy = new CriticalHeaderParamsDeferral();
+    private final JCAContext jcaContext = new JCAContext();
+
+    /**
+     * @param publicKey Ed25519 public key
+     */
+    public Ed25519JWSVerifier(PublicKey publicKey) {
+        if (!"Ed25519".equalsIgnoreCase(publicKey.getAlgorithm()) && !"EdDSA".equalsIgnoreCase(publicKey.getAlgorithm())) {
+            throw new IllegalArgumentException("The supplied public key is not an Ed25519 key, but " + publicKey.getAlgorithm());
+        }
+        this.publicKey = publicKey;
+    }
+
+    /**
+     * @param octetKeyPair public Ed25519 JWK (of type {@code OKP})
+     * @throws JOSEException if the supplied JWK is not an Ed25519 one
+     */
+    public Ed25519JWSVerifier(OctetKeyPair octetKeyPair) throws JOSEException {
+        this(toPublicKey(octetKeyPair));
+    }
+
+    private static PublicKey toPublicKey(OctetKeyPair octetKeyPair) throws JOSEException {
+        if (!Curve.Ed25519.equals(octetKeyPair.getCurve())) {
+            throw new JOSEException("Ed25519JWSVerifier only supports OctetKeyPairs with crv=Ed25519, but got " + octetKeyPair.getCurve());
+        }
+        try {
+            return Ed25519Utils.toPublicKey(octetKeyPair.getX().decode());
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new JOSEException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean verify(JWSHeader header, byte[] signingInput, Base64URL signature) throws JOSEException {
+        if (!SUPPORTED_ALGORITHMS.contains(header.getAlgorithm())) {
+            throw new JOSEException("Unsupported JWS algorithm " + header.getAlgorithm() + ", must be " + SUPPORTED_ALGORITHMS);
+        }
+        if (!this.critPolicy.headerPasses(header)) {
+            return false;
+        }
+
+        var signatureBytes = signature.decode();
+        if (signatureBytes.length != ED25519_SIGNATURE_LENGTH) {
+            return false;
+        }
+
+        Signature verifier;
+        try {
+            verifier = Signature.getInstance("Ed25519"); // default provider -> "SunEC"
+        } catch (NoSuchAlgorithmException e) {
+            // Ed25519 is a mandatory algorithm of any Java platform implementation (since 15)
+            throw new IllegalStateException(e);
+        }
+        try {
+            verifier.initVerify(this.publicKey);
+            verifier.update(signingInput);
+            return verifier.verify(signatureBytes);
+        } catch (SignatureException e) {
+            return false; // malformed signature
+        } catch (GeneralSecurityException e) {
+            throw new JOSEException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Set<JWSAlgorithm> supportedJWSAlgorithms() {
+        return SUPPORTED_ALGORITHMS;
+    }
+
+    @Override
+    public JCAContext getJCAContext() {
+        return this.jcaContext;
+    }
+}
@@ -1,9 +1,16 @@
 package ch.admin.bj.swiyu.didtoolbox;
 
+import org.bouncycastle.asn1.ASN1OctetString;
+import org.bouncycastle.asn1.edec.EdECObjectIdentifiers;
+import org.bouncycastle.asn1.pkcs.PrivateKeyInfo;
+
+import java.io.IOException;
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.security.*;
+import java.security.interfaces.EdECPrivateKey;
 import java.security.spec.EdECPoint;
+import java.security.spec.EdECPrivateKeySpec;
 import java.security.spec.EdECPublicKeySpec;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.NamedParameterSpec;
@@ -33,7 +40,7 @@ public final class Ed25519Utils {
      * @throws NoSuchAlgorithmException if no {@code Provider} supports a {@code KeyFactorySpi} implementation for the specified algorithm
      * @throws InvalidKeySpecException  if the given key specification is inappropriate for this key factory to produce a public key
      */
-    static PublicKey toPublicKey(final byte[] ed25519publicKey) throws NoSuchAlgorithmException, InvalidKeySpecException {
+    public static PublicKey toPublicKey(final byte[] ed25519publicKey) throws NoSuchAlgorithmException, InvalidKeySpecException {
         var len = ed25519publicKey.length;
         if (len != ED25519_KEY_LENGTH)
             throw new IllegalArgumentException("The supplied Ed25519 public key must be of length 32 (bytes), but got " + len);
@@ -49,6 +56,66 @@ public final class Ed25519Utils {
                 .generatePublic(new EdECPublicKeySpec(NamedParameterSpec.ED25519, new EdECPoint(xOdd, y))); // default provider -> "SunEC"
     }
 
+    /**
+     * A convenient decoding helper, the counterpart of {@link #toMultibase(Key)} for public keys.
+     *
+     * @param publicKeyMultibase <a href="https://www.w3.org/TR/cid/#Multikey">Multikey</a>-formatted Ed25519 public key
+     *                           (i.e. starting with the {@code z6Mk} prefix)
+     * @return an instance of {@link PublicKey}
+     * @throws NoSuchAlgorithmException if no {@code Provider} supports a {@code KeyFactorySpi} implementation for the specified algorithm
+     * @throws InvalidKeySpecException  if the given key specification is inappropriate for this key factory to produce a public key
+     * @throws IllegalArgumentException if the supplied {@code publicKeyMultibase} is not a Multikey-formatted Ed25519 public key
+     */
+    public static PublicKey toPublicKey(final String publicKeyMultibase) throws NoSuchAlgorithmException, InvalidKeySpecException {
+        return toPublicKey(decodeMultibase(publicKeyMultibase, (byte) 0xed, (byte) 0x01));
+    }
+
+    /**
+     * A convenient strict/strong-typing conversion helper.
+     *
+     * @param ed25519secretKey 32-length byte array representing an Ed25519 private key (seed) as specified by the
+     *                         <a href="https://datatracker.ietf.org/doc/html/rfc8032#section-5.1.5">RFC 8032</a> standard
+     * @return an instance of {@link PrivateKey}
+     * @throws NoSuchAlgorithmException if no {@code Provider} supports a {@code KeyFactorySpi} implementation for the specified algorithm
+     * @throws InvalidKeySpecException  if the given key specification is inappropriate for this key factory to produce a private key
+     */
+    public static PrivateKey toPrivateKey(final byte[] ed25519secretKey) throws NoSuchAlgorithmException, InvalidKeySpecException {
+        var len = ed25519secretKey.length;
+        if (len != ED25519_KEY_LENGTH)
+            throw new IllegalArgumentException("The supplied Ed25519 private key must be of length 32 (bytes), but got " + len);
+
+        // CAUTION The "BC" (BouncyCastleProvider) provider might fail while calling generatePrivate(...)
+        return KeyFactory.getInstance("Ed25519")
+                .generatePrivate(new EdECPrivateKeySpec(NamedParameterSpec.ED25519, ed25519secretKey)); // default provider -> "SunEC"
+    }
+
+    /**
+     * A convenient decoding helper, the counterpart of {@link #toMultibase(Key)} for private keys.
+     *
+     * @param secretKeyMultibase <a href="https://www.w3.org/TR/cid/#Multikey">Multikey</a>-formatted Ed25519 private key
+     *                           (i.e. starting with the {@code z3u2} prefix)
+     * @return an instance of {@link PrivateKey}
+     * @throws NoSuchAlgorithmException if no {@code Provider} supports a {@code KeyFactorySpi} implementation for the specified algorithm
+     * @throws InvalidKeySpecException  if the given key specification is inappropriate for this key factory to produce a private key
+     * @throws IllegalArgumentException if the supplied {@code secretKeyMultibase} is not a Multikey-formatted Ed25519 private key
+     */
+    public static PrivateKey toPrivateKey(final String secretKeyMultibase) throws NoSuchAlgorithmException, InvalidKeySpecException {
+        return toPrivateKey(decodeMultibase(secretKeyMultibase, (byte) 0x80, (byte) 0x26));
+    }
+
+    private static byte[] decodeMultibase(final String multibase, byte header0, byte header1) {
+        if (multibase == null || multibase.isEmpty() || multibase.charAt(0) != 'z') {
+            throw new IllegalArgumentException("The supplied Ed25519 key must be base-58-btc (multibase) encoded");
+        }
+
+        var decoded = Base58.decode(multibase.substring(1));
+        if (decoded.length != ED25519_KEY_LENGTH + 2 || decoded[0] != header0 || decoded[1] != header1) {
+            throw new IllegalArgumentException("The supplied Ed25519 key features no valid multicodec header");
+        }
+
+        return Arrays.copyOfRange(decoded, 2, decoded.length);
+    }
+
     @SuppressWarnings("PMD.ForLoopVariableCount")
     private static byte[] reverse(final byte[] bytes, final int offset, final int len) {
         final byte[] reversed = new byte[len];
@@ -75,29 +142,83 @@ public final class Ed25519Utils {
      */
     public static String toMultibase(Key key) {
 
-        byte[] keyEncoded = key.getEncoded();
-        if (keyEncoded == null) {
-            throw new IllegalArgumentException("The supplied key does not support encoding");
-        }
-
-        var len = keyEncoded.length;
-        if (len < ED25519_KEY_LENGTH)
-            throw new IllegalArgumentException("The supplied Ed25519 key must be at least of length 32 (bytes), but got " + len);
-
+        byte[] rawKey;
         var buff = ByteBuffer.allocate(ED25519_KEY_LENGTH + 2);
         switch (key) {
             case PublicKey ignored:
+                byte[] keyEncoded = key.getEncoded();
+                if (keyEncoded == null) {
+                    throw new IllegalArgumentException("The supplied key does not support encoding");
+                }
+
+                var len = keyEncoded.length;
+                if (len < ED25519_KEY_LENGTH)
+                    throw new IllegalArgumentException("The supplied Ed25519 key must be at least of length 32 (bytes), but got " + len);
+
                 buff.put((byte) 0xed).put((byte) 0x01);
+                // the (X.509) SubjectPublicKeyInfo encoding ends with the public key BIT STRING
+                rawKey = Arrays.copyOfRange(keyEncoded, keyEncoded.length - 32, keyEncoded.length);
                 break;
-            case PrivateKey ignored:
+            case PrivateKey privateKey:
                 buff.put((byte) 0x80).put((byte) 0x26);
+                rawKey = toRawPrivateKey(privateKey);
                 break;
             default:
                 throw new IllegalArgumentException("The supplied Ed25519 must be either private or public");
         }
 
-        buff.put(Arrays.copyOfRange(keyEncoded, keyEncoded.length - 32, keyEncoded.length));
+        buff.put(rawKey);
+        Arrays.fill(rawKey, (byte) 0);
+
+        var multibase = 'z' + Base58.encode(buff.array());
+        Arrays.fill(buff.array(), (byte) 0);
+        return multibase;
+    }
+
+    /**
+     * Extracts the raw Ed25519 private key (seed, 32 bytes) as specified by the
+     * <a href="https://datatracker.ietf.org/doc/html/rfc8032#section-5.1.5">RFC 8032</a> standard.
+     * <p>
+     * Unless the key delivers its raw form by itself (see {@link EdECPrivateKey#getBytes()}), its PKCS #8 encoding is decoded properly,
+     * so that no assumption is made about where the seed is located within the encoding (which differs e.g. between PKCS #8 v1 and v2).
+     *
+     * @param privateKey Ed25519 private key
+     * @return raw private key (32 bytes). It is up to the caller to zero it out once no longer needed.
+     * @throws IllegalArgumentException if the supplied key is no Ed25519 private key or does not support PKCS #8 encoding
+     */
+    public static byte[] toRawPrivateKey(PrivateKey privateKey) {
+
+        if (privateKey instanceof EdECPrivateKey edEcPrivateKey) {
+            var bytes = edEcPrivateKey.getBytes();
+            if (bytes.isPresent()) {
+                return checkRawKeyLength(bytes.get());
+            }
+        }
+
+        byte[] keyEncoded = privateKey.getEncoded();
+        if (keyEncoded == null) {
+            throw new IllegalArgumentException("The supplied key does not support encoding");
+        }
 
-        return 'z' + Base58.encode(buff.array());
+        try {
+            var privateKeyInfo = PrivateKeyInfo.getInstance(keyEncoded);
+            var algorithm = privateKeyInfo.getPrivateKeyAlgorithm().getAlgorithm();
+            if (!EdECObjectIdentifiers.id_Ed25519.equals(algorithm)) {
+                throw new IllegalArgumentException("The supplied key is no Ed25519 key, but: " + algorithm);
+            }
+            // CurvePrivateKey ::= OCTET STRING, as specified by https://www.rfc-editor.org/rfc/rfc8410#section-7
+            return checkRawKeyLength(ASN1OctetString.getInstance(privateKeyInfo.parsePrivateKey()).getOctets());
+        } catch (IOException | IllegalStateException e) { // IllegalStateException may come from the ASN.1 parsing
+            throw new IllegalArgumentException("The supplied key features no valid PKCS #8 encoding", e);
+        } finally {
+            Arrays.fill(keyEncoded, (byte) 0);
+        }
+    }
+
+    private static byte[] checkRawKeyLength(byte[] rawKey) {
+        if (rawKey.length != ED25519_KEY_LENGTH) {
+            throw new IllegalArgumentException("The supplied Ed25519 key must be of length 32 (bytes), but got " + rawKey.length);
+        }
+        return rawKey;
     }
 }
\ No newline at end of file
@@ -2,8 +2,6 @@ package ch.admin.bj.swiyu.didtoolbox;
 
 import ch.admin.bj.swiyu.didtoolbox.vc_data_integrity.VcDataIntegrityCryptographicSuite;
 import ch.admin.bj.swiyu.didtoolbox.vc_data_integrity.VcDataIntegrityCryptographicSuiteException;
-import ch.admin.eid.did_sidekicks.DidSidekicksException;
-import ch.admin.eid.did_sidekicks.JcsSha256Hasher;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
@@ -28,7 +26,6 @@ import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.Arrays;
-import java.util.HexFormat;
 import java.util.Random;
 import java.util.Set;
 
@@ -340,6 +337,8 @@ public class Ed25519VerificationMethodKeyProviderImpl implements VcDataIntegrity
         }
         try (var pemWriter = new PemWriter(Files.newBufferedWriter(file.toPath()))) {
             pemWriter.writeObject(new PemObject("PRIVATE KEY", privateKeyEncoded));
+        } finally {
+            KeyMaterialCache.shared().invalidate(file.toPath());
         }
     }
 
@@ -355,6 +354,8 @@ public class Ed25519VerificationMethodKeyProviderImpl implements VcDataIntegrity
         }
         try (var pemWriter = new PemWriter(Files.newBufferedWriter(file.toPath()))) {
             pemWriter.writeObject(new PemObject("PUBLIC KEY", publicKeyEncoded));
+        } finally {
+            KeyMaterialCache.shared().invalidate(file.toPath());
         }
     }
 
@@ -481,16 +482,14 @@ public class Ed25519VerificationMethodKeyProviderImpl implements VcDataIntegrity
             proof.addProperty("challenge", challenge);
         }
 
-        String docHashHex;
-        String proofHashHex;
-        try (var hasher = JcsSha256Hasher.Companion.build()) {
-            docHashHex = hasher.encodeHex(unsecuredDocumentJsonObject.toString());
-            proofHashHex = hasher.encodeHex(proof.toString());
-        } catch (DidSidekicksException e) {
+        byte[] hashData;
+        try {
+            hashData = JcsCanonicalizer.proofHashData(proof, unsecuredDocumentJsonObject);
+        } catch (IllegalArgumentException e) {
             throw new VcDataIntegrityCryptographicSuiteException(e);
         }
 
-        var signature = this.generateSignature(HexFormat.of().parseHex(proofHashHex + docHashHex));
+        var signature = this.generateSignature(hashData);
 
         // See https://www.w3.org/TR/vc-di-eddsa/#create-proof-eddsa-jcs-2022
         //     https://www.w3.org/TR/controller-document/#multibase-0
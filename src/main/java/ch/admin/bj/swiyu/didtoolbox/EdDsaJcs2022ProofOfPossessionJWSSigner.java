@@ -8,6 +8,7 @@ import com.nimbusds.jose.JWSHeader;
 import com.nimbusds.jose.util.Base64URL;
 
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.util.Set;
 
@@ -56,6 +57,10 @@ public class EdDsaJcs2022ProofOfPossessionJWSSigner extends EdDsaJcs2022VcDataIn
 
     @Override
     public Base64URL sign(JWSHeader jwsHeader, byte[] bytes) throws JOSEException {
-        return Base64URL.encode(super.generateSignature(bytes));
+        try {
+            return Base64URL.encode(super.sign(ByteBuffer.wrap(bytes)));
+        } catch (VcDataIntegrityCryptographicSuiteException e) {
+            throw new JOSEException(e.getMessage(), e);
+        }
     }
 }
@@ -0,0 +1,351 @@
+package ch.admin.bj.swiyu.didtoolbox;
+
+import org.bouncycastle.asn1.ASN1String;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x500.X500NameBuilder;
+import org.bouncycastle.asn1.x500.style.BCStyle;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.security.*;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.security.interfaces.ECKey;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A single-file (password-protected PKCS#12) store of generated key pairs, indexed by DID and key ID
+ * (see {@link #toAlias(String, String)}), as an alternative to the separate PEM files otherwise created per DID.
+ * <p>
+ * When provisioning DIDs in bulk, the per-file overhead (i.e. a private file creation with restricted access, followed by a separate PEM export)
+ * tends to dominate the whole key generation, especially on network file systems. Instead, all the key pairs are collected in memory
+ * (see {@link #add(String, String, KeyPair)}) and then written to the file system all at once (see {@link #write(Path)}),
+ * sequentially and using a single private file creation followed by a single {@code fsync}.
+ * <p>
+ * As required by the PKCS#12 format, each private key is accompanied by a (self-signed) certificate of its public key,
+ * whose subject common name (CN) is the exact alias, since PKCS#12 aliases are lowercased once loaded
+ * (whereas e.g. the base58-encoded SCID of a DID is case-sensitive).
+ * <p>
+ * Needless to say, an instance of the class is not thread-safe. However, concurrent additions to the very same file
+ * (e.g. by the operations of a {@code batch} or {@code serve} command) are supported by {@link #addAll(Path, char[], String, Map)},
+ * which serializes them per file and writes the file only once per group of additions pending meanwhile.
+ *
+ * @since 2.0.1
+ */
+public final class GeneratedKeyStore {
+
+    private static final String KEY_STORE_TYPE = "PKCS12";
+
+    private static final Map<Path, PendingAdditions> PENDING_ADDITIONS = new ConcurrentHashMap<>();
+
+    private final KeyStore keyStore;
+    private final char[] password;
+
+    private GeneratedKeyStore(KeyStore keyStore, char[] password) {
+        this.keyStore = keyStore;
+        this.password = password.clone();
+    }
+
+    /**
+     * @param password to protect the store (and all the keys stored in it) with
+     * @return a new empty store
+     */
+    public static GeneratedKeyStore create(char[] password) {
+        try {
+            var keyStore = KeyStore.getInstance(KEY_STORE_TYPE);
+            keyStore.load(null, null);
+            return new GeneratedKeyStore(keyStore, password);
+        } catch (GeneralSecurityException | IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * @param file     to load the store from, as previously written by {@link #write(Path)}
+     * @param password the store is protected with
+     * @return the store featuring all the key pairs previously written, so that some more might be added
+     * @throws IOException if the file cannot be read or the password is wrong
+     */
+    public static GeneratedKeyStore load(Path file, char[] password) throws IOException {
+        try (var in = Files.newInputStream(file)) {
+            var keyStore = KeyStore.getInstance(KEY_STORE_TYPE);
+            keyStore.load(in, password); // if the password is incorrect, the java.io.IOException is thrown
+            return new GeneratedKeyStore(keyStore, password);
+        } catch (KeyStoreException | NoSuchAlgorithmException | CertificateException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * CAUTION PKCS#12 aliases are case-insensitive, hence two DIDs differing in case only are rejected by {@link #add(String, String, KeyPair)}.
+     *
+     * @param did   the DID the key belongs to
+     * @param keyId the ID of the key within the DID, e.g. {@code auth-key-01}
+     * @return the (DID URL) alias the key pair is stored under
+     */
+    public static String toAlias(String did, String keyId) {
+        return did + "#" + keyId;
+    }
+
+    /**
+     * Adds an (either Ed25519 or EC P-256) key pair to the store, in memory only.
+     *
+     * @param did     the DID the key belongs to
+     * @param keyId   the ID of the key within the DID
+     * @param keyPair to add
+     * @throws IllegalArgumentException if the store already features a key pair under the same alias, or the key pair is not supported
+     */
+    public void add(String did, String keyId, KeyPair keyPair) {
+        var alias = toAlias(did, keyId);
+        try {
+            if (this.keyStore.containsAlias(alias)) {
+                throw new IllegalArgumentException("The store already features a key under the alias: " + alias);
+            }
+            this.keyStore.setKeyEntry(alias, keyPair.getPrivate(), this.password, new Certificate[]{selfSign(alias, keyPair)});
+        } catch (GeneralSecurityException | OperatorCreationException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private static Certificate selfSign(String alias, KeyPair keyPair) throws OperatorCreationException, CertificateException {
+        var signatureAlgorithm = keyPair.getPrivate() instanceof ECKey ? "SHA256withECDSA" : "Ed25519";
+        var subject = new X500NameBuilder(BCStyle.INSTANCE).addRDN(BCStyle.CN, alias).build(); // escaped as required
+        var now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        var holder = new JcaX509v3CertificateBuilder(subject,
+                BigInteger.valueOf(now.toEpochMilli()),
+                Date.from(now),
+                Date.from(now.plus(3652, ChronoUnit.DAYS)),
+                subject,
+                keyPair.getPublic())
+                .build(new JcaContentSignerBuilder(signatureAlgorithm).build(keyPair.getPrivate()));
+        return new JcaX509CertificateConverter().getCertificate(holder);
+    }
+
+    /**
+     * @param did   the DID the key belongs to
+     * @param keyId the ID of the key within the DID
+     * @return the key pair stored under the alias, or {@code null} if there is none
+     */
+    public KeyPair getKeyPair(String did, String keyId) {
+        var alias = toAlias(did, keyId);
+        try {
+            if (!this.keyStore.isKeyEntry(alias)) {
+                return null;
+            }
+            return new KeyPair(this.keyStore.getCertificate(alias).getPublicKey(), (PrivateKey) this.keyStore.getKey(alias, this.password));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * @return all the aliases (see {@link #toAlias(String, String)}) available in the store, in their original case
+     * (as recorded by the certificate of each key pair)
+     */
+    public Set<String> getAliases() {
+        try {
+            var aliases = new TreeSet<String>();
+            for (var alias : Collections.list(this.keyStore.aliases())) {
+                aliases.add(toOriginalAlias(alias, this.keyStore.getCertificate(alias)));
+            }
+            return aliases;
+        } catch (KeyStoreException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * @return the subject CN of the certificate, unless it does not match the (possibly lowercased) alias at all
+     * (e.g. as written by an earlier version, featuring some special characters replaced)
+     */
+    private static String toOriginalAlias(String alias, Certificate certificate) {
+        if (certificate instanceof X509Certificate x509Certificate) {
+            var commonNames = X500Name.getInstance(x509Certificate.getSubjectX500Principal().getEncoded()).getRDNs(BCStyle.CN);
+            if (commonNames.length == 1 && commonNames[0].getFirst().getValue() instanceof ASN1String commonName
+                    && commonName.getString().equalsIgnoreCase(alias)) {
+                return commonName.getString();
+            }
+        }
+        return alias;
+    }
+
+    /**
+     * @return the number of key pairs in the store
+     */
+    public int size() {
+        try {
+            return this.keyStore.size();
+        } catch (KeyStoreException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * Writes the whole store to the supplied file, replacing any existing one.
+     * <p>
+     * The store is first written (and {@code fsync}-ed) to a uniquely named sibling temporary file with access restricted
+     * to the current user only, which is then atomically moved to the target location.
+     * Therefore, the file is always either the previous or the new store, never a partial one.
+     *
+     * @param file to write the store to
+     * @throws IOException if writing fails
+     */
+    public void write(Path file) throws IOException {
+        var tempFile = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName() + ".", ".tmp");
+        try {
+            if (Files.getFileAttributeView(tempFile, PosixFileAttributeView.class) == null) {
+                // unlike on POSIX file systems, a temporary file is not created with access restricted to the owner by default
+                FilesPrivacy.restrictAccessToCurrentUserOnly(tempFile);
+            }
+            try (var channel = FileChannel.open(tempFile, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                var out = new BufferedOutputStream(Channels.newOutputStream(channel));
+                this.keyStore.store(out, this.password);
+                out.flush();
+                channel.force(true);
+            } catch (GeneralSecurityException e) {
+                throw new IOException(e);
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Adds the supplied key pairs (of a single DID) to the store file, creating the file if it does not exist yet.
+     * <p>
+     * Safe to call concurrently: all the additions to the very same file are serialized, so that none of them gets lost.
+     * Furthermore, the additions pending while the file is being written are merged, so that the file is loaded and written
+     * only once per group of them. The method returns only once the key pairs are written to the file.
+     *
+     * @param file     to add the key pairs to
+     * @param password the store is (to be) protected with
+     * @param did      the DID the keys belong to
+     * @param keyPairs to add, indexed by key ID
+     * @throws IOException              if the file cannot be read or written, or the password is wrong
+     * @throws IllegalArgumentException if the store already features a key pair under any of the aliases, or any key pair is not supported
+     */
+    public static void addAll(Path file, char[] password, String did, Map<String, KeyPair> keyPairs) throws IOException {
+        var path = file.toAbsolutePath().normalize();
+        var pending = PENDING_ADDITIONS.computeIfAbsent(path, PendingAdditions::new);
+        var addition = new Addition(did, keyPairs, password.clone(), new CompletableFuture<>());
+        pending.queue.add(addition);
+
+        pending.lock.lock();
+        try {
+            if (!addition.done.isDone()) { // otherwise, already written along with others
+                pending.flush();
+            }
+        } finally {
+            pending.lock.unlock();
+        }
+
+        try {
+            addition.done.join();
+        } catch (CompletionException e) {
+            switch (e.getCause()) {
+                case IOException ioe -> throw ioe;
+                case RuntimeException re -> throw re;
+                default -> throw new IOException(e.getCause());
+            }
+        }
+    }
+
+    private record Addition(String did, Map<String, KeyPair> keyPairs, char[] password, CompletableFuture<Void> done) {
+    }
+
+    /**
+     * All the additions to a certain file, not written yet. The lock is held while loading and writing the file.
+     */
+    private static final class PendingAdditions {
+        private final Path file;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Queue<Addition> queue = new ConcurrentLinkedQueue<>();
+
+        private PendingAdditions(Path file) {
+            this.file = file;
+        }
+
+        /**
+         * Writes all the additions pending at the moment, at most once per password.
+         */
+        @SuppressWarnings({"PMD.AvoidCatchingGenericException", "PMD.AvoidInstantiatingObjectsInLoops"})
+        private void flush() {
+            var additions = new ArrayList<Addition>();
+            Addition addition;
+            while ((addition = this.queue.poll()) != null) {
+                additions.add(addition);
+            }
+
+            while (!additions.isEmpty()) {
+                // CAUTION Additions supplying another password are written separately, so that a wrong one is reported as such
+                var password = additions.getFirst().password();
+                var group = additions.stream().filter(a -> Arrays.equals(a.password(), password)).toList();
+                additions.removeAll(group);
+
+                var written = new ArrayList<Addition>();
+                try {
+                    var keyStore = Files.exists(this.file) ? load(this.file, password) : create(password);
+                    for (var a : group) {
+                        if (keyStore.tryAdd(a)) {
+                            written.add(a);
+                        }
+                    }
+                    if (!written.isEmpty()) {
+                        keyStore.write(this.file);
+                    }
+                    written.forEach(a -> a.done().complete(null));
+                } catch (Throwable thr) { // NOPMD - any failure is reported to all the callers waiting for the group
+                    group.forEach(a -> a.done().completeExceptionally(thr));
+                } finally {
+                    group.forEach(a -> Arrays.fill(a.password(), '\u0000'));
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds all the key pairs of the supplied addition, or none of them.
+     *
+     * @return {@code true} if added, otherwise the addition is completed exceptionally
+     */
+    private boolean tryAdd(Addition addition) {
+        var added = new ArrayList<String>();
+        try {
+            for (var keyPair : addition.keyPairs().entrySet()) {
+                add(addition.did(), keyPair.getKey(), keyPair.getValue());
+                added.add(toAlias(addition.did(), keyPair.getKey()));
+            }
+            return true;
+        } catch (IllegalArgumentException e) {
+            for (var alias : added) {
+                try {
+                    this.keyStore.deleteEntry(alias);
+                } catch (KeyStoreException ignore) { // NOPMD - the store is loaded already
+                }
+            }
+            addition.done().completeExceptionally(e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package ch.admin.bj.swiyu.didtoolbox;
+
+import ch.admin.eid.did_sidekicks.DidSidekicksException;
+import ch.admin.eid.did_sidekicks.JcsSha256Hasher;
+import com.google.gson.JsonElement;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * The central (static) hashing facility of the library, delivering
+ * <a href="https://www.w3.org/TR/controller-document/#multihash">multihash</a> values as well as
+ * <a href="https://www.rfc-editor.org/rfc/rfc8785">JCS</a>-based SHA-256 hashes (e.g. SCID, entry hash, data integrity proof hash).
+ * <p>
+ * <strong>Concurrency contract</strong>
+ * <ul>
+ *     <li>All methods of this class are thread-safe and may be called by any number of threads simultaneously.</li>
+ *     <li>A {@link MessageDigest} is never shared between threads. Instead, each thread lazily creates its own instance
+ *     (on first use) and reuses it for all subsequent calls.</li>
+ *     <li>A native {@link JcsSha256Hasher} is never used by two threads at once. Instead, it is borrowed from a small bounded pool
+ *     for the duration of a single call, thus avoiding any native allocation churn while hashing in bulk. As the pool is bounded,
+ *     the number of native objects does not grow along with the number of (e.g. virtual) threads: a hasher not fitting into the pool
+ *     upon return is closed right away.</li>
+ *     <li>The batch methods (e.g. {@link #multihashAll(Collection)}) distribute the work over the
+ *     {@link java.util.concurrent.ForkJoinPool#commonPool() common pool}, while preserving the iteration order of the supplied collection.</li>
+ * </ul>
+ */
+public final class HashingService {
+
+    /**
+     * The <a href="https://github.com/multiformats/multicodec/blob/master/table.csv">multihash</a> identifier
+     * of SHA-2 with 256 bits (32 bytes) of output, as defined by <a href="https://www.rfc-editor.org/rfc/rfc6234">RFC6234</a>.
+     */
+    private static final byte MULTIHASH_SHA2_256 = 0x12;
+    private static final int SHA2_256_DIGEST_LENGTH = 32;
+
+    private static final ThreadLocal<MessageDigest> SHA256_DIGEST = ThreadLocal.withInitial(HashingService::newSha256Digest);
+    // idle native hashers, available for borrowing
+    private static final BlockingQueue<JcsSha256Hasher> JCS_HASHERS = new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Carries a {@link DidSidekicksException} through the lambdas of a parallel stream.
+     */
+    private static final class DidSidekicksRuntimeException extends RuntimeException {
+        private final DidSidekicksException exception;
+
+        private DidSidekicksRuntimeException(DidSidekicksException exception) {
+            super(exception);
+            this.exception = exception;
+        }
+    }
+
+    @FunctionalInterface
+    private interface JcsHasherCall<T> {
+        T call(JcsSha256Hasher hasher) throws DidSidekicksException;
+    }
+
+    private HashingService() {
+    }
+
+    private static MessageDigest newSha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is a mandatory algorithm of any Java platform implementation
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * Runs the supplied call using a native {@link JcsSha256Hasher} borrowed from the pool (or a new one, if none is idle).
+     * The hasher is returned to the pool afterwards, or closed if the pool is full already.
+     */
+    private static <T> T withJcsHasher(JcsHasherCall<T> call) throws DidSidekicksException {
+        var hasher = JCS_HASHERS.poll();
+        if (hasher == null) {
+            hasher = JcsSha256Hasher.Companion.build();
+        }
+        try {
+            return call.call(hasher);
+        } finally {
+            if (!JCS_HASHERS.offer(hasher)) {
+                hasher.close();
+            }
+        }
+    }
+
+    /**
+     * Returns the {@link MessageDigest} (SHA-256) bound to the current thread, reset and ready for use.
+     * <p>
+     * CAUTION The returned object MUST NOT be passed on to (or be used by) any other thread.
+     *
+     * @return thread-bound SHA-256 message digest
+     */
+    static MessageDigest sha256() {
+        var md = SHA256_DIGEST.get();
+        md.reset();
+        return md;
+    }
+
+    /**
+     * Computes the (plain) SHA-256 hash of the supplied bytes.
+     *
+     * @param input the bytes to be hashed. Its remaining bytes are consumed.
+     * @return SHA-256 hash (32 bytes)
+     */
+    public static byte[] sha256(ByteBuffer input) {
+        var md = sha256();
+        md.update(input);
+        return md.digest();
+    }
+
+    /**
+     * multihash is an implementation of the <a href="https://www.w3.org/TR/controller-document/#multihash">multihash</a> specification.
+     * Its output is a SHA-256 hash of the input, prefixed with a hash algorithm identifier and the hash size.
+     *
+     * @param input string to be hashed (UTF-8)
+     * @return {@code input} string hashed accordingly
+     */
+    public static byte[] multihash(String input) {
+        return multihash(input.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * multihash is an implementation of the <a href="https://www.w3.org/TR/controller-document/#multihash">multihash</a> specification.
+     * Its output is a SHA-256 hash of the input, prefixed with a hash algorithm identifier and the hash size.
+     *
+     * @param input the array of bytes to be hashed.
+     * @return hashed bytes
+     */
+    public static byte[] multihash(byte[] input) {
+        var md = sha256();
+        md.update(input);
+        return multihash(md);
+    }
+
+    /**
+     * Completes the hash computation of the supplied (already updated) {@link MessageDigest} (SHA-256)
+     * and writes the result straight into a multihash-formatted array, i.e. without any intermediate buffer.
+     *
+     * @param sha256 digest to complete. It is reset afterwards.
+     * @return multihash bytes
+     */
+    static byte[] multihash(MessageDigest sha256) {
+        var multihash = new byte[2 + SHA2_256_DIGEST_LENGTH];
+        multihash[0] = MULTIHASH_SHA2_256;              // hash algorithm (sha2-256) identifier
+        multihash[1] = (byte) SHA2_256_DIGEST_LENGTH;  // hash size (in bytes)
+        try {
+            sha256.digest(multihash, 2, SHA2_256_DIGEST_LENGTH);
+        } catch (DigestException e) {
+            throw new IllegalArgumentException(e);
+        }
+        return multihash;
+    }
+
+    /**
+     * Batch variant of {@link #multihash(String)}. The hashes are computed in parallel.
+     *
+     * @param inputs strings to be hashed (UTF-8)
+     * @return the list of multihash values in the iteration order of {@code inputs}
+     */
+    public static List<byte[]> multihashAll(Collection<String> inputs) {
+        return inputs.parallelStream().map(HashingService::multihash).toList();
+    }
+
+    /**
+     * Computes the SHA-256 hash of the <a href="https://www.rfc-editor.org/rfc/rfc8785">JCS</a>-canonicalized JSON,
+     * formatted as base58btc-encoded multihash value (as required for SCID or entry hash).
+     *
+     * @param json to canonicalize and hash
+     * @return base58btc-encoded multihash value
+     * @throws DidSidekicksException if {@code json} is not a valid JSON
+     */
+    public static String base58btcEncodeMultihash(String json) throws DidSidekicksException {
+        return withJcsHasher(hasher -> hasher.base58btcEncodeMultihash(json));
+    }
+
+    /**
+     * Computes the SHA-256 hash of the <a href="https://www.rfc-editor.org/rfc/rfc8785">JCS</a>-canonicalized JSON,
+     * formatted as base58btc-encoded multihash value (as required for SCID or entry hash).
+     * <p>
+     * Unlike {@link #base58btcEncodeMultihash(String)}, the JSON element is canonicalized by {@link JcsCanonicalizer}
+     * straight into the digest, i.e. without serializing it into a string and without any native call.
+     *
+     * @param json to canonicalize and hash
+     * @return base58btc-encoded multihash value
+     */
+    public static String base58btcEncodeMultihash(JsonElement json) {
+        return Base58.encode(JcsCanonicalizer.multihash(json));
+    }
+
+    /**
+     * Batch variant of {@link #base58btcEncodeMultihash(String)}. The hashes are computed in parallel.
+     *
+     * @param jsons to canonicalize and hash
+     * @return the list of base58btc-encoded multihash values in the iteration order of {@code jsons}
+     * @throws DidSidekicksException if any of {@code jsons} is not a valid JSON
+     */
+    public static List<String> base58btcEncodeMultihashAll(Collection<String> jsons) throws DidSidekicksException {
+        var hashes = new ArrayList<String>(jsons.size());
+        try {
+            jsons.parallelStream().map(json -> {
+                try {
+                    return base58btcEncodeMultihash(json);
+                } catch (DidSidekicksException e) {
+                    throw new DidSidekicksRuntimeException(e);
+                }
+            }).forEachOrdered(hashes::add);
+        } catch (DidSidekicksRuntimeException e) {
+            throw e.exception;
+        }
+        return hashes;
+    }
+
+    /**
+     * Computes the SHA-256 hash of the <a href="https://www.rfc-editor.org/rfc/rfc8785">JCS</a>-canonicalized JSON, hex-encoded.
+     *
+     * @param json to canonicalize and hash
+     * @return hex-encoded SHA-256 hash
+     * @throws DidSidekicksException if {@code json} is not a valid JSON
+     */
+    public static String encodeHex(String json) throws DidSidekicksException {
+        return withJcsHasher(hasher -> hasher.encodeHex(json));
+    }
+
+    /**
+     * Computes the SHA-256 hash of the <a href="https://www.rfc-editor.org/rfc/rfc8785">JCS</a>-canonicalized JSON, hex-encoded.
+     * <p>
+     * Unlike {@link #encodeHex(String)}, the JSON element is canonicalized by {@link JcsCanonicalizer}
+     * straight into the digest, i.e. without serializing it into a string and without any native call.
+     *
+     * @param json to canonicalize and hash
+     * @return hex-encoded SHA-256 hash
+     */
+    public static String encodeHex(JsonElement json) {
+        return HexFormat.of().formatHex(JcsCanonicalizer.sha256(json));
+    }
+}
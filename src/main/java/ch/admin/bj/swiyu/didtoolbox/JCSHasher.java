@@ -2,17 +2,12 @@ package ch.admin.bj.swiyu.didtoolbox;
 
 import ch.admin.bj.swiyu.didtoolbox.vc_data_integrity.VcDataIntegrityCryptographicSuite;
 import ch.admin.eid.did_sidekicks.DidSidekicksException;
-import ch.admin.eid.did_sidekicks.JcsSha256Hasher;
 import com.google.gson.JsonObject;
 
-import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
-import java.util.HexFormat;
 
 public final class JCSHasher {
 
@@ -22,8 +17,6 @@ public final class JCSHasher {
     public static final String PROOF_PURPOSE_AUTHENTICATION = "authentication";
     public static final String PROOF_PURPOSE_ASSERTION_METHOD = "assertionMethod";
 
-    final private static JcsSha256Hasher HASHER = JcsSha256Hasher.Companion.build();
-
     private JCSHasher() {
     }
 
@@ -34,6 +27,7 @@ public final class JCSHasher {
      *
      * @param input string to be hashed
      * @return {@code input} string hashed accordingly
+     * @see HashingService#multihash(String)
      */
     public static byte[] multihash(String input) {
         return multihash(input.getBytes(StandardCharsets.UTF_8));
@@ -47,26 +41,7 @@ public final class JCSHasher {
      * @return hashed bytes
      */
     static byte[] multihash(byte[] input) {
-
-        MessageDigest hasher;
-        try {
-            hasher = MessageDigest.getInstance("SHA-256");
-        } catch (NoSuchAlgorithmException e) {
-            throw new IllegalArgumentException(e);
-        }
-        hasher.update(input);
-        byte[] digest = hasher.digest();
-
-        // multihash is an implementation of the multihash specification (https://www.w3.org/TR/controller-document/#multihash).
-        // Its output is a hash of the input using the associated <hash algorithm>, prefixed with a hash algorithm identifier and the hash size.
-        // Multihash Identifier	Multihash Header	Description
-        // sha2-256	            0x12	            SHA-2 with 256 bits (32 bytes) of output, as defined by [RFC6234].
-        ByteBuffer buff = ByteBuffer.allocate(2 + digest.length);
-        buff.put((byte) 0x12);          // hash algorithm (sha2-256) identifier
-        buff.put((byte) digest.length); // hash size (in bytes)
-        buff.put(digest);
-
-        return buff.array();
+        return HashingService.multihash(input);
     }
 
     /**
@@ -138,9 +113,7 @@ public final class JCSHasher {
         // See https://www.w3.org/TR/vc-di-eddsa/#create-proof-eddsa-jcs-2022
         //     https://www.w3.org/TR/controller-document/#multibase-0
         proof.addProperty("proofValue", 'z' + Base58.encode(
-                verificationMethodKeyProvider.generateSignature(
-                        HexFormat.of().parseHex(
-                                HASHER.encodeHex(proof.toString()) + HASHER.encodeHex(unsecuredDocument.toString())))));
+                verificationMethodKeyProvider.generateSignature(JcsCanonicalizer.proofHashData(proof, unsecuredDocument))));
 
         return proof;
     }
@@ -4,7 +4,10 @@ import ch.admin.bj.swiyu.didtoolbox.context.*;
 import ch.admin.bj.swiyu.didtoolbox.jcommander.*;
 import ch.admin.bj.swiyu.didtoolbox.model.*;
 import ch.admin.bj.swiyu.didtoolbox.securosys.primus.PrimusEd25519VerificationMethodKeyProviderImpl;
+import ch.admin.bj.swiyu.didtoolbox.securosys.primus.PrimusKeyStoreInitializationException;
+import ch.admin.bj.swiyu.didtoolbox.securosys.primus.PrimusSessionManager;
 import ch.admin.bj.swiyu.didtoolbox.vc_data_integrity.EdDsaJcs2022VcDataIntegrityCryptographicSuite;
+import ch.admin.bj.swiyu.didtoolbox.vc_data_integrity.Pkcs12KeyStoreCache;
 import ch.admin.bj.swiyu.didtoolbox.vc_data_integrity.VcDataIntegrityCryptographicSuite;
 import ch.admin.bj.swiyu.didtoolbox.vc_data_integrity.VcDataIntegrityCryptographicSuiteException;
 import ch.admin.eid.did_sidekicks.DidSidekicksException;
@@ -13,13 +16,22 @@ import com.beust.jcommander.JCommander;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
 import java.nio.file.*;
 import java.security.KeyException;
+import java.security.KeyPair;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.UnrecoverableEntryException;
+import java.security.interfaces.ECPublicKey;
 import java.time.Duration;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * The class is introduced for the sake of being able to test the CLI with no hassle involved.
@@ -29,10 +41,20 @@ final class JCommanderRunner {
 
     private final JCommander jc;
     private final String parsedCommandName;
+    private final boolean inProcess;
 
     JCommanderRunner(JCommander jc, String parsedCommandName) {
+        this(jc, parsedCommandName, false);
+    }
+
+    /**
+     * @param inProcess {@code true} if the command is dispatched by a long-running process (e.g. {@code serve} or {@code batch}),
+     *                  i.e. any number of commands share the very same working directory
+     */
+    JCommanderRunner(JCommander jc, String parsedCommandName, boolean inProcess) {
         this.jc = jc;
         this.parsedCommandName = parsedCommandName;
+        this.inProcess = inProcess;
     }
 
     private static int printCommandError(JCommander jc, String commandName, String message) {
@@ -99,7 +121,7 @@ final class JCommanderRunner {
     int runCreateDidLogCommand(CreateDidLogCommand command)
             throws UnrecoverableEntryException, KeyStoreException, NoSuchAlgorithmException, KeyException, IOException,
             VcDataIntegrityCryptographicSuiteException, DidLogCreatorStrategyException, NextKeyHashesDidMethodParameterException,
-            UpdateKeysDidMethodParameterException, VerificationMethodException {
+            UpdateKeysDidMethodParameterException, VerificationMethodException, PrimusKeyStoreInitializationException {
         if (command.help) {
             jc.usage(parsedCommandName);
             return 0;
@@ -114,12 +136,29 @@ final class JCommanderRunner {
 
         var forceOverwrite = command.forceOverwrite;
 
+        // if set, all the generated private keys end up in a single key store instead of separate PEM files
+        var keyStoreOutputFile = command.keyStoreOutputFile;
+        var generatedKeyPairs = new LinkedHashMap<String, KeyPair>();
+        if (keyStoreOutputFile != null && command.keyStoreOutputPassword == null) {
+            return printCommandError(jc, parsedCommandName, "No " + CommandParameterNames.PARAM_NAME_LONG_KEY_STORE_OUTPUT_PASSWORD + " supplied");
+        }
+        if (this.inProcess && keyStoreOutputFile == null && generatesKeysIntoDidToolboxDirectory(command)) {
+            // all the dispatched commands share the very same .didtoolbox directory, hence would overwrite (or fail on) each other's keys
+            return printCommandError(jc, parsedCommandName, "Generating keys into the .didtoolbox directory is not supported by a long-running process, " +
+                    "use " + CommandParameterNames.PARAM_NAME_LONG_KEY_STORE_OUTPUT_FILE + " instead");
+        }
+
         var assertionMethods = new HashSet<VerificationMethod>();
         var assertionMethodKeys = command.assertionMethodKeys;
         if (assertionMethodKeys != null && !assertionMethodKeys.isEmpty()) {
             for (VerificationMethodParameters param : assertionMethodKeys) {
                 assertionMethods.add(VerificationMethod.of(param.key, param.jwk));
             }
+        } else if (keyStoreOutputFile != null) {
+            var keyPair = KeyPool.shared().take(KeyPool.Algorithm.EC_P256);
+            generatedKeyPairs.put("assert-key-01", keyPair);
+            assertionMethods.add(VerificationMethod.of("assert-key-01",
+                    JwkUtils.toPublicEC256JWKasJSON((ECPublicKey) keyPair.getPublic(), "assert-key-01")));
         } else {
             createPrivateKeyDirectoryIfDoesNotExist(".didtoolbox");
             assertionMethods.add(VerificationMethod.of("assert-key-01",
@@ -132,6 +171,11 @@ final class JCommanderRunner {
             for (VerificationMethodParameters param : authenticationKeys) {
                 authentications.add(VerificationMethod.of(param.key, param.jwk));
             }
+        } else if (keyStoreOutputFile != null) {
+            var keyPair = KeyPool.shared().take(KeyPool.Algorithm.EC_P256);
+            generatedKeyPairs.put("auth-key-01", keyPair);
+            authentications.add(VerificationMethod.of("auth-key-01",
+                    JwkUtils.toPublicEC256JWKasJSON((ECPublicKey) keyPair.getPublic(), "auth-key-01")));
         } else {
             createPrivateKeyDirectoryIfDoesNotExist(".didtoolbox");
             authentications.add(VerificationMethod.of("auth-key-01",
@@ -179,15 +223,26 @@ final class JCommanderRunner {
         } else if (jksFile != null && jksAlias != null) {
 
             // CAUTION Different store and key passwords not supported for PKCS12 KeyStores
-            cryptoSuite = new EdDsaJcs2022VcDataIntegrityCryptographicSuite(Files.newInputStream(jksFile.toPath()), jksPassword, jksAlias, jksPassword); // supplied external key pair
+            cryptoSuite = Pkcs12KeyStoreCache.shared().getCryptographicSuite(jksFile.toPath(), jksPassword, jksAlias, jksPassword); // supplied external key pair
 
         } else if (primus != null && primusKeyAlias != null) { // && primusKeyPassword != null) {
 
-            cryptoSuite = new PrimusEd25519VerificationMethodKeyProviderImpl(primus, primusKeyAlias, primusKeyPassword); // supplied external key pair
+            // supplied external key pair, while failing over if the session (shared by a long-running process) turns out to be broken
+            cryptoSuite = PrimusSessionManager.withSharedSession(primus, session ->
+                    new PrimusEd25519VerificationMethodKeyProviderImpl(session, primusKeyAlias, primusKeyPassword));
+
+        } else if (keyStoreOutputFile != null) {
+
+            // pre-generated in the background, if running as a long-running process (see KeyPool#start)
+            var keyPair = KeyPool.shared().take(KeyPool.Algorithm.ED25519);
+            generatedKeyPairs.put("id_ed25519", keyPair);
+            cryptoSuite = new EdDsaJcs2022VcDataIntegrityCryptographicSuite(Ed25519Utils.toMultibase(keyPair.getPrivate()));
 
         } else {
 
-            var dalekSigner = new EdDsaJcs2022VcDataIntegrityCryptographicSuite();
+            // pre-generated in the background, if running as a long-running process (see KeyPool#start)
+            var dalekSigner = new EdDsaJcs2022VcDataIntegrityCryptographicSuite(
+                    Ed25519Utils.toMultibase(KeyPool.shared().take(KeyPool.Algorithm.ED25519).getPrivate()));
             cryptoSuite = dalekSigner;
 
             var outputDir = new File(".didtoolbox");
@@ -239,7 +294,7 @@ final class JCommanderRunner {
         }
 
         // CAUTION At this point, the methodVersion var of type DidMethodEnum MUST be non-null already
-        jc.getConsole().println(DidLogCreatorContext.builder()
+        var didLog = DidLogCreatorContext.builder()
                 .didMethod(didMethod)
                 .cryptographicSuite(cryptoSuite)
                 .assertionMethods(assertionMethods)
@@ -249,15 +304,56 @@ final class JCommanderRunner {
                 // Instead of calling deprecated .nextKeys(nextKeyPemFiles)
                 .nextKeyHashesDidMethodParameter(NextKeyHashesDidMethodParameter.of(nextKeyPemFiles))
                 .build()
-                .create(identifierRegistryUrl));
+                .create(identifierRegistryUrl);
+
+        if (!generatedKeyPairs.isEmpty()) {
+            writeGeneratedKeyPairs(keyStoreOutputFile.toPath(), command.keyStoreOutputPassword.toCharArray(), didMethod, didLog, generatedKeyPairs);
+        }
+
+        jc.getConsole().println(didLog);
         return 0;
     }
 
+    /**
+     * @return {@code true} if any of the keys is to be generated (and written into the {@code .didtoolbox} directory,
+     * unless {@link CreateDidLogCommand#keyStoreOutputFile} is set) by {@link #runCreateDidLogCommand(CreateDidLogCommand)}
+     */
+    private static boolean generatesKeysIntoDidToolboxDirectory(CreateDidLogCommand command) {
+        return command.assertionMethodKeys == null || command.assertionMethodKeys.isEmpty()
+                || command.authenticationKeys == null || command.authenticationKeys.isEmpty()
+                || (command.signingKeyPemFile == null
+                && (command.jksFile == null || command.jksAlias == null)
+                && (command.securosysPrimusKeyStoreLoader == null || command.primusKeyAlias == null));
+    }
+
+    /**
+     * Adds all the generated key pairs to the (single) key store file, indexed by the DID of the freshly created DID log.
+     * The key store is written only once all the key pairs are added, i.e. sequentially and using a single {@code fsync}.
+     * Concurrent operations (of a {@code batch} or {@code serve} command) adding to the very same file are serialized
+     * and merged (see {@link GeneratedKeyStore#addAll(Path, char[], String, Map)}).
+     */
+    private static void writeGeneratedKeyPairs(Path keyStoreFile, char[] password, DidMethodEnum didMethod, String didLog,
+                                               Map<String, KeyPair> generatedKeyPairs) throws IOException {
+        String did;
+        try {
+            did = (didMethod == DidMethodEnum.TDW_0_3 ? TdwDidLogMetaPeeker.peek(didLog) : WebVerifiableHistoryDidLogMetaPeeker.peek(didLog))
+                    .getResolvedDidDoc().getId();
+        } catch (DidLogMetaPeekerException e) {
+            throw new IllegalArgumentException(e); // the freshly created DID log is expected to be valid
+        }
+
+        try {
+            GeneratedKeyStore.addAll(keyStoreFile, password, did, generatedKeyPairs);
+        } finally {
+            Arrays.fill(password, '\u0000');
+        }
+    }
+
     @SuppressWarnings({"PMD.NPathComplexity", "PMD.NcssCount", "PMD.CognitiveComplexity", "PMD.AvoidInstantiatingObjectsInLoops", "PMD.UseConcurrentHashMap"})
     int runUpdateDidLogCommand(UpdateDidLogCommand command)
             throws IOException, UnrecoverableEntryException, VcDataIntegrityCryptographicSuiteException, KeyStoreException,
             NoSuchAlgorithmException, KeyException, DidLogUpdaterStrategyException, NextKeyHashesDidMethodParameterException,
-            UpdateKeysDidMethodParameterException, VerificationMethodException {
+            UpdateKeysDidMethodParameterException, VerificationMethodException, PrimusKeyStoreInitializationException {
         if (command.help) {
             jc.usage(parsedCommandName);
             return 0;
@@ -371,7 +467,7 @@ final class JCommanderRunner {
 
         } else if (jksFile != null && jksAlias != null) {
             // CAUTION Different store and key passwords not supported for PKCS12 KeyStores
-            cryptoSuite = new EdDsaJcs2022VcDataIntegrityCryptographicSuite(Files.newInputStream(jksFile.toPath()), jksPassword, jksAlias, jksPassword); // supplied external key pair
+            cryptoSuite = Pkcs12KeyStoreCache.shared().getCryptographicSuite(jksFile.toPath(), jksPassword, jksAlias, jksPassword); // supplied external key pair
 
             if (didLogMeta.isKeyPreRotationActivated() && !didLogMeta.isPreRotatedUpdateKey(cryptoSuite.getVerificationKeyMultibase())) {
                 return printCommandError(jc, parsedCommandName, "Illegal signing (private) ed25519 key supplied");
@@ -379,7 +475,9 @@ final class JCommanderRunner {
 
         } else if (primus != null && primusKeyAlias != null) { // && primusKeyPassword != null) {
 
-            cryptoSuite = new PrimusEd25519VerificationMethodKeyProviderImpl(primus, primusKeyAlias, primusKeyPassword); // supplied external key pair
+            // supplied external key pair, while failing over if the session (shared by a long-running process) turns out to be broken
+            cryptoSuite = PrimusSessionManager.withSharedSession(primus, session ->
+                    new PrimusEd25519VerificationMethodKeyProviderImpl(session, primusKeyAlias, primusKeyPassword));
 
             if (didLogMeta.isKeyPreRotationActivated() && !didLogMeta.isPreRotatedUpdateKey(cryptoSuite.getVerificationKeyMultibase())) {
                 return printCommandError(jc, parsedCommandName, "Illegal signing (private) ed25519 key supplied");
@@ -409,7 +507,7 @@ final class JCommanderRunner {
     @SuppressWarnings({"PMD.CognitiveComplexity", "PMD.AvoidInstantiatingObjectsInLoops"})
     int runDeactivateDidLogCommand(DeactivateDidLogCommand command)
             throws IOException, UnrecoverableEntryException, VcDataIntegrityCryptographicSuiteException, KeyStoreException,
-            NoSuchAlgorithmException, KeyException, DidLogDeactivatorStrategyException {
+            NoSuchAlgorithmException, KeyException, DidLogDeactivatorStrategyException, PrimusKeyStoreInitializationException {
         if (command.help) {
             jc.usage(parsedCommandName);
             return 0;
@@ -457,11 +555,13 @@ final class JCommanderRunner {
 
         } else if (jksFile != null && jksPassword != null && jksAlias != null) {
             // CAUTION Different store and key passwords not supported for PKCS12 KeyStores
-            cryptoSuite = new EdDsaJcs2022VcDataIntegrityCryptographicSuite(Files.newInputStream(jksFile.toPath()), jksPassword, jksAlias, jksPassword); // supplied external key pair
+            cryptoSuite = Pkcs12KeyStoreCache.shared().getCryptographicSuite(jksFile.toPath(), jksPassword, jksAlias, jksPassword); // supplied external key pair
 
         } else if (primus != null && primusKeyAlias != null) { // && primusKeyPassword != null) {
 
-            cryptoSuite = new PrimusEd25519VerificationMethodKeyProviderImpl(primus, primusKeyAlias, primusKeyPassword); // supplied external key pair
+            // supplied external key pair, while failing over if the session (shared by a long-running process) turns out to be broken
+            cryptoSuite = PrimusSessionManager.withSharedSession(primus, session ->
+                    new PrimusEd25519VerificationMethodKeyProviderImpl(session, primusKeyAlias, primusKeyPassword));
 
         } else {
             return printCommandError(jc, parsedCommandName, "No valid source of signing/verifying ed25519 keys supplied. Use one of the relevant options to supply keys");
@@ -498,15 +598,15 @@ final class JCommanderRunner {
 
         ProofOfPossessionJWSSigner signer = new EcP256ProofOfPossessionJWSSigner(privateKey.toPath(), kid);
 
-        var proof = new ProofOfPossessionCreator(signer).create(nonce, validDuration);
+        ProofOfPossessionIssuer issuer;
         try {
-            var verifier = new ProofOfPossessionVerifier(didLog);
-            verifier.verify(proof, nonce);
+            // the signer is self-verified against the DID log
+            issuer = new ProofOfPossessionIssuer(signer, validDuration, new ProofOfPossessionVerifier(didLog));
         } catch (ProofOfPossessionVerifierException e) {
             return printCommandError(jc, parsedCommandName, "Failed to verify generated proof: %s".formatted(e.getLocalizedMessage()));
         }
 
-        jc.getConsole().println(proof.serialize());
+        jc.getConsole().println(issuer.createSerialized(nonce));
         return 0;
     }
 
@@ -531,4 +631,94 @@ final class JCommanderRunner {
         }
         return 0;
     }
-}
\ No newline at end of file
+
+    int runServeCommand(ServeCommand command) throws IOException {
+        if (command.help) {
+            jc.usage(parsedCommandName);
+            return 0;
+        }
+
+        InetSocketAddress address;
+        try {
+            address = new InetSocketAddress(InetAddress.getByName(command.host), command.port);
+        } catch (UnknownHostException | IllegalArgumentException e) {
+            return printCommandError(jc, parsedCommandName, "Invalid address to listen on: " + e.getLocalizedMessage());
+        }
+        if (!address.getAddress().isLoopbackAddress()) {
+            // the commands deal with private key material, hence never to be exposed beyond the local host
+            return printCommandError(jc, parsedCommandName, "Only a loopback address may be listened on, but got: " + command.host);
+        }
+
+        String token;
+        if (command.tokenFile != null) {
+            try {
+                token = DidToolboxHttpServer.readOrCreateTokenFile(command.tokenFile.toPath());
+            } catch (IOException e) {
+                return printCommandError(jc, parsedCommandName, "Invalid token file: " + e.getLocalizedMessage());
+            }
+        } else {
+            token = DidToolboxHttpServer.generateToken();
+        }
+
+        try (var server = new DidToolboxHttpServer(address, token)) {
+            // worthwhile for a long-running process only
+            KeyPool.shared().start();
+            PrimusSessionManager.enableSharedSessions();
+            server.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+            jc.getConsole().println("Listening on http://" + address.getAddress().getHostAddress() + ":" + server.getPort());
+            if (command.tokenFile != null) {
+                jc.getConsole().println("Bearer token to be read from: " + command.tokenFile.getAbsolutePath());
+            } else {
+                jc.getConsole().println("Bearer token: " + token);
+            }
+            server.awaitStop();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            PrimusSessionManager.closeShared();
+        }
+        return 0;
+    }
+
+    int runBatchCommand(BatchCommand command) throws IOException {
+        if (command.help) {
+            jc.usage(parsedCommandName);
+            return 0;
+        }
+
+        if (command.parallelism < 1) {
+            return printCommandError(jc, parsedCommandName, "The parallelism must be positive, but got: " + command.parallelism);
+        }
+
+        // worthwhile for a long-running process only
+        KeyPool.shared().start();
+        PrimusSessionManager.enableSharedSessions();
+        var runner = new BatchRunner(command.parallelism);
+        long failures;
+        try (var manifest = Files.newBufferedReader(command.manifestFile.toPath())) {
+            if (command.outputFile != null) {
+                try (var writer = Files.newBufferedWriter(command.outputFile.toPath())) {
+                    failures = runner.run(manifest, result -> {
+                        try {
+                            writer.write(result);
+                            writer.newLine();
+                            writer.flush(); // so that the results may be followed while the batch is still running
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                }
+            } else {
+                failures = runner.run(manifest, jc.getConsole()::println);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return printCommandError(jc, parsedCommandName, "Interrupted while running the batch");
+        } finally {
+            PrimusSessionManager.closeShared();
+        }
+
+        return failures == 0 ? 0 : 1;
+    }
+}
@@ -0,0 +1,82 @@
+package ch.admin.bj.swiyu.didtoolbox;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.crypto.ECDSAVerifier;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A thread-safe registry of ready-to-use {@link JWSVerifier} objects, indexed by key ID (e.g. a DID doc key fragment).
+ * <p>
+ * The right verifier is chosen according to the type of the registered {@link JWK} (see {@link #newVerifier(JWK)}):
+ * <ul>
+ *     <li>{@code EC} key on the P-256 curve: {@link ECDSAVerifier} (i.e. {@code ES256})</li>
+ *     <li>{@code OKP} key on the Ed25519 curve: {@link Ed25519JWSVerifier} (i.e. {@code Ed25519})</li>
+ * </ul>
+ * As both verifiers are thread-safe, each registered one is meant to be reused for any number of verifications.
+ *
+ * @since 2.0.1
+ */
+public final class JWSVerifierRegistry {
+
+    private final Map<String, JWSVerifier> verifiers = new ConcurrentHashMap<>();
+
+    /**
+     * Builds a new verifier matching the type of the supplied (public) key.
+     *
+     * @param jwk public key, either an EC P-256 or an Ed25519 (OKP) one
+     * @return a new verifier
+     * @throws JOSEException if the supplied key is of an unsupported type or curve
+     */
+    public static JWSVerifier newVerifier(JWK jwk) throws JOSEException {
+        if (jwk instanceof ECKey ecKey) {
+            if (!Curve.P_256.equals(ecKey.getCurve())) {
+                throw new JOSEException("Unsupported EC curve: " + ecKey.getCurve());
+            }
+            return new ECDSAVerifier(ecKey);
+        } else if (jwk instanceof OctetKeyPair octetKeyPair) {
+            return new Ed25519JWSVerifier(octetKeyPair);
+        }
+        throw new JOSEException("Unsupported key type: " + jwk.getKeyType());
+    }
+
+    /**
+     * @param keyId of a previously registered key
+     * @return the verifier of the key, or {@code null} if not (yet) registered
+     */
+    public JWSVerifier get(String keyId) {
+        return this.verifiers.get(keyId);
+    }
+
+    /**
+     * Registers a verifier for the supplied key, unless there is already one registered under the same key ID.
+     *
+     * @param keyId under which to register the key
+     * @param jwk   public key, either an EC P-256 or an Ed25519 (OKP) one
+     * @return the verifier registered under the key ID, i.e. in case of a race, the one registered first
+     * @throws JOSEException if the supplied key is of an unsupported type or curve
+     * @see #newVerifier(JWK)
+     */
+    public JWSVerifier register(String keyId, JWK jwk) throws JOSEException {
+        var existing = this.verifiers.get(keyId);
+        if (existing != null) {
+            return existing;
+        }
+        var verifier = newVerifier(jwk);
+        existing = this.verifiers.putIfAbsent(keyId, verifier);
+        return existing != null ? existing : verifier;
+    }
+
+    /**
+     * @return the number of registered verifiers
+     */
+    public int size() {
+        return this.verifiers.size();
+    }
+}
@@ -0,0 +1,298 @@
+package ch.admin.bj.swiyu.didtoolbox;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * A pure-Java implementation of the <a href="https://www.rfc-editor.org/rfc/rfc8785">JSON Canonicalization Scheme (JCS)</a>.
+ * <p>
+ * It walks a Gson {@link JsonElement} tree and emits its canonical UTF-8 form straight into a {@link MessageDigest}
+ * (or a byte array) using a small thread-bound buffer, i.e. no intermediate (JSON) string is ever materialized.
+ * It delivers the very same output as the native {@link ch.admin.eid.did_sidekicks.JcsSha256Hasher},
+ * while sparing the JNA string marshalling and the native re-parsing of the JSON.
+ * <p>
+ * All the (static) methods of this class are thread-safe. The hashing helpers rely on thread-bound digests
+ * supplied by {@link HashingService}.
+ */
+public final class JcsCanonicalizer {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+    private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+    private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+
+    // reused by all the canonicalizations of a thread. A grown (accumulating) buffer is never put back.
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
+    private final MessageDigest digest;
+    private byte[] buffer = BUFFER.get();
+    private int position;
+
+    /**
+     * @param digest to feed the canonical UTF-8 bytes into. If {@code null}, the bytes are accumulated (see {@link #toByteArray()}).
+     */
+    private JcsCanonicalizer(MessageDigest digest) {
+        this.digest = digest;
+    }
+
+    /**
+     * Feeds the canonical (UTF-8) form of the supplied JSON element into the supplied {@link MessageDigest}.
+     *
+     * @param json   to canonicalize
+     * @param digest to update
+     * @throws IllegalArgumentException if {@code json} features a number not representable in JSON (NaN, Infinity)
+     *                                  or a string with an unpaired surrogate
+     */
+    public static void canonicalize(JsonElement json, MessageDigest digest) {
+        var canonicalizer = new JcsCanonicalizer(digest);
+        canonicalizer.write(json);
+        canonicalizer.flush();
+    }
+
+    /**
+     * Delivers the canonical (UTF-8) form of the supplied JSON element.
+     *
+     * @param json to canonicalize
+     * @return canonical UTF-8 bytes
+     * @throws IllegalArgumentException if {@code json} features a number not representable in JSON (NaN, Infinity)
+     *                                  or a string with an unpaired surrogate
+     */
+    public static byte[] canonicalize(JsonElement json) {
+        var canonicalizer = new JcsCanonicalizer(null);
+        canonicalizer.write(json);
+        return canonicalizer.toByteArray();
+    }
+
+    /**
+     * Computes the SHA-256 hash of the canonical form of the supplied JSON element.
+     *
+     * @param json to canonicalize and hash
+     * @return SHA-256 hash
+     */
+    public static byte[] sha256(JsonElement json) {
+        var md = HashingService.sha256();
+        canonicalize(json, md);
+        return md.digest();
+    }
+
+    /**
+     * Computes the SHA-256 hash of the canonical form of the supplied JSON element, formatted as
+     * <a href="https://www.w3.org/TR/controller-document/#multihash">multihash</a>.
+     *
+     * @param json to canonicalize and hash
+     * @return multihash bytes
+     */
+    public static byte[] multihash(JsonElement json) {
+        var md = HashingService.sha256();
+        canonicalize(json, md);
+        return HashingService.multihash(md);
+    }
+
+    /**
+     * Computes the hash data of an <a href="https://www.w3.org/TR/vc-di-eddsa/#hashing-eddsa-jcs-2022">eddsa-jcs-2022</a> proof,
+     * i.e. the SHA-256 hash of the canonical proof configuration followed by the SHA-256 hash of the canonical document.
+     *
+     * @param proofConfig the proof (configuration), with no proof value
+     * @param document    the unsecured document
+     * @return hash data (64 bytes), ready to be signed
+     */
+    public static byte[] proofHashData(JsonElement proofConfig, JsonElement document) {
+        var md = HashingService.sha256();
+        var hashData = new byte[2 * md.getDigestLength()];
+        System.arraycopy(sha256(proofConfig), 0, hashData, 0, md.getDigestLength());
+        System.arraycopy(sha256(document), 0, hashData, md.getDigestLength(), md.getDigestLength());
+        return hashData;
+    }
+
+    private void write(JsonElement json) {
+        if (json == null || json.isJsonNull()) {
+            write(NULL);
+        } else if (json.isJsonObject()) {
+            writeObject(json.getAsJsonObject());
+        } else if (json.isJsonArray()) {
+            writeArray(json.getAsJsonArray());
+        } else {
+            writePrimitive(json.getAsJsonPrimitive());
+        }
+    }
+
+    private void writeObject(JsonObject obj) {
+        // Sorting of the object properties according to https://www.rfc-editor.org/rfc/rfc8785#section-3.2.3:
+        // The property names are compared as arrays of UTF-16 code units, which is exactly what String.compareTo does
+        var entries = new ArrayList<>(obj.entrySet());
+        entries.sort(Map.Entry.comparingByKey());
+
+        write('{');
+        boolean first = true;
+        for (var entry : entries) {
+            if (!first) {
+                write(',');
+            }
+            first = false;
+            writeString(entry.getKey());
+            write(':');
+            write(entry.getValue());
+        }
+        write('}');
+    }
+
+    private void writeArray(JsonArray arr) {
+        write('[');
+        boolean first = true;
+        for (var element : arr) {
+            if (!first) {
+                write(',');
+            }
+            first = false;
+            write(element);
+        }
+        write(']');
+    }
+
+    private void writePrimitive(JsonPrimitive primitive) {
+        if (primitive.isBoolean()) {
+            write(primitive.getAsBoolean() ? TRUE : FALSE);
+        } else if (primitive.isNumber()) {
+            writeAscii(formatNumber(primitive.getAsNumber().doubleValue()));
+        } else {
+            writeString(primitive.getAsString());
+        }
+    }
+
+    /**
+     * String serialization according to <a href="https://www.rfc-editor.org/rfc/rfc8785#section-3.2.2.2">RFC 8785</a>.
+     */
+    private void writeString(String str) {
+        write('"');
+        int len = str.length();
+        for (int i = 0; i < len; i++) {
+            char c = str.charAt(i);
+            switch (c) {
+                case '"' -> write('\\', '"');
+                case '\\' -> write('\\', '\\');
+                case '\b' -> write('\\', 'b');
+                case '\f' -> write('\\', 'f');
+                case '\n' -> write('\\', 'n');
+                case '\r' -> write('\\', 'r');
+                case '\t' -> write('\\', 't');
+                default -> {
+                    if (c < 0x20) {
+                        write('\\', 'u');
+                        write('0', '0');
+                        write(HEX_DIGITS[c >> 4], HEX_DIGITS[c & 0xf]);
+                    } else if (c < 0x80) {
+                        write(c);
+                    } else if (c < 0x800) {
+                        write(0xc0 | (c >> 6), 0x80 | (c & 0x3f));
+                    } else if (Character.isSurrogate(c)) {
+                        if (!Character.isHighSurrogate(c) || i + 1 >= len || !Character.isLowSurrogate(str.charAt(i + 1))) {
+                            throw new IllegalArgumentException("Unpaired surrogate at index " + i);
+                        }
+                        int cp = Character.toCodePoint(c, str.charAt(++i));
+                        write(0xf0 | (cp >> 18), 0x80 | ((cp >> 12) & 0x3f));
+                        write(0x80 | ((cp >> 6) & 0x3f), 0x80 | (cp & 0x3f));
+                    } else {
+                        write(0xe0 | (c >> 12));
+                        write(0x80 | ((c >> 6) & 0x3f), 0x80 | (c & 0x3f));
+                    }
+                }
+            }
+        }
+        write('"');
+    }
+
+    /**
+     * Number serialization according to <a href="https://www.rfc-editor.org/rfc/rfc8785#section-3.2.2.3">RFC 8785</a>,
+     * i.e. the ECMAScript {@code Number.prototype.toString()} algorithm applied to the IEEE 754 double value.
+     * <p>
+     * Relies on {@link Double#toString(double)} delivering the shortest decimal that uniquely distinguishes the value
+     * (as guaranteed since JDK 19).
+     *
+     * @param value to format
+     * @return ECMAScript-compliant decimal representation
+     */
+    static String formatNumber(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("NaN and Infinity are not permitted in JSON");
+        }
+        if (value == 0) {
+            return "0"; // also covers the negative zero
+        }
+
+        var decimal = new BigDecimal(Double.toString(Math.abs(value))).stripTrailingZeros();
+        var digits = decimal.unscaledValue().toString();
+        int k = digits.length();
+        int n = k - decimal.scale(); // so that: value = 0.digits * 10^n
+
+        var sb = new StringBuilder(32);
+        if (value < 0) {
+            sb.append('-');
+        }
+        if (k <= n && n <= 21) {
+            sb.append(digits);
+            sb.repeat('0', n - k);
+        } else if (0 < n && n <= 21) {
+            sb.append(digits, 0, n).append('.').append(digits, n, k);
+        } else if (-6 < n && n <= 0) {
+            sb.append("0.");
+            sb.repeat('0', -n);
+            sb.append(digits);
+        } else {
+            sb.append(digits.charAt(0));
+            if (k > 1) {
+                sb.append('.').append(digits, 1, k);
+            }
+            sb.append('e').append(n - 1 < 0 ? '-' : '+').append(Math.abs(n - 1));
+        }
+        return sb.toString();
+    }
+
+    private void writeAscii(String ascii) {
+        for (int i = 0; i < ascii.length(); i++) {
+            write(ascii.charAt(i));
+        }
+    }
+
+    private void write(byte[] bytes) {
+        for (byte b : bytes) {
+            write(b);
+        }
+    }
+
+    private void write(int b1, int b2) {
+        write(b1);
+        write(b2);
+    }
+
+    private void write(int b) {
+        if (position == buffer.length) {
+            if (digest != null) {
+                flush();
+            } else {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+        }
+        buffer[position++] = (byte) b;
+    }
+
+    private void flush() {
+        if (digest != null && position > 0) {
+            digest.update(buffer, 0, position);
+        }
+        position = 0;
+    }
+
+    private byte[] toByteArray() {
+        return Arrays.copyOf(buffer, position);
+    }
+}
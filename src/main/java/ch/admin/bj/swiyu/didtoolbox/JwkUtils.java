@@ -1,19 +1,13 @@
 package ch.admin.bj.swiyu.didtoolbox;
 
 import com.google.gson.JsonParser;
-import com.nimbusds.jose.JOSEException;
-import com.nimbusds.jose.crypto.bc.BouncyCastleProviderSingleton;
 import com.nimbusds.jose.jwk.Curve;
 import com.nimbusds.jose.jwk.ECKey;
-import com.nimbusds.jose.jwk.JWK;
 import org.bouncycastle.openssl.jcajce.JcaPEMWriter;
 import org.bouncycastle.util.io.pem.PemObject;
 
 import java.io.*;
 import java.nio.file.*;
-import java.security.KeyPair;
-import java.security.KeyPairGenerator;
-import java.security.NoSuchAlgorithmException;
 import java.security.interfaces.ECPublicKey;
 import java.security.spec.InvalidKeySpecException;
 
@@ -63,9 +57,7 @@ public final class JwkUtils {
             throw new IllegalArgumentException(String.format("The supplied key ID (kid) of the JWK '%s' must be a regular case-sensitive string featuring no URIs reserved characters", kid));
         }
 
-        var publicKey = (ECPublicKey) PemUtils.parsePemPublicKey(Files.newBufferedReader(ecPublicPemPath));
-
-        return new ECKey.Builder(Curve.P_256, publicKey).keyID(kid).build().toPublicJWK().toJSONString();
+        return KeyMaterialCache.shared().getECPublicJwk(ecPublicPemPath, kid);
     }
 
     /**
@@ -85,39 +77,13 @@ public final class JwkUtils {
      */
     public static String generatePublicEC256(String kid, File keyPairPemFile, boolean forceOverwrite) throws IOException {
 
-        KeyPairGenerator keyPairGenerator;
-        try {
-            keyPairGenerator = KeyPairGenerator.getInstance("EC", BouncyCastleProviderSingleton.getInstance());
-        } catch (NoSuchAlgorithmException e) {
-            throw new IllegalArgumentException(e);
-        }
-
-        keyPairGenerator.initialize(256);
-        KeyPair keyPair = keyPairGenerator.generateKeyPair();
-
-        StringWriter stringWriter = new StringWriter();
-        try (JcaPEMWriter pemWriter = new JcaPEMWriter(stringWriter)) {
-            pemWriter.writeObject(keyPair); // CAUTION The whole key pair is expected to be written here, not only the private key
-        }
-        String keyPairPem = stringWriter.toString();
-
-        stringWriter = new StringWriter();
-        try (JcaPEMWriter pemWriter = new JcaPEMWriter(stringWriter)) {
-            pemWriter.writeObject(keyPair.getPublic());
-        }
-        String publicKeyPem = stringWriter.toString();
+        // CAUTION By using com.nimbusds.jose.jwk.gen.ECKeyGenerator (see https://connect2id.com/products/nimbus-jose-jwt/examples/jws-with-ec-signature)
+        //         to create a com.nimbusds.jose.jwk.JWK object you may end up having incomplete EC PRIVATE KEY export later on.
+        //         Hence, the key pair is rather generated by Bouncy Castle (in the background).
+        var keyPair = KeyPool.shared().take(KeyPool.Algorithm.EC_P256);
+        var publicKey = (ECPublicKey) keyPair.getPublic();
 
-        JWK publicJwk;
-        try {
-            // CAUTION By using com.nimbusds.jose.jwk.gen.ECKeyGenerator (see https://connect2id.com/products/nimbus-jose-jwt/examples/jws-with-ec-signature)
-            //         to create a com.nimbusds.jose.jwk.JWK object you may end up having incomplete EC PRIVATE KEY export later on.
-            publicJwk = JWK.parseFromPEMEncodedObjects(publicKeyPem).toECKey();
-        } catch (JOSEException e) {
-            throw new IllegalArgumentException(e);
-        }
-
-        var publicJwkJsonObject = JsonParser.parseString(publicJwk.toJSONString()).getAsJsonObject();
-        publicJwkJsonObject.addProperty("kid", kid);
+        var publicJwk = toPublicEC256JWKasJSON(publicKey, kid);
 
         if (keyPairPemFile != null) {
 
@@ -125,19 +91,34 @@ public final class JwkUtils {
 
                 createPrivateFile(keyPairPemFile, forceOverwrite);
 
-                try (Writer w = Files.newBufferedWriter(keyPairPemFile.toPath())) {
-                    w.write(keyPairPem);
-                    w.flush();
+                try (var pemWriter = new JcaPEMWriter(Files.newBufferedWriter(keyPairPemFile.toPath()))) {
+                    pemWriter.writeObject(keyPair); // CAUTION The whole key pair is expected to be written here, not only the private key
+                    pemWriter.flush();
+                } finally {
+                    KeyMaterialCache.shared().invalidate(keyPairPemFile.toPath());
                 }
 
                 // Creates (keyPairPemFile || ".pub") file
-                exportEcPublicKeyToPem(publicJwk, keyPairPemFile);
+                exportEcPublicKeyToPem(publicKey, keyPairPemFile);
 
             } else {
                 throw new IOException("The PEM file(s) exist(s) already and will remain intact until overwrite mode is engaged: " + keyPairPemFile.getPath());
             }
         }
 
+        return publicJwk;
+    }
+
+    /**
+     * Builds the JWK JSON representation straight from the key object, thus without any PEM round trip.
+     *
+     * @param publicKey EC P-256 public key
+     * @param kid       the ID of the JWK
+     * @return JSON object string representation of the public JWK
+     */
+    static String toPublicEC256JWKasJSON(ECPublicKey publicKey, String kid) {
+        var publicJwkJsonObject = JsonParser.parseString(new ECKey.Builder(Curve.P_256, publicKey).build().toJSONString()).getAsJsonObject();
+        publicJwkJsonObject.addProperty("kid", kid);
         return publicJwkJsonObject.toString();
     }
 
@@ -166,13 +147,14 @@ public final class JwkUtils {
     /**
      * PEM export helper.
      */
-    private static void exportEcPublicKeyToPem(JWK jwk, File keyPairPemFile) throws IOException {
-        try (var pemWriterPub = new JcaPEMWriter(Files.newBufferedWriter(Path.of(keyPairPemFile.getPath() + ".pub")))) {
+    private static void exportEcPublicKeyToPem(ECPublicKey publicKey, File keyPairPemFile) throws IOException {
+        var publicKeyPemFile = Path.of(keyPairPemFile.getPath() + ".pub");
+        try (var pemWriterPub = new JcaPEMWriter(Files.newBufferedWriter(publicKeyPemFile))) {
             // as specified by https://www.rfc-editor.org/rfc/rfc5208
-            pemWriterPub.writeObject(new PemObject("PUBLIC KEY", jwk.toECKey().toPublicKey().getEncoded()));
+            pemWriterPub.writeObject(new PemObject("PUBLIC KEY", publicKey.getEncoded()));
             pemWriterPub.flush();
-        } catch (JOSEException e) {
-            throw new IllegalArgumentException(e);
+        } finally {
+            KeyMaterialCache.shared().invalidate(publicKeyPemFile);
         }
     }
 }
@@ -0,0 +1,245 @@
+package ch.admin.bj.swiyu.didtoolbox;
+
+import ch.admin.eid.did_sidekicks.DidSidekicksException;
+import ch.admin.eid.did_sidekicks.Ed25519VerifyingKey;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.interfaces.ECPublicKey;
+
+/**
+ * A bounded and thread-safe cache of (public) key material loaded from PEM files, keyed by the (absolute) path of a file.
+ * <p>
+ * Each entry is only valid as long as the file remains the very same, i.e. a file that has changed in the meantime is simply
+ * re-read (and re-parsed) on next access. Besides the size and the last modification time (which may well be preserved
+ * or reset by tools like {@code cp -p} or {@code touch}), the file identity (e.g. the inode, changed by an atomic replacement)
+ * and, where supported, the status change time ({@code ctime}, which cannot be set by any tool) are compared.
+ * Hence, a lookup costs a single {@code stat} call, as opposed to reading and parsing the file.
+ * <p>
+ * Any in-process writer of a PEM file (e.g. {@link JwkUtils} or
+ * {@link ch.admin.bj.swiyu.didtoolbox.vc_data_integrity.EdDsaJcs2022VcDataIntegrityCryptographicSuite#writePublicKeyPemFile(Path)})
+ * also {@link #invalidate(Path) invalidates} the file explicitly.
+ * <p>
+ * All the values are derived lazily (on demand) from the file and then cached along with the entry:
+ * <ul>
+ *     <li>Ed25519 public key in multibase format (see {@link #getEd25519PublicKeyMultibase(Path)})</li>
+ *     <li>hash of the Ed25519 public key, as used for pre-rotation (see {@link #getNextKeyHash(Path)})</li>
+ *     <li>EC P-256 public key (see {@link #getECPublicKey(Path)}) and its JWK JSON representation per key ID
+ *     (see {@link #getECPublicJwk(Path, String)})</li>
+ * </ul>
+ * The {@link #shared() shared instance} is used by all the PEM-related factories of the library, e.g.
+ * {@link PemUtils#readEd25519PublicKeyPemFileToMultibase(Path)} or {@link JwkUtils#loadECPublicJWKasJSON(Path, String)}.
+ *
+ * @since 2.0.1
+ */
+public final class KeyMaterialCache {
+
+    /**
+     * The default maximum number of files to keep key material for
+     */
+    public static final int DEFAULT_MAX_SIZE = 1024;
+
+    private static final KeyMaterialCache SHARED = new KeyMaterialCache(DEFAULT_MAX_SIZE);
+
+    /**
+     * The "unix" attribute view (featuring {@code ctime}) is available on Linux and macOS
+     */
+    private static final boolean UNIX_ATTRIBUTES = FileSystems.getDefault().supportedFileAttributeViews().contains("unix");
+    private static final String UNIX_ATTRIBUTE_NAMES = "unix:size,lastModifiedTime,fileKey,ctime";
+
+    private final LruCache<Path, Entry> entries;
+
+    /**
+     * The identity and state of a file at a certain point in time, as delivered by a single {@code stat} call.
+     *
+     * @param fileKey    may be {@code null}, if not supported by the file system
+     * @param changeTime may be {@code null}, if not supported by the file system
+     */
+    private record FileStamp(long size, FileTime lastModifiedTime, Object fileKey, FileTime changeTime) {
+    }
+
+    /**
+     * The key material derived from a file of a certain {@link FileStamp}.
+     */
+    private static final class Entry {
+        private final FileStamp stamp;
+
+        // all lazily derived, whereas racing threads would derive the very same value
+        private volatile String ed25519PublicKeyMultibase;
+        private volatile String nextKeyHash;
+        private volatile ECPublicKey ecPublicKey;
+
+        private Entry(FileStamp stamp) {
+            this.stamp = stamp;
+        }
+    }
+
+    /**
+     * @param maxSize the maximum number of files to keep key material for. Must be positive.
+     */
+    public KeyMaterialCache(int maxSize) {
+        this.entries = new LruCache<>(maxSize);
+    }
+
+    /**
+     * @return the instance shared by all the PEM-related factories of the library
+     */
+    public static KeyMaterialCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * @return the entry matching the current state of the file, or {@code null} if the file cannot be accessed at all
+     */
+    private Entry entry(Path path) {
+        var key = path.toAbsolutePath().normalize();
+
+        FileStamp stamp;
+        try {
+            stamp = stat(key);
+        } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+            this.entries.remove(key);
+            return null; // let the (uncached) loader report the problem
+        }
+
+        var entry = this.entries.get(key);
+        if (entry == null || !entry.stamp.equals(stamp)) {
+            entry = new Entry(stamp);
+            this.entries.put(key, entry);
+        }
+        return entry;
+    }
+
+    private static FileStamp stat(Path path) throws IOException {
+        if (UNIX_ATTRIBUTES) {
+            var attrs = Files.readAttributes(path, UNIX_ATTRIBUTE_NAMES);
+            return new FileStamp((Long) attrs.get("size"), (FileTime) attrs.get("lastModifiedTime"),
+                    attrs.get("fileKey"), (FileTime) attrs.get("ctime"));
+        }
+        var attrs = Files.readAttributes(path, BasicFileAttributes.class);
+        return new FileStamp(attrs.size(), attrs.lastModifiedTime(), attrs.fileKey(), null);
+    }
+
+    /**
+     * @param publicKeyPemFile featuring an Ed25519 public key in PEM format
+     * @return the Ed25519 public key in multibase format
+     * @throws DidSidekicksException if the file cannot be read or does not feature an Ed25519 public key in PEM format
+     */
+    public String getEd25519PublicKeyMultibase(Path publicKeyPemFile) throws DidSidekicksException {
+        var entry = entry(publicKeyPemFile);
+        if (entry == null) {
+            return readEd25519PublicKeyMultibase(publicKeyPemFile);
+        }
+
+        var multibase = entry.ed25519PublicKeyMultibase;
+        if (multibase == null) {
+            multibase = readEd25519PublicKeyMultibase(publicKeyPemFile);
+            entry.ed25519PublicKeyMultibase = multibase;
+        }
+        return multibase;
+    }
+
+    private static String readEd25519PublicKeyMultibase(Path publicKeyPemFile) throws DidSidekicksException {
+        try (var publicKey = Ed25519VerifyingKey.Companion.readPublicKeyPemFile(publicKeyPemFile.toString())) {
+            return publicKey.toMultibase();
+        }
+    }
+
+    /**
+     * @param publicKeyPemFile featuring an Ed25519 public key in PEM format
+     * @return the (base58btc-encoded multihash) hash of the Ed25519 public key, as used for
+     * <a href="https://identity.foundation/didwebvh/v1.0/#pre-rotation-key-hash-generation-and-verification">pre-rotation</a>
+     * @throws DidSidekicksException if the file cannot be read or does not feature an Ed25519 public key in PEM format
+     */
+    public String getNextKeyHash(Path publicKeyPemFile) throws DidSidekicksException {
+        var entry = entry(publicKeyPemFile);
+        if (entry == null) {
+            return toNextKeyHash(readEd25519PublicKeyMultibase(publicKeyPemFile));
+        }
+
+        var hash = entry.nextKeyHash;
+        if (hash == null) {
+            hash = toNextKeyHash(getEd25519PublicKeyMultibase(publicKeyPemFile));
+            entry.nextKeyHash = hash;
+        }
+        return hash;
+    }
+
+    private static String toNextKeyHash(String multibase) {
+        return Base58.encode(HashingService.multihash(multibase));
+    }
+
+    /**
+     * @param ecPublicPemFile featuring an EC public key in PEM format
+     * @return the EC public key
+     * @throws IOException if the file cannot be read or does not feature an EC public key in PEM format
+     */
+    public ECPublicKey getECPublicKey(Path ecPublicPemFile) throws IOException {
+        var entry = entry(ecPublicPemFile);
+        if (entry == null) {
+            return readECPublicKey(ecPublicPemFile);
+        }
+
+        var publicKey = entry.ecPublicKey;
+        if (publicKey == null) {
+            publicKey = readECPublicKey(ecPublicPemFile);
+            entry.ecPublicKey = publicKey;
+        }
+        return publicKey;
+    }
+
+    private static ECPublicKey readECPublicKey(Path ecPublicPemFile) throws IOException {
+        try (var reader = Files.newBufferedReader(ecPublicPemFile)) {
+            if (PemUtils.parsePemPublicKey(reader) instanceof ECPublicKey ecPublicKey) {
+                return ecPublicKey;
+            }
+        }
+        throw new IOException(String.format("The file '%s' does not feature an EC public key", ecPublicPemFile));
+    }
+
+    /**
+     * Only the public key is cached (see {@link #getECPublicKey(Path)}), whereas the (cheap) JWK is built on each call,
+     * as any number of distinct kids might be used for the very same file.
+     *
+     * @param ecPublicPemFile featuring an EC P-256 public key in PEM format
+     * @param kid             the ID (kid) of the JWK
+     * @return JSON object string representation of the public JWK
+     * @throws IOException if the file cannot be read or does not feature an EC public key in PEM format
+     */
+    public String getECPublicJwk(Path ecPublicPemFile, String kid) throws IOException {
+        return toECPublicJwk(getECPublicKey(ecPublicPemFile), kid);
+    }
+
+    private static String toECPublicJwk(ECPublicKey publicKey, String kid) {
+        return new ECKey.Builder(Curve.P_256, publicKey).keyID(kid).build().toPublicJWK().toJSONString();
+    }
+
+    /**
+     * Discards any key material cached for the supplied file.
+     *
+     * @param path of the file
+     */
+    public void invalidate(Path path) {
+        this.entries.remove(path.toAbsolutePath().normalize());
+    }
+
+    /**
+     * Discards all the cached key material.
+     */
+    public void clear() {
+        this.entries.clear();
+    }
+
+    /**
+     * @return the current number of files key material is cached for
+     */
+    public int size() {
+        return this.entries.size();
+    }
+}
@@ -0,0 +1,178 @@
+package ch.admin.bj.swiyu.didtoolbox;
+
+import com.nimbusds.jose.crypto.bc.BouncyCastleProviderSingleton;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of pre-generated key pairs, refilled by background (daemon) threads, one per {@link Algorithm}.
+ * <p>
+ * Key generation is a (relatively) slow operation, that should not be performed on a latency-sensitive request path.
+ * Instead, a key pair is simply taken from the pool (see {@link #take(Algorithm)}), while the pool gets refilled in the background.
+ * Should the pool run dry, a key pair is generated on the spot, i.e. the method never waits for the background threads.
+ * <p>
+ * Each key pair is handed out exactly once. The {@link #shared() shared instance} is used by the library itself,
+ * e.g. by {@link JwkUtils#generatePublicEC256(String, java.io.File, boolean)}. Unlike any other instance, it is not refilled
+ * unless explicitly {@link #start() started}, which is only worthwhile for long-running processes (e.g. {@code serve} or {@code batch} command).
+ * Otherwise, a one-shot process would merely pay for generating key pairs that are thrown away upon exit.
+ *
+ * @since 2.0.1
+ */
+public final class KeyPool implements AutoCloseable {
+
+    /**
+     * The default maximum number of pre-generated key pairs to keep per algorithm
+     */
+    public static final int DEFAULT_CAPACITY = 8;
+
+    /**
+     * The algorithms supported by the pool
+     */
+    public enum Algorithm {
+        /**
+         * <a href="https://datatracker.ietf.org/doc/html/rfc7518#section-3.4">ECDSA using P-256 curve</a>, generated by Bouncy Castle
+         * (see {@link BouncyCastleProviderSingleton}), as required for a complete EC PRIVATE KEY PEM export.
+         */
+        EC_P256,
+        /**
+         * <a href="https://www.rfc-editor.org/rfc/rfc8032#section-5.1">Ed25519</a>, generated by the default JCA provider.
+         */
+        ED25519;
+
+        KeyPair generate() {
+            try {
+                KeyPairGenerator generator;
+                if (this == EC_P256) {
+                    generator = KeyPairGenerator.getInstance("EC", BouncyCastleProviderSingleton.getInstance());
+                    generator.initialize(256);
+                } else {
+                    generator = KeyPairGenerator.getInstance("Ed25519"); // default provider -> "SunEC"
+                }
+                return generator.generateKeyPair();
+            } catch (GeneralSecurityException e) {
+                throw new IllegalArgumentException(e);
+            }
+        }
+    }
+
+    private static final class SharedHolder {
+        private static final KeyPool INSTANCE = new KeyPool(DEFAULT_CAPACITY, false);
+    }
+
+    private final Map<Algorithm, BlockingQueue<KeyPair>> pools = new EnumMap<>(Algorithm.class);
+    private final List<Thread> refillers = new ArrayList<>();
+    private boolean started;
+    private boolean closed;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * Creates a pool and immediately starts refilling it in the background.
+     *
+     * @param capacity the maximum number of pre-generated key pairs to keep per algorithm. Must be positive.
+     */
+    public KeyPool(int capacity) {
+        this(capacity, true);
+    }
+
+    private KeyPool(int capacity, boolean start) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity of a key pool must be positive, but got " + capacity);
+        }
+        for (var algorithm : Algorithm.values()) {
+            this.pools.put(algorithm, new ArrayBlockingQueue<>(capacity));
+        }
+        if (start) {
+            start();
+        }
+    }
+
+    /**
+     * @return the instance shared by the whole process. Not refilled, unless {@link #start() started}.
+     */
+    public static KeyPool shared() {
+        return SharedHolder.INSTANCE;
+    }
+
+    /**
+     * Starts refilling the pool in the background, unless already started (or closed).
+     */
+    public synchronized void start() {
+        if (this.started || this.closed) {
+            return;
+        }
+        this.started = true;
+        this.pools.forEach((algorithm, pool) -> this.refillers.add(Thread.ofPlatform()
+                .name("key-pool-" + algorithm.name().toLowerCase())
+                .daemon(true)
+                .priority(Thread.MIN_PRIORITY)
+                .start(() -> refill(algorithm, pool))));
+    }
+
+    private static void refill(Algorithm algorithm, BlockingQueue<KeyPair> pool) {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                pool.put(algorithm.generate()); // blocks as long as the pool is full
+            }
+        } catch (InterruptedException ignore) {
+            // closed
+        }
+    }
+
+    /**
+     * Takes a key pair from the pool, or generates one on the spot if the pool has run dry.
+     *
+     * @param algorithm of the key pair
+     * @return a new key pair, never handed out before
+     */
+    public KeyPair take(Algorithm algorithm) {
+        var keyPair = this.pools.get(algorithm).poll();
+        if (keyPair != null) {
+            this.hitCount.incrementAndGet();
+            return keyPair;
+        }
+        this.missCount.incrementAndGet();
+        return algorithm.generate();
+    }
+
+    /**
+     * @param algorithm of key pairs
+     * @return the number of pre-generated key pairs currently available
+     */
+    public int getAvailable(Algorithm algorithm) {
+        return this.pools.get(algorithm).size();
+    }
+
+    /**
+     * @return the number of key pairs taken from the pool so far
+     */
+    public long getHitCount() {
+        return this.hitCount.get();
+    }
+
+    /**
+     * @return the number of key pairs generated on the spot so far, as the pool has run dry
+     */
+    public long getMissCount() {
+        return this.missCount.get();
+    }
+
+    /**
+     * Stops refilling the pool and discards all the pre-generated key pairs. Any further key pair is generated on the spot.
+     */
+    @Override
+    public synchronized void close() {
+        this.closed = true;
+        this.refillers.forEach(Thread::interrupt);
+        this.pools.values().forEach(BlockingQueue::clear);
+    }
+}
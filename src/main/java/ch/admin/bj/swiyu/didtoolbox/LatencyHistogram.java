@@ -0,0 +1,101 @@
+package ch.admin.bj.swiyu.didtoolbox;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lightweight, lock-free and thread-safe histogram of latencies, featuring logarithmic (power-of-two) buckets in microseconds.
+ * <p>
+ * The bucket {@code i} covers latencies in range {@code [2^i, 2^(i+1))} µs, whereas the bucket 0 also covers anything below 1 µs.
+ * Hence, percentiles are approximated by the upper bound of the relevant bucket, i.e. they are accurate up to a factor of 2,
+ * which is perfectly adequate for e.g. telling a 2ms HSM round trip from a 200ms one.
+ */
+public final class LatencyHistogram {
+
+    private static final int BUCKET_COUNT = 40; // up to 2^40 µs, i.e. ~12 days
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Records a single latency.
+     *
+     * @param latencyNanos the latency in nanoseconds. Negative values are treated as 0.
+     */
+    public void record(long latencyNanos) {
+        var nanos = Math.max(0, latencyNanos);
+        var micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        var bucket = micros == 0 ? 0 : Math.min(BUCKET_COUNT - 1, 63 - Long.numberOfLeadingZeros(micros));
+
+        buckets.incrementAndGet(bucket);
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * @return the number of recorded latencies
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return the mean of all recorded latencies (in nanoseconds), or 0 if nothing has been recorded yet
+     */
+    public long getMeanNanos() {
+        var n = count.get();
+        return n == 0 ? 0 : totalNanos.get() / n;
+    }
+
+    /**
+     * @return the maximum of all recorded latencies (in nanoseconds)
+     */
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * Approximates the latency at the supplied percentile by the (exclusive) upper bound of the relevant bucket.
+     *
+     * @param percentile in range {@code (0, 100]}, e.g. {@code 99.9}
+     * @return the (approximate) latency in nanoseconds, or 0 if nothing has been recorded yet
+     */
+    public long getPercentileNanos(double percentile) {
+        if (percentile <= 0 || percentile > 100) {
+            throw new IllegalArgumentException("The percentile must be in range (0, 100], but got " + percentile);
+        }
+
+        long total = 0;
+        var counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        var rank = (long) Math.ceil(percentile / 100 * total);
+        long cumulative = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            cumulative += counts[i];
+            if (cumulative >= rank) {
+                return TimeUnit.MICROSECONDS.toNanos(1L << (i + 1));
+            }
+        }
+        return TimeUnit.MICROSECONDS.toNanos(1L << BUCKET_COUNT);
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + getCount()
+                + ", mean=" + TimeUnit.NANOSECONDS.toMicros(getMeanNanos()) + "µs"
+                + ", p50<" + TimeUnit.NANOSECONDS.toMicros(getPercentileNanos(50)) + "µs"
+                + ", p99<" + TimeUnit.NANOSECONDS.toMicros(getPercentileNanos(99)) + "µs"
+                + ", max=" + TimeUnit.NANOSECONDS.toMicros(getMaxNanos()) + "µs";
+    }
+}
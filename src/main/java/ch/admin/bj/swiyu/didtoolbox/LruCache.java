@@ -0,0 +1,135 @@
+package ch.admin.bj.swiyu.didtoolbox;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A simple, bounded and thread-safe cache evicting the least-recently-used (LRU) entries first.
+ * <p>
+ * All the methods are {@code synchronized}, which is perfectly adequate for the intended purpose of caching
+ * (relatively) expensive-to-compute values e.g. decoded keys. {@code null} keys or values are not permitted.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of cached values
+ */
+public final class LruCache<K, V> {
+
+    private final int maxSize;
+    private final LinkedHashMap<K, V> map;
+
+    /**
+     * @param maxSize the maximum number of entries to keep. Must be positive.
+     */
+    public LruCache(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("The maximum size of a cache must be positive, but got " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.map = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > LruCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * @param key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or {@code null} if there is none
+     */
+    public synchronized V get(K key) {
+        return map.get(key);
+    }
+
+    /**
+     * @param key   with which the specified value is to be associated
+     * @param value to be associated with the specified key
+     */
+    public synchronized void put(K key, V value) {
+        map.put(key, value);
+    }
+
+    /**
+     * @param key   with which the specified value is to be associated
+     * @param value to be associated with the specified key, unless already mapped
+     * @return the previous value associated with the specified key, or {@code null} if there was none (and the value has been cached)
+     */
+    public synchronized V putIfAbsent(K key, V value) {
+        return map.putIfAbsent(key, value);
+    }
+
+    /**
+     * @param key      whose mapping is to be replaced
+     * @param oldValue expected to be associated with the specified key
+     * @param newValue to be associated with the specified key
+     * @return {@code true} if the value was replaced
+     */
+    public synchronized boolean replace(K key, V oldValue, V newValue) {
+        return map.replace(key, oldValue, newValue);
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or (if there is none)
+     * computes it using the supplied mapping function and caches it.
+     * <p>
+     * CAUTION The mapping function is called outside the lock, so it might be (rarely) called more than once for the same key.
+     *
+     * @param key             whose associated value is to be returned
+     * @param mappingFunction to compute a value. It must not return {@code null}.
+     * @return the current (existing or computed) value associated with the specified key
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        var value = get(key);
+        if (value == null) {
+            value = mappingFunction.apply(key);
+            put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * @param key whose presence in this cache is to be tested
+     * @return {@code true} if this cache contains a mapping for the specified key
+     */
+    public synchronized boolean containsKey(K key) {
+        return map.containsKey(key);
+    }
+
+    /**
+     * @param key whose mapping is to be removed from the cache
+     */
+    public synchronized void remove(K key) {
+        map.remove(key);
+    }
+
+    /**
+     * @param key   whose mapping is to be removed from the cache
+     * @param value expected to be associated with the specified key
+     * @return {@code true} if the mapping was removed
+     */
+    public synchronized boolean remove(K key, V value) {
+        return map.remove(key, value);
+    }
+
+    /**
+     * @return the current number of entries
+     */
+    public synchronized int size() {
+        return map.size();
+    }
+
+    /**
+     * @return the maximum number of entries to keep
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Removes all the entries.
+     */
+    public synchronized void clear() {
+        map.clear();
+    }
+}
@@ -8,6 +8,7 @@ import ch.admin.bj.swiyu.didtoolbox.jcommander.RootCommandParameter;
 import ch.admin.bj.swiyu.didtoolbox.model.NextKeyHashesDidMethodParameterException;
 import ch.admin.bj.swiyu.didtoolbox.model.UpdateKeysDidMethodParameterException;
 import ch.admin.bj.swiyu.didtoolbox.model.VerificationMethodException;
+import ch.admin.bj.swiyu.didtoolbox.securosys.primus.PrimusKeyStoreInitializationException;
 import ch.admin.bj.swiyu.didtoolbox.vc_data_integrity.VcDataIntegrityCryptographicSuiteException;
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.ParameterException;
@@ -24,6 +25,7 @@ import java.security.UnrecoverableEntryException;
 @SuppressWarnings({"PMD.DoNotTerminateVM", "PMD.CyclomaticComplexity"})
 public class Main {
     private final Console console;
+    private final boolean inProcess;
 
     /**
      * Entrypoint of the cli, prints output to the stdout.
@@ -42,7 +44,16 @@ public class Main {
      * @param console Console to print the output to
      */
     public Main(Console console) {
+        this(console, false);
+    }
+
+    /**
+     * @param console   Console to print the output to
+     * @param inProcess {@code true} if commands are dispatched by a long-running process (see {@link CommandDispatcher})
+     */
+    Main(Console console, boolean inProcess) {
         this.console = console;
+        this.inProcess = inProcess;
     }
 
     /**
@@ -57,6 +68,8 @@ public class Main {
         var deactivateCommand = new DeactivateDidLogCommand();
         var createProofOfPossessionCommand = new CreateProofOfPossessionCommand();
         var verifyProofOfPossessionCommand = new VerifyProofOfPossessionCommand();
+        var serveCommand = new ServeCommand();
+        var batchCommand = new BatchCommand();
         var jc = JCommander.newBuilder()
                 .addObject(rootParameters)
                 .console(this.console)
@@ -65,6 +78,8 @@ public class Main {
                 .addCommand(DeactivateDidLogCommand.COMMAND_NAME, deactivateCommand)
                 .addCommand(CreateProofOfPossessionCommand.COMMAND_NAME, createProofOfPossessionCommand)
                 .addCommand(VerifyProofOfPossessionCommand.COMMAND_NAME, verifyProofOfPossessionCommand)
+                .addCommand(ServeCommand.COMMAND_NAME, serveCommand)
+                .addCommand(BatchCommand.COMMAND_NAME, batchCommand)
                 .programName(ManifestUtils.getImplementationTitle())
                 .columnSize(150)
                 .build();
@@ -94,7 +109,7 @@ public class Main {
             return 1;
         }
 
-        var commandRunner = new JCommanderRunner(jc, parsedCommandName);
+        var commandRunner = new JCommanderRunner(jc, parsedCommandName, this.inProcess);
         try {
             return switch (parsedCommandName) {
                 case CreateDidLogCommand.COMMAND_NAME -> commandRunner.runCreateDidLogCommand(createDidLogCommand);
@@ -105,13 +120,15 @@ public class Main {
                         commandRunner.runPoPCreateCommand(createProofOfPossessionCommand);
                 case VerifyProofOfPossessionCommand.COMMAND_NAME ->
                         commandRunner.runPoPVerifyCommand(verifyProofOfPossessionCommand);
+                case ServeCommand.COMMAND_NAME -> commandRunner.runServeCommand(serveCommand);
+                case BatchCommand.COMMAND_NAME -> commandRunner.runBatchCommand(batchCommand);
                 default -> printCommandError(jc, null, "Invalid command: " + parsedCommandName);
             };
         } catch (IOException | UnrecoverableEntryException | VcDataIntegrityCryptographicSuiteException |
                  KeyStoreException | NoSuchAlgorithmException | KeyException | DidLogDeactivatorStrategyException |
                  ProofOfPossessionCreatorException | DidLogCreatorStrategyException |
                  NextKeyHashesDidMethodParameterException | UpdateKeysDidMethodParameterException |
-                 VerificationMethodException | DidLogUpdaterStrategyException e) {
+                 VerificationMethodException | DidLogUpdaterStrategyException | PrimusKeyStoreInitializationException e) {
             return printCommandError(jc, parsedCommandName, "Running command '" + parsedCommandName + "' failed due to: " + e.getLocalizedMessage());
         }
     }
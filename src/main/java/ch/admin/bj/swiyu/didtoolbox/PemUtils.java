@@ -40,7 +40,9 @@ public final class PemUtils {
             throw new FileNotFoundException(String.format("The file '%s' doesn't exist.", pemFile.getAbsolutePath()));
         }
 
-        return readPemObject(Files.newBufferedReader(pemFile.toPath()));
+        try (var reader = Files.newBufferedReader(pemFile.toPath())) {
+            return readPemObject(reader);
+        }
     }
 
     static KeyPair parsePemKeyPairFile(File pemFile) throws IOException {
@@ -49,7 +51,9 @@ public final class PemUtils {
             throw new FileNotFoundException(String.format("The file '%s' doesn't exist.", pemFile.getAbsolutePath()));
         }
 
-        return parsePemKeyPair(Files.newBufferedReader(pemFile.toPath()));
+        try (var reader = Files.newBufferedReader(pemFile.toPath())) {
+            return parsePemKeyPair(reader);
+        }
     }
 
     static byte[] readPemObject(Reader pemKeyReader) throws IOException {
@@ -94,11 +98,17 @@ public final class PemUtils {
         throw new IllegalArgumentException("The supplied reader features no PEM-encoded public key");
     }
 
+    /**
+     * Loads an Ed25519 public key from the supplied PEM file and returns it in multibase format.
+     * <p>
+     * The result is cached (see {@link KeyMaterialCache#shared()}) for as long as the file remains unchanged.
+     *
+     * @param publicKeyPemFile featuring an Ed25519 public key in PEM format
+     * @return the Ed25519 public key in multibase format
+     * @throws DidSidekicksException if the file cannot be read or does not feature an Ed25519 public key in PEM format
+     */
     public static String readEd25519PublicKeyPemFileToMultibase(Path publicKeyPemFile) throws DidSidekicksException {
-
-        try (var publicKey = Ed25519VerifyingKey.Companion.readPublicKeyPemFile(publicKeyPemFile.toString())) {
-            return publicKey.toMultibase();
-        }
+        return KeyMaterialCache.shared().getEd25519PublicKeyMultibase(publicKeyPemFile);
     }
 
     static String fromEd25519PublicKeyPemToMultibase(String pemPublicKey) throws DidSidekicksException {
@@ -0,0 +1,146 @@
+package ch.admin.bj.swiyu.didtoolbox;
+
+import com.google.gson.JsonPrimitive;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.util.Base64URL;
+import com.nimbusds.jwt.SignedJWT;
+
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * {@link ProofOfPossessionIssuer} is the high-rate counterpart of {@link ProofOfPossessionCreator}, intended for issuing
+ * large numbers of PoP JWTs using the very same {@link ProofOfPossessionJWSSigner} ({@code signer}), e.g. during onboarding.
+ * <p>
+ * Everything but the {@code nonce} and time claims ({@code iat}, {@code exp}) is prepared only once at construction time,
+ * i.e. the (base64url-encoded) JWT header as well as the {@code iss} claim. Optionally, the signer is self-verified
+ * against a DID log also only once, rather than for each and every JWT (see {@link #ProofOfPossessionIssuer(ProofOfPossessionJWSSigner, Duration, ProofOfPossessionVerifier)}).
+ * <p>
+ * The class is thread-safe, as long as the supplied signer is.
+ * <p>
+ * Example usage:
+ * <pre>
+ * {@code
+ *     var signer = new EcP256ProofOfPossessionJWSSigner(Path.of("src/test/data/assert-key-01"), "did:webvh:exmalpe.com#my-assert-key-01");
+ *     // may throw ProofOfPossessionCreatorException or ProofOfPossessionVerifierException
+ *     var issuer = new ProofOfPossessionIssuer(signer, Duration.ofDays(1), new ProofOfPossessionVerifier(didLog));
+ *     for (var nonce : nonces) {
+ *         // may throw ProofOfPossessionCreatorException
+ *         var jwt = issuer.createSerialized(nonce);
+ *         // do something with the jwt here
+ *     }
+ * }
+ * </pre>
+ *
+ * @since 2.0.1
+ */
+public final class ProofOfPossessionIssuer {
+
+    private static final String SELF_VERIFICATION_NONCE = "self-verification";
+
+    private final ProofOfPossessionJWSSigner signer;
+    private final Duration expiresIn;
+    private final Clock clock;
+    private final JWSHeader header;
+    private final String headerBase64URL;
+    private final String issuerClaim;
+
+    /**
+     * Creates an issuer without self-verification.
+     *
+     * @param signer    to sign all the PoP JWTs with
+     * @param expiresIn duration from issuance after which a JWT expires
+     */
+    public ProofOfPossessionIssuer(ProofOfPossessionJWSSigner signer, Duration expiresIn) {
+        this(signer, expiresIn, Clock.systemUTC());
+    }
+
+    /**
+     * Creates an issuer while ensuring (once) that the PoP JWTs signed by the supplied signer are verifiable against a DID log.
+     *
+     * @param signer    to sign all the PoP JWTs with
+     * @param expiresIn duration from issuance after which a JWT expires
+     * @param verifier  of the DID log featuring the key denoted by {@link ProofOfPossessionJWSSigner#getKid()}
+     * @throws ProofOfPossessionCreatorException  if the JWS object couldn't be signed
+     * @throws ProofOfPossessionVerifierException if the signed JWS object does not match the DID log
+     */
+    public ProofOfPossessionIssuer(ProofOfPossessionJWSSigner signer, Duration expiresIn, ProofOfPossessionVerifier verifier)
+            throws ProofOfPossessionCreatorException, ProofOfPossessionVerifierException {
+        this(signer, expiresIn);
+        verifier.verify(create(SELF_VERIFICATION_NONCE), SELF_VERIFICATION_NONCE);
+    }
+
+    ProofOfPossessionIssuer(ProofOfPossessionJWSSigner signer, Duration expiresIn, Clock clock) {
+        this.signer = signer;
+        this.expiresIn = expiresIn;
+        this.clock = clock;
+        this.header = new JWSHeader.Builder(signer.getAlgorithm())
+                .keyID(signer.getKid())
+                .build();
+        this.headerBase64URL = this.header.toBase64URL().toString();
+        var kid = signer.getKid();
+        var fragmentIndex = kid.indexOf('#');
+        this.issuerClaim = ",\"iss\":" + new JsonPrimitive(fragmentIndex >= 0 ? kid.substring(0, fragmentIndex) : kid);
+    }
+
+    /**
+     * Creates a (signed) proof-of-possession JWT of the possession denoted by {@code nonce}.
+     *
+     * @param nonce possession
+     * @return proof of possession JWT
+     * @throws ProofOfPossessionCreatorException if the JWS object couldn't be signed
+     * @see ProofOfPossessionCreator#create(String, Duration)
+     */
+    public SignedJWT create(String nonce) throws ProofOfPossessionCreatorException {
+        var parts = sign(nonce);
+        try {
+            return new SignedJWT(parts[0], parts[1], parts[2]);
+        } catch (ParseException e) {
+            throw new ProofOfPossessionCreatorException(e);
+        }
+    }
+
+    /**
+     * Creates a (signed) proof-of-possession JWT of the possession denoted by {@code nonce}, in its compact serialization form.
+     * <p>
+     * Unlike {@link #create(String)}, the JWT is never parsed back, which makes this method the cheapest one.
+     *
+     * @param nonce possession
+     * @return serialized proof of possession JWT
+     * @throws ProofOfPossessionCreatorException if the JWS object couldn't be signed
+     */
+    public String createSerialized(String nonce) throws ProofOfPossessionCreatorException {
+        var parts = sign(nonce);
+        return parts[0] + "." + parts[1] + "." + parts[2];
+    }
+
+    private Base64URL[] sign(String nonce) throws ProofOfPossessionCreatorException {
+        var iat = this.clock.instant();
+        var exp = iat.plus(this.expiresIn);
+
+        var payload = "{\"nonce\":" + new JsonPrimitive(nonce)
+                + this.issuerClaim
+                + ",\"iat\":" + iat.getEpochSecond()
+                + ",\"exp\":" + exp.getEpochSecond()
+                + "}";
+        var payloadBase64URL = Base64URL.encode(payload.getBytes(StandardCharsets.UTF_8));
+        var signingInput = (this.headerBase64URL + "." + payloadBase64URL).getBytes(StandardCharsets.US_ASCII);
+
+        // JOSEException is throw here, if the keys are invalid or don't match
+        try {
+            return new Base64URL[]{new Base64URL(this.headerBase64URL), payloadBase64URL, this.signer.sign(this.header, signingInput)};
+        } catch (JOSEException e) {
+            throw new ProofOfPossessionCreatorException(e);
+        }
+    }
+
+    /**
+     * @return the duration from issuance after which a JWT expires
+     */
+    public Duration getExpiresIn() {
+        return this.expiresIn;
+    }
+}
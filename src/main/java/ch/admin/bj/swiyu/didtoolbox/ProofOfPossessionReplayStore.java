@@ -0,0 +1,298 @@
+package ch.admin.bj.swiyu.didtoolbox;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, thread-safe store of already used PoP JWTs, keyed by (issuer, {@code jti} or {@code nonce}),
+ * intended for replay protection (see {@link ProofOfPossessionVerifier#verify(com.nimbusds.jwt.SignedJWT, String, ProofOfPossessionReplayStore)}).
+ * <p>
+ * Each entry is kept until the expiration time of its JWT, since an expired JWT is rejected anyway.
+ * <p>
+ * <strong>Implementation notes</strong>
+ * <ul>
+ *     <li>An entry is nothing but a 64-bit fingerprint (the leading bytes of the SHA-256 hash of issuer and ID) and its expiration bucket
+ *     (the expiration time rounded up to the configured bucket width), i.e. 12 bytes per slot, regardless of the length of issuer and ID.</li>
+ *     <li>All the slots are preallocated at construction time in open-addressing (linear-probing) tables, which are split into stripes
+ *     guarded by a lock of their own (each stripe holding up to 1/64 of the maximum number of entries).
+ *     Therefore, the memory footprint (see {@link #getFootprintBytes()}) never grows, while a lookup costs O(1) and contends with lookups of the same stripe only.</li>
+ *     <li>The slot of an expired entry is reused in place. Once a stripe runs out of free slots, it is rebuilt without its expired entries.
+ *     Should a stripe still be full of live entries (i.e. the hard bound is reached), the entries expiring soonest
+ *     (i.e. whole buckets in ascending order) are evicted (see {@link #getEvictionCount()}). CAUTION An evicted JWT could be replayed
+ *     until it expires, hence the maximum number of entries should be sized w.r.t. the expected rate and lifetime of PoP JWTs.</li>
+ * </ul>
+ *
+ * @since 2.0.1
+ */
+public final class ProofOfPossessionReplayStore {
+
+    /**
+     * The default maximum number of live entries
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 1 << 20;
+
+    /**
+     * The default width of an expiration bucket
+     */
+    public static final Duration DEFAULT_BUCKET_WIDTH = Duration.ofSeconds(1);
+
+    private static final int STRIPES = 64; // power of 2
+    private static final int STRIPE_SHIFT = Long.SIZE - Integer.numberOfTrailingZeros(STRIPES);
+    private static final long EMPTY = 0L;
+    private static final float LOAD_FACTOR = 0.75f;
+    private static final float EVICTION_TARGET = 0.75f; // of the threshold, leaving some headroom after an eviction
+
+    private final Clock clock;
+    private final long baseSeconds;
+    private final long bucketWidthSeconds;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final LongAdder evictionCount = new LongAdder();
+
+    /**
+     * Creates a store able to hold {@link #DEFAULT_MAX_ENTRIES} live entries.
+     */
+    public ProofOfPossessionReplayStore() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_BUCKET_WIDTH);
+    }
+
+    /**
+     * @param maxEntries  the (hard) maximum number of live entries. Must be positive.
+     * @param bucketWidth granularity of expiration, i.e. entries are kept up to this long after expiration. At least a second.
+     */
+    public ProofOfPossessionReplayStore(int maxEntries, Duration bucketWidth) {
+        this(maxEntries, bucketWidth, Clock.systemUTC());
+    }
+
+    ProofOfPossessionReplayStore(int maxEntries, Duration bucketWidth, Clock clock) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("The maximum number of entries must be positive, but got " + maxEntries);
+        }
+        if (bucketWidth.getSeconds() < 1) {
+            throw new IllegalArgumentException("The width of an expiration bucket must be at least a second, but got " + bucketWidth);
+        }
+        this.clock = clock;
+        this.baseSeconds = clock.instant().getEpochSecond();
+        this.bucketWidthSeconds = bucketWidth.getSeconds();
+
+        var perStripe = Math.max(1, (maxEntries + STRIPES - 1) / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            this.stripes[i] = new Stripe(perStripe);
+        }
+    }
+
+    /**
+     * Records the use of a JWT, unless it has already been used.
+     *
+     * @param issuer    of the JWT ({@code iss} claim)
+     * @param id        of the JWT, i.e. {@code jti} claim or, if missing, {@code nonce} claim
+     * @param expiresAt of the JWT ({@code exp} claim)
+     * @return {@code true} if the JWT has not been used before (or has already expired), {@code false} if it is a replay
+     */
+    public boolean tryRecord(String issuer, String id, Instant expiresAt) {
+        var now = currentBucket();
+        var expiry = toBucket(expiresAt);
+        if (expiry < now) {
+            return true; // expired anyway, no point in recording it
+        }
+        var fingerprint = fingerprint(issuer, id);
+        return stripeOf(fingerprint).tryRecord(fingerprint, expiry, now);
+    }
+
+    /**
+     * @param issuer of the JWT
+     * @param id     of the JWT
+     * @return {@code true} if the JWT has been recorded and has not yet expired
+     */
+    public boolean contains(String issuer, String id) {
+        var fingerprint = fingerprint(issuer, id);
+        return stripeOf(fingerprint).contains(fingerprint, currentBucket());
+    }
+
+    /**
+     * @return the number of occupied slots, including expired entries not yet reclaimed
+     */
+    public int size() {
+        var size = 0;
+        for (var stripe : this.stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    /**
+     * @return the number of live entries evicted so far, as the store has been full
+     */
+    public long getEvictionCount() {
+        return this.evictionCount.sum();
+    }
+
+    /**
+     * @return the (constant) number of bytes occupied by all the preallocated slots
+     */
+    public long getFootprintBytes() {
+        long slots = 0;
+        for (var stripe : this.stripes) {
+            slots += stripe.keys.length;
+        }
+        return slots * (Long.BYTES + Integer.BYTES);
+    }
+
+    /**
+     * Removes all the entries.
+     */
+    public void clear() {
+        for (var stripe : this.stripes) {
+            stripe.clear();
+        }
+    }
+
+    private int currentBucket() {
+        // relative to the creation time, so that an int suffices for decades
+        return (int) Math.floorDiv(this.clock.instant().getEpochSecond() - this.baseSeconds, this.bucketWidthSeconds);
+    }
+
+    private int toBucket(Instant instant) {
+        var seconds = instant.getEpochSecond() + (instant.getNano() > 0 ? 1 : 0) - this.baseSeconds;
+        var bucket = Math.ceilDiv(seconds, this.bucketWidthSeconds); // rounded up, i.e. never expiring too early
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, bucket));
+    }
+
+    private static long fingerprint(String issuer, String id) {
+        var issuerBytes = (issuer != null ? issuer : "").getBytes(StandardCharsets.UTF_8);
+        var idBytes = id.getBytes(StandardCharsets.UTF_8);
+        var input = ByteBuffer.allocate(Integer.BYTES + issuerBytes.length + idBytes.length)
+                .putInt(issuerBytes.length) // unambiguous concatenation
+                .put(issuerBytes)
+                .put(idBytes)
+                .flip();
+        var fingerprint = ByteBuffer.wrap(HashingService.sha256(input)).getLong();
+        return fingerprint != EMPTY ? fingerprint : 1L;
+    }
+
+    private Stripe stripeOf(long fingerprint) {
+        return this.stripes[(int) (fingerprint >>> STRIPE_SHIFT)];
+    }
+
+    private final class Stripe {
+
+        private final long[] keys;
+        private final int[] expiries;
+        private final int mask;
+        private final int threshold;
+        private int occupied; // slots featuring an entry, either live or expired
+
+        private Stripe(int maxEntries) {
+            var capacity = Integer.highestOneBit(Math.max(2, (int) Math.ceil(maxEntries / LOAD_FACTOR)) * 2 - 1);
+            this.keys = new long[capacity];
+            this.expiries = new int[capacity];
+            this.mask = capacity - 1;
+            this.threshold = Math.min(maxEntries, capacity - 1); // at least one empty slot, so that probing always terminates
+        }
+
+        private synchronized boolean tryRecord(long fingerprint, int expiry, int now) {
+            var idx = (int) fingerprint & this.mask;
+            var reusable = -1;
+            while (this.keys[idx] != EMPTY) {
+                if (this.keys[idx] == fingerprint) {
+                    if (this.expiries[idx] >= now) {
+                        return false; // replay
+                    }
+                    this.expiries[idx] = expiry;
+                    return true;
+                }
+                if (reusable < 0 && this.expiries[idx] < now) {
+                    reusable = idx;
+                }
+                idx = (idx + 1) & this.mask;
+            }
+
+            if (reusable >= 0) {
+                this.keys[reusable] = fingerprint;
+                this.expiries[reusable] = expiry;
+                return true;
+            }
+
+            if (this.occupied >= this.threshold) {
+                rebuild(now);
+                insert(fingerprint, expiry);
+                return true;
+            }
+
+            this.keys[idx] = fingerprint;
+            this.expiries[idx] = expiry;
+            this.occupied++;
+            return true;
+        }
+
+        private synchronized boolean contains(long fingerprint, int now) {
+            var idx = (int) fingerprint & this.mask;
+            while (this.keys[idx] != EMPTY) {
+                if (this.keys[idx] == fingerprint) {
+                    return this.expiries[idx] >= now;
+                }
+                idx = (idx + 1) & this.mask;
+            }
+            return false;
+        }
+
+        private synchronized int size() {
+            return this.occupied;
+        }
+
+        private synchronized void clear() {
+            Arrays.fill(this.keys, EMPTY);
+            this.occupied = 0;
+        }
+
+        /**
+         * Drops all the expired entries and, if still full, evicts the entries expiring soonest.
+         */
+        private void rebuild(int now) {
+            var liveKeys = new long[this.occupied];
+            var liveExpiries = new int[this.occupied];
+            var live = 0;
+            for (int i = 0; i < this.keys.length; i++) {
+                if (this.keys[i] != EMPTY && this.expiries[i] >= now) {
+                    liveKeys[live] = this.keys[i];
+                    liveExpiries[live++] = this.expiries[i];
+                }
+            }
+
+            var minExpiry = Integer.MIN_VALUE;
+            var target = (int) (this.threshold * EVICTION_TARGET);
+            if (live >= this.threshold) {
+                // evict whole buckets, in ascending order, down to the target
+                var sorted = Arrays.copyOf(liveExpiries, live);
+                Arrays.sort(sorted);
+                minExpiry = sorted[Math.max(0, live - target - 1)];
+            }
+
+            Arrays.fill(this.keys, EMPTY);
+            this.occupied = 0;
+            var evicted = 0;
+            for (int i = 0; i < live; i++) {
+                if (liveExpiries[i] <= minExpiry) {
+                    evicted++;
+                } else {
+                    insert(liveKeys[i], liveExpiries[i]);
+                }
+            }
+            evictionCount.add(evicted);
+        }
+
+        private void insert(long fingerprint, int expiry) {
+            var idx = (int) fingerprint & this.mask;
+            while (this.keys[idx] != EMPTY) {
+                idx = (idx + 1) & this.mask;
+            }
+            this.keys[idx] = fingerprint;
+            this.expiries[idx] = expiry;
+            this.occupied++;
+        }
+    }
+}
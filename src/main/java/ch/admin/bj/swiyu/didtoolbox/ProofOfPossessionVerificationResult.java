@@ -0,0 +1,44 @@
+package ch.admin.bj.swiyu.didtoolbox;
+
+import com.nimbusds.jwt.SignedJWT;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Collection;
+import java.util.function.Function;
+
+/**
+ * The (immutable) outcome of verifying a single PoP JWT of a batch, as delivered by
+ * {@link ProofOfPossessionVerifier#verifyAll(Collection, Function)}.
+ *
+ * @since 2.0.1
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public class ProofOfPossessionVerificationResult {
+
+    /**
+     * The verified PoP JWT, as supplied.
+     */
+    private final SignedJWT signedJWT;
+
+    /**
+     * The reason why the JWT is invalid, or {@code null} if it is valid.
+     */
+    private final ProofOfPossessionVerifierException exception;
+
+    /**
+     * @return true if and only if the JWT is valid
+     */
+    public boolean isValid() {
+        return this.exception == null;
+    }
+
+    /**
+     * @return the cause of failure, or {@code null} if the JWT is valid (or the cause is unknown)
+     */
+    public ProofOfPossessionVerifierException.ErrorCause getErrorCause() {
+        return this.exception != null ? this.exception.getErrorCause() : null;
+    }
+}
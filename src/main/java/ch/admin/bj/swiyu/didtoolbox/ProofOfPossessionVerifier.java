@@ -1,23 +1,24 @@
 package ch.admin.bj.swiyu.didtoolbox;
 
 import ch.admin.bj.swiyu.didtoolbox.model.DidLogMetaPeekerException;
+import ch.admin.bj.swiyu.didtoolbox.model.ResolvedDidDocument;
 import ch.admin.bj.swiyu.didtoolbox.model.TdwDidLogMetaPeeker;
 import ch.admin.bj.swiyu.didtoolbox.model.WebVerifiableHistoryDidLogMetaPeeker;
 import ch.admin.eid.did_sidekicks.DidDoc;
-import ch.admin.eid.did_sidekicks.DidSidekicksException;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nimbusds.jose.JOSEException;
 import com.nimbusds.jose.JWSAlgorithm;
 import com.nimbusds.jose.JWSVerifier;
-import com.nimbusds.jose.crypto.ECDSAVerifier;
-import com.nimbusds.jose.jwk.JWK;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
 
 import java.text.ParseException;
 import java.time.Instant;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
 
 /**
  * {@link ProofOfPossessionVerifier} is the class in charge of verifying JSON Web Tokens (JWT).
@@ -54,23 +55,36 @@ import java.util.Set;
  */
 public class ProofOfPossessionVerifier {
 
-    private DidDoc didDoc;
+    // converted once, so that no key lookup crosses the native boundary
+    private final ResolvedDidDocument didDoc;
+    // DID doc key fragment -> ready-to-use (EC P-256 or Ed25519) verifier, built lazily (once per key)
+    private final JWSVerifierRegistry verifiers = new JWSVerifierRegistry();
 
     public ProofOfPossessionVerifier(DidDoc didDoc) {
+        this(ResolvedDidDocument.of(didDoc));
+    }
+
+    /**
+     * @param didDoc an already resolved DID document, as delivered by {@link ch.admin.bj.swiyu.didtoolbox.model.DidLogMeta#getResolvedDidDoc()}
+     * @since 2.0.1
+     */
+    public ProofOfPossessionVerifier(ResolvedDidDocument didDoc) {
         this.didDoc = didDoc;
     }
 
     @SuppressWarnings("PMD.PreserveStackTrace")
     public ProofOfPossessionVerifier(String didLog) throws ProofOfPossessionVerifierException {
+        ResolvedDidDocument resolved;
         try {
-            this.didDoc = WebVerifiableHistoryDidLogMetaPeeker.peek(didLog).getDidDoc(); // assume a did:webvh log
+            resolved = WebVerifiableHistoryDidLogMetaPeeker.peek(didLog).getResolvedDidDoc(); // assume a did:webvh log
         } catch (DidLogMetaPeekerException exc1) { // not a did:webvh log
             try {
-                this.didDoc = TdwDidLogMetaPeeker.peek(didLog).getDidDoc(); // assume a did:tdw log
+                resolved = TdwDidLogMetaPeeker.peek(didLog).getResolvedDidDoc(); // assume a did:tdw log
             } catch (DidLogMetaPeekerException exc) { // not a did:tdw log
                 throw new ProofOfPossessionVerifierException(exc1);
             }
         }
+        this.didDoc = resolved;
     }
 
     /**
@@ -93,39 +107,180 @@ public class ProofOfPossessionVerifier {
     /**
      * Verifies if the {@code signedJWT} is valid against the possession {@code nonce}, throwing an exception in case it is
      * invalid. Such exception features some further detailed information.
+     * <p>
+     * The method is thread-safe. The verifier of each key referenced by a JWT is built on first use only and then reused.
+     * Both {@code ES256} (EC P-256 keys) and {@code Ed25519} (OKP keys) signatures are supported, see {@link JWSVerifierRegistry}.
      *
      * @param signedJWT PoP JWT to be verified
      * @param nonce     possession
      * @throws ProofOfPossessionVerifierException is thrown in case the JWT is invalid, containing more details as to why
      * @see <a href="https://datatracker.ietf.org/doc/html/rfc7800">Proof-of-Possession Key Semantics for JSON Web Tokens (JWTs)</a>
      */
-    @SuppressWarnings({"PMD.CyclomaticComplexity", "PMD.PreserveStackTrace"})
     public void verify(SignedJWT signedJWT, String nonce) throws ProofOfPossessionVerifierException {
-        var algorithm = signedJWT.getHeader().getAlgorithm();
-        if (!Set.of(JWSAlgorithm.Ed25519, JWSAlgorithm.ES256).contains(algorithm)) {
-            throw ProofOfPossessionVerifierException.unsupportedAlgorithm(algorithm.toString());
-        }
+        verifySignature(signedJWT, checkClaims(signedJWT, nonce));
+    }
 
-        // check nonce
-        String nonceClaim;
+    /**
+     * The second half of {@link #verify(SignedJWT, String)}, i.e. everything but {@link #checkClaims(SignedJWT, String)}.
+     *
+     * @param signedJWT PoP JWT, whose claims have been checked already
+     * @param fragment  of the key referenced by the JWT, as delivered by {@link #checkClaims(SignedJWT, String)}
+     */
+    void verifySignature(SignedJWT signedJWT, String fragment) throws ProofOfPossessionVerifierException {
+        checkSignature(signedJWT, getJWSVerifier(fragment, signedJWT.getHeader().getKeyID()));
+    }
+
+    /**
+     * @return the DID (i.e. the {@code id} of the resolved DID document) the verifier verifies PoP JWTs of
+     */
+    String getDid() {
+        return this.didDoc.getId();
+    }
+
+    /**
+     * A variant of {@link #verify(SignedJWT, String)} featuring replay protection, i.e. a valid JWT is accepted only once
+     * (until it expires). The JWT is identified by its issuer and its {@code jti} claim or, if missing, its {@code nonce} claim.
+     * <p>
+     * The JWT is recorded as used only after it has been verified successfully, so that forged JWTs may never fill the {@code replayStore}.
+     *
+     * @param signedJWT   PoP JWT to be verified
+     * @param nonce       possession
+     * @param replayStore of the JWTs already used, typically shared by all the verifiers of a service
+     * @throws ProofOfPossessionVerifierException is thrown in case the JWT is invalid or has already been used
+     * @since 2.0.1
+     */
+    public void verify(SignedJWT signedJWT, String nonce, ProofOfPossessionReplayStore replayStore) throws ProofOfPossessionVerifierException {
+        verify(signedJWT, nonce);
+
+        JWTClaimsSet claimset;
         try {
-            nonceClaim = signedJWT.getJWTClaimsSet().getStringClaim("nonce");
+            claimset = signedJWT.getJWTClaimsSet();
         } catch (ParseException e) {
             throw ProofOfPossessionVerifierException.unparsable(e);
         }
-        if (!nonce.equals(nonceClaim)) {
-            throw ProofOfPossessionVerifierException.invalidNonce(nonceClaim, nonce);
+        var id = claimset.getJWTID() != null ? claimset.getJWTID() : nonce;
+        if (!replayStore.tryRecord(claimset.getIssuer(), id, claimset.getExpirationTime().toInstant())) {
+            throw ProofOfPossessionVerifierException.replayed();
+        }
+    }
+
+    /**
+     * Batch variant of {@link #verify(SignedJWT, String)}, verifying signatures in parallel, each on a virtual thread of its own.
+     * <p>
+     * Unlike the {@link java.util.concurrent.ForkJoinPool#commonPool() common pool}, the executor is private to the call,
+     * so that neither the batch competes with (nor gets starved by) any other work submitted to the common pool.
+     *
+     * @see #verifyAll(Collection, Function, Executor)
+     * @since 2.0.1
+     */
+    public List<ProofOfPossessionVerificationResult> verifyAll(Collection<SignedJWT> signedJWTs,
+                                                               Function<SignedJWT, String> nonceLookup) {
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            return verifyAll(signedJWTs, nonceLookup, executor);
+        }
+    }
+
+    /**
+     * Batch variant of {@link #verify(SignedJWT, String)}, never throwing but reporting the outcome per JWT instead.
+     * <p>
+     * All the (cheap) header and claims checks are performed upfront, on the calling thread. The JWTs are then grouped by {@code kid},
+     * so that the key of each group is retrieved (and its verifier built, if not already available) only once.
+     * Finally, the (expensive) signature checks are submitted to the supplied {@link Executor}.
+     *
+     * @param signedJWTs  PoP JWTs to be verified
+     * @param nonceLookup delivering the expected (possession) nonce of each JWT. A {@code null} nonce is never matched.
+     *                    Should it throw for a JWT, the JWT is reported as failed to verify.
+     * @param executor    to check the signatures on. Should it reject a check, the JWT is reported as failed to verify.
+     * @return per-JWT results, in the iteration order of {@code signedJWTs}
+     * @since 2.0.1
+     */
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    public List<ProofOfPossessionVerificationResult> verifyAll(Collection<SignedJWT> signedJWTs,
+                                                               Function<SignedJWT, String> nonceLookup,
+                                                               Executor executor) {
+        var jwts = new ArrayList<>(signedJWTs);
+        var exceptions = new ProofOfPossessionVerifierException[jwts.size()];
+
+        // kid -> indices of the JWTs referencing it
+        var byKid = new LinkedHashMap<String, List<Integer>>();
+        var fragments = new HashMap<String, String>(); // kid -> fragment
+        for (int i = 0; i < jwts.size(); i++) {
+            var jwt = jwts.get(i);
+            try {
+                var fragment = checkClaims(jwt, nonceLookup.apply(jwt));
+                var kid = jwt.getHeader().getKeyID();
+                fragments.putIfAbsent(kid, fragment);
+                byKid.computeIfAbsent(kid, k -> new ArrayList<>()).add(i);
+            } catch (ProofOfPossessionVerifierException e) {
+                exceptions[i] = e;
+            } catch (RuntimeException e) { // e.g. thrown by the nonce lookup
+                exceptions[i] = ProofOfPossessionVerifierException.failedToVerify(e);
+            }
+        }
+
+        var futures = new ArrayList<CompletableFuture<Void>>(jwts.size());
+        for (var group : byKid.entrySet()) {
+            var kid = group.getKey();
+            JWSVerifier jwsVerifier;
+            try {
+                jwsVerifier = getJWSVerifier(fragments.get(kid), kid);
+            } catch (ProofOfPossessionVerifierException e) {
+                group.getValue().forEach(i -> exceptions[i] = e);
+                continue;
+            }
+            for (var i : group.getValue()) {
+                try {
+                    futures.add(CompletableFuture.runAsync(() -> {
+                        try {
+                            checkSignature(jwts.get(i), jwsVerifier);
+                        } catch (ProofOfPossessionVerifierException e) {
+                            exceptions[i] = e;
+                        } catch (RuntimeException e) {
+                            exceptions[i] = ProofOfPossessionVerifierException.failedToVerify(e);
+                        }
+                    }, executor));
+                } catch (RejectedExecutionException e) { // e.g. the executor is saturated or shut down
+                    exceptions[i] = ProofOfPossessionVerifierException.failedToVerify(e);
+                }
+            }
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        var results = new ArrayList<ProofOfPossessionVerificationResult>(jwts.size());
+        for (int i = 0; i < jwts.size(); i++) {
+            results.add(new ProofOfPossessionVerificationResult(jwts.get(i), exceptions[i]));
+        }
+        return results;
+    }
+
+    /**
+     * Checks everything but the signature, i.e. without any key (or DID log) involved.
+     *
+     * @return the fragment of the key referenced by the JWT
+     */
+    @SuppressWarnings({"PMD.CyclomaticComplexity", "PMD.PreserveStackTrace"})
+    static String checkClaims(SignedJWT signedJWT, String nonce) throws ProofOfPossessionVerifierException {
+        var algorithm = signedJWT.getHeader().getAlgorithm();
+        if (!Set.of(JWSAlgorithm.Ed25519, JWSAlgorithm.ES256).contains(algorithm)) {
+            throw ProofOfPossessionVerifierException.unsupportedAlgorithm(algorithm.toString());
         }
 
-        // check timestamp
         // ParseException is thrown here, if something's wrong with the provided JWT
         JWTClaimsSet claimset;
+        String nonceClaim;
         try {
             claimset = signedJWT.getJWTClaimsSet();
+            nonceClaim = claimset.getStringClaim("nonce");
         } catch (ParseException e) {
             throw ProofOfPossessionVerifierException.unparsable(e);
         }
 
+        // check nonce
+        if (nonce == null || !nonce.equals(nonceClaim)) {
+            throw ProofOfPossessionVerifierException.invalidNonce(nonceClaim, nonce);
+        }
+
+        // check timestamp
         var expirationTime = claimset.getExpirationTime();
         if (expirationTime == null) {
             throw ProofOfPossessionVerifierException.expired();
@@ -137,6 +292,9 @@ public class ProofOfPossessionVerifier {
 
         // retrieve key
         var kid = signedJWT.getHeader().getKeyID();
+        if (kid == null) {
+            throw ProofOfPossessionVerifierException.malformedClaimKid("no kid provided");
+        }
         var keyIdSplit = kid.split("#");
         if (keyIdSplit.length != 2) {
             throw ProofOfPossessionVerifierException.malformedClaimKid("provided kid does not have fragment");
@@ -146,20 +304,11 @@ public class ProofOfPossessionVerifier {
             throw ProofOfPossessionVerifierException.malformedClaimKid("provided kid is not of issuer");
         }
 
-        // retrieve key
-        JWK jwk;
-        try {
-            var objectMapper = new ObjectMapper();
-            var jwkString = objectMapper.writeValueAsString(this.didDoc.getKey(keyIdSplit[1]));
-            jwk = JWK.parse(jwkString);
-        } catch (DidSidekicksException e) {
-            throw ProofOfPossessionVerifierException.keyMismatch(kid);
-        } catch (ParseException | JsonProcessingException e) {
-            throw ProofOfPossessionVerifierException.unparsable(e);
-        }
+        return keyIdSplit[1];
+    }
 
+    private static void checkSignature(SignedJWT signedJWT, JWSVerifier jwsVerifier) throws ProofOfPossessionVerifierException {
         try {
-            JWSVerifier jwsVerifier = new ECDSAVerifier(jwk.toECKey());
             if (!signedJWT.verify(jwsVerifier)) {
                 throw ProofOfPossessionVerifierException.invalidSignature();
             }
@@ -167,4 +316,32 @@ public class ProofOfPossessionVerifier {
             throw ProofOfPossessionVerifierException.failedToVerify(e);
         }
     }
+
+    /**
+     * @param fragment of the key in the DID doc
+     * @param kid      the whole key ID, as referenced by a JWT (for reporting purposes only)
+     * @return the (cached) verifier for the key
+     */
+    JWSVerifier getJWSVerifier(String fragment, String kid) throws ProofOfPossessionVerifierException {
+        var jwsVerifier = this.verifiers.get(fragment);
+        if (jwsVerifier != null) {
+            return jwsVerifier;
+        }
+
+        // retrieve key (a mere map lookup)
+        var jwk = this.didDoc.getKey(fragment);
+        if (jwk == null) {
+            if (this.didDoc.isMalformedKey(fragment)) {
+                throw ProofOfPossessionVerifierException.unparsable(new ParseException("Malformed JWK of key " + kid, 0));
+            }
+            throw ProofOfPossessionVerifierException.keyMismatch(kid);
+        }
+
+        try {
+            // the verifier matches the key type, i.e. in case of a race, the one built first wins
+            return this.verifiers.register(fragment, jwk);
+        } catch (JOSEException e) {
+            throw ProofOfPossessionVerifierException.failedToVerify(e);
+        }
+    }
 }
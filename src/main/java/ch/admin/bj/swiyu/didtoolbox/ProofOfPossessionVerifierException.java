@@ -57,6 +57,18 @@ public class ProofOfPossessionVerifierException extends Exception {
         return new ProofOfPossessionVerifierException(String.format("Failed to verify JWT due to: %s", cause.getLocalizedMessage()), ErrorCause.FAILED_TO_VERIFY);
     }
 
+    static ProofOfPossessionVerifierException replayed() {
+        return new ProofOfPossessionVerifierException("The JWT has already been used", ErrorCause.REPLAYED);
+    }
+
+    static ProofOfPossessionVerifierException unknownDid(String did) {
+        return new ProofOfPossessionVerifierException(String.format("No DID log found for DID '%s'", did), ErrorCause.UNKNOWN_DID);
+    }
+
+    static ProofOfPossessionVerifierException didMismatch(String expected, String got) {
+        return new ProofOfPossessionVerifierException(String.format("The DID log found for DID '%s' is of DID '%s' instead", expected, got), ErrorCause.UNKNOWN_DID);
+    }
+
     public enum ErrorCause {
         UNSUPPORTED_ALGORITHM,
         INVALID_NONCE,
@@ -65,6 +77,8 @@ public class ProofOfPossessionVerifierException extends Exception {
         EXPIRED,
         KEY_MISMATCH,
         INVALID_SIGNATURE,
-        FAILED_TO_VERIFY
+        FAILED_TO_VERIFY,
+        REPLAYED,
+        UNKNOWN_DID
     }
 }
@@ -0,0 +1,305 @@
+package ch.admin.bj.swiyu.didtoolbox;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.nimbusds.jwt.SignedJWT;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A thread-safe registry of {@link ProofOfPossessionVerifier} objects, one per DID, intended for services verifying PoP JWTs
+ * of many issuers. The DID log of each issuer is looked up via a (pluggable) {@link DidLogSource}, e.g. {@link DidLogSource#ofDirectory(java.nio.file.Path)}.
+ * <p>
+ * As resolving a DID log is expensive, it is paid once per DID version (i.e. the {@code versionId} of the last DID log entry):
+ * <ul>
+ *     <li>The verifiers are kept in a size-bounded {@link LruCache}.</li>
+ *     <li>Concurrent first lookups of the same DID are coalesced, i.e. the DID log is resolved by a single thread,
+ *     while all the others wait for it. A failed lookup (e.g. of an unknown DID) is cached only briefly (see the negative cache TTL),
+ *     so that a flood of PoP JWTs of a bogus issuer does not hit the {@link DidLogSource} each time.</li>
+ *     <li>A DID log is only accepted if the {@code id} of its resolved DID document is the very DID it was looked up for.</li>
+ *     <li>Once a cached verifier is older than the refresh interval, it is still served, while the DID log is re-read in the background
+ *     (using the supplied {@link Executor}). Only if its last {@code versionId} has changed is the DID log resolved again
+ *     and the cached verifier replaced.</li>
+ * </ul>
+ * Furthermore, all the checks of a PoP JWT not involving any key (i.e. algorithm, nonce, expiration and {@code kid} being of the issuer)
+ * are performed before its issuer is looked up at all.
+ * <p>
+ * Example usage:
+ * <pre>
+ * {@code
+ *     var registry = new ProofOfPossessionVerifierRegistry(DidLogSource.ofDirectory(Path.of("did-logs")));
+ *     // may throw ProofOfPossessionVerifierException
+ *     registry.verify(SignedJWT.parse(jwt), "my nonce");
+ * }
+ * </pre>
+ *
+ * @since 2.0.1
+ */
+public final class ProofOfPossessionVerifierRegistry {
+
+    /**
+     * The default maximum number of cached verifiers (i.e. DIDs)
+     */
+    public static final int DEFAULT_MAX_SIZE = 256;
+
+    /**
+     * The default age of a cached verifier, after which its DID log is checked for changes
+     */
+    public static final Duration DEFAULT_REFRESH_INTERVAL = Duration.ofSeconds(30);
+
+    /**
+     * The default age of a failed lookup, after which the DID log is looked up again
+     */
+    public static final Duration DEFAULT_NEGATIVE_CACHE_TTL = Duration.ofSeconds(5);
+
+    private record Resolved(String versionId, ProofOfPossessionVerifier verifier) {
+    }
+
+    private static final class Entry {
+        private final CompletableFuture<Resolved> resolved;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        private volatile long checkedAtNanos = System.nanoTime();
+
+        private Entry(CompletableFuture<Resolved> resolved) {
+            this.resolved = resolved;
+        }
+    }
+
+    private final DidLogSource source;
+    private final long refreshIntervalNanos;
+    private final long negativeCacheTtlNanos;
+    private final Executor executor;
+    private final LruCache<String, Entry> cache;
+    private final AtomicLong resolveCount = new AtomicLong();
+
+    /**
+     * Creates a registry with the default maximum size and refresh interval, refreshing using the
+     * {@link ForkJoinPool#commonPool() common pool}.
+     *
+     * @param source of DID logs
+     */
+    public ProofOfPossessionVerifierRegistry(DidLogSource source) {
+        this(source, DEFAULT_MAX_SIZE, DEFAULT_REFRESH_INTERVAL, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param source          of DID logs
+     * @param maxSize         the maximum number of cached verifiers. Must be positive.
+     * @param refreshInterval the age of a cached verifier, after which its DID log is checked for changes
+     * @param executor        to check DID logs for changes on
+     */
+    public ProofOfPossessionVerifierRegistry(DidLogSource source, int maxSize, Duration refreshInterval, Executor executor) {
+        this(source, maxSize, refreshInterval, DEFAULT_NEGATIVE_CACHE_TTL, executor);
+    }
+
+    /**
+     * @param source           of DID logs
+     * @param maxSize          the maximum number of cached verifiers (incl. failed lookups). Must be positive.
+     * @param refreshInterval  the age of a cached verifier, after which its DID log is checked for changes
+     * @param negativeCacheTtl the age of a failed lookup, after which the DID log is looked up again.
+     *                         {@link Duration#ZERO} disables caching of failed lookups.
+     * @param executor         to check DID logs for changes on
+     */
+    public ProofOfPossessionVerifierRegistry(DidLogSource source, int maxSize, Duration refreshInterval, Duration negativeCacheTtl, Executor executor) {
+        this.source = source;
+        this.refreshIntervalNanos = refreshInterval.toNanos();
+        this.negativeCacheTtlNanos = negativeCacheTtl.toNanos();
+        this.executor = executor;
+        this.cache = new LruCache<>(maxSize);
+    }
+
+    /**
+     * Verifies the supplied PoP JWT using the verifier of its issuer, i.e. the DID denoted by its {@code kid} header.
+     * <p>
+     * The (cheap) checks not involving any key are performed first, so that an invalid JWT never causes a DID log lookup.
+     *
+     * @param signedJWT PoP JWT to be verified
+     * @param nonce     possession
+     * @throws ProofOfPossessionVerifierException if the JWT is invalid or the DID log of its issuer is not available
+     * @see ProofOfPossessionVerifier#verify(SignedJWT, String)
+     */
+    public void verify(SignedJWT signedJWT, String nonce) throws ProofOfPossessionVerifierException {
+        // at this point, the kid is of the issuer and features a fragment
+        var fragment = ProofOfPossessionVerifier.checkClaims(signedJWT, nonce);
+        var kid = signedJWT.getHeader().getKeyID();
+        getVerifier(kid.substring(0, kid.indexOf('#'))).verifySignature(signedJWT, fragment);
+    }
+
+    /**
+     * @param did of the issuer
+     * @return the (cached) verifier of the supplied DID
+     * @throws ProofOfPossessionVerifierException if the DID log is not available or cannot be resolved
+     */
+    @SuppressWarnings("PMD.PreserveStackTrace")
+    public ProofOfPossessionVerifier getVerifier(String did) throws ProofOfPossessionVerifierException {
+        var entry = this.cache.get(did);
+        var owner = false;
+        if (entry != null && entry.resolved.isCompletedExceptionally()
+                && System.nanoTime() - entry.checkedAtNanos >= this.negativeCacheTtlNanos) {
+            // a failed lookup, which is due to be repeated
+            var created = new Entry(new CompletableFuture<>());
+            if (this.cache.replace(did, entry, created)) {
+                entry = created;
+                owner = true;
+            } else {
+                entry = this.cache.get(did); // replaced (or removed) concurrently
+            }
+        }
+        if (entry == null) {
+            var created = new Entry(new CompletableFuture<>());
+            entry = this.cache.putIfAbsent(did, created);
+            if (entry == null) {
+                entry = created;
+                owner = true;
+            }
+        }
+
+        if (owner) {
+            // the very first lookup, i.e. any concurrent one just waits for it
+            try {
+                entry.resolved.complete(resolve(did));
+            } catch (ProofOfPossessionVerifierException | RuntimeException e) {
+                entry.checkedAtNanos = System.nanoTime();
+                entry.resolved.completeExceptionally(e);
+                if (this.negativeCacheTtlNanos <= 0) {
+                    this.cache.remove(did, entry);
+                }
+            }
+        } else if (entry.resolved.isDone() && !entry.resolved.isCompletedExceptionally()
+                && System.nanoTime() - entry.checkedAtNanos > this.refreshIntervalNanos) {
+            refreshAsync(did, entry);
+        }
+
+        try {
+            return entry.resolved.join().verifier();
+        } catch (CompletionException e) {
+            var cause = e.getCause();
+            if (cause instanceof ProofOfPossessionVerifierException exc) {
+                throw exc;
+            } else if (cause instanceof Exception exc) {
+                throw new ProofOfPossessionVerifierException(exc);
+            } else if (cause instanceof Error err) {
+                throw err;
+            }
+            throw e;
+        }
+    }
+
+    @SuppressWarnings("PMD.EmptyCatchBlock")
+    private void refreshAsync(String did, Entry entry) {
+        if (!entry.refreshing.compareAndSet(false, true)) {
+            return; // already in progress
+        }
+        try {
+            CompletableFuture.runAsync(() -> refresh(did, entry), this.executor);
+        } catch (RejectedExecutionException ignore) {
+            // e.g. a saturated (bounded) or shut down executor, so keep serving the current verifier and retry on a later lookup
+            entry.refreshing.set(false);
+        }
+    }
+
+    @SuppressWarnings({"PMD.EmptyCatchBlock", "PMD.AvoidCatchingGenericException"})
+    private void refresh(String did, Entry entry) {
+        try {
+            var didLog = this.source.getDidLog(did);
+            if (didLog == null) {
+                this.cache.remove(did, entry); // gone
+                return;
+            }
+            if (!lastVersionId(didLog).equals(entry.resolved.join().versionId())) {
+                var refreshed = new Entry(CompletableFuture.completedFuture(resolve(did, didLog)));
+                this.cache.replace(did, entry, refreshed);
+            }
+        } catch (Exception ignore) {
+            // keep serving the current verifier, the DID log is checked again later on
+        } finally {
+            entry.checkedAtNanos = System.nanoTime();
+            entry.refreshing.set(false);
+        }
+    }
+
+    private Resolved resolve(String did) throws ProofOfPossessionVerifierException {
+        String didLog;
+        try {
+            didLog = this.source.getDidLog(did);
+        } catch (IOException e) {
+            throw new ProofOfPossessionVerifierException(e);
+        }
+        if (didLog == null) {
+            throw ProofOfPossessionVerifierException.unknownDid(did);
+        }
+        return resolve(did, didLog);
+    }
+
+    private Resolved resolve(String did, String didLog) throws ProofOfPossessionVerifierException {
+        var versionId = lastVersionId(didLog);
+        var verifier = new ProofOfPossessionVerifier(didLog);
+        if (!did.equals(verifier.getDid())) {
+            // e.g. a misplaced (or tampered) DID log, which must never verify PoP JWTs of another issuer
+            throw ProofOfPossessionVerifierException.didMismatch(did, verifier.getDid());
+        }
+        this.resolveCount.incrementAndGet();
+        return new Resolved(versionId, verifier);
+    }
+
+    /**
+     * @return the {@code versionId} of the last DID log entry, regardless of the DID method (i.e. {@code did:tdw} or {@code did:webvh})
+     */
+    private static String lastVersionId(String didLog) throws ProofOfPossessionVerifierException {
+        var end = didLog.length();
+        while (end > 0 && Character.isWhitespace(didLog.charAt(end - 1))) {
+            end--;
+        }
+        var lastEntry = didLog.substring(didLog.lastIndexOf('\n', end - 1) + 1, end);
+
+        JsonElement json;
+        try {
+            json = JsonParser.parseString(lastEntry);
+        } catch (JsonParseException e) {
+            throw ProofOfPossessionVerifierException.unparsable(e);
+        }
+
+        JsonElement versionId = null;
+        if (json.isJsonArray() && !json.getAsJsonArray().isEmpty()) {
+            versionId = json.getAsJsonArray().get(0); // did:tdw
+        } else if (json.isJsonObject()) {
+            versionId = json.getAsJsonObject().get("versionId"); // did:webvh
+        }
+        if (versionId == null || !versionId.isJsonPrimitive()) {
+            throw ProofOfPossessionVerifierException.unparsable(new IllegalArgumentException("The last DID log entry features no versionId"));
+        }
+        return versionId.getAsString();
+    }
+
+    /**
+     * Removes the verifier of the supplied DID from the cache, if any.
+     *
+     * @param did of the issuer
+     */
+    public void invalidate(String did) {
+        this.cache.remove(did);
+    }
+
+    /**
+     * @return the number of cached verifiers
+     */
+    public int size() {
+        return this.cache.size();
+    }
+
+    /**
+     * @return the number of DID logs resolved so far
+     */
+    public long getResolveCount() {
+        return this.resolveCount.get();
+    }
+}
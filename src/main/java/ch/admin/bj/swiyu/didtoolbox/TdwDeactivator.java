@@ -192,7 +192,7 @@ public class TdwDeactivator extends AbstractDidLogEntryBuilder implements DidLog
 
         // Create initial did doc with placeholder
         var didDoc = new JsonObject();
-        didDoc.addProperty("id", didLogMeta.getDidDoc().getId());
+        didDoc.addProperty("id", didLogMeta.getResolvedDidDoc().getId());
         // CAUTION "controller" property is omitted w.r.t.:
         // - https://jira.bit.admin.ch/browse/EIDSYS-352
         // - https://confluence.bit.admin.ch/display/EIDTEAM/DID+Doc+Conformity+Check
@@ -269,7 +269,7 @@ public class TdwDeactivator extends AbstractDidLogEntryBuilder implements DidLog
         proofs.add(proof);
         didLogEntryWithProof.add(proofs);
 
-        try (var did = new Did(didLogMeta.getDidDoc().getId())) {
+        try (var did = new Did(didLogMeta.getResolvedDidDoc().getId())) {
             // NOTE Enforcing DID log conformity by calling:
             //      ch.admin.eid.didtoolbox.DidLogEntryValidator.Companion
             //          .from(DidLogEntryJsonSchema.V03_EID_CONFORM)
@@ -388,12 +388,12 @@ public class TdwUpdater extends AbstractDidLogEntryBuilder implements DidLogUpda
 
         // take over context
         var context = new JsonArray();
-        for (var ctx : this.didLogMeta.getDidDoc().getContext()) {
+        for (var ctx : this.didLogMeta.getResolvedDidDoc().getContext()) {
             context.add(ctx);
         }
         didDoc.add("@context", context);
 
-        didDoc.addProperty("id", this.didLogMeta.getDidDoc().getId());
+        didDoc.addProperty("id", this.didLogMeta.getResolvedDidDoc().getId());
         // CAUTION "controller" property is omitted w.r.t.:
         // - https://jira.bit.admin.ch/browse/EIDSYS-352
         // - https://confluence.bit.admin.ch/display/EIDTEAM/DID+Doc+Conformity+Check
@@ -410,9 +410,8 @@ public class TdwUpdater extends AbstractDidLogEntryBuilder implements DidLogUpda
             JsonArray authentication = new JsonArray();
             for (var vm : this.allAuthentications()) {
 
-                authentication.add(this.didLogMeta.getDidDoc().getId() + "#" + vm.getIdFragment());
-                verificationMethod.add(buildVerificationMethodWithPublicKeyJwk(
-                        this.didLogMeta.getDidDoc().getId(), vm.getIdFragment(), vm.getVerificationMaterial().getPublicKeyJwk()));
+                authentication.add(this.didLogMeta.getResolvedDidDoc().getId() + "#" + vm.getIdFragment());
+                verificationMethod.add(buildVerificationMethodWithPublicKeyJwk(this.didLogMeta.getResolvedDidDoc().getId(), vm));
             }
 
             didDoc.add("authentication", authentication);
@@ -423,9 +422,8 @@ public class TdwUpdater extends AbstractDidLogEntryBuilder implements DidLogUpda
             var assertionMethod = new JsonArray();
             for (var vm : this.allAssertionMethods()) {
 
-                assertionMethod.add(this.didLogMeta.getDidDoc().getId() + "#" + vm.getIdFragment());
-                verificationMethod.add(buildVerificationMethodWithPublicKeyJwk(
-                        this.didLogMeta.getDidDoc().getId(), vm.getIdFragment(), vm.getVerificationMaterial().getPublicKeyJwk()));
+                assertionMethod.add(this.didLogMeta.getResolvedDidDoc().getId() + "#" + vm.getIdFragment());
+                verificationMethod.add(buildVerificationMethodWithPublicKeyJwk(this.didLogMeta.getResolvedDidDoc().getId(), vm));
             }
 
             didDoc.add("assertionMethod", assertionMethod);
@@ -505,7 +503,7 @@ public class TdwUpdater extends AbstractDidLogEntryBuilder implements DidLogUpda
         proofs.add(proof);
         didLogEntryWithProof.add(proofs);
 
-        try (var did = new Did(this.didLogMeta.getDidDoc().getId())) {
+        try (var did = new Did(this.didLogMeta.getResolvedDidDoc().getId())) {
             // NOTE Enforcing DID log conformity by calling:
             //      ch.admin.eid.didtoolbox.DidLogEntryValidator.Companion
             //          .from(DidLogEntryJsonSchema.V03_EID_CONFORM)
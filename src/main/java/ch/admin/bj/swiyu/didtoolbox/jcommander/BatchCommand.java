@@ -0,0 +1,39 @@
+package ch.admin.bj.swiyu.didtoolbox.jcommander;
+
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.Parameters;
+
+import java.io.File;
+
+@Parameters(
+        commandNames = {BatchCommand.COMMAND_NAME},
+        commandDescription = "Run many operations within a single process, as listed by a manifest file in JSON Lines format, " +
+                "so that JVM start-up, native library loading and key material loading are paid only once. " +
+                "Each manifest line is a JSON object like {\"id\":\"my-op-01\",\"op\":\"update\",\"args\":[\"--did-log-file\",\"did.jsonl\",...]}, " +
+                "where op is one of: create, update, deactivate, pop-create (or create-pop), pop-verify (or verify-pop) " +
+                "and args are the very same parameters as supplied to the respective command. " +
+                "The result of each operation (featuring exit code, output, timing and error, if any) is written as a JSON line, " +
+                "in order of completion. The exit code is non-zero, if any of the operations failed"
+)
+public class BatchCommand extends AbstractCommandBase {
+
+    @Override
+    String getCommandName() {
+        return COMMAND_NAME;
+    }
+
+    final public static String COMMAND_NAME = "batch";
+
+    @Parameter(names = {CommandParameterNames.PARAM_NAME_LONG_MANIFEST_FILE, CommandParameterNames.PARAM_NAME_SHORT_MANIFEST_FILE},
+            description = "The manifest file (in JSON Lines format) listing all the operations to run",
+            required = true)
+    public File manifestFile;
+
+    @Parameter(names = {CommandParameterNames.PARAM_NAME_LONG_PARALLELISM},
+            description = "The maximum number of operations to run in parallel. Defaults to the number of available processors")
+    public int parallelism = Runtime.getRuntime().availableProcessors();
+
+    @Parameter(names = {CommandParameterNames.PARAM_NAME_LONG_OUTPUT_FILE, CommandParameterNames.PARAM_NAME_SHORT_OUTPUT_FILE},
+            description = "The file to write the results (in JSON Lines format) to. If not set, the results are written to the standard output")
+    public File outputFile;
+}
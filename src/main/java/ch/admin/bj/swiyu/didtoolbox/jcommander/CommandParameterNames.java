@@ -16,6 +16,9 @@ public interface CommandParameterNames {
     String PARAM_NAME_LONG_JKS_PASSWORD = "--jks-password";
     String PARAM_NAME_LONG_JKS_ALIAS = "--jks-alias";
 
+    String PARAM_NAME_LONG_KEY_STORE_OUTPUT_FILE = "--key-store-output-file";
+    String PARAM_NAME_LONG_KEY_STORE_OUTPUT_PASSWORD = "--key-store-output-password";
+
     String PARAM_NAME_LONG_PRIMUS_CREDENTIALS = "--primus-credentials";
     String PARAM_NAME_SHORT_PRIMUS_CREDENTIALS = "-p";
     String PARAM_NAME_LONG_PRIMUS_KEYSTORE_ALIAS = "--primus-keystore-alias";
@@ -48,4 +51,14 @@ public interface CommandParameterNames {
 
     String PARAM_NAME_LONG_JWT = "--jwt";
     String PARAM_NAME_SHORT_JWT = "-j";
+
+    String PARAM_NAME_LONG_HOST = "--host";
+    String PARAM_NAME_LONG_PORT = "--port";
+    String PARAM_NAME_LONG_TOKEN_FILE = "--token-file";
+
+    String PARAM_NAME_LONG_MANIFEST_FILE = "--manifest-file";
+    String PARAM_NAME_SHORT_MANIFEST_FILE = "-m";
+    String PARAM_NAME_LONG_PARALLELISM = "--parallelism";
+    String PARAM_NAME_LONG_OUTPUT_FILE = "--output-file";
+    String PARAM_NAME_SHORT_OUTPUT_FILE = "-o";
 }
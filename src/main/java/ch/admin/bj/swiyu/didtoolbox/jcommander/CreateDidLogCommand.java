@@ -7,6 +7,7 @@ import ch.admin.bj.swiyu.didtoolbox.model.DidMethodEnum;
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
 
+import java.io.File;
 import java.net.URL;
 
 @Parameters(
@@ -51,4 +52,15 @@ public class CreateDidLogCommand extends AbstractKeyMaterialDidLogCommand {
             defaultValueDescription = DidMethodEnum.WEBVH_1_0_STRING)
     //,required = true)
     public DidMethodEnum methodVersion;
+
+    @Parameter(names = {CommandParameterNames.PARAM_NAME_LONG_KEY_STORE_OUTPUT_FILE},
+            description = "Instead of separate PEM files in the .didtoolbox directory, add all the generated private keys to this single " +
+                    "Java KeyStore (PKCS12) file, indexed by DID and key name (as 'DID#key-name' aliases). " +
+                    "The file is created, if not existing already. Intended for bulk provisioning. Requires " + CommandParameterNames.PARAM_NAME_LONG_KEY_STORE_OUTPUT_PASSWORD)
+    public File keyStoreOutputFile;
+
+    @Parameter(names = {CommandParameterNames.PARAM_NAME_LONG_KEY_STORE_OUTPUT_PASSWORD},
+            description = "Java KeyStore (PKCS12) password protecting the " + CommandParameterNames.PARAM_NAME_LONG_KEY_STORE_OUTPUT_FILE + " and all the keys stored in it",
+            password = true)
+    public String keyStoreOutputPassword;
 }
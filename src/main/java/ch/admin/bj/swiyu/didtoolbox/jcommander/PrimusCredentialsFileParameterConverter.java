@@ -2,6 +2,7 @@ package ch.admin.bj.swiyu.didtoolbox.jcommander;
 
 import ch.admin.bj.swiyu.didtoolbox.securosys.primus.PrimusKeyStoreInitializationException;
 import ch.admin.bj.swiyu.didtoolbox.securosys.primus.PrimusKeyStoreLoader;
+import ch.admin.bj.swiyu.didtoolbox.securosys.primus.PrimusSessionManager;
 import com.beust.jcommander.IStringConverter;
 import com.beust.jcommander.ParameterException;
 
@@ -15,6 +16,18 @@ public class PrimusCredentialsFileParameterConverter implements IStringConverter
     @Override
     public PrimusKeyStoreLoader convert(String value) {
 
+        if (PrimusSessionManager.isSharedSessionsEnabled()) {
+            // a long-running process logs in once (per credentials file) and shares the session across all its operations
+            try {
+                return PrimusSessionManager.shared(new File(value)).getSession();
+            } catch (PrimusKeyStoreInitializationException exc) {
+                throw new ParameterException("Parameter value '" + value + "' do may feature all valid Securosys Primus credentials. "
+                        + "However, none of the Securosys Primus hosts is available", exc);
+            } catch (IOException ignore) {
+                // the credentials cannot be resolved, hence the very same handling as for a one-off process
+            }
+        }
+
         try {
             return new PrimusKeyStoreLoader(new File(value));
         } catch (PrimusKeyStoreInitializationException exc) {
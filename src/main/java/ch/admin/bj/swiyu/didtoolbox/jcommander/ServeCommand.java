@@ -0,0 +1,44 @@
+package ch.admin.bj.swiyu.didtoolbox.jcommander;
+
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.Parameters;
+
+import java.io.File;
+
+@Parameters(
+        commandNames = {ServeCommand.COMMAND_NAME},
+        commandDescription = "Start a long-running (daemon) process exposing all the other commands over a local HTTP interface, " +
+                "so that JVM start-up, native library loading and key material loading are paid only once. " +
+                "Each command is run by POSTing a JSON object like {\"args\":[\"--did-log-file\",\"did.jsonl\",...]} to /commands/<command>, " +
+                "whereas the response features the exit code and the output of the command. " +
+                "Further endpoints: GET /health and GET /metrics. " +
+                "For security reasons, the server may only listen on a loopback address, " +
+                "all the endpoints but /health require the 'Authorization: Bearer <token>' header and " +
+                "requests featuring an Origin header (i.e. issued by web browsers) are rejected"
+)
+public class ServeCommand extends AbstractCommandBase {
+
+    @Override
+    String getCommandName() {
+        return COMMAND_NAME;
+    }
+
+    final public static String COMMAND_NAME = "serve";
+
+    final public static String DEFAULT_HOST = "127.0.0.1";
+    final public static int DEFAULT_PORT = 8080;
+
+    @Parameter(names = {CommandParameterNames.PARAM_NAME_LONG_HOST},
+            description = "The (loopback) address to listen on")
+    public String host = DEFAULT_HOST;
+
+    @Parameter(names = {CommandParameterNames.PARAM_NAME_LONG_PORT},
+            description = "The port to listen on. Use 0 for any free port")
+    public int port = DEFAULT_PORT;
+
+    @Parameter(names = {CommandParameterNames.PARAM_NAME_LONG_TOKEN_FILE},
+            description = "The file (accessible to the current user only, i.e. mode 0600) to read the bearer token from. " +
+                    "If the file does not exist yet, it is created featuring a new random token. " +
+                    "If not set, a new random token is generated and printed at start")
+    public File tokenFile;
+}
@@ -24,6 +24,7 @@ import java.util.Set;
  *     <li>DID parameters</li>
  *     <li>DID Doc {@code id}</li>
  * </ul>
+ * Beside the (native) resolved {@link DidDoc}, its immutable Java-side snapshot {@link ResolvedDidDocument} is available as well.
  */
 public class DidLogMeta {
 
@@ -37,6 +38,12 @@ public class DidLogMeta {
     private NamedDidMethodParameters params;
     @Getter
     final private DidDoc didDoc;
+    /**
+     * The (immutable) Java-side snapshot of the {@link #didDoc}, converted once and for all, so that no native call is required
+     * for looking up e.g. the DID Doc {@code id} or any of its keys.
+     */
+    @Getter
+    final private ResolvedDidDocument resolvedDidDoc;
 
     DidLogMeta(String lastVersionId, int lastVersionNumber, String dateTime, Map<String, DidMethodParameter> paramsMap, DidDoc didDoc) {
         this.lastVersionId = lastVersionId;
@@ -44,6 +51,7 @@ public class DidLogMeta {
         this.dateTime = dateTime;
         this.setParams(paramsMap);
         this.didDoc = didDoc;
+        this.resolvedDidDoc = ResolvedDidDocument.of(didDoc);
     }
 
     private void setParams(Map<String, DidMethodParameter> paramsMap) {
@@ -85,6 +93,7 @@ public class DidLogMeta {
     public boolean isPreRotatedUpdateKey(String multikey) {
 
         if (this.isKeyPreRotationActivated() && multikey != null) {
+            // the multikey is hashed exactly once, while the lookup itself is a mere O(1) operation (as of HashSet)
             return this.getParams().getNextKeyHashes().contains(
                     NextKeyHashesDidMethodParameter.of(multikey).getNextKeyHash());
         }
@@ -103,11 +112,18 @@ public class DidLogMeta {
      */
     public boolean arePreRotatedUpdateKeys(Set<UpdateKeysDidMethodParameter> params) throws UpdateKeysDidMethodParameterException {
 
-        if (params != null && !params.isEmpty()) {
-            for (var param : params) {
-                if (!this.isPreRotatedUpdateKey(param.getUpdateKey())) {
-                    return false;
-                }
+        if (params == null || params.isEmpty()) {
+            return true;
+        }
+
+        if (!this.isKeyPreRotationActivated()) {
+            return false;
+        }
+
+        // O(k) lookups, whereas each of k update keys is hashed exactly once
+        for (var param : params) {
+            if (!this.isPreRotatedUpdateKey(param.getUpdateKey())) {
+                return false;
             }
         }
 
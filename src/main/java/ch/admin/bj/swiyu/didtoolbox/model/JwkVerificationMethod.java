@@ -0,0 +1,165 @@
+package ch.admin.bj.swiyu.didtoolbox.model;
+
+import ch.admin.bj.swiyu.didtoolbox.JcsCanonicalizer;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import java.util.Objects;
+
+/**
+ * An immutable {@link VerificationMethod} (and its own {@link VerificationMaterial}) holding a
+ * <a href="https://www.rfc-editor.org/rfc/rfc7517">JSON Web Key (JWK)</a>, as returned by all the static factory methods
+ * of the {@link VerificationMethod} interface.
+ * <p>
+ * All the representations of the JWK (featuring the {@code kid} parameter) are computed exactly once, at construction time:
+ * <ul>
+ *     <li>the serialized JSON, as returned by {@link #getPublicKeyJwk()}</li>
+ *     <li>the parsed JSON object, as embedded by DID log entry builders (see {@link #getPublicKeyJwkJsonObject()})</li>
+ *     <li>the <a href="https://www.rfc-editor.org/rfc/rfc8785">JCS</a>-canonical UTF-8 bytes and their SHA-256 hash</li>
+ *     <li>the key type, curve and coordinates</li>
+ * </ul>
+ * Therefore, a single set of instances may be freely shared between DID log creators/updaters running in parallel.
+ *
+ * @since 2.0.1
+ */
+public final class JwkVerificationMethod implements VerificationMethod, VerificationMaterial {
+
+    private final String idFragment;
+    private final String type;
+    private final JsonObject publicKeyJwkJsonObject; // never handed out as such, hence never mutated
+    private final String publicKeyJwk;
+    private final byte[] canonicalPublicKeyJwk;
+    private final byte[] publicKeyJwkSha256;
+    private final String kty;
+    private final String crv;
+    private final String x;
+    private final String y;
+
+    /**
+     * @param kid          non-empty string representing a <a href="https://www.rfc-editor.org/rfc/rfc7517#section-4.5">"kid" (Key ID) Parameter</a>,
+     *                     which is set (or replaced) in the JWK
+     * @param type         string representation of a <a href="https://www.w3.org/TR/did-1.0/#dfn-verification-method">verification method</a> type
+     * @param publicKeyJwk string representation of a JWK featuring {@code kty}, {@code crv}, {@code x} and {@code y} parameters
+     * @throws VerificationMethodException if the supplied {@code publicKeyJwk} does not represent a proper JWK as described above
+     */
+    JwkVerificationMethod(String kid, String type, String publicKeyJwk) throws VerificationMethodException {
+
+        JsonObject jsonObj;
+        try {
+            jsonObj = JsonParser.parseString(publicKeyJwk).getAsJsonObject();
+        } catch (JsonParseException | IllegalStateException exc) {
+            throw new VerificationMethodException("The supplied string does not represent a public key JWK", exc);
+        }
+
+        this.kty = requireStringParameter(jsonObj.get("kty"));
+        this.crv = requireStringParameter(jsonObj.get("crv"));
+        this.x = requireStringParameter(jsonObj.get("x"));
+        this.y = requireStringParameter(jsonObj.get("y"));
+
+        // any existing "kid" parameter is replaced in place, i.e. the order of parameters remains as supplied
+        jsonObj.addProperty("kid", kid);
+
+        this.idFragment = kid;
+        this.type = type;
+        this.publicKeyJwkJsonObject = jsonObj;
+        this.publicKeyJwk = jsonObj.toString();
+        this.canonicalPublicKeyJwk = JcsCanonicalizer.canonicalize(jsonObj);
+        this.publicKeyJwkSha256 = JcsCanonicalizer.sha256(jsonObj);
+    }
+
+    private static String requireStringParameter(JsonElement param) throws VerificationMethodException {
+        if (param == null || !param.isJsonPrimitive()) {
+            throw new VerificationMethodException("The supplied string representing a public key JWK does not feature all the required parameters ('kty', 'crv', 'x' or 'y'");
+        }
+        return param.getAsString();
+    }
+
+    @Override
+    public String getIdFragment() {
+        return this.idFragment;
+    }
+
+    @Override
+    public String getType() {
+        return this.type;
+    }
+
+    /**
+     * @return this very (immutable) object, as it holds the verification material itself
+     */
+    @Override
+    public VerificationMaterial getVerificationMaterial() {
+        return this;
+    }
+
+    /**
+     * @return the serialized JWK (featuring the {@code kid} parameter), computed once
+     */
+    @Override
+    public String getPublicKeyJwk() {
+        return this.publicKeyJwk;
+    }
+
+    /**
+     * Intended for embedding the JWK into a (mutable) DID document JSON tree without re-parsing {@link #getPublicKeyJwk()}.
+     *
+     * @return a fresh (deep) copy of the parsed JWK, free to be modified by the caller
+     */
+    public JsonObject getPublicKeyJwkJsonObject() {
+        return this.publicKeyJwkJsonObject.deepCopy();
+    }
+
+    /**
+     * @return the <a href="https://www.rfc-editor.org/rfc/rfc8785">JCS</a>-canonical UTF-8 form of the JWK (as a copy)
+     */
+    public byte[] getCanonicalPublicKeyJwk() {
+        return this.canonicalPublicKeyJwk.clone();
+    }
+
+    /**
+     * @return SHA-256 hash of {@link #getCanonicalPublicKeyJwk()} (as a copy)
+     */
+    public byte[] getPublicKeyJwkSha256() {
+        return this.publicKeyJwkSha256.clone();
+    }
+
+    /**
+     * @return the <a href="https://www.rfc-editor.org/rfc/rfc7517#section-4.1">"kty" (Key Type)</a> parameter of the JWK
+     */
+    public String getKty() {
+        return this.kty;
+    }
+
+    /**
+     * @return the {@code crv} (curve) parameter of the JWK
+     */
+    public String getCrv() {
+        return this.crv;
+    }
+
+    /**
+     * @return the (base64url-encoded) {@code x} coordinate of the JWK
+     */
+    public String getX() {
+        return this.x;
+    }
+
+    /**
+     * @return the (base64url-encoded) {@code y} coordinate of the JWK
+     */
+    public String getY() {
+        return this.y;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return this.defaultEquals(obj);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.getIdFragment());
+    }
+}
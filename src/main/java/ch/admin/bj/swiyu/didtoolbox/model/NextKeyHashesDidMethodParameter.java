@@ -53,27 +53,12 @@ public interface NextKeyHashesDidMethodParameter {
     static NextKeyHashesDidMethodParameter of(Path pemPath) throws NextKeyHashesDidMethodParameterException {
         String hash;
         try {
-            hash = Base58.encode(JCSHasher.multihash(PemUtils.readEd25519PublicKeyPemFileToMultibase(pemPath)));
+            hash = KeyMaterialCache.shared().getNextKeyHash(pemPath);
         } catch (DidSidekicksException e) {
             throw new NextKeyHashesDidMethodParameterException(e);
         }
 
-        return new NextKeyHashesDidMethodParameter() {
-            @Override
-            public String getNextKeyHash() {
-                return hash;
-            }
-
-            @Override
-            public boolean equals(Object obj) {
-                return this.defaultEquals(obj);
-            }
-
-            @Override
-            public int hashCode() {
-                return Objects.hash(this.getNextKeyHash());
-            }
-        };
+        return ofNextKeyHash(hash);
     }
 
     /**
@@ -86,22 +71,7 @@ public interface NextKeyHashesDidMethodParameter {
      */
     static NextKeyHashesDidMethodParameter of(PublicKey publicKey) {
 
-        return new NextKeyHashesDidMethodParameter() {
-            @Override
-            public String getNextKeyHash() {
-                return Base58.encode(JCSHasher.multihash(Ed25519Utils.toMultibase(publicKey)));
-            }
-
-            @Override
-            public boolean equals(Object obj) {
-                return this.defaultEquals(obj);
-            }
-
-            @Override
-            public int hashCode() {
-                return Objects.hash(this.getNextKeyHash());
-            }
-        };
+        return of(Ed25519Utils.toMultibase(publicKey));
     }
 
     /**
@@ -112,20 +82,43 @@ public interface NextKeyHashesDidMethodParameter {
      * delivers hash of the Ed25519 public key stored in the supplied {@link String} object
      */
     static NextKeyHashesDidMethodParameter of(String multibaseKey) {
+        return ofNextKeyHash(Base58.encode(JCSHasher.multihash(multibaseKey)));
+    }
+
+    /**
+     * Yet another static factory method of the interface, for an already calculated hash.
+     * <p>
+     * The returned object is an immutable value object, i.e. the hash is never recalculated by any of the
+     * {@link #getNextKeyHash()}, {@link Object#equals(Object)} or {@link Object#hashCode()} methods.
+     * Hence, such objects are well suited for being (frequently) looked up in hash-based collections.
+     *
+     * @param nextKeyHash an already calculated hash of a public key, as delivered by {@link #getNextKeyHash()}
+     * @return a valid {@link NextKeyHashesDidMethodParameter} object whose {@link #getNextKeyHash()} method delivers the supplied hash
+     */
+    static NextKeyHashesDidMethodParameter ofNextKeyHash(String nextKeyHash) {
+
+        Objects.requireNonNull(nextKeyHash);
+        final int hashCode = Objects.hash(nextKeyHash);
+
         return new NextKeyHashesDidMethodParameter() {
             @Override
             public String getNextKeyHash() {
-                return Base58.encode(JCSHasher.multihash(multibaseKey));
+                return nextKeyHash;
             }
 
             @Override
             public boolean equals(Object obj) {
-                return this.defaultEquals(obj);
+                return this == obj || this.defaultEquals(obj);
             }
 
             @Override
             public int hashCode() {
-                return Objects.hash(this.getNextKeyHash());
+                return hashCode;
+            }
+
+            @Override
+            public String toString() {
+                return nextKeyHash;
             }
         };
     }
@@ -0,0 +1,162 @@
+package ch.admin.bj.swiyu.didtoolbox.model;
+
+import ch.admin.eid.did_sidekicks.DidDoc;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nimbusds.jose.jwk.JWK;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable, Java-side snapshot of a resolved (native) {@link DidDoc}, converted exactly once
+ * (see {@link #of(DidDoc)}), so that no further (JNA) native calls are required afterwards:
+ * <ul>
+ *     <li>the DID Doc {@code id} and {@code @context}</li>
+ *     <li>the {@code verificationMethod} keys, already parsed as {@link JWK} objects and indexed by their ID fragment</li>
+ *     <li>the ID fragments of all {@code authentication} and {@code assertionMethod} verification methods</li>
+ * </ul>
+ * Therefore, a single instance may be freely shared between threads.
+ *
+ * @since 2.0.1
+ */
+public final class ResolvedDidDocument {
+
+    // thread-safe once configured, hence shared by all the instances
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final String id;
+    private final List<String> context;
+    private final Map<String, JWK> verificationMethods;
+    private final Set<String> malformedVerificationMethods;
+    private final Set<String> authentication;
+    private final Set<String> assertionMethod;
+
+    private ResolvedDidDocument(String id,
+                                List<String> context,
+                                Map<String, JWK> verificationMethods,
+                                Set<String> malformedVerificationMethods,
+                                Set<String> authentication,
+                                Set<String> assertionMethod) {
+        this.id = id;
+        this.context = List.copyOf(context);
+        this.verificationMethods = Map.copyOf(verificationMethods);
+        this.malformedVerificationMethods = Set.copyOf(malformedVerificationMethods);
+        this.authentication = Set.copyOf(authentication);
+        this.assertionMethod = Set.copyOf(assertionMethod);
+    }
+
+    /**
+     * The static factory method converting the supplied (native) DID document.
+     * <p>
+     * A key that cannot be parsed as a JWK does not fail the conversion, it is rather reported as such by {@link #isMalformedKey(String)}.
+     *
+     * @param didDoc a resolved DID document, as delivered by {@link DidLogMeta#getDidDoc()}
+     * @return an immutable snapshot of the supplied DID document
+     */
+    public static ResolvedDidDocument of(DidDoc didDoc) {
+
+        var verificationMethods = new LinkedHashMap<String, JWK>();
+        var malformedVerificationMethods = new HashSet<String>();
+        for (var vm : didDoc.getVerificationMethod()) {
+            var fragment = toFragment(vm.getId());
+            try {
+                verificationMethods.put(fragment, JWK.parse(OBJECT_MAPPER.writeValueAsString(vm.getPublicKeyJwk())));
+            } catch (ParseException | JsonProcessingException e) {
+                malformedVerificationMethods.add(fragment);
+            }
+        }
+
+        var authentication = new HashSet<String>();
+        didDoc.getAuthentication().forEach(vm -> authentication.add(toFragment(vm.getId())));
+
+        var assertionMethod = new HashSet<String>();
+        didDoc.getAssertionMethod().forEach(vm -> assertionMethod.add(toFragment(vm.getId())));
+
+        var context = didDoc.getContext();
+
+        return new ResolvedDidDocument(
+                didDoc.getId(),
+                context != null ? context : new ArrayList<>(),
+                verificationMethods,
+                malformedVerificationMethods,
+                authentication,
+                assertionMethod);
+    }
+
+    private static String toFragment(String verificationMethodId) {
+        return verificationMethodId.substring(verificationMethodId.indexOf('#') + 1); // either a DID URL or a relative one
+    }
+
+    /**
+     * @return the DID Doc {@code id}, i.e. the DID itself
+     */
+    public String getId() {
+        return this.id;
+    }
+
+    /**
+     * @return the (unmodifiable) DID Doc {@code @context}
+     */
+    public List<String> getContext() {
+        return this.context;
+    }
+
+    /**
+     * @return the (unmodifiable) {@code verificationMethod} keys, indexed by their ID fragment, excluding any malformed one
+     */
+    public Map<String, JWK> getVerificationMethods() {
+        return this.verificationMethods;
+    }
+
+    /**
+     * @param fragment of the verification method ID, e.g. {@code my-assert-key-01}
+     * @return the key of the verification method, or {@code null} if there is none (or it is malformed)
+     */
+    public JWK getKey(String fragment) {
+        return this.verificationMethods.get(fragment);
+    }
+
+    /**
+     * @param fragment of the verification method ID
+     * @return {@code true} if and only if there is such a verification method, but its key cannot be parsed as JWK
+     */
+    public boolean isMalformedKey(String fragment) {
+        return this.malformedVerificationMethods.contains(fragment);
+    }
+
+    /**
+     * @return the (unmodifiable) ID fragments of all {@code authentication} verification methods
+     */
+    public Set<String> getAuthentication() {
+        return this.authentication;
+    }
+
+    /**
+     * @return the (unmodifiable) ID fragments of all {@code assertionMethod} verification methods
+     */
+    public Set<String> getAssertionMethod() {
+        return this.assertionMethod;
+    }
+
+    /**
+     * @param fragment of the verification method ID
+     * @return {@code true} if and only if the verification method is referenced by {@code authentication}
+     */
+    public boolean isAuthentication(String fragment) {
+        return this.authentication.contains(fragment);
+    }
+
+    /**
+     * @param fragment of the verification method ID
+     * @return {@code true} if and only if the verification method is referenced by {@code assertionMethod}
+     */
+    public boolean isAssertionMethod(String fragment) {
+        return this.assertionMethod.contains(fragment);
+    }
+}
@@ -71,22 +71,7 @@ public interface UpdateKeysDidMethodParameter {
      */
     static UpdateKeysDidMethodParameter of(PublicKey key) {
 
-        return new UpdateKeysDidMethodParameter() {
-            @Override
-            public String getUpdateKey() {
-                return Ed25519Utils.toMultibase(key);
-            }
-
-            @Override
-            public boolean equals(Object obj) {
-                return this.defaultEquals(obj);
-            }
-
-            @Override
-            public int hashCode() {
-                return Objects.hash(this.getUpdateKey());
-            }
-        };
+        return of(Ed25519Utils.toMultibase(key)); // encoded once and for all
     }
 
     /**
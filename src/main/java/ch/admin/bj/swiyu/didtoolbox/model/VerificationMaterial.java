@@ -1,11 +1,10 @@
 package ch.admin.bj.swiyu.didtoolbox.model;
 
-import ch.admin.bj.swiyu.didtoolbox.PemUtils;
+import ch.admin.bj.swiyu.didtoolbox.KeyMaterialCache;
 import com.nimbusds.jose.jwk.Curve;
 import com.nimbusds.jose.jwk.ECKey;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.interfaces.ECPublicKey;
 
@@ -40,7 +39,8 @@ public interface VerificationMaterial {
      * private values removed, never {@code null}
      */
     static VerificationMaterial of(String kid, ECPublicKey ecPublicKey) {
-        return () -> new ECKey.Builder(Curve.P_256, ecPublicKey).keyID(kid).build().toPublicJWK().toJSONString();
+        var publicKeyJwk = new ECKey.Builder(Curve.P_256, ecPublicKey).keyID(kid).build().toPublicJWK().toJSONString();
+        return () -> publicKeyJwk;
     }
 
     /**
@@ -58,8 +58,8 @@ public interface VerificationMaterial {
      *                     private values removed, never {@code null}
      */
     static VerificationMaterial of(String kid, Path ecPublicKeyPemPath) throws IOException {
-        var ecPublicKey = (ECPublicKey) PemUtils.parsePemPublicKey(Files.newBufferedReader(ecPublicKeyPemPath));
-        return () -> new ECKey.Builder(Curve.P_256, ecPublicKey).keyID(kid).build().toPublicJWK().toJSONString();
+        var publicKeyJwk = KeyMaterialCache.shared().getECPublicJwk(ecPublicKeyPemPath, kid);
+        return () -> publicKeyJwk;
     }
 
     /**
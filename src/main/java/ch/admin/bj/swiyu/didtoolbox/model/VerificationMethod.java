@@ -1,13 +1,8 @@
 package ch.admin.bj.swiyu.didtoolbox.model;
 
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
-import com.google.gson.JsonSyntaxException;
-
 import java.io.IOException;
 import java.nio.file.Path;
 import java.security.interfaces.ECPublicKey;
-import java.util.Objects;
 
 /**
  * A <a href="https://www.w3.org/TR/did-1.0/#dfn-did-documents">DID Document</a> can express
@@ -17,6 +12,7 @@ import java.util.Objects;
  * <p>
  * The interface also features a several convenient static factory methods focusing on standard Java types typically used for the purpose
  * of holding public EC public keys e.g. {@link ECPublicKey}, {@link Path} or {@link String}.
+ * All of them return an immutable (hence thread-safe) {@link JwkVerificationMethod} with all the JWK representations precomputed.
  *
  * @since 1.9.0
  */
@@ -49,55 +45,7 @@ public interface VerificationMethod {
      *                                     <a href="https://www.rfc-editor.org/rfc/rfc7517">JSON Web Key (JWK)</a> as described above
      */
     static VerificationMethod of(String kid, String type, String publicKeyJwk) throws VerificationMethodException {
-
-        JsonObject jsonObj;
-        try {
-            jsonObj = JsonParser.parseString(publicKeyJwk).getAsJsonObject();
-        } catch (JsonSyntaxException exc) {
-            throw new VerificationMethodException("The supplied string does not represent a public key JWK", exc);
-        }
-
-        var kty = jsonObj.get("kty");
-        var crv = jsonObj.get("crv");
-        var x = jsonObj.get("x");
-        var y = jsonObj.get("y");
-        if (kty == null || crv == null || x == null || y == null) {
-            throw new VerificationMethodException("The supplied string representing a public key JWK does not feature all the required parameters ('kty', 'crv', 'x' or 'y'");
-        }
-
-        return new VerificationMethod() {
-
-            @Override
-            public String getIdFragment() {
-                return kid;
-            }
-
-            @Override
-            public String getType() {
-                return type;
-            }
-
-            @Override
-            public VerificationMaterial getVerificationMaterial() {
-                return new VerificationMaterial() {
-                    @Override
-                    public String getPublicKeyJwk() {
-                        jsonObj.addProperty("kid", kid);
-                        return jsonObj.toString();
-                    }
-                };
-            }
-
-            @Override
-            public boolean equals(Object obj) {
-                return this.defaultEquals(obj);
-            }
-
-            @Override
-            public int hashCode() {
-                return Objects.hash(this.getIdFragment());
-            }
-        };
+        return new JwkVerificationMethod(kid, type, publicKeyJwk);
     }
 
     /**
@@ -139,32 +87,7 @@ public interface VerificationMethod {
             throw new VerificationMethodException(exc);
         }
 
-        return new VerificationMethod() {
-            @Override
-            public String getIdFragment() {
-                return kid;
-            }
-
-            @Override
-            public String getType() {
-                return type;
-            }
-
-            @Override
-            public VerificationMaterial getVerificationMaterial() {
-                return vm;
-            }
-
-            @Override
-            public boolean equals(Object obj) {
-                return this.defaultEquals(obj);
-            }
-
-            @Override
-            public int hashCode() {
-                return Objects.hash(this.getIdFragment());
-            }
-        };
+        return new JwkVerificationMethod(kid, type, vm.getPublicKeyJwk());
     }
 
     /**
@@ -197,32 +120,11 @@ public interface VerificationMethod {
      * @see VerificationMaterial#of(String, ECPublicKey)
      */
     static VerificationMethod of(String kid, String type, ECPublicKey ecPublicKey) {
-        return new VerificationMethod() {
-            @Override
-            public String getIdFragment() {
-                return kid;
-            }
-
-            @Override
-            public String getType() {
-                return type;
-            }
-
-            @Override
-            public VerificationMaterial getVerificationMaterial() {
-                return VerificationMaterial.of(kid, ecPublicKey);
-            }
-
-            @Override
-            public boolean equals(Object obj) {
-                return this.defaultEquals(obj);
-            }
-
-            @Override
-            public int hashCode() {
-                return Objects.hash(this.getIdFragment());
-            }
-        };
+        try {
+            return new JwkVerificationMethod(kid, type, VerificationMaterial.of(kid, ecPublicKey).getPublicKeyJwk());
+        } catch (VerificationMethodException exc) {
+            throw new IllegalArgumentException(exc); // should not happen, as the JWK is built from a proper EC key
+        }
     }
 
     /**
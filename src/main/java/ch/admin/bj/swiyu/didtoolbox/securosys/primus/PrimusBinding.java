@@ -0,0 +1,143 @@
+package ch.admin.bj.swiyu.didtoolbox.securosys.primus;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.security.Provider;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A thin (reflective) binding to the Securosys JCE provider library, which is NOT a compile-time dependency of this library.
+ * <p>
+ * All the required members of the library are resolved <b>once</b> (into {@link MethodHandle}s) when the binding is created,
+ * so that a missing (or incompatible) library is reported straight away, rather than on the signing hot path.
+ * The default binding (see {@link #getDefault()}) is resolved lazily on first use and then shared by all callers.
+ */
+final class PrimusBinding {
+
+    static final String PROVIDER_CLASS = "com.securosys.primus.jce.PrimusProvider";
+    static final String ENCODER_CLASS = "com.securosys.primus.jce.PrimusEncoding";
+
+    private static final String KEY_STORE_TYPE_GETTER = "getKeyStoreTypeName";
+    private static final String PROVIDER_NAME_GETTER = "getProviderName";
+    private static final String UNDERIFY_METHOD = "optionallyUnderifyRS";
+    private static final String MISSING_LIBRARY = "Ensure the required lib/primusX-java[8|11].jar libraries exist on the system";
+
+    private static volatile PrimusBinding defaultBinding;
+    private static final Map<Class<?>, PrimusBinding> BY_PROVIDER_CLASS = new ConcurrentHashMap<>();
+
+    private final Class<?> providerClass;
+    private final MethodHandle providerConstructor; // () -> Provider
+    private final MethodHandle keyStoreTypeGetter; // (Provider) -> String
+    private final MethodHandle providerNameGetter; // (Provider) -> String
+    private final MethodHandle underifyRS; // (byte[]) -> byte[]
+
+    private PrimusBinding(String providerClassName, String encoderClassName) throws PrimusKeyStoreInitializationException {
+        var lookup = MethodHandles.publicLookup();
+        try {
+            var providerClass = Class.forName(providerClassName);
+            if (!Provider.class.isAssignableFrom(providerClass)) {
+                throw new PrimusKeyStoreInitializationException("Not a JCE provider: " + providerClassName);
+            }
+            var encoderClass = Class.forName(encoderClassName);
+
+            this.providerClass = providerClass;
+
+            this.providerConstructor = lookup.findConstructor(providerClass, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(Provider.class));
+            this.keyStoreTypeGetter = lookup.findVirtual(providerClass, KEY_STORE_TYPE_GETTER, MethodType.methodType(String.class))
+                    .asType(MethodType.methodType(String.class, Provider.class));
+            this.providerNameGetter = lookup.findVirtual(providerClass, PROVIDER_NAME_GETTER, MethodType.methodType(String.class))
+                    .asType(MethodType.methodType(String.class, Provider.class));
+            this.underifyRS = lookup.findStatic(encoderClass, UNDERIFY_METHOD, MethodType.methodType(byte[].class, byte[].class));
+
+        } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException e) {
+            throw new PrimusKeyStoreInitializationException(MISSING_LIBRARY, e);
+        }
+    }
+
+    /**
+     * @return the (shared) binding to the Securosys JCE provider library, resolved on first use
+     * @throws PrimusKeyStoreInitializationException if the library (or any of the required members) is missing
+     */
+    static PrimusBinding getDefault() throws PrimusKeyStoreInitializationException {
+        var binding = defaultBinding;
+        if (binding == null) {
+            binding = register(new PrimusBinding(PROVIDER_CLASS, ENCODER_CLASS));
+            defaultBinding = binding; // benign race, as any resolved binding is as good as another
+        }
+        return binding;
+    }
+
+    /**
+     * Resolves a binding to some other (yet API-compatible) implementation, e.g. a simulated one.
+     *
+     * @param providerClassName the name of a {@link Provider} class featuring the same API as {@code com.securosys.primus.jce.PrimusProvider}
+     * @param encoderClassName  the name of a class featuring the same API as {@code com.securosys.primus.jce.PrimusEncoding}
+     * @return the binding
+     * @throws PrimusKeyStoreInitializationException if any of the classes (or any of the required members) is missing
+     */
+    static PrimusBinding of(String providerClassName, String encoderClassName) throws PrimusKeyStoreInitializationException {
+        return register(new PrimusBinding(providerClassName, encoderClassName));
+    }
+
+    /**
+     * Makes a fully constructed binding available to {@link #forProvider(Provider)}
+     * (rather than letting it escape while still being constructed).
+     */
+    private static PrimusBinding register(PrimusBinding binding) {
+        BY_PROVIDER_CLASS.put(binding.providerClass, binding);
+        return binding;
+    }
+
+    /**
+     * @param provider an instance created by {@link #newProvider()} of any binding resolved so far
+     * @return the binding the supplied provider originates from
+     * @throws IllegalArgumentException if the provider does not originate from any binding
+     */
+    static PrimusBinding forProvider(Provider provider) {
+        var binding = BY_PROVIDER_CLASS.get(provider.getClass());
+        if (binding == null) {
+            throw new IllegalArgumentException("Not a Securosys JCE provider: " + provider.getName());
+        }
+        return binding;
+    }
+
+    Provider newProvider() throws PrimusKeyStoreInitializationException {
+        try {
+            return (Provider) this.providerConstructor.invokeExact();
+        } catch (Throwable e) { // NOPMD - MethodHandle#invokeExact is declared to throw Throwable
+            throw new PrimusKeyStoreInitializationException("Failed to instantiate the Securosys JCE provider", e);
+        }
+    }
+
+    String getKeyStoreTypeName(Provider provider) throws PrimusKeyStoreInitializationException {
+        return invokeGetter(this.keyStoreTypeGetter, provider);
+    }
+
+    String getProviderName(Provider provider) throws PrimusKeyStoreInitializationException {
+        return invokeGetter(this.providerNameGetter, provider);
+    }
+
+    private static String invokeGetter(MethodHandle getter, Provider provider) throws PrimusKeyStoreInitializationException {
+        try {
+            return (String) getter.invokeExact(provider);
+        } catch (Throwable e) { // NOPMD - MethodHandle#invokeExact is declared to throw Throwable
+            throw new PrimusKeyStoreInitializationException("Failed to query the Securosys JCE provider", e);
+        }
+    }
+
+    /**
+     * A wrapper for PrimusEncoding#optionallyUnderifyRS helper, as required on the signing hot path.
+     */
+    byte[] optionallyUnderifyRS(byte[] signed) {
+        try {
+            return (byte[]) this.underifyRS.invokeExact(signed);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) { // NOPMD - MethodHandle#invokeExact is declared to throw Throwable
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
@@ -2,13 +2,23 @@ package ch.admin.bj.swiyu.didtoolbox.securosys.primus;
 
 import ch.admin.bj.swiyu.didtoolbox.Ed25519VerificationMethodKeyProviderImpl;
 import ch.admin.bj.swiyu.didtoolbox.VerificationMethodKeyProvider;
+import ch.admin.bj.swiyu.didtoolbox.vc_data_integrity.ProofOptions;
+import ch.admin.bj.swiyu.didtoolbox.vc_data_integrity.VcDataIntegrityCryptographicSuite;
+import ch.admin.bj.swiyu.didtoolbox.vc_data_integrity.VcDataIntegrityCryptographicSuiteException;
 
-import java.lang.reflect.InvocationTargetException;
 import java.net.URL;
+import java.security.GeneralSecurityException;
 import java.security.KeyException;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.Provider;
+import java.security.ProviderException;
+import java.security.Signature;
 import java.security.UnrecoverableEntryException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * The {@link PrimusEd25519VerificationMethodKeyProviderImpl} class is a {@link VerificationMethodKeyProvider} implementation
@@ -29,19 +39,60 @@ import java.security.UnrecoverableEntryException;
  * <ul>
  * <li>{@link PrimusEd25519VerificationMethodKeyProviderImpl#PrimusEd25519VerificationMethodKeyProviderImpl(PrimusKeyStoreLoader, String, String)}</li>
  * </ul>
+ * <p>
+ * As each signature requires a synchronous HSM round trip, bulk signing should rather be done via {@link PrimusSigningPipeline},
+ * as {@link #addProofs(List, ProofOptions)} does.
+ * <p>
+ * If the supplied session originates from a {@link PrimusSessionManager} shared by a long-running process
+ * (see {@link PrimusSessionManager#shared(java.io.File)}), each signature is generated via {@link PrimusSessionManager#withSession}
+ * of that manager, so that a session breaking in the middle of an operation is discarded and the signature retried against
+ * a new session (whereas the key is then looked up again, by alias).
  */
 public class PrimusEd25519VerificationMethodKeyProviderImpl extends Ed25519VerificationMethodKeyProviderImpl {
 
-    final protected static String ENCODER_CLASS = "com.securosys.primus.jce.PrimusEncoding";
+    final protected static String ENCODER_CLASS = PrimusBinding.ENCODER_CLASS;
     final protected static String UNDERIFY_METHOD = "optionallyUnderifyRS";
 
+    /**
+     * The (HSM-resident) private key as loaded via a particular session, along with the binding its provider originates from
+     * (looked up once via {@link PrimusBinding#forProvider(Provider)}, hence no reflective lookup whatsoever while signing).
+     */
+    private record SessionKey(PrimusKeyStoreLoader session, PrivateKey privateKey, Provider provider, PrimusBinding binding) {
+        SessionKey(PrimusKeyStoreLoader session, PrivateKey privateKey, Provider provider) {
+            this(session, privateKey, provider, PrimusBinding.forProvider(provider));
+        }
+    }
+
+    private final String alias;
+    private final String password;
+    private final PrimusSessionManager manager;
+
+    /**
+     * CAUTION Remains {@code null} while the superclass is being constructed, as signing takes place already then (sanity check).
+     */
+    private volatile SessionKey sessionKey;
+
     /**
      * The only public constructor of the class, capable of loading an already existing key material directly from a Securosys Primus HSM (cluster).
      */
     public PrimusEd25519VerificationMethodKeyProviderImpl(PrimusKeyStoreLoader primus, String alias, String password)
             throws UnrecoverableEntryException, KeyStoreException, NoSuchAlgorithmException, KeyException {
 
+        this(primus, alias, password, PrimusSessionManager.sharedManagerOf(primus));
+    }
+
+    /**
+     * @param manager (optional) the manager the supplied session originates from, to run each signature against
+     *                (see {@link PrimusSessionManager#withSession}). May be {@code null}.
+     */
+    PrimusEd25519VerificationMethodKeyProviderImpl(PrimusKeyStoreLoader primus, String alias, String password, PrimusSessionManager manager)
+            throws UnrecoverableEntryException, KeyStoreException, NoSuchAlgorithmException, KeyException {
+
         super(primus.loadKeyPair(alias, password), primus.getKeyStore().getProvider());
+        this.alias = alias;
+        this.password = password;
+        this.manager = manager;
+        this.sessionKey = new SessionKey(primus, this.keyPair.getPrivate(), this.provider);
     }
 
     /**
@@ -49,20 +100,69 @@ public class PrimusEd25519VerificationMethodKeyProviderImpl extends Ed25519Verif
      */
     protected static byte[] optionallyUnderifyRS(byte[] signed) {
         try {
-            return (byte[]) Class.forName(ENCODER_CLASS)
-                    .getMethod(UNDERIFY_METHOD, byte[].class)
-                    .invoke(null, signed);
-        } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException |
-                 InvocationTargetException e) {
+            return PrimusBinding.getDefault().optionallyUnderifyRS(signed);
+        } catch (PrimusKeyStoreInitializationException e) {
             //throw new PrimusKeyStoreInitializationException(
             throw new IllegalArgumentException(
                     "Ensure the required lib/primusX-java[8|11].jar libraries exist on the system", e);
         }
     }
 
+    /**
+     * Runs the batch in a {@link PrimusSigningPipeline} of its own, keeping up to {@link PrimusSigningPipeline#DEFAULT_MAX_IN_FLIGHT}
+     * HSM round trips in flight at once.
+     *
+     * @see VcDataIntegrityCryptographicSuite#addProofs(List, ProofOptions, Executor)
+     */
+    @Override
+    public List<String> addProofs(List<String> unsecuredDocuments,
+                                  ProofOptions proofOptions) throws VcDataIntegrityCryptographicSuiteException {
+        try (var pipeline = new PrimusSigningPipeline(this)) {
+            return addProofs(unsecuredDocuments, proofOptions, pipeline.asExecutor());
+        }
+    }
+
     @Override
     public byte[] generateSignature(byte[] message) {
+        try {
+            var current = this.sessionKey;
+            if (current == null) { // the sanity check, while the superclass is being constructed
+                return sign(new SessionKey(null, this.keyPair.getPrivate(), this.provider), message);
+            }
+            if (this.manager == null) {
+                return sign(current, message);
+            }
+            return this.manager.withSession(session -> sign(resolve(session), message));
+        } catch (GeneralSecurityException e) {
+            // the JCE provider should be already properly initialized in the constructor
+            throw new IllegalArgumentException(e);
+        } catch (PrimusKeyStoreInitializationException e) {
+            throw new ProviderException("No Securosys Primus HSM session available", e);
+        }
+    }
+
+    /**
+     * @return the private key as loaded via the supplied session, looking it up again (by alias) if the manager failed over meanwhile
+     */
+    private SessionKey resolve(PrimusKeyStoreLoader session) throws GeneralSecurityException {
+        var current = this.sessionKey;
+        if (current.session() == session) {
+            return current;
+        }
+
+        var reloaded = session.loadKeyPair(this.alias, this.password);
+        if (!Arrays.equals(reloaded.getPublic().getEncoded(), this.keyPair.getPublic().getEncoded())) {
+            throw new KeyException("The alias identifies another key on the new Securosys Primus HSM session: " + this.alias);
+        }
+        current = new SessionKey(session, reloaded.getPrivate(), session.getKeyStore().getProvider());
+        this.sessionKey = current; // benign race, as any of the concurrently reloaded keys is equally fine
+        return current;
+    }
 
-        return optionallyUnderifyRS(super.generateSignature(message));
+    private static byte[] sign(SessionKey key, byte[] message) throws GeneralSecurityException {
+        var signer = Signature.getInstance("EdDSA", key.provider());
+        signer.initSign(key.privateKey());
+        signer.update(message);
+        return key.binding().optionallyUnderifyRS(signer.sign());
     }
 }
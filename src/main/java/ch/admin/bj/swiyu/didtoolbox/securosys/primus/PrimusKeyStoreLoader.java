@@ -4,7 +4,6 @@ import lombok.AccessLevel;
 import lombok.Getter;
 
 import java.io.*;
-import java.lang.reflect.InvocationTargetException;
 import java.nio.file.Files;
 import java.security.*;
 import java.security.cert.CertificateException;
@@ -21,11 +20,11 @@ import java.util.Properties;
  */
 public class PrimusKeyStoreLoader {
 
-    final public static String PROVIDER_CLASS = "com.securosys.primus.jce.PrimusProvider";
-    final private static String KEY_STORE_TYPE_GETTER = "getKeyStoreTypeName";
-    final private static String PROVIDER_NAME_GETTER = "getProviderName";
+    final public static String PROVIDER_CLASS = PrimusBinding.PROVIDER_CLASS;
     @Getter(AccessLevel.PACKAGE)
     final private KeyStore keyStore;
+    @Getter(AccessLevel.PACKAGE)
+    final private PrimusBinding binding;
 
     /**
      * The empty constructor.
@@ -36,18 +35,29 @@ public class PrimusKeyStoreLoader {
      * @throws PrimusKeyStoreInitializationException
      */
     public PrimusKeyStoreLoader() throws PrimusKeyStoreInitializationException {
+        this(PrimusBinding.getDefault());
+    }
+
+    /**
+     * The constructor relying on the supplied (already resolved) binding to the Securosys JCE provider library.
+     * <p>
+     * CAUTION This constructor does not make any attempt to load the keystore, as no transport configuration is known at the time.
+     *
+     * @throws PrimusKeyStoreInitializationException
+     */
+    PrimusKeyStoreLoader(PrimusBinding binding) throws PrimusKeyStoreInitializationException {
+        this.binding = binding;
         try {
-            // Add Securosys JCE provider for Securosys Primus HSM ("SecurosysPrimusXSeries") via reflection
-            var cls = Class.forName(PROVIDER_CLASS);
-            var primusProvider = (Provider) cls.getDeclaredConstructor().newInstance();
+            // Add Securosys JCE provider for Securosys Primus HSM ("SecurosysPrimusXSeries")
+            var primusProvider = binding.newProvider();
 
             Security.addProvider(primusProvider);
 
             // This JCE provider also able to deliver the correct type that should be used to instantiate java.security.KeyStore object
             // (encapsulating the KeyStoreSpi implementation)
-            var type = (String) cls.getDeclaredMethod(KEY_STORE_TYPE_GETTER).invoke(primusProvider);
+            var type = binding.getKeyStoreTypeName(primusProvider);
 
-            var providerName = (String) cls.getDeclaredMethod(PROVIDER_NAME_GETTER).invoke(primusProvider);
+            var providerName = binding.getProviderName(primusProvider);
 
             // Throws: KeyStoreException – if no provider supports a KeyStoreSpi implementation for the specified type
             //                             (it is the same as checking primusProvider.getService("KeyStore", KEY_STORE_TYPE) against null)
@@ -57,13 +67,20 @@ public class PrimusKeyStoreLoader {
             // CAUTION Needless to say, calling this.keyStore.load(null) at this point would cause:
             //         com.securosys.primus.jce.transport.TransportUnconfiguredException: transport configuration not yet set
 
-        } catch (ClassNotFoundException | NoSuchMethodException | InstantiationException | IllegalAccessException |
-                 InvocationTargetException | KeyStoreException | NoSuchProviderException e) {
+        } catch (KeyStoreException | NoSuchProviderException e) {
             throw new PrimusKeyStoreInitializationException(
                     "Failed to initialize Securosys Primus Key Store. Ensure the required lib/primusX-java[8|11].jar libraries exist on the system", e);
         }
     }
 
+    /**
+     * The constructor wrapping an already loaded keystore, e.g. one of a simulated HSM.
+     */
+    PrimusKeyStoreLoader(KeyStore keyStore, PrimusBinding binding) {
+        this.keyStore = keyStore;
+        this.binding = binding;
+    }
+
     /**
      * The constructor capable of loading credentials from the system environment.
      * The relevant envvars are described by {@link SecurosysPrimusEnvironment}.
@@ -89,20 +106,14 @@ public class PrimusKeyStoreLoader {
             props.load(Files.newInputStream(credentials.toPath()));
         }
 
-        var host = System.getenv(SecurosysPrimusEnvironment.SECUROSYS_PRIMUS_HOST.name());
-        if (host == null && props != null) {
-            host = props.getProperty(SecurosysPrimusEnvironment.SECUROSYS_PRIMUS_HOST.toProperty());
-        }
+        var host = SecurosysPrimusEnvironment.SECUROSYS_PRIMUS_HOST.resolve(props);
         if (host == null) {
             throw new IOException("Securosys Primus HSM host cannot be resolved. "
                     + "You may supply it either via property file or by setting the relevant system environment variable: "
                     + SecurosysPrimusEnvironment.SECUROSYS_PRIMUS_HOST.name());
         }
 
-        var portAsString = System.getenv(SecurosysPrimusEnvironment.SECUROSYS_PRIMUS_PORT.name());
-        if (portAsString == null && props != null) {
-            portAsString = props.getProperty(SecurosysPrimusEnvironment.SECUROSYS_PRIMUS_PORT.toProperty());
-        }
+        var portAsString = SecurosysPrimusEnvironment.SECUROSYS_PRIMUS_PORT.resolve(props);
         var port = -1;
         try {
             if (portAsString != null) {
@@ -117,20 +128,14 @@ public class PrimusKeyStoreLoader {
                     + SecurosysPrimusEnvironment.SECUROSYS_PRIMUS_PORT.name());
         }
 
-        var user = System.getenv(SecurosysPrimusEnvironment.SECUROSYS_PRIMUS_USER.name());
-        if (user == null && props != null) {
-            user = props.getProperty(SecurosysPrimusEnvironment.SECUROSYS_PRIMUS_USER.toProperty());
-        }
+        var user = SecurosysPrimusEnvironment.SECUROSYS_PRIMUS_USER.resolve(props);
         if (user == null) {
             throw new IOException("Securosys Primus HSM user cannot be resolved. "
                     + "You may supply it either via property file or by setting the relevant system environment variable: "
                     + SecurosysPrimusEnvironment.SECUROSYS_PRIMUS_USER.name());
         }
 
-        var password = System.getenv(SecurosysPrimusEnvironment.SECUROSYS_PRIMUS_PASSWORD.name());
-        if (password == null && props != null) {
-            password = props.getProperty(SecurosysPrimusEnvironment.SECUROSYS_PRIMUS_PASSWORD.toProperty());
-        }
+        var password = SecurosysPrimusEnvironment.SECUROSYS_PRIMUS_PASSWORD.resolve(props);
         if (password == null) {
             throw new IOException("Securosys Primus HSM password cannot be resolved. "
                     + "You may supply it either via property file or by setting the relevant system environment variable: "
@@ -188,6 +193,20 @@ public class PrimusKeyStoreLoader {
             return new ByteArrayInputStream(baos.toByteArray());
         }
 
+        /**
+         * Resolves the value of this envvar, falling back to the relevant property (if any) of the supplied credentials.
+         *
+         * @param props credentials loaded from a property file. May be {@code null}.
+         * @return the value, or {@code null} if it cannot be resolved
+         */
+        String resolve(Properties props) {
+            var value = System.getenv(this.name());
+            if (value == null && props != null) {
+                value = props.getProperty(this.toProperty());
+            }
+            return value;
+        }
+
         private String toProperty() {
             return this.name().toLowerCase();
         }
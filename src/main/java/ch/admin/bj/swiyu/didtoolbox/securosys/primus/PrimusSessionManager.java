@@ -0,0 +1,567 @@
+package ch.admin.bj.swiyu.didtoolbox.securosys.primus;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.security.ProviderException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A manager of a long-lived (authenticated) Securosys Primus HSM session, intended for long-running (daemon or batch) processes,
+ * so that the (costly) connection and authentication setup is paid once, rather than once per operation.
+ * <p>
+ * The manager:
+ * <ul>
+ *     <li>keeps a {@link PrimusKeyStoreLoader} (i.e. an already loaded keystore) alive across operations
+ *     (see {@link #getSession()} and {@link #withSession(SessionOperation)})</li>
+ *     <li>periodically sends a (cheap) health probe over the session, thus also keeping it from idling out</li>
+ *     <li>transparently reconnects, whenever a probe fails or an operation fails due to a broken session
+ *     (see {@link #isSessionFailure(Throwable)}), whereas any other (e.g. business) failure of an operation is left alone</li>
+ *     <li>fails over across a list of hosts (e.g. {@code SECUROSYS_PRIMUS_HOST=hsm1.example.com,hsm2.example.com}),
+ *     preferring the host with the lowest (exponentially weighted moving average of) observed probe latency,
+ *     while hosts that failed recently are only tried as last resort. The latency of a (full) login is tracked apart,
+ *     as it is way higher than the round trip of a probe and thus not comparable.</li>
+ * </ul>
+ * All the methods are thread-safe. Once done, the manager should be closed in order to stop the health probes.
+ * <p>
+ * A long-running process (e.g. the {@code serve} or {@code batch} command) enables {@link #enableSharedSessions() shared sessions},
+ * so that all its operations share one manager per credentials source (see {@link #shared(File)} and
+ * {@link #withSharedSession(PrimusKeyStoreLoader, SessionOperation)}), rather than logging in once per operation.
+ */
+public class PrimusSessionManager implements AutoCloseable {
+
+    /**
+     * The default interval between two health probes
+     */
+    public static final Duration DEFAULT_PROBE_INTERVAL = Duration.ofSeconds(30);
+
+    /**
+     * For how long a host that failed is only tried as last resort
+     */
+    static final Duration FAILURE_BACKOFF = Duration.ofSeconds(30);
+
+    /**
+     * The weight of the latest observation in the moving average of latencies
+     */
+    private static final double LATENCY_EWMA_ALPHA = 0.3;
+
+    /**
+     * Self-explanatory.
+     */
+    @FunctionalInterface
+    interface Connector {
+        PrimusKeyStoreLoader connect(String host) throws Exception; // NOPMD - any failure means the host is unavailable
+    }
+
+    /**
+     * Self-explanatory.
+     */
+    @FunctionalInterface
+    interface HealthProbe {
+        void probe(PrimusKeyStoreLoader session) throws Exception; // NOPMD - any failure means the session is broken
+    }
+
+    /**
+     * An operation to run against a (healthy) session.
+     *
+     * @param <T> the type of the operation result
+     * @param <E> the type of (checked) exception the operation may throw
+     */
+    @FunctionalInterface
+    public interface SessionOperation<T, E extends Exception> {
+        T apply(PrimusKeyStoreLoader session) throws E;
+    }
+
+    /**
+     * The (mutable) state of a single host, guarded by the manager.
+     */
+    private static class HostState {
+        private final String host;
+        private long connectLatencyNanos = -1; // unknown
+        private long probeLatencyNanos = -1; // unknown
+        private long lastFailureNanos;
+        private boolean failed;
+
+        HostState(String host) {
+            this.host = host;
+        }
+
+        void recordConnectLatency(long nanos) {
+            this.connectLatencyNanos = ewma(this.connectLatencyNanos, nanos);
+            this.failed = false;
+        }
+
+        void recordProbeLatency(long nanos) {
+            this.probeLatencyNanos = ewma(this.probeLatencyNanos, nanos);
+            this.failed = false;
+        }
+
+        private static long ewma(long average, long nanos) {
+            return average < 0 ? nanos : (long) (LATENCY_EWMA_ALPHA * nanos + (1 - LATENCY_EWMA_ALPHA) * average);
+        }
+
+        /**
+         * Probe latencies are preferred (as they reflect the actual round trip), then login latencies, then unknown ones.
+         */
+        int latencyRank() {
+            if (this.probeLatencyNanos >= 0) {
+                return 0;
+            }
+            return this.connectLatencyNanos >= 0 ? 1 : 2;
+        }
+
+        long rankedLatencyNanos() {
+            return this.probeLatencyNanos >= 0 ? this.probeLatencyNanos : this.connectLatencyNanos;
+        }
+
+        void recordFailure() {
+            this.failed = true;
+            this.lastFailureNanos = System.nanoTime();
+        }
+
+        boolean isBackingOff() {
+            return this.failed && System.nanoTime() - this.lastFailureNanos < FAILURE_BACKOFF.toNanos();
+        }
+    }
+
+    /**
+     * The managers shared by all the operations of a long-running process, keyed by credentials source
+     * (the absolute path of a credentials file, or an empty string for the system environment)
+     */
+    private static final Map<String, PrimusSessionManager> SHARED = new ConcurrentHashMap<>();
+    private static volatile boolean sharedSessionsEnabled;
+
+    private final List<HostState> hosts;
+    private final Connector connector;
+    private final HealthProbe probe;
+    private final ScheduledExecutorService scheduler;
+
+    private PrimusKeyStoreLoader session;
+    private HostState sessionHost;
+    /**
+     * The single (login) attempt in flight, if any, awaited by all the callers of {@link #getSession()} meanwhile
+     */
+    private CompletableFuture<PrimusKeyStoreLoader> pendingConnect;
+    private boolean closed;
+    private final Set<PrimusKeyStoreLoader> issuedSessions = Collections.newSetFromMap(new WeakHashMap<>());
+    private long connectCount;
+
+    /**
+     * @param hosts         to connect to, in order of preference (as long as no latency is known)
+     * @param port          Primus Proxy TCP port
+     * @param user          Primus HSM user
+     * @param password      Primus HSM password
+     * @param probeInterval the interval between two health probes
+     */
+    public PrimusSessionManager(List<String> hosts, int port, String user, String password, Duration probeInterval) {
+        this(hosts, host -> new PrimusKeyStoreLoader(host, port, user, password),
+                session -> session.getKeyStore().size(), probeInterval);
+    }
+
+    PrimusSessionManager(List<String> hosts, Connector connector, HealthProbe probe, Duration probeInterval) {
+        if (hosts == null || hosts.isEmpty()) {
+            throw new IllegalArgumentException("At least one Securosys Primus HSM host is required");
+        }
+        if (probeInterval == null || probeInterval.isNegative() || probeInterval.isZero()) {
+            throw new IllegalArgumentException("The health probe interval must be positive");
+        }
+
+        this.hosts = hosts.stream().map(String::trim).filter(h -> !h.isEmpty()).distinct().map(HostState::new).toList();
+        if (this.hosts.isEmpty()) {
+            throw new IllegalArgumentException("At least one Securosys Primus HSM host is required");
+        }
+        this.connector = connector;
+        this.probe = probe;
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "primus-session-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        var millis = probeInterval.toMillis();
+        this.scheduler.scheduleWithFixedDelay(this::probe, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a manager from the very same credentials (envvars or property file) as {@link PrimusKeyStoreLoader#PrimusKeyStoreLoader(File)},
+     * except that {@code SECUROSYS_PRIMUS_HOST} may denote a comma-separated list of hosts to fail over across.
+     *
+     * @param credentials (optional) property file featuring Primus credentials, as fallback to system environment variables
+     * @return a manager featuring the {@link #DEFAULT_PROBE_INTERVAL}
+     * @throws IOException if any of the credentials cannot be resolved
+     */
+    public static PrimusSessionManager fromEnvironment(File credentials) throws IOException {
+
+        Properties props = null;
+        if (credentials != null) {
+            props = new Properties();
+            try (InputStream is = Files.newInputStream(credentials.toPath())) {
+                props.load(is);
+            }
+        }
+
+        var host = PrimusKeyStoreLoader.SecurosysPrimusEnvironment.SECUROSYS_PRIMUS_HOST.resolve(props);
+        var port = PrimusKeyStoreLoader.SecurosysPrimusEnvironment.SECUROSYS_PRIMUS_PORT.resolve(props);
+        var user = PrimusKeyStoreLoader.SecurosysPrimusEnvironment.SECUROSYS_PRIMUS_USER.resolve(props);
+        var password = PrimusKeyStoreLoader.SecurosysPrimusEnvironment.SECUROSYS_PRIMUS_PASSWORD.resolve(props);
+        if (host == null || port == null || user == null || password == null) {
+            throw new IOException("Securosys Primus HSM credentials cannot be resolved. "
+                    + "You may supply them either via property file or by setting the relevant system environment variables: "
+                    + Arrays.toString(PrimusKeyStoreLoader.SecurosysPrimusEnvironment.values()));
+        }
+
+        try {
+            return new PrimusSessionManager(Arrays.asList(host.split(",")), Short.parseShort(port), user, password, DEFAULT_PROBE_INTERVAL);
+        } catch (NumberFormatException e) {
+            throw new IOException("Securosys Primus HSM port is invalid.", e);
+        }
+    }
+
+    /**
+     * Makes {@link #shared(File)} available, as worthwhile for a long-running process only
+     * (whereas a one-off CLI command simply logs in once).
+     */
+    public static void enableSharedSessions() {
+        sharedSessionsEnabled = true;
+    }
+
+    /**
+     * @return {@code true} if {@link #enableSharedSessions()} has been called, otherwise {@code false}
+     */
+    public static boolean isSharedSessionsEnabled() {
+        return sharedSessionsEnabled;
+    }
+
+    /**
+     * Delivers the manager shared by all the operations (of a long-running process) relying on the very same credentials,
+     * creating it (see {@link #fromEnvironment(File)}) on first use.
+     *
+     * @param credentials (optional) property file featuring Primus credentials, as fallback to system environment variables
+     * @return the shared manager
+     * @throws IOException           if any of the credentials cannot be resolved
+     * @throws IllegalStateException unless {@link #enableSharedSessions()} has been called
+     */
+    public static PrimusSessionManager shared(File credentials) throws IOException {
+        if (!sharedSessionsEnabled) {
+            throw new IllegalStateException("Shared Securosys Primus HSM sessions are not enabled");
+        }
+        var key = credentials != null ? credentials.getAbsolutePath() : "";
+        try {
+            return SHARED.computeIfAbsent(key, ignore -> {
+                try {
+                    return fromEnvironment(credentials);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Runs the supplied operation via {@link #withSession(SessionOperation)} of the shared manager the supplied session
+     * originates from (see {@link #shared(File)}), thus failing over if the session turns out to be broken.
+     * Should the session not originate from any shared manager, the operation is simply run against it.
+     *
+     * @param session   to run the operation against
+     * @param operation to run
+     * @param <T>       the type of the operation result
+     * @param <E>       the type of (checked) exception the operation may throw
+     * @return the operation result
+     * @throws E                                     as thrown by the operation, unless due to a broken session
+     * @throws PrimusKeyStoreInitializationException if none of the hosts is available, or the session broke twice
+     */
+    public static <T, E extends Exception> T withSharedSession(PrimusKeyStoreLoader session, SessionOperation<T, E> operation)
+            throws E, PrimusKeyStoreInitializationException {
+        var manager = sharedManagerOf(session);
+        if (manager != null) {
+            return manager.withSession(operation);
+        }
+        return operation.apply(session);
+    }
+
+    /**
+     * @param session to look up the shared manager of
+     * @return the shared manager (see {@link #shared(File)}) the supplied session originates from, or {@code null} if there is none
+     */
+    static PrimusSessionManager sharedManagerOf(PrimusKeyStoreLoader session) {
+        for (var manager : SHARED.values()) {
+            if (manager.hasIssued(session)) {
+                return manager;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Closes all the shared managers (see {@link #shared(File)}), e.g. once a long-running process is about to terminate.
+     */
+    public static void closeShared() {
+        SHARED.values().forEach(PrimusSessionManager::close);
+        SHARED.clear();
+    }
+
+    private synchronized boolean hasIssued(PrimusKeyStoreLoader session) {
+        return this.issuedSessions.contains(session);
+    }
+
+    /**
+     * Returns the current session, connecting (or failing over) to the most preferable host, if there is none.
+     * <p>
+     * The (network) login takes place without holding the lock of the manager, whereas concurrent callers
+     * simply await the very same login attempt.
+     *
+     * @return an already loaded keystore
+     * @throws PrimusKeyStoreInitializationException if none of the hosts is available
+     */
+    public PrimusKeyStoreLoader getSession() throws PrimusKeyStoreInitializationException {
+        CompletableFuture<PrimusKeyStoreLoader> connecting;
+        var connectHere = false;
+        synchronized (this) {
+            if (this.session != null) {
+                return this.session;
+            }
+            if (this.pendingConnect == null) {
+                this.pendingConnect = new CompletableFuture<>();
+                connectHere = true;
+            }
+            connecting = this.pendingConnect;
+        }
+
+        if (connectHere) {
+            try {
+                connecting.complete(connect());
+            } catch (PrimusKeyStoreInitializationException | RuntimeException e) {
+                connecting.completeExceptionally(e);
+            } finally {
+                synchronized (this) {
+                    this.pendingConnect = null;
+                }
+            }
+        }
+
+        try {
+            return connecting.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof PrimusKeyStoreInitializationException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Runs the supplied operation against the current session. Should the operation fail due to a broken session
+     * (see {@link #isSessionFailure(Throwable)}), the session is discarded and the operation is retried (once)
+     * against a new session, possibly on another host.
+     * <p>
+     * Any other failure (e.g. a wrong alias, an {@link java.security.UnrecoverableEntryException} or a signing error)
+     * is rethrown unchanged, while the session is kept.
+     *
+     * @param operation to run
+     * @param <T>       the type of the operation result
+     * @param <E>       the type of (checked) exception the operation may throw
+     * @return the operation result
+     * @throws E                                     as thrown by the operation, unless due to a broken session
+     * @throws PrimusKeyStoreInitializationException if none of the hosts is available, or the session broke twice
+     */
+    public <T, E extends Exception> T withSession(SessionOperation<T, E> operation) throws E, PrimusKeyStoreInitializationException {
+        var current = getSession();
+        try {
+            return operation.apply(current);
+        } catch (Exception e) { // NOPMD - classified right below
+            PrimusSessionManager.<E>rethrowUnlessSessionFailure(e);
+            invalidate(current);
+        }
+
+        var retry = getSession();
+        try {
+            return operation.apply(retry);
+        } catch (Exception e) { // NOPMD - classified right below
+            PrimusSessionManager.<E>rethrowUnlessSessionFailure(e);
+            invalidate(retry);
+            throw new PrimusKeyStoreInitializationException("The operation failed on Securosys Primus HSM session", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E extends Exception> void rethrowUnlessSessionFailure(Exception e) throws E {
+        if (!isSessionFailure(e)) {
+            throw (E) e; // either unchecked or of the very type declared by the operation
+        }
+    }
+
+    /**
+     * Tells whether the supplied failure (of an operation) is due to a broken session rather than to the operation itself,
+     * i.e. whether its cause chain features any I/O (connection) failure or any {@link ProviderException}
+     * (as thrown by the JCE provider once it lost its connection to the HSM).
+     *
+     * @param failure to classify
+     * @return {@code true} if the failure is due to a broken session, otherwise {@code false}
+     */
+    static boolean isSessionFailure(Throwable failure) {
+        for (var cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException || cause instanceof UncheckedIOException || cause instanceof ProviderException
+                    || cause instanceof PrimusKeyStoreInitializationException) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Discards the supplied session (if still current), e.g. after it turned out to be broken,
+     * so that the next {@link #getSession()} call reconnects.
+     *
+     * @param broken the session to discard
+     */
+    public synchronized void invalidate(PrimusKeyStoreLoader broken) {
+        if (broken != null && broken == this.session) {
+            this.sessionHost.recordFailure();
+            this.session = null;
+            this.sessionHost = null;
+        }
+    }
+
+    /**
+     * CAUTION Never to be called while holding the lock of the manager, as the login may take long.
+     */
+    private PrimusKeyStoreLoader connect() throws PrimusKeyStoreInitializationException {
+
+        // prefer healthy hosts (lowest latency first), whereas unknown latencies retain the order of the list
+        var candidates = new ArrayList<>(this.hosts);
+        synchronized (this) {
+            candidates.sort(Comparator.comparing(HostState::isBackingOff)
+                    .thenComparingInt(HostState::latencyRank)
+                    .thenComparingLong(HostState::rankedLatencyNanos));
+        }
+
+        Exception lastFailure = null;
+        for (var candidate : candidates) {
+            var start = System.nanoTime();
+            PrimusKeyStoreLoader loader;
+            try {
+                loader = this.connector.connect(candidate.host);
+            } catch (Exception e) { // NOPMD - any failure means the host is unavailable
+                synchronized (this) {
+                    candidate.recordFailure();
+                }
+                lastFailure = e;
+                continue;
+            }
+
+            synchronized (this) {
+                if (this.closed) {
+                    throw new PrimusKeyStoreInitializationException("The Securosys Primus HSM session manager is closed");
+                }
+                candidate.recordConnectLatency(System.nanoTime() - start);
+                this.connectCount++;
+                this.session = loader;
+                this.sessionHost = candidate;
+                this.issuedSessions.add(loader);
+                return loader;
+            }
+        }
+
+        throw new PrimusKeyStoreInitializationException("None of the Securosys Primus HSM hosts is available: "
+                + this.hosts.stream().map(h -> h.host).toList(), lastFailure);
+    }
+
+    private void probe() {
+        PrimusKeyStoreLoader current;
+        HostState currentHost;
+        synchronized (this) {
+            current = this.session;
+            currentHost = this.sessionHost;
+        }
+
+        if (current == null) {
+            try {
+                getSession(); // reconnect in the background
+            } catch (PrimusKeyStoreInitializationException ignore) {
+                // retried on the next probe (or on demand)
+            }
+            return;
+        }
+
+        var start = System.nanoTime();
+        try {
+            this.probe.probe(current);
+            synchronized (this) {
+                currentHost.recordProbeLatency(System.nanoTime() - start);
+            }
+        } catch (Exception e) { // NOPMD - any failure means the session is broken
+            invalidate(current);
+            try {
+                getSession(); // fail over straight away
+            } catch (PrimusKeyStoreInitializationException ignore) {
+                // retried on the next probe (or on demand)
+            }
+        }
+    }
+
+    /**
+     * @return the host of the current session, or {@code null} if there is none
+     */
+    public synchronized String getCurrentHost() {
+        return this.sessionHost != null ? this.sessionHost.host : null;
+    }
+
+    /**
+     * @return the (moving average of) connection and login latency observed for the supplied host in nanoseconds, or -1 if unknown
+     */
+    public synchronized long getConnectLatencyNanos(String host) {
+        return this.hosts.stream().filter(h -> h.host.equals(host)).findFirst().map(h -> h.connectLatencyNanos).orElse(-1L);
+    }
+
+    /**
+     * @return the (moving average of) health probe latency observed for the supplied host in nanoseconds, or -1 if unknown
+     */
+    public synchronized long getProbeLatencyNanos(String host) {
+        return this.hosts.stream().filter(h -> h.host.equals(host)).findFirst().map(h -> h.probeLatencyNanos).orElse(-1L);
+    }
+
+    /**
+     * @return the number of times a session had to be (re)established after the very first one
+     */
+    public synchronized long getReconnectCount() {
+        return Math.max(0, this.connectCount - 1);
+    }
+
+    /**
+     * Stops the health probes and discards the current session.
+     */
+    @Override
+    public void close() {
+        this.scheduler.shutdownNow();
+        synchronized (this) {
+            this.closed = true;
+            this.session = null;
+            this.sessionHost = null;
+        }
+    }
+}
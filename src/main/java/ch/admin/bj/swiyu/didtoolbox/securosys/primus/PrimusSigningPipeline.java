@@ -0,0 +1,205 @@
+package ch.admin.bj.swiyu.didtoolbox.securosys.primus;
+
+import ch.admin.bj.swiyu.didtoolbox.LatencyHistogram;
+import ch.admin.bj.swiyu.didtoolbox.VerificationMethodKeyProvider;
+import ch.admin.bj.swiyu.didtoolbox.vc_data_integrity.ProofOptions;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An asynchronous signing pipeline, intended to keep a (remote) Securosys Primus HSM saturated while signing in bulk.
+ * <p>
+ * Each signature generated by {@link PrimusEd25519VerificationMethodKeyProviderImpl#generateSignature(byte[])} requires a
+ * synchronous HSM round trip, so a single thread is limited to 1/RTT signatures. This pipeline keeps up to
+ * {@code maxInFlight} signing requests in flight simultaneously, while:
+ * <ul>
+ *     <li>applying <b>backpressure</b> - once {@code maxInFlight} requests are pending, {@link #signAsync(byte[])} blocks
+ *     the caller until some request completes, so that no unbounded queue of pending requests ever builds up</li>
+ *     <li>recording the latency of each request in a {@link LatencyHistogram} (see {@link #getLatencyHistogram()})</li>
+ * </ul>
+ * Via {@link #asExecutor()}, the pipeline also drives batches of data integrity proofs (see
+ * {@link PrimusEd25519VerificationMethodKeyProviderImpl#addProofs(List, ProofOptions)}).
+ * <p>
+ * The pipeline works with any thread-safe {@link VerificationMethodKeyProvider}, so it may be used (and tested) against
+ * any (e.g. simulated) JCE provider as well.
+ * <p>
+ * Once done, the pipeline should be closed in order to release its threads, e.g. by using try-with-resources:
+ * <pre>{@code
+ * try (var pipeline = new PrimusSigningPipeline(primusKeyProvider, 32)) {
+ *     var futures = new ArrayList<CompletableFuture<byte[]>>();
+ *     for (var message : messages) {
+ *         futures.add(pipeline.signAsync(message)); // may block (backpressure)
+ *     }
+ *     ...
+ * }
+ * }</pre>
+ */
+public class PrimusSigningPipeline implements AutoCloseable {
+
+    /**
+     * The default maximum number of signing requests in flight
+     */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 16;
+
+    private static final AtomicInteger PIPELINE_COUNTER = new AtomicInteger();
+
+    private final VerificationMethodKeyProvider signer;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private final ExecutorService executor;
+    private final LatencyHistogram latencyHistogram = new LatencyHistogram();
+
+    /**
+     * Creates a pipeline featuring up to {@link #DEFAULT_MAX_IN_FLIGHT} signing requests in flight.
+     *
+     * @param signer to generate signatures with. It must be thread-safe.
+     */
+    public PrimusSigningPipeline(VerificationMethodKeyProvider signer) {
+        this(signer, DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    /**
+     * @param signer      to generate signatures with. It must be thread-safe.
+     * @param maxInFlight the maximum number of signing requests in flight. Must be positive.
+     */
+    public PrimusSigningPipeline(VerificationMethodKeyProvider signer, int maxInFlight) {
+        if (signer == null) {
+            throw new IllegalArgumentException("A signer is required");
+        }
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("The maximum number of requests in flight must be positive, but got " + maxInFlight);
+        }
+        this.signer = signer;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+
+        var pipelineId = PIPELINE_COUNTER.incrementAndGet();
+        var threadCounter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(maxInFlight, runnable -> {
+            var thread = new Thread(runnable, "primus-signing-" + pipelineId + "-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Submits a signing request, blocking as long as {@code maxInFlight} requests are already in flight (backpressure).
+     *
+     * @param message to sign
+     * @return a future completed either by the signature, or exceptionally by whatever the signer has thrown
+     * @throws InterruptedException  if interrupted while waiting for a request in flight to complete
+     * @throws IllegalStateException if the pipeline is already closed
+     */
+    public CompletableFuture<byte[]> signAsync(byte[] message) throws InterruptedException {
+        return submit(() -> this.signer.generateSignature(message));
+    }
+
+    /**
+     * Delivers an {@link Executor} view of the pipeline, so that any signing work (e.g. adding data integrity proofs by
+     * {@link ch.admin.bj.swiyu.didtoolbox.vc_data_integrity.VcDataIntegrityCryptographicSuite#addProofs(List, ProofOptions, Executor)})
+     * is subject to the very same backpressure and latency recording as {@link #signAsync(byte[])}.
+     * <p>
+     * The {@link Executor#execute(Runnable)} method of the view blocks as long as {@code maxInFlight} tasks are already in flight,
+     * whereas it throws {@link RejectedExecutionException} once the pipeline is closed (or if interrupted while blocking).
+     *
+     * @return an executor running the supplied tasks in the pipeline
+     */
+    public Executor asExecutor() {
+        return command -> {
+            try {
+                submit(() -> {
+                    command.run();
+                    return null;
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException(e);
+            } catch (IllegalStateException e) {
+                throw new RejectedExecutionException(e.getMessage(), e);
+            }
+        };
+    }
+
+    private <T> CompletableFuture<T> submit(Callable<T> task) throws InterruptedException {
+
+        if (this.executor.isShutdown()) {
+            throw new IllegalStateException("The signing pipeline is already closed");
+        }
+
+        this.inFlight.acquire();
+
+        var future = new CompletableFuture<T>();
+        try {
+            this.executor.execute(() -> {
+                var start = System.nanoTime();
+                T result = null;
+                Throwable failure = null;
+                try {
+                    result = task.call();
+                } catch (Throwable e) { // NOPMD - whatever goes wrong must complete the future, as otherwise the caller waits forever
+                    failure = e;
+                } finally {
+                    // bookkeeping first, so that it is already up-to-date by the time any dependant stage runs
+                    this.latencyHistogram.record(System.nanoTime() - start);
+                    this.inFlight.release();
+                }
+                if (failure != null) {
+                    future.completeExceptionally(failure);
+                } else {
+                    future.complete(result);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            this.inFlight.release();
+            throw new IllegalStateException("The signing pipeline is already closed", e);
+        }
+
+        return future;
+    }
+
+    /**
+     * @return the current number of signing requests in flight
+     */
+    public int getInFlightCount() {
+        return this.maxInFlight - this.inFlight.availablePermits();
+    }
+
+    /**
+     * @return the maximum number of signing requests in flight
+     */
+    public int getMaxInFlight() {
+        return this.maxInFlight;
+    }
+
+    /**
+     * @return the histogram of latencies of all the signing requests completed so far
+     */
+    public LatencyHistogram getLatencyHistogram() {
+        return this.latencyHistogram;
+    }
+
+    /**
+     * Stops accepting new signing requests and waits for those in flight to complete.
+     */
+    @Override
+    public void close() {
+        this.executor.shutdown();
+        try {
+            if (!this.executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                this.executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            this.executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
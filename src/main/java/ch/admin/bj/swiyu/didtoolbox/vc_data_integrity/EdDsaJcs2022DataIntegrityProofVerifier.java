@@ -0,0 +1,321 @@
+package ch.admin.bj.swiyu.didtoolbox.vc_data_integrity;
+
+import ch.admin.bj.swiyu.didtoolbox.Base58;
+import ch.admin.bj.swiyu.didtoolbox.Ed25519Utils;
+import ch.admin.bj.swiyu.didtoolbox.JCSHasher;
+import ch.admin.bj.swiyu.didtoolbox.JcsCanonicalizer;
+import ch.admin.bj.swiyu.didtoolbox.LruCache;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A standalone (and thread-safe) verifier of <a href="https://www.w3.org/TR/vc-di-eddsa/#eddsa-jcs-2022">eddsa-jcs-2022</a>
+ * data integrity proofs, as specified by <a href="https://www.w3.org/TR/vc-di-eddsa/#verify-proof-eddsa-jcs-2022">Verify Proof (eddsa-jcs-2022)</a>,
+ * signed by a {@code did:key} verification method (as produced by {@link EdDsaJcs2022VcDataIntegrityCryptographicSuite}).
+ * <p>
+ * The verification happens entirely in Java, i.e. no DID log resolution (nor any other native call) is involved:
+ * <ul>
+ *     <li>both the proof options and the (unsecured) document are canonicalized and hashed by {@link JcsCanonicalizer}</li>
+ *     <li>the signature is verified by {@link EdDsaJcs2022VcDataIntegrityCryptographicSuite#verify(PublicKey, ByteBuffer, ByteBuffer)}</li>
+ * </ul>
+ * As a verification service typically checks many proofs signed by the very same handful of keys, the decoded verifying keys
+ * are kept in a bounded LRU cache (keyed by their multibase representation), whereas malformed keys are remembered in a
+ * (likewise bounded) negative cache, so that they are rejected straight away.
+ * <p>
+ * Optionally, a (shared) {@link VerificationResultCache} may be supplied, so that already verified proofs are not verified again.
+ *
+ * @since 2.0.1
+ */
+public class EdDsaJcs2022DataIntegrityProofVerifier {
+
+    /**
+     * Default maximum number of entries in both the positive and the negative key cache
+     */
+    public static final int DEFAULT_KEY_CACHE_SIZE = 256;
+
+    private static final String PROOF = "proof";
+    private static final String PROOF_VALUE = "proofValue";
+    private static final String CONTEXT = "@context";
+    private static final String VERIFICATION_METHOD = "verificationMethod";
+
+    private final LruCache<String, PublicKey> verifyingKeys;
+    private final LruCache<String, Boolean> malformedKeys;
+    private final VerificationResultCache resultCache;
+
+    /**
+     * Creates a verifier featuring key caches of {@link #DEFAULT_KEY_CACHE_SIZE} size.
+     */
+    public EdDsaJcs2022DataIntegrityProofVerifier() {
+        this(DEFAULT_KEY_CACHE_SIZE);
+    }
+
+    /**
+     * @param keyCacheSize maximum number of entries in both the positive and the negative key cache. Must be positive.
+     */
+    public EdDsaJcs2022DataIntegrityProofVerifier(int keyCacheSize) {
+        this(keyCacheSize, null);
+    }
+
+    /**
+     * @param keyCacheSize maximum number of entries in both the positive and the negative key cache. Must be positive.
+     * @param resultCache  (optional) cache of successful verifications, possibly shared by other verifiers. May be {@code null}.
+     */
+    public EdDsaJcs2022DataIntegrityProofVerifier(int keyCacheSize, VerificationResultCache resultCache) {
+        this.verifyingKeys = new LruCache<>(keyCacheSize);
+        this.malformedKeys = new LruCache<>(keyCacheSize);
+        this.resultCache = resultCache;
+    }
+
+    /**
+     * Verify all the data integrity proofs featured by the supplied secured document.
+     *
+     * @param securedDocument           map (JSON object) that contains one or more proof values
+     * @param dataIntegrityProofOptions (optional) JSON object featuring the proof options expected to be matched by each proof,
+     *                                  e.g. {@code {"proofPurpose": "assertionMethod", "challenge": "1-Qm..."}}. May be {@code null}.
+     * @return {@code true} if and only if the document features at least one proof and all of them are valid. Otherwise, {@code false}.
+     * @throws VcDataIntegrityCryptographicSuiteException if any of the supplied JSON strings is malformed or no proof is present at all
+     */
+    public boolean verifyProof(String securedDocument, String dataIntegrityProofOptions) throws VcDataIntegrityCryptographicSuiteException {
+        return verifyProof(securedDocument, dataIntegrityProofOptions, null);
+    }
+
+    /**
+     * The same as {@link #verifyProof(String, String)}, but accepting only proofs signed by the supplied verifying key.
+     *
+     * @param securedDocument           map (JSON object) that contains one or more proof values
+     * @param dataIntegrityProofOptions (optional) JSON object featuring the proof options expected to be matched by each proof.
+     *                                  May be {@code null}.
+     * @param verifyingKeyMultibase     (optional) the only Ed25519 verifying key (in multibase format) that any proof is expected
+     *                                  to be signed by, i.e. the one of its {@code did:key} verification method.
+     *                                  May be {@code null}, in which case any {@code did:key} is accepted.
+     * @return {@code true} if and only if the document features at least one proof and all of them are valid
+     * (and signed by the supplied verifying key, if any). Otherwise, {@code false}.
+     * @throws VcDataIntegrityCryptographicSuiteException if any of the supplied JSON strings is malformed or no proof is present at all
+     */
+    public boolean verifyProof(String securedDocument, String dataIntegrityProofOptions, String verifyingKeyMultibase)
+            throws VcDataIntegrityCryptographicSuiteException {
+
+        JsonObject document;
+        JsonObject expectedProofOptions = null;
+        try {
+            document = JsonParser.parseString(securedDocument).getAsJsonObject();
+            if (dataIntegrityProofOptions != null) {
+                expectedProofOptions = JsonParser.parseString(dataIntegrityProofOptions).getAsJsonObject();
+            }
+        } catch (JsonParseException | IllegalStateException ex) {
+            throw new VcDataIntegrityCryptographicSuiteException(ex);
+        }
+
+        var proofs = extractProofs(document.remove(PROOF));
+        if (proofs.isEmpty()) {
+            throw new VcDataIntegrityCryptographicSuiteException("The supplied document features no proof");
+        }
+
+        for (var proof : proofs) {
+            if (!verifyProof(document, proof, expectedProofOptions, verifyingKeyMultibase)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static List<JsonObject> extractProofs(JsonElement proof) throws VcDataIntegrityCryptographicSuiteException {
+        var proofs = new ArrayList<JsonObject>();
+        if (proof == null) {
+            return proofs;
+        }
+        var proofArray = proof.isJsonArray() ? proof.getAsJsonArray() : new JsonArray();
+        if (proof.isJsonObject()) {
+            proofArray.add(proof);
+        }
+        for (var p : proofArray) {
+            if (!p.isJsonObject()) {
+                throw new VcDataIntegrityCryptographicSuiteException("Malformed proof: " + p);
+            }
+            proofs.add(p.getAsJsonObject());
+        }
+        return proofs;
+    }
+
+    /**
+     * As specified by <a href="https://www.w3.org/TR/vc-di-eddsa/#verify-proof-eddsa-jcs-2022">Verify Proof (eddsa-jcs-2022)</a>.
+     */
+    @SuppressWarnings({"PMD.CyclomaticComplexity", "PMD.NPathComplexity"})
+    private boolean verifyProof(JsonObject unsecuredDocument, JsonObject proof, JsonObject expectedProofOptions,
+                                String expectedVerifyingKeyMultibase) {
+
+        var proofOptions = proof.deepCopy();
+        var proofValue = proofOptions.remove(PROOF_VALUE);
+        if (proofValue == null || !proofValue.isJsonPrimitive()
+                || !JCSHasher.DATA_INTEGRITY_PROOF.equals(getAsString(proofOptions, "type"))
+                || !JCSHasher.EDDSA_JCS_2022.equals(getAsString(proofOptions, "cryptosuite"))) {
+            return false;
+        }
+
+        if (expectedProofOptions != null) {
+            for (var expected : expectedProofOptions.entrySet()) {
+                if (!expected.getValue().equals(proofOptions.get(expected.getKey()))) {
+                    return false;
+                }
+            }
+        }
+
+        // If proofOptions.@context exists, check that the securedDocument.@context starts with all values contained
+        // in the proofOptions.@context in the same order. Set unsecuredDocument.@context equal to proofOptions.@context.
+        var document = unsecuredDocument;
+        var proofContext = proofOptions.get(CONTEXT);
+        if (proofContext != null) {
+            if (!startsWith(unsecuredDocument.get(CONTEXT), proofContext)) {
+                return false;
+            }
+            document = unsecuredDocument.deepCopy();
+            document.add(CONTEXT, proofContext);
+        }
+
+        var verifyingKeyMultibase = extractKeyMultibase(getAsString(proofOptions, VERIFICATION_METHOD));
+        if (verifyingKeyMultibase == null
+                || expectedVerifyingKeyMultibase != null && !expectedVerifyingKeyMultibase.equals(verifyingKeyMultibase)) {
+            return false;
+        }
+
+        byte[] signature;
+        try {
+            var multibase = proofValue.getAsString();
+            if (multibase.isEmpty() || multibase.charAt(0) != 'z') {
+                return false;
+            }
+            signature = Base58.decode(multibase.substring(1));
+        } catch (IllegalArgumentException | UnsupportedOperationException e) {
+            return false;
+        }
+
+        var hashData = ByteBuffer.allocate(64)
+                .put(JcsCanonicalizer.sha256(proofOptions))
+                .put(JcsCanonicalizer.sha256(document))
+                .flip();
+
+        if (this.resultCache == null) {
+            return verify(verifyingKeyMultibase, hashData, signature);
+        }
+
+        return this.resultCache.verify(VerificationResultCache.Policy.LENIENT, verifyingKeyMultibase, hashData, signature,
+                () -> verify(verifyingKeyMultibase, hashData.duplicate(), signature));
+    }
+
+    private boolean verify(String verifyingKeyMultibase, ByteBuffer hashData, byte[] signature) {
+        var verifyingKey = resolveKeyMultibase(verifyingKeyMultibase);
+        if (verifyingKey == null) {
+            return false;
+        }
+        return EdDsaJcs2022VcDataIntegrityCryptographicSuite.verify(verifyingKey, hashData, ByteBuffer.wrap(signature));
+    }
+
+    private static boolean startsWith(JsonElement documentContext, JsonElement proofContext) {
+        if (documentContext == null) {
+            return false;
+        }
+        var docCtx = documentContext.isJsonArray() ? documentContext.getAsJsonArray() : asArray(documentContext);
+        var proofCtx = proofContext.isJsonArray() ? proofContext.getAsJsonArray() : asArray(proofContext);
+        if (proofCtx.size() > docCtx.size()) {
+            return false;
+        }
+        for (int i = 0; i < proofCtx.size(); i++) {
+            if (!proofCtx.get(i).equals(docCtx.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static JsonArray asArray(JsonElement element) {
+        var arr = new JsonArray();
+        arr.add(element);
+        return arr;
+    }
+
+    private static String getAsString(JsonObject obj, String member) {
+        var element = obj.get(member);
+        if (element == null || !element.isJsonPrimitive()) {
+            return null;
+        }
+        return element.getAsString();
+    }
+
+    /**
+     * Resolves a {@code did:key} verification method (e.g. {@code did:key:z6Mk...#z6Mk...}) into a (JCA) Ed25519 public key,
+     * while consulting both key caches.
+     *
+     * @param verificationMethod to resolve
+     * @return the verifying key, or {@code null} if the verification method is malformed (or not a {@code did:key} at all)
+     */
+    PublicKey resolveVerifyingKey(String verificationMethod) {
+        var multibase = extractKeyMultibase(verificationMethod);
+        if (multibase == null) {
+            return null;
+        }
+        return resolveKeyMultibase(multibase);
+    }
+
+    /**
+     * As specified by <a href="https://w3c-ccg.github.io/did-key-spec/#document-creation-algorithm">did:key</a>,
+     * the fragment (if any) of a {@code did:key} verification method must be the very same multibase key as the DID itself.
+     * Otherwise, e.g. {@code did:key:zA#zB} would be taken for key {@code zA}.
+     */
+    private static String extractKeyMultibase(String verificationMethod) {
+        if (verificationMethod == null || !verificationMethod.startsWith(JCSHasher.DID_KEY)) {
+            return null;
+        }
+        var hashIndex = verificationMethod.indexOf('#');
+        var multibase = verificationMethod.substring(JCSHasher.DID_KEY.length(), hashIndex < 0 ? verificationMethod.length() : hashIndex);
+        if (multibase.isEmpty() || hashIndex >= 0 && !multibase.equals(verificationMethod.substring(hashIndex + 1))) {
+            return null;
+        }
+        return multibase;
+    }
+
+    private PublicKey resolveKeyMultibase(String multibase) {
+
+        var verifyingKey = this.verifyingKeys.get(multibase);
+        if (verifyingKey != null) {
+            return verifyingKey;
+        }
+
+        if (this.malformedKeys.containsKey(multibase)) {
+            return null;
+        }
+
+        try {
+            verifyingKey = Ed25519Utils.toPublicKey(multibase);
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            this.malformedKeys.put(multibase, Boolean.TRUE);
+            return null;
+        }
+
+        this.verifyingKeys.put(multibase, verifyingKey);
+        return verifyingKey;
+    }
+
+    /**
+     * @return the current number of decoded verifying keys kept in the cache
+     */
+    public int getCachedKeyCount() {
+        return this.verifyingKeys.size();
+    }
+
+    /**
+     * @return the current number of malformed keys kept in the negative cache
+     */
+    public int getCachedMalformedKeyCount() {
+        return this.malformedKeys.size();
+    }
+}
@@ -2,28 +2,39 @@ package ch.admin.bj.swiyu.didtoolbox.vc_data_integrity;
 
 import ch.admin.bj.swiyu.didtoolbox.Base58;
 import ch.admin.bj.swiyu.didtoolbox.Ed25519Utils;
+import ch.admin.bj.swiyu.didtoolbox.KeyMaterialCache;
+import ch.admin.bj.swiyu.didtoolbox.KeyPool;
 import ch.admin.bj.swiyu.didtoolbox.VerificationMethodKeyProvider;
 import ch.admin.bj.swiyu.didtoolbox.context.DidLogCreatorContext;
 import ch.admin.bj.swiyu.didtoolbox.context.DidLogUpdaterContext;
 import ch.admin.eid.did_sidekicks.*;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
 import com.google.gson.JsonParser;
-import com.google.gson.JsonSyntaxException;
+import org.bouncycastle.math.ec.rfc8032.Ed25519;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
-import java.nio.charset.Charset;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.*;
 import java.security.cert.CertificateException;
+import java.security.spec.PKCS8EncodedKeySpec;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.HexFormat;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 /**
  * The {@link EdDsaJcs2022VcDataIntegrityCryptographicSuite} class is a
@@ -34,9 +45,8 @@ import java.util.Set;
  * Such key pair might be then used for the purpose of DID (<a href="https://identity.foundation/didwebvh/v0.3">did:tdw</a>
  * or <a href="https://identity.foundation/didwebvh/v1.0">did:webvh</a>) log creation.
  * <p>
- * <b>CAUTION</b> Beware, the class does not (yet) implement
- * {@link VcDataIntegrityCryptographicSuite#verifyProof(String, String)} method,
- * thus remaining exclusively capable of data integrity proof creation.
+ * The {@link VcDataIntegrityCryptographicSuite#verifyProof(String, String)} method is implemented by
+ * {@link EdDsaJcs2022DataIntegrityProofVerifier} (shared by all instances of the class), restricted to the verifying key of the suite.
  * <p>
  * Instead of relying on standard {@link java.security} package (in conjunction with some JCE provider like Bouncy Castle),
  * this particular implementation is built on top of
@@ -61,9 +71,42 @@ import java.util.Set;
  */
 public class EdDsaJcs2022VcDataIntegrityCryptographicSuite implements VcDataIntegrityCryptographicSuite {
 
+    /**
+     * The length (in bytes) of an Ed25519 signature, as specified by <a href="https://www.rfc-editor.org/rfc/rfc8032#section-5.1.6">RFC8032</a>
+     */
+    private static final int ED25519_SIGNATURE_LENGTH = 64;
+    private static final int ED25519_KEY_LENGTH = 32;
+
+    /**
+     * The order of the Ed25519 base point, as specified by <a href="https://www.rfc-editor.org/rfc/rfc8032#section-5.1">RFC8032</a>
+     */
+    private static final BigInteger ED25519_GROUP_ORDER = BigInteger.TWO.pow(252).add(new BigInteger("27742317777372353535851937790883648493"));
+
+    /**
+     * Shared by all instances, so that the cache of decoded verifying keys is shared as well
+     */
+    private static final EdDsaJcs2022DataIntegrityProofVerifier PROOF_VERIFIER = new EdDsaJcs2022DataIntegrityProofVerifier();
+
     protected Ed25519SigningKey signingKey;
     protected EddsaJcs2022Cryptosuite cryptoSuite;
 
+    /**
+     * The JCA counterpart of {@link #signingKey}, intended for byte-level signing (see {@link #sign(ByteBuffer)}).
+     * Available with all the constructors of this class, yet it may be {@code null} if {@link #signingKey} is set by a subclass.
+     */
+    private PrivateKey jcaSigningKey;
+
+    /**
+     * Whether the verifying key is a canonically encoded point of prime order, as required by {@link #verifyStrict(byte[], byte[])}.
+     * Lazily evaluated.
+     */
+    private volatile Boolean strictVerifyingKey;
+
+    /**
+     * The JCA counterpart of the verifying key, lazily decoded (see {@link #verify(ByteBuffer, ByteBuffer)}).
+     */
+    private volatile PublicKey jcaVerifyingKey;
+
     /**
      * The empty constructor delivers a fully operational <a href="https://w3c.github.io/vc-di-eddsa/#eddsa-jcs-2022">eddsa-jcs-2022</a> cryptographic suite.
      * <p>
@@ -71,7 +114,13 @@ public class EdDsaJcs2022VcDataIntegrityCryptographicSuite implements VcDataInte
      * as well as a suitable <a href="https://w3c.github.io/vc-di-eddsa/#eddsa-jcs-2022">eddsa-jcs-2022</a> cryptographic suite will be generated as well.
      */
     public EdDsaJcs2022VcDataIntegrityCryptographicSuite() {
-        this.signingKey = Ed25519SigningKey.Companion.generate();
+        // generated on the Java side, so that the raw private key material is known upfront (see sign(ByteBuffer))
+        this.jcaSigningKey = KeyPool.shared().take(KeyPool.Algorithm.ED25519).getPrivate();
+        try {
+            this.signingKey = Ed25519SigningKey.Companion.fromMultibase(Ed25519Utils.toMultibase(this.jcaSigningKey));
+        } catch (DidSidekicksException e) {
+            throw new IllegalStateException(e); // a freshly generated Ed25519 key is always valid
+        }
         this.cryptoSuite = EddsaJcs2022Cryptosuite.Companion.fromSigningKey(signingKey);
     }
 
@@ -89,6 +138,7 @@ public class EdDsaJcs2022VcDataIntegrityCryptographicSuite implements VcDataInte
             throw new VcDataIntegrityCryptographicSuiteException(e);
         }
         this.cryptoSuite = EddsaJcs2022Cryptosuite.Companion.fromSigningKey(signingKey);
+        this.jcaSigningKey = readJcaSigningKey(pkcs8PemPath);
     }
 
     /**
@@ -110,6 +160,34 @@ public class EdDsaJcs2022VcDataIntegrityCryptographicSuite implements VcDataInte
             throw new VcDataIntegrityCryptographicSuiteException(e);
         }
         cryptoSuite = EddsaJcs2022Cryptosuite.Companion.fromSigningKey(signingKey);
+        jcaSigningKey = toJcaSigningKey(secretKeyMultibase);
+    }
+
+    /**
+     * The raw key based constructor, as used by {@link Pkcs12KeyStoreCache}.
+     * <p>
+     * The supplied key remains intact (i.e. it is up to the caller to zeroise it), whereas all the intermediate buffers are zeroised.
+     * CAUTION The native signing key can only be created from a multibase {@link String}, hence a single (immutable) copy
+     * of the key in multibase format is unavoidable, until garbage-collected.
+     *
+     * @param rawSecretKey 32-length byte array representing an Ed25519 private key (seed) as specified by
+     *                     <a href="https://datatracker.ietf.org/doc/html/rfc8032#section-5.1.5">RFC 8032</a>
+     * @throws VcDataIntegrityCryptographicSuiteException if the supplied key is inappropriate
+     */
+    EdDsaJcs2022VcDataIntegrityCryptographicSuite(byte[] rawSecretKey) throws VcDataIntegrityCryptographicSuiteException {
+        if (rawSecretKey.length != ED25519_KEY_LENGTH) {
+            throw new VcDataIntegrityCryptographicSuiteException("The supplied Ed25519 private key must be of length 32 (bytes), but got " + rawSecretKey.length);
+        }
+        var buff = ByteBuffer.allocate(ED25519_KEY_LENGTH + 2).put((byte) 0x80).put((byte) 0x26).put(rawSecretKey);
+        try {
+            this.signingKey = Ed25519SigningKey.Companion.fromMultibase(Base58.encodeMultibase(buff.array()));
+            this.jcaSigningKey = Ed25519Utils.toPrivateKey(rawSecretKey);
+        } catch (DidSidekicksException | GeneralSecurityException e) {
+            throw new VcDataIntegrityCryptographicSuiteException(e);
+        } finally {
+            Arrays.fill(buff.array(), (byte) 0);
+        }
+        this.cryptoSuite = EddsaJcs2022Cryptosuite.Companion.fromSigningKey(this.signingKey);
     }
 
     /**
@@ -121,6 +199,7 @@ public class EdDsaJcs2022VcDataIntegrityCryptographicSuite implements VcDataInte
      * @param keyPassword the password for recovering the key, or {@code null} if not required
      * @throws VcDataIntegrityCryptographicSuiteException ...
      * @see KeyStore#load(InputStream, char[])
+     * @see Pkcs12KeyStoreCache#getCryptographicSuite(Path, String, String, String) for the cached counterpart, as suitable for repeated use
      */
     public EdDsaJcs2022VcDataIntegrityCryptographicSuite(InputStream jksFile, String password, String alias, String keyPassword)
             throws VcDataIntegrityCryptographicSuiteException {
@@ -143,12 +222,14 @@ public class EdDsaJcs2022VcDataIntegrityCryptographicSuite implements VcDataInte
             throw new VcDataIntegrityCryptographicSuiteException(e);
         }
 
+        var secretKeyMultibase = getSecretKeyMultibaseFromKeyStore(keyStore, alias, keyPassword);
         try {
-            this.signingKey = Ed25519SigningKey.Companion.fromMultibase(getSecretKeyMultibaseFromKeyStore(keyStore, alias, keyPassword));
+            this.signingKey = Ed25519SigningKey.Companion.fromMultibase(secretKeyMultibase);
         } catch (DidSidekicksException e) {
             throw new VcDataIntegrityCryptographicSuiteException(e);
         }
         this.cryptoSuite = EddsaJcs2022Cryptosuite.Companion.fromSigningKey(this.signingKey);
+        this.jcaSigningKey = toJcaSigningKey(secretKeyMultibase);
     }
 
     /**
@@ -211,6 +292,48 @@ public class EdDsaJcs2022VcDataIntegrityCryptographicSuite implements VcDataInte
         return Ed25519Utils.toMultibase(key); // may throw IllegalArgumentException
     }
 
+    /**
+     * Yet another static helper. Self-explanatory.
+     *
+     * @param secretKeyMultibase the base58-encoded string to decode as private Ed25519 key
+     * @return the JCA counterpart of the supplied key
+     * @throws VcDataIntegrityCryptographicSuiteException if the supplied key is inappropriate for the JCA key factory
+     */
+    private static PrivateKey toJcaSigningKey(String secretKeyMultibase) throws VcDataIntegrityCryptographicSuiteException {
+        try {
+            return Ed25519Utils.toPrivateKey(secretKeyMultibase);
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new VcDataIntegrityCryptographicSuiteException(e);
+        }
+    }
+
+    /**
+     * Yet another static helper, the JCA counterpart of {@code Ed25519SigningKey.Companion.readPkcs8PemFile}.
+     *
+     * @param pkcs8PemPath to PEM-encoded file to load an Ed25519 private key from (PKCS #8)
+     * @return the JCA private key
+     * @throws VcDataIntegrityCryptographicSuiteException if the file features no valid PKCS #8 Ed25519 private key
+     */
+    private static PrivateKey readJcaSigningKey(Path pkcs8PemPath) throws VcDataIntegrityCryptographicSuiteException {
+        byte[] der = null;
+        try {
+            var base64 = new StringBuilder();
+            for (var line : Files.readAllLines(pkcs8PemPath)) {
+                if (!line.startsWith("-----")) { // skip the encapsulation boundaries
+                    base64.append(line.strip());
+                }
+            }
+            der = Base64.getDecoder().decode(base64.toString());
+            return KeyFactory.getInstance("Ed25519").generatePrivate(new PKCS8EncodedKeySpec(der));
+        } catch (IOException | GeneralSecurityException | IllegalArgumentException e) {
+            throw new VcDataIntegrityCryptographicSuiteException(e);
+        } finally {
+            if (der != null) {
+                Arrays.fill(der, (byte) 0);
+            }
+        }
+    }
+
     /**
      * Write ASN.1 DER-encoded PKCS#8 private key to the given path.
      * <p>
@@ -224,11 +347,15 @@ public class EdDsaJcs2022VcDataIntegrityCryptographicSuite implements VcDataInte
             signingKey.writePkcs8PemFile(pkcs8PemPath.toString());
         } catch (DidSidekicksException e) {
             throw new VcDataIntegrityCryptographicSuiteException(e);
+        } finally {
+            KeyMaterialCache.shared().invalidate(pkcs8PemPath);
         }
     }
 
     /**
      * Write ASN.1 DER-encoded public key to the given file.
+     * <p>
+     * Any key material cached for the file (see {@link KeyMaterialCache#shared()}) is invalidated.
      *
      * @param publicKeyPemPath to file to store the key into
      * @throws VcDataIntegrityCryptographicSuiteException if the writing operation fails
@@ -238,6 +365,8 @@ public class EdDsaJcs2022VcDataIntegrityCryptographicSuite implements VcDataInte
             signingKey.getVerifyingKey().writePublicKeyPemFile(publicKeyPemPath.toString());
         } catch (DidSidekicksException e) {
             throw new VcDataIntegrityCryptographicSuiteException(e);
+        } finally {
+            KeyMaterialCache.shared().invalidate(publicKeyPemPath);
         }
     }
 
@@ -271,13 +400,107 @@ public class EdDsaJcs2022VcDataIntegrityCryptographicSuite implements VcDataInte
     @Deprecated
     public byte[] generateSignature(byte[] message) {
         try {
-            return Base58.decode(this.signingKey.signHex(HexFormat.of().formatHex(message)).toMultibase().substring(1));
-        } catch (DidSidekicksException e) {
-            // The 'signHex' will never fail as long HexFormat.of().formatHex call ensures the message is supplied as hex-encoded string
+            return this.sign(ByteBuffer.wrap(message));
+        } catch (VcDataIntegrityCryptographicSuiteException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Generate a (detached) <a href="https://www.rfc-editor.org/rfc/rfc8032">Edwards-Curve Digital Signature Algorithm (EdDSA) RFC8032</a>
+     * signature of the supplied message, in raw (64 bytes) form.
+     * <p>
+     * Unlike {@link #generateSignature(byte[])}, the message is signed "as is" i.e. without any intermediate text encoding
+     * (hex, multibase), as the JCA counterpart of the signing key is derived by all the constructors of this class
+     * (only if a subclass sets the native signing key by itself, the signing is delegated to it).
+     * As Ed25519 signatures are deterministic, both ways deliver the very same signature.
+     * <p>
+     * The method is thread-safe.
+     *
+     * @param message to sign. Its remaining bytes are consumed.
+     * @return raw Ed25519 signature (64 bytes)
+     * @throws VcDataIntegrityCryptographicSuiteException if signing fails for any reason
+     */
+    public byte[] sign(ByteBuffer message) throws VcDataIntegrityCryptographicSuiteException {
+
+        if (this.jcaSigningKey == null) {
+            // fallback: no raw private key available, hence the native signing key must be used
+            var bytes = new byte[message.remaining()];
+            message.get(bytes);
+            try {
+                return Base58.decode(this.signingKey.signHex(HexFormat.of().formatHex(bytes)).toMultibase().substring(1));
+            } catch (DidSidekicksException e) {
+                throw new VcDataIntegrityCryptographicSuiteException(e);
+            }
+        }
+
+        try {
+            var signer = Signature.getInstance("Ed25519");
+            signer.initSign(this.jcaSigningKey);
+            signer.update(message);
+            return signer.sign();
+        } catch (GeneralSecurityException e) {
+            throw new VcDataIntegrityCryptographicSuiteException(e);
+        }
+    }
+
+    /**
+     * Verify a (detached) Ed25519 signature of the supplied message against the verifying key of this suite,
+     * without any intermediate text encoding (multibase, charset) of either message or signature.
+     * <p>
+     * The method is thread-safe.
+     *
+     * @param message   to verify the supplied signature for. Its remaining bytes are consumed.
+     * @param signature raw Ed25519 signature (64 bytes). Its remaining bytes are consumed.
+     * @return {@code true} if the signature is valid, otherwise {@code false}.
+     * @see #verify(PublicKey, ByteBuffer, ByteBuffer)
+     */
+    public boolean verify(ByteBuffer message, ByteBuffer signature) {
+
+        var verifyingKey = this.jcaVerifyingKey;
+        if (verifyingKey == null) {
+            try {
+                verifyingKey = Ed25519Utils.toPublicKey(this.getVerificationKeyMultibase());
+            } catch (GeneralSecurityException e) {
+                throw new IllegalArgumentException(e);
+            }
+            this.jcaVerifyingKey = verifyingKey; // benign race, as the decoded key is always the same
+        }
+
+        return verify(verifyingKey, message, signature);
+    }
+
+    /**
+     * Verify a (detached) Ed25519 signature of the supplied message against the supplied (JCA) verifying key.
+     * <p>
+     * This static primitive holds no state whatsoever, thus it is suitable for any batch or parallel verification engine.
+     *
+     * @param verifyingKey Ed25519 public key to verify against
+     * @param message      to verify the supplied signature for. Its remaining bytes are consumed.
+     * @param signature    raw Ed25519 signature (64 bytes). Its remaining bytes are consumed.
+     * @return {@code true} if the signature is valid, otherwise {@code false}.
+     */
+    public static boolean verify(PublicKey verifyingKey, ByteBuffer message, ByteBuffer signature) {
+
+        if (signature.remaining() != ED25519_SIGNATURE_LENGTH) {
+            return false;
+        }
+
+        var sig = new byte[ED25519_SIGNATURE_LENGTH];
+        signature.get(sig);
+
+        try {
+            var verifier = Signature.getInstance("Ed25519");
+            verifier.initVerify(verifyingKey);
+            verifier.update(message);
+            return verifier.verify(sig);
+        } catch (SignatureException e) {
+            return false;
+        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
     @Override
     public boolean isKeyMultibaseInSet(Set<String> multibaseEncodedKeys) {
         return multibaseEncodedKeys.contains(this.getVerificationKeyMultibase());
@@ -286,30 +509,83 @@ public class EdDsaJcs2022VcDataIntegrityCryptographicSuite implements VcDataInte
     /**
      * "Strictly" verify a signature on a message with "malleability" in mind, as thoroughly elaborated
      * <a href="https://docs.rs/ed25519-dalek/latest/ed25519_dalek/struct.VerifyingKey.html#method.verify_strict">here</a>.
+     * <p>
+     * Both message and signature are verified "as is", i.e. without any intermediate text encoding (multibase, charset).
+     * Beside the regular verification (see {@link #verify(ByteBuffer, ByteBuffer)}), the following is required:
+     * <ul>
+     *     <li>the scalar {@code S} of the signature is canonical, i.e. less than the group order</li>
+     *     <li>both the point {@code R} of the signature and the verifying key are canonically encoded points of prime order,
+     *     thus rejecting any small-order (weak) point</li>
+     * </ul>
      *
      * @param message   to verify the supplied signature for
-     * @param signature multibase-encoded Ed25519 signature on the supplied message
+     * @param signature raw Ed25519 signature (64 bytes) on the supplied message
      * @return {@code true} if the signature is valid, otherwise {@code false}.
      */
     public boolean verifyStrict(byte[] message, byte[] signature) {
 
-        try (var sign = Ed25519Signature.Companion.fromMultibase('z' + Base58.encode(signature))) {
+        if (signature == null || signature.length != ED25519_SIGNATURE_LENGTH) {
+            return false;
+        }
 
-            try {
-                this.signingKey.getVerifyingKey().verifyStrict(new String(message, Charset.defaultCharset()), sign);
-            } catch (DidSidekicksException ignore) {
-                return false;
-            }
+        // S < L (little-endian)
+        var s = new byte[ED25519_KEY_LENGTH];
+        for (int i = 0; i < ED25519_KEY_LENGTH; i++) {
+            s[i] = signature[ED25519_SIGNATURE_LENGTH - 1 - i];
+        }
+        if (new BigInteger(1, s).compareTo(ED25519_GROUP_ORDER) >= 0) {
+            return false;
+        }
 
-        } catch (DidSidekicksException e) {
-            // may throw ch.admin.eid.did_sidekicks.DidSidekicksException$MultibaseKeyConversionFailed denoting for instance that it:
-            // > failed to convert key from multibase format:
-            // > the supplied DID document is invalid or contains an argument which isn't part of the DID specification/recommendation:
-            // > buffer provided to decode base58 encoded string into was too small
-            throw new IllegalArgumentException(e);
+        // R must not be of small order
+        if (!Ed25519.validatePublicKeyFull(signature, 0)) {
+            return false;
         }
 
-        return true;
+        var strict = this.strictVerifyingKey;
+        if (strict == null) {
+            var rawVerifyingKey = Base58.decode(this.getVerificationKeyMultibase().substring(1)); // featuring 2-byte multicodec header
+            strict = Ed25519.validatePublicKeyFull(rawVerifyingKey, 2);
+            this.strictVerifyingKey = strict; // benign race, as the outcome is always the same
+        }
+        if (!strict) {
+            return false;
+        }
+
+        return verify(ByteBuffer.wrap(message), ByteBuffer.wrap(signature));
+    }
+
+    /**
+     * The same as {@link #verifyStrict(byte[], byte[])}, but consulting the supplied cache of successful verifications first.
+     * <p>
+     * Suitable for repeated audits of (mostly) unchanged DID logs, where the very same proofs get verified over and over again.
+     *
+     * @param message   to verify the supplied signature for
+     * @param signature raw Ed25519 signature (64 bytes) on the supplied message
+     * @param cache     of successful verifications, possibly shared by any number of verifiers. Results of any other
+     *                  (i.e. lenient) verification policy are never taken into account.
+     * @return {@code true} if the signature is (or has already been) verified successfully, otherwise {@code false}.
+     * @since 2.0.1
+     */
+    public boolean verifyStrict(byte[] message, byte[] signature, VerificationResultCache cache) {
+        return cache.verify(VerificationResultCache.Policy.STRICT, this.getVerificationKeyMultibase(), ByteBuffer.wrap(message), signature,
+                () -> verifyStrict(message, signature));
+    }
+
+    /**
+     * Verify all the <a href="https://www.w3.org/TR/vc-di-eddsa/#eddsa-jcs-2022">eddsa-jcs-2022</a> data integrity proofs
+     * featured by the supplied secured document, each of which must be signed by the verifying key of this suite
+     * (i.e. its {@code did:key} verification method must denote the very same key).
+     * <p>
+     * To verify proofs signed by any {@code did:key}, use {@link EdDsaJcs2022DataIntegrityProofVerifier} instead.
+     *
+     * @see EdDsaJcs2022DataIntegrityProofVerifier#verifyProof(String, String, String)
+     * @since 2.0.1
+     */
+    @Override
+    public boolean verifyProof(String securedDocument,
+                               String dataIntegrityProofOptions) throws VcDataIntegrityCryptographicSuiteException {
+        return PROOF_VERIFIER.verifyProof(securedDocument, dataIntegrityProofOptions, this.getVerificationKeyMultibase());
     }
 
     /**
@@ -341,44 +617,113 @@ public class EdDsaJcs2022VcDataIntegrityCryptographicSuite implements VcDataInte
                            ZonedDateTime dateTime)
             throws VcDataIntegrityCryptographicSuiteException {
 
-        JsonObject unsecuredDocumentJsonObject;
-        try {
-            unsecuredDocumentJsonObject = JsonParser.parseString(unsecuredDocument).getAsJsonObject();
-        } catch (JsonSyntaxException | IllegalStateException ex) {
-            throw new VcDataIntegrityCryptographicSuiteException(ex);
-        }
-
         var verifyingKeyMultibase = this.signingKey.getVerifyingKey().toMultibase();
 
         // According to https://www.w3.org/TR/vc-di-eddsa/#create-proof-eddsa-jcs-2022:
         // 2) If unsecuredDocument.@context is present, set proof.@context to unsecuredDocument.@context.
-        var ctx = unsecuredDocumentJsonObject.get("@context");
-        List<String> context = new ArrayList<>();
-        if (ctx != null && ctx.isJsonArray()) {
-            ctx.getAsJsonArray().forEach(jsonElement -> {
-                context.add(jsonElement.getAsString());
-            });
-        }
+        var context = readContext(unsecuredDocument);
 
         List<String> finalContext = null;
         if (!context.isEmpty()) {
             finalContext = context;
         }
 
-        try {
-            return this.cryptoSuite.addProof(
-                    unsecuredDocument,
-                    CryptoSuiteProofOptions.Companion.newEddsaJcs2022(
-                            DateTimeFormatter.ISO_INSTANT.format(dateTime.truncatedTo(ChronoUnit.SECONDS)),
-                            "did:key:" + verifyingKeyMultibase + '#' + verifyingKeyMultibase,
-                            proofPurpose,
-                            finalContext,
-                            challenge
-                    )
-            );
+        try (var cryptoSuiteProofOptions = CryptoSuiteProofOptions.Companion.newEddsaJcs2022(
+                DateTimeFormatter.ISO_INSTANT.format(dateTime.truncatedTo(ChronoUnit.SECONDS)),
+                "did:key:" + verifyingKeyMultibase + '#' + verifyingKeyMultibase,
+                proofPurpose,
+                finalContext,
+                challenge)) {
+
+            return this.cryptoSuite.addProof(unsecuredDocument, cryptoSuiteProofOptions);
 
         } catch (DidSidekicksException e) {
             throw new VcDataIntegrityCryptographicSuiteException(e);
         }
     }
+
+    /**
+     * This {@link VcDataIntegrityCryptographicSuite} interface method implementation shares the verifying key (multibase),
+     * the proof creation time as well as the proof options (per distinct {@code @context}) across the whole batch.
+     *
+     * @see VcDataIntegrityCryptographicSuite#addProofs(List, ProofOptions, Executor)
+     */
+    @Override
+    public List<String> addProofs(List<String> unsecuredDocuments,
+                                  ProofOptions proofOptions,
+                                  Executor executor) throws VcDataIntegrityCryptographicSuiteException {
+
+        Objects.requireNonNull(proofOptions);
+
+        var verifyingKeyMultibase = this.signingKey.getVerifyingKey().toMultibase();
+        var verificationMethod = "did:key:" + verifyingKeyMultibase + '#' + verifyingKeyMultibase;
+        var created = DateTimeFormatter.ISO_INSTANT.format(proofOptions.getDateTime().truncatedTo(ChronoUnit.SECONDS));
+        // In most cases, all the documents of a batch feature the very same @context
+        var proofOptionsPerContext = new ConcurrentHashMap<List<String>, CryptoSuiteProofOptions>();
+
+        try {
+            return ProofBatch.addProofs(unsecuredDocuments, executor, unsecuredDocument -> {
+
+                var context = readContext(unsecuredDocument);
+
+                try {
+                    var cryptoSuiteProofOptions = proofOptionsPerContext.get(context);
+                    if (cryptoSuiteProofOptions == null) {
+                        var newCryptoSuiteProofOptions = CryptoSuiteProofOptions.Companion.newEddsaJcs2022(
+                                created,
+                                verificationMethod,
+                                proofOptions.getProofPurpose(),
+                                context.isEmpty() ? null : context,
+                                proofOptions.getChallenge()
+                        );
+                        cryptoSuiteProofOptions = proofOptionsPerContext.putIfAbsent(context, newCryptoSuiteProofOptions);
+                        if (cryptoSuiteProofOptions == null) {
+                            cryptoSuiteProofOptions = newCryptoSuiteProofOptions;
+                        } else {
+                            newCryptoSuiteProofOptions.close(); // lost the race
+                        }
+                    }
+
+                    return this.cryptoSuite.addProof(unsecuredDocument, cryptoSuiteProofOptions);
+
+                } catch (DidSidekicksException e) {
+                    throw new VcDataIntegrityCryptographicSuiteException(e);
+                }
+            });
+        } finally {
+            // ProofBatch returns only once no proof is being added anymore
+            proofOptionsPerContext.values().forEach(CryptoSuiteProofOptions::close);
+        }
+    }
+
+    /**
+     * Extracts the {@code @context} (array) of the supplied JSON object.
+     * <p>
+     * The whole document is parsed, so that any malformed document is rejected upfront.
+     *
+     * @param unsecuredDocument JSON object to extract the {@code @context} from
+     * @return the {@code @context} entries, or an empty list if there is none
+     * @throws VcDataIntegrityCryptographicSuiteException if the supplied document is not a (well-formed) JSON object
+     */
+    private static List<String> readContext(String unsecuredDocument) throws VcDataIntegrityCryptographicSuiteException {
+
+        JsonObject unsecuredDocumentJsonObject;
+        try {
+            unsecuredDocumentJsonObject = JsonParser.parseString(unsecuredDocument).getAsJsonObject();
+        } catch (JsonParseException | IllegalStateException ex) {
+            throw new VcDataIntegrityCryptographicSuiteException(ex);
+        }
+
+        var ctx = unsecuredDocumentJsonObject.get("@context");
+        List<String> context = new ArrayList<>();
+        if (ctx != null && ctx.isJsonArray()) {
+            try {
+                ctx.getAsJsonArray().forEach(jsonElement -> context.add(jsonElement.getAsString()));
+            } catch (UnsupportedOperationException | IllegalStateException ex) { // not a string
+                throw new VcDataIntegrityCryptographicSuiteException(ex);
+            }
+        }
+
+        return context;
+    }
 }
@@ -0,0 +1,374 @@
+package ch.admin.bj.swiyu.didtoolbox.vc_data_integrity;
+
+import ch.admin.bj.swiyu.didtoolbox.Ed25519Utils;
+import ch.admin.bj.swiyu.didtoolbox.HashingService;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.*;
+import java.security.cert.CertificateException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded and thread-safe cache of decrypted PKCS#12 key stores, keyed by the (absolute) path of a key store file.
+ * <p>
+ * Loading a PKCS#12 key store (see {@link KeyStore#load(java.io.InputStream, char[])}) and recovering a key from it
+ * (see {@link KeyStore#getKey(String, char[])}) both involve a password-based key derivation that is <b>deliberately</b> slow.
+ * Thanks to this cache, each key store file is loaded only once per process (and per password), whereas each (Ed25519) key is
+ * recovered only once per alias. All the subsequent {@link #getCryptographicSuite(Path, String, String, String)} calls
+ * merely create a new {@link EdDsaJcs2022VcDataIntegrityCryptographicSuite} from the already recovered key.
+ * <p>
+ * A cached key store is only valid as long as the size and the last modification time of the file remain the same.
+ * Passwords are never cached as such, but only in form of a (salted) digest, so that a wrong password is still reported as such.
+ * The recovered (secret) key material is zeroised as soon as a key store gets evicted, cleared (see {@link #clear()}) or
+ * the cache itself gets closed (see {@link #close()}).
+ *
+ * @since 2.0.1
+ */
+public final class Pkcs12KeyStoreCache implements AutoCloseable {
+
+    /**
+     * The default maximum number of key stores to keep
+     */
+    public static final int DEFAULT_MAX_SIZE = 16;
+
+    private static final Pkcs12KeyStoreCache SHARED = new Pkcs12KeyStoreCache(DEFAULT_MAX_SIZE);
+
+    private static final int SALT_LENGTH = 16;
+
+    private final byte[] salt = new byte[SALT_LENGTH];
+    private final LinkedHashMap<Path, Entry> entries;
+
+    private boolean closed; // guarded by this
+    private final AtomicLong loadCount = new AtomicLong();
+
+    /**
+     * A key store loaded from a file of a certain size and last modification time, using a certain password.
+     * The mutable fields are guarded by the {@link #lock} of the entry, so that concurrent first loads of the same key store are coalesced.
+     */
+    private static final class Entry {
+        private final long size;
+        private final FileTime lastModifiedTime;
+        private final byte[] passwordDigest;
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private KeyStore keyStore;
+        private final Map<String, byte[]> secretKeys = new HashMap<>(); // alias + key password digest -> Ed25519 secret key
+        private volatile boolean destroyed;
+
+        private Entry(BasicFileAttributes attrs, byte[] passwordDigest) {
+            this.size = attrs.size();
+            this.lastModifiedTime = attrs.lastModifiedTime();
+            this.passwordDigest = passwordDigest;
+        }
+
+        private boolean isSameFile(BasicFileAttributes attrs) {
+            return this.size == attrs.size() && this.lastModifiedTime.equals(attrs.lastModifiedTime());
+        }
+
+        private boolean isValidFor(BasicFileAttributes attrs, byte[] passwordDigest) {
+            return isSameFile(attrs) && MessageDigest.isEqual(this.passwordDigest, passwordDigest);
+        }
+
+        /**
+         * Marks the entry as destroyed without ever blocking, as the cache destroys entries while holding its own lock,
+         * whereas another thread may hold the lock of the entry for a whole (slow) key store load. The key material is zeroised
+         * straight away, unless the entry is locked right now, in which case it is zeroised once unlocked (see {@link #unlock()}).
+         */
+        private void destroy() {
+            this.destroyed = true;
+            zeroiseIfDestroyed();
+        }
+
+        private void unlock() {
+            this.lock.unlock();
+            zeroiseIfDestroyed(); // as it might have been destroyed meanwhile
+        }
+
+        private void zeroiseIfDestroyed() {
+            if (this.destroyed && this.lock.tryLock()) {
+                try {
+                    this.keyStore = null;
+                    this.secretKeys.values().forEach(secretKey -> Arrays.fill(secretKey, (byte) 0));
+                    this.secretKeys.clear();
+                    Arrays.fill(this.passwordDigest, (byte) 0);
+                } finally {
+                    this.lock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * @param maxSize the maximum number of key stores to keep. Must be positive.
+     */
+    public Pkcs12KeyStoreCache(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("The maximum size of a cache must be positive, but got " + maxSize);
+        }
+        new SecureRandom().nextBytes(this.salt);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, Entry> eldest) {
+                if (size() > maxSize) {
+                    eldest.getValue().destroy();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @return the instance shared by the whole process. It is never closed, but it may be cleared (see {@link #clear()}).
+     */
+    public static Pkcs12KeyStoreCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * The cached counterpart of
+     * {@link EdDsaJcs2022VcDataIntegrityCryptographicSuite#EdDsaJcs2022VcDataIntegrityCryptographicSuite(java.io.InputStream, String, String, String)}.
+     *
+     * @param pkcs12File  the PKCS#12 key store file
+     * @param password    the password used to check the integrity of the keystore, the password used to unlock the keystore, or null
+     * @param alias       the alias name the key is associated with
+     * @param keyPassword the password for recovering the key, or {@code null} if not required
+     * @return a new cryptographic suite featuring the (Ed25519) key associated with the alias
+     * @throws VcDataIntegrityCryptographicSuiteException if the key store cannot be loaded (e.g. wrong password) or
+     *                                                    the alias does not identify an (Ed25519) key-related entry
+     * @throws IllegalStateException                      if the cache has been closed already
+     */
+    public EdDsaJcs2022VcDataIntegrityCryptographicSuite getCryptographicSuite(Path pkcs12File, String password, String alias, String keyPassword)
+            throws VcDataIntegrityCryptographicSuiteException {
+
+        var secretKey = getSecretKey(pkcs12File, password, alias, keyPassword);
+        try {
+            return new EdDsaJcs2022VcDataIntegrityCryptographicSuite(secretKey);
+        } finally {
+            Arrays.fill(secretKey, (byte) 0);
+        }
+    }
+
+    /**
+     * @return a copy of the (cached) Ed25519 secret key, to be zeroised by the caller
+     */
+    private byte[] getSecretKey(Path pkcs12File, String password, String alias, String keyPassword)
+            throws VcDataIntegrityCryptographicSuiteException {
+
+        var path = pkcs12File.toAbsolutePath().normalize();
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            invalidate(path);
+            throw new VcDataIntegrityCryptographicSuiteException(e);
+        }
+
+        var passwordDigest = digest(password);
+        var secretKeyKey = alias + '\u0000' + HexFormat.of().formatHex(digest(keyPassword));
+        try {
+            byte[] secretKey;
+            do {
+                secretKey = tryGetSecretKey(path, attrs, password, passwordDigest, alias, keyPassword, secretKeyKey);
+            } while (secretKey == null); // the entry has been evicted (or cleared) in the meantime, so simply start over
+            return secretKey;
+        } finally {
+            Arrays.fill(passwordDigest, (byte) 0);
+        }
+    }
+
+    /**
+     * CAUTION Never acquire the lock of the cache while holding the one of an entry. Since destroying an entry never blocks
+     * (see {@link Entry#destroy()}), a slow load of one key store never stalls lookups of any other one.
+     * A destroyed entry is reported to the caller (to start over).
+     *
+     * @return a copy of the (cached) Ed25519 secret key, or {@code null} if the entry has been destroyed in the meantime
+     */
+    @SuppressWarnings("PMD.ReturnEmptyCollectionRatherThanNull")
+    private byte[] tryGetSecretKey(Path path, BasicFileAttributes attrs, String password, byte[] passwordDigest,
+                                   String alias, String keyPassword, String secretKeyKey)
+            throws VcDataIntegrityCryptographicSuiteException {
+
+        Entry entry;
+        boolean detached = false;
+        synchronized (this) {
+            if (this.closed) {
+                throw new IllegalStateException("The cache is closed already");
+            }
+            entry = this.entries.get(path);
+            if (entry == null || entry.destroyed || !entry.isValidFor(attrs, passwordDigest)) {
+                var fresh = new Entry(attrs, passwordDigest.clone()); // CAUTION The digest gets zeroised along with the entry
+                if (entry == null || entry.destroyed || !entry.isSameFile(attrs)) {
+                    // mapped straight away, so that concurrent first loads of the same key store are coalesced
+                    if (entry != null) {
+                        entry.destroy();
+                    }
+                    this.entries.put(path, fresh);
+                } else {
+                    // CAUTION A wrong password must not evict a valid entry, hence it is replaced only once loaded successfully
+                    detached = true;
+                }
+                entry = fresh;
+            }
+        }
+
+        byte[] secretKey;
+        entry.lock.lock();
+        try {
+            if (entry.destroyed) {
+                return null;
+            }
+            if (entry.keyStore == null) {
+                try {
+                    entry.keyStore = load(path, password);
+                } catch (VcDataIntegrityCryptographicSuiteException e) {
+                    entry.destroy(); // so that it gets replaced on next lookup
+                    throw e;
+                }
+            }
+
+            secretKey = entry.secretKeys.get(secretKeyKey);
+            if (secretKey == null) {
+                secretKey = recoverSecretKey(entry.keyStore, alias, keyPassword);
+                entry.secretKeys.put(secretKeyKey, secretKey);
+            }
+            secretKey = secretKey.clone();
+        } finally {
+            entry.unlock();
+        }
+
+        if (detached) {
+            synchronized (this) {
+                if (this.closed) {
+                    entry.destroy();
+                    Arrays.fill(secretKey, (byte) 0);
+                    throw new IllegalStateException("The cache is closed already");
+                }
+                var previous = this.entries.put(path, entry);
+                if (previous != null && previous != entry) {
+                    previous.destroy();
+                }
+            }
+        }
+        return secretKey;
+    }
+
+    private KeyStore load(Path pkcs12File, String password) throws VcDataIntegrityCryptographicSuiteException {
+        // CAUTION Calling KeyStore.getInstance("JKS") may cause:
+        //         "java.security.NoSuchAlgorithmException: no such algorithm: EdDSA for provider SUN"
+        KeyStore keyStore;
+        try {
+            keyStore = KeyStore.getInstance("PKCS12");
+        } catch (KeyStoreException e) {
+            throw new VcDataIntegrityCryptographicSuiteException(e);
+        }
+
+        char[] pass = password != null ? password.toCharArray() : null;
+        try (var in = Files.newInputStream(pkcs12File)) {
+            keyStore.load(in, pass); // if keystore password is incorrect, the java.io.IOException is thrown
+        } catch (IOException | NoSuchAlgorithmException | CertificateException e) {
+            throw new VcDataIntegrityCryptographicSuiteException(e);
+        } finally {
+            if (pass != null) {
+                Arrays.fill(pass, '\u0000');
+            }
+        }
+
+        this.loadCount.incrementAndGet();
+        return keyStore;
+    }
+
+    private static byte[] recoverSecretKey(KeyStore keyStore, String alias, String keyPassword)
+            throws VcDataIntegrityCryptographicSuiteException {
+
+        char[] pass = keyPassword != null ? keyPassword.toCharArray() : null;
+        Key key;
+        try {
+            if (!keyStore.isKeyEntry(alias)) {
+                throw new VcDataIntegrityCryptographicSuiteException("The alias does not exist or does not identify a key-related entry: " + alias);
+            }
+            key = keyStore.getKey(alias, pass);
+        } catch (KeyStoreException | NoSuchAlgorithmException | UnrecoverableKeyException e) {
+            throw new VcDataIntegrityCryptographicSuiteException(e);
+        } finally {
+            if (pass != null) {
+                Arrays.fill(pass, '\u0000');
+            }
+        }
+
+        if (!(key instanceof PrivateKey privateKey)) {
+            throw new VcDataIntegrityCryptographicSuiteException("The alias does not identify an Ed25519 private key: " + alias);
+        }
+        try {
+            return Ed25519Utils.toRawPrivateKey(privateKey); // zeroises the (intermediate) PKCS#8 encoding
+        } catch (IllegalArgumentException e) {
+            throw new VcDataIntegrityCryptographicSuiteException("The alias does not identify an Ed25519 private key: " + alias, e);
+        }
+    }
+
+    private byte[] digest(String secret) {
+        var chars = secret != null ? secret.toCharArray() : new char[0];
+        var buff = ByteBuffer.allocate(SALT_LENGTH + 1 + chars.length * Character.BYTES)
+                .put(this.salt)
+                .put(secret != null ? (byte) 1 : (byte) 0);
+        for (var c : chars) {
+            buff.putChar(c);
+        }
+        try {
+            return HashingService.sha256(buff.flip());
+        } finally {
+            Arrays.fill(buff.array(), (byte) 0);
+            Arrays.fill(chars, '\u0000');
+        }
+    }
+
+    /**
+     * Discards (and zeroises) any key material cached for the supplied key store file.
+     *
+     * @param pkcs12File the PKCS#12 key store file
+     */
+    public synchronized void invalidate(Path pkcs12File) {
+        var entry = this.entries.remove(pkcs12File.toAbsolutePath().normalize());
+        if (entry != null) {
+            entry.destroy();
+        }
+    }
+
+    /**
+     * Discards (and zeroises) all the cached key material. The cache remains usable.
+     */
+    public synchronized void clear() {
+        this.entries.values().forEach(Entry::destroy);
+        this.entries.clear();
+    }
+
+    /**
+     * @return the current number of cached key stores
+     */
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * @return the total number of (expensive) successful key store loads performed by this cache so far
+     */
+    public long getLoadCount() {
+        return this.loadCount.get();
+    }
+
+    /**
+     * Discards (and zeroises) all the cached key material. The cache is no longer usable afterwards.
+     */
+    @Override
+    public synchronized void close() {
+        clear();
+        this.closed = true;
+    }
+}
@@ -0,0 +1,85 @@
+package ch.admin.bj.swiyu.didtoolbox.vc_data_integrity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A package-scoped helper in charge of securing a batch of documents across an {@link Executor},
+ * while preserving the order of the supplied documents.
+ * <p>
+ * As all the documents are submitted upfront, the signing requests are effectively pipelined, which is particularly
+ * beneficial for remote/HSM-backed implementations.
+ */
+final class ProofBatch {
+
+    /**
+     * Self-explanatory.
+     */
+    @FunctionalInterface
+    interface ProofFunction {
+        String addProof(String unsecuredDocument) throws VcDataIntegrityCryptographicSuiteException;
+    }
+
+    private ProofBatch() {
+    }
+
+    /**
+     * Returns only once every submitted {@code proofFunction} call is over (even in case of failure),
+     * so that any resource shared by the calls may be released safely afterwards.
+     * As soon as any of the calls fails, all the calls yet to start are skipped.
+     *
+     * @param unsecuredDocuments to add a proof to
+     * @param executor           to run the {@code proofFunction} on
+     * @param proofFunction      to apply to each of the {@code unsecuredDocuments}
+     * @return the list of "secured" documents in the order of {@code unsecuredDocuments}
+     * @throws VcDataIntegrityCryptographicSuiteException if adding a proof to any of the documents fails
+     *                                                    (or if the {@code executor} rejects any of them)
+     */
+    static List<String> addProofs(List<String> unsecuredDocuments, Executor executor, ProofFunction proofFunction)
+            throws VcDataIntegrityCryptographicSuiteException {
+
+        var failure = new AtomicReference<Throwable>();
+        var futures = new ArrayList<CompletableFuture<String>>(unsecuredDocuments.size());
+        try {
+            for (var unsecuredDocument : unsecuredDocuments) {
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    if (failure.get() != null) {
+                        return null; // no point in carrying on
+                    }
+                    try {
+                        return proofFunction.addProof(unsecuredDocument);
+                    } catch (VcDataIntegrityCryptographicSuiteException | RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                        return null;
+                    }
+                }, executor));
+            }
+        } catch (RejectedExecutionException e) {
+            failure.compareAndSet(null, e);
+        }
+
+        var securedDocuments = new ArrayList<String>(futures.size());
+        for (var future : futures) {
+            try {
+                securedDocuments.add(future.join());
+            } catch (CompletionException | CancellationException e) {
+                failure.compareAndSet(null, e.getCause() != null ? e.getCause() : e);
+            }
+        }
+
+        var cause = failure.get();
+        if (cause instanceof VcDataIntegrityCryptographicSuiteException exc) {
+            throw exc;
+        } else if (cause != null) {
+            throw new VcDataIntegrityCryptographicSuiteException("Failed to add proof: " + cause.getMessage(), cause);
+        }
+
+        return securedDocuments;
+    }
+}
@@ -0,0 +1,52 @@
+package ch.admin.bj.swiyu.didtoolbox.vc_data_integrity;
+
+import ch.admin.bj.swiyu.didtoolbox.JCSHasher;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+/**
+ * The (immutable) set of <a href="https://www.w3.org/TR/vc-data-integrity/#proofs">data integrity proof</a> options
+ * shared by all the documents of a batch, as supplied to
+ * {@link VcDataIntegrityCryptographicSuite#addProofs(List, ProofOptions)}.
+ * <p>
+ * An instance is created via fluent builder, e.g.
+ * <pre>
+ * {@code
+ *     var proofOptions = ProofOptions.builder()
+ *             .proofPurpose(JCSHasher.PROOF_PURPOSE_ASSERTION_METHOD)
+ *             .dateTime(ZonedDateTime.now())
+ *             .build();
+ * }
+ * </pre>
+ *
+ * @since 2.0.1
+ */
+@Builder
+@Getter
+public class ProofOptions {
+
+    /**
+     * Self-explanatory. Optional.
+     */
+    private String challenge;
+
+    /**
+     * The reason the proof was created,
+     * as specified by <a href="https://www.w3.org/TR/vc-data-integrity/#proofs">Verifiable Credential Data Integrity 1.0</a>.
+     * <p>
+     * Default = {@link JCSHasher#PROOF_PURPOSE_ASSERTION_METHOD}
+     */
+    @Builder.Default
+    private String proofPurpose = JCSHasher.PROOF_PURPOSE_ASSERTION_METHOD;
+
+    /**
+     * Of the proof creation (in <a href="https://www.rfc-editor.org/rfc/rfc3339.html">RFC3339</a> format).
+     * <p>
+     * Default = the time of the {@link ProofOptions} object creation
+     */
+    @Builder.Default
+    private ZonedDateTime dateTime = ZonedDateTime.now();
+}
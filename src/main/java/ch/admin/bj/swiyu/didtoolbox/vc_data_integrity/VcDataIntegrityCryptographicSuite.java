@@ -3,6 +3,10 @@ package ch.admin.bj.swiyu.didtoolbox.vc_data_integrity;
 import ch.admin.bj.swiyu.didtoolbox.VerificationMethodKeyProvider;
 
 import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 /**
  * The interface describes a cryptographic suite in charge of creating and (optionally) verifying data integrity proofs, as specified by
@@ -60,4 +64,47 @@ public interface VcDataIntegrityCryptographicSuite extends VerificationMethodKey
                     String challenge,
                     String proofPurpose,
                     ZonedDateTime dateTime) throws VcDataIntegrityCryptographicSuiteException;
+
+    /**
+     * Batch variant of {@link #addProof(String, String, String, ZonedDateTime)}, sharing the very same {@link ProofOptions}
+     * across all the supplied documents. The documents are secured in parallel, each of them on a virtual thread of its own
+     * (as signing may well block e.g. on an HSM round trip, which is no fit for the {@code ForkJoinPool.commonPool()}).
+     *
+     * @param unsecuredDocuments to make "secure" in terms of adding a data integrity proof to each of them
+     * @param proofOptions       shared by all the supplied documents
+     * @return the list of "secured" documents, in the order of {@code unsecuredDocuments}
+     * @throws VcDataIntegrityCryptographicSuiteException if adding a proof to any of the documents fails
+     * @see #addProofs(List, ProofOptions, Executor)
+     * @since 2.0.1
+     */
+    default List<String> addProofs(List<String> unsecuredDocuments,
+                                   ProofOptions proofOptions) throws VcDataIntegrityCryptographicSuiteException {
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            return addProofs(unsecuredDocuments, proofOptions, executor);
+        }
+    }
+
+    /**
+     * Batch variant of {@link #addProof(String, String, String, ZonedDateTime)}, sharing the very same {@link ProofOptions}
+     * across all the supplied documents.
+     * <p>
+     * All the documents are submitted to the supplied {@link Executor} upfront, so that the signing requests are effectively
+     * pipelined (which is particularly beneficial for remote/HSM-backed implementations).
+     * Implementations are encouraged to override this method for the purpose of sharing the proof-option construction
+     * and key material across the batch.
+     *
+     * @param unsecuredDocuments to make "secure" in terms of adding a data integrity proof to each of them
+     * @param proofOptions       shared by all the supplied documents
+     * @param executor           to secure the documents on
+     * @return the list of "secured" documents, in the order of {@code unsecuredDocuments}
+     * @throws VcDataIntegrityCryptographicSuiteException if adding a proof to any of the documents fails
+     * @since 2.0.1
+     */
+    default List<String> addProofs(List<String> unsecuredDocuments,
+                                   ProofOptions proofOptions,
+                                   Executor executor) throws VcDataIntegrityCryptographicSuiteException {
+        Objects.requireNonNull(proofOptions);
+        return ProofBatch.addProofs(unsecuredDocuments, executor, unsecuredDocument -> this.addProof(
+                unsecuredDocument, proofOptions.getChallenge(), proofOptions.getProofPurpose(), proofOptions.getDateTime()));
+    }
 }
@@ -0,0 +1,189 @@
+package ch.admin.bj.swiyu.didtoolbox.vc_data_integrity;
+
+import ch.admin.bj.swiyu.didtoolbox.HashingService;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.ByteBuffer;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A bounded, size-aware and thread-safe cache of <b>successful</b> signature verifications, keyed by:
+ * <ul>
+ *     <li>the {@link Policy} the signature was verified with,</li>
+ *     <li>the verifying key (in multibase format),</li>
+ *     <li>the SHA-256 hash of the (canonical) signed bytes and</li>
+ *     <li>the signature bytes.</li>
+ * </ul>
+ * Since all the components are part of the key, a cache hit implies that the very same signature over the very same
+ * message has already been successfully verified against the very same key under the very same policy, so the (expensive)
+ * verification may be skipped. In particular, a lenient verification never satisfies a strict one.
+ * Failed verifications are never cached.
+ * <p>
+ * The cache is bounded by the (approximate) memory footprint of its entries, evicting the least-recently-used entries first.
+ * Hit/miss/eviction statistics are exposed via {@link #getStatistics()}.
+ * <p>
+ * A single instance is intended to be shared by any number of verifiers, e.g. by all the
+ * {@link EdDsaJcs2022DataIntegrityProofVerifier#EdDsaJcs2022DataIntegrityProofVerifier(int, VerificationResultCache)} instances
+ * of a process.
+ *
+ * @since 2.0.1
+ */
+public class VerificationResultCache {
+
+    /**
+     * The verification policy a (cached) verification result was produced by.
+     */
+    public enum Policy {
+        /**
+         * The regular verification, e.g. {@link EdDsaJcs2022VcDataIntegrityCryptographicSuite#verify(java.security.PublicKey, ByteBuffer, ByteBuffer)}
+         */
+        LENIENT,
+        /**
+         * The "strict" verification, i.e. {@link EdDsaJcs2022VcDataIntegrityCryptographicSuite#verifyStrict(byte[], byte[])}
+         */
+        STRICT
+    }
+
+    /**
+     * The default (approximate) maximum memory footprint of all cached entries: 16 MiB
+     */
+    public static final long DEFAULT_MAX_WEIGHT_IN_BYTES = 16L * 1024 * 1024;
+
+    /**
+     * An (approximate) per-entry overhead of the underlying map, in bytes
+     */
+    private static final int ENTRY_OVERHEAD_IN_BYTES = 96;
+
+    private final long maxWeightInBytes;
+    private final LinkedHashMap<String, Integer> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long weightInBytes;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Creates a cache bounded by {@link #DEFAULT_MAX_WEIGHT_IN_BYTES}.
+     */
+    public VerificationResultCache() {
+        this(DEFAULT_MAX_WEIGHT_IN_BYTES);
+    }
+
+    /**
+     * @param maxWeightInBytes the (approximate) maximum memory footprint of all cached entries. Must be positive.
+     */
+    public VerificationResultCache(long maxWeightInBytes) {
+        if (maxWeightInBytes < 1) {
+            throw new IllegalArgumentException("The maximum weight of a cache must be positive, but got " + maxWeightInBytes);
+        }
+        this.maxWeightInBytes = maxWeightInBytes;
+    }
+
+    /**
+     * Consults the cache and, in case of a miss, runs the supplied verification. A successful verification is cached.
+     *
+     * @param policy                the verification policy implemented by the supplied {@code verification}
+     * @param verifyingKeyMultibase the verifying key (in multibase format) the signature is verified against
+     * @param signedBytes           the (canonical) signed bytes. Its remaining bytes are NOT consumed.
+     * @param signature             the signature bytes
+     * @param verification          the actual verification to run in case of a cache miss
+     * @return {@code true} if the signature is (or has already been) verified successfully, otherwise {@code false}
+     */
+    public boolean verify(Policy policy, String verifyingKeyMultibase, ByteBuffer signedBytes, byte[] signature, BooleanSupplier verification) {
+
+        var key = buildKey(policy, verifyingKeyMultibase, HashingService.sha256(signedBytes.duplicate()), signature);
+
+        if (lookup(key)) {
+            return true;
+        }
+
+        if (!verification.getAsBoolean()) {
+            return false;
+        }
+
+        put(key);
+        return true;
+    }
+
+    private static String buildKey(Policy policy, String verifyingKeyMultibase, byte[] signedBytesDigest, byte[] signature) {
+        var hex = HexFormat.of();
+        return policy.name() + '|' + verifyingKeyMultibase + '|' + hex.formatHex(signedBytesDigest) + '|' + hex.formatHex(signature);
+    }
+
+    private synchronized boolean lookup(String key) {
+        if (entries.get(key) != null) { // also updates the access order
+            hits++;
+            return true;
+        }
+        misses++;
+        return false;
+    }
+
+    private synchronized void put(String key) {
+        int weight = 2 * key.length() + ENTRY_OVERHEAD_IN_BYTES; // UTF-16 chars
+        if (entries.put(key, weight) == null) {
+            weightInBytes += weight;
+        }
+
+        var iterator = entries.entrySet().iterator();
+        while (weightInBytes > maxWeightInBytes && iterator.hasNext()) {
+            var eldest = iterator.next();
+            weightInBytes -= eldest.getValue();
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Removes all the entries. The statistics are retained.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        weightInBytes = 0;
+    }
+
+    /**
+     * @return a snapshot of the current cache statistics
+     */
+    public synchronized Statistics getStatistics() {
+        return new Statistics(hits, misses, evictions, entries.size(), weightInBytes);
+    }
+
+    /**
+     * An immutable snapshot of {@link VerificationResultCache} statistics.
+     */
+    @Getter
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    public static class Statistics {
+        /**
+         * The number of verifications skipped thanks to the cache
+         */
+        private final long hitCount;
+        /**
+         * The number of verifications actually run
+         */
+        private final long missCount;
+        /**
+         * The number of entries evicted due to the size limit
+         */
+        private final long evictionCount;
+        /**
+         * The current number of entries
+         */
+        private final int size;
+        /**
+         * The current (approximate) memory footprint of all entries
+         */
+        private final long weightInBytes;
+
+        @Override
+        public String toString() {
+            return "hits=" + hitCount + ", misses=" + missCount + ", evictions=" + evictionCount
+                    + ", size=" + size + ", weightInBytes=" + weightInBytes;
+        }
+    }
+}
@@ -151,7 +151,7 @@ public class WebVerifiableHistoryDeactivator extends AbstractDidLogEntryBuilder
 
         // Create initial did doc with placeholder
         var didDoc = new JsonObject();
-        didDoc.addProperty("id", didLogMeta.getDidDoc().getId());
+        didDoc.addProperty("id", didLogMeta.getResolvedDidDoc().getId());
         // CAUTION "controller" property is omitted w.r.t.:
         // - https://jira.bit.admin.ch/browse/EIDSYS-352
         // - https://confluence.bit.admin.ch/display/EIDTEAM/DID+Doc+Conformity+Check
@@ -227,7 +227,7 @@ public class WebVerifiableHistoryDeactivator extends AbstractDidLogEntryBuilder
            "Makes each DID version’s Data Integrity proof apply across the JSON DID log entry object, as is typical with Data Integrity proofs.
            Previously, the Data Integrity proof was generated across the current DIDDoc version, with the versionId as the challenge."
          */
-        try (var did = new Did(super.didLogMeta.getDidDoc().getId())) {
+        try (var did = new Did(super.didLogMeta.getResolvedDidDoc().getId())) {
             var didLogEntry = this.getCryptoSuite().addProof(
                     didLogEntryWithoutProof.toString(), null, JCSHasher.PROOF_PURPOSE_ASSERTION_METHOD, zdt);
 
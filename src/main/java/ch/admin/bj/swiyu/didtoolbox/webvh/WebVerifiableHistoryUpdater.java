@@ -433,7 +433,7 @@ public class WebVerifiableHistoryUpdater extends AbstractDidLogEntryBuilder impl
         // Create initial did doc with placeholder
         var didDoc = new JsonObject();
 
-        didDoc.addProperty("id", super.didLogMeta.getDidDoc().getId());
+        didDoc.addProperty("id", super.didLogMeta.getResolvedDidDoc().getId());
         // CAUTION "controller" property is omitted w.r.t.:
         // - https://jira.bit.admin.ch/browse/EIDSYS-352
         // - https://confluence.bit.admin.ch/display/EIDTEAM/DID+Doc+Conformity+Check
@@ -450,9 +450,8 @@ public class WebVerifiableHistoryUpdater extends AbstractDidLogEntryBuilder impl
             JsonArray authentication = new JsonArray();
             for (var vm : this.allAuthentications()) {
 
-                authentication.add(this.didLogMeta.getDidDoc().getId() + "#" + vm.getIdFragment());
-                verificationMethod.add(buildVerificationMethodWithPublicKeyJwk(
-                        this.didLogMeta.getDidDoc().getId(), vm.getIdFragment(), vm.getVerificationMaterial().getPublicKeyJwk()));
+                authentication.add(this.didLogMeta.getResolvedDidDoc().getId() + "#" + vm.getIdFragment());
+                verificationMethod.add(buildVerificationMethodWithPublicKeyJwk(this.didLogMeta.getResolvedDidDoc().getId(), vm));
             }
 
             didDoc.add("authentication", authentication);
@@ -463,9 +462,8 @@ public class WebVerifiableHistoryUpdater extends AbstractDidLogEntryBuilder impl
             var assertionMethod = new JsonArray();
             for (var vm : this.allAssertionMethods()) {
 
-                assertionMethod.add(this.didLogMeta.getDidDoc().getId() + "#" + vm.getIdFragment());
-                verificationMethod.add(buildVerificationMethodWithPublicKeyJwk(
-                        this.didLogMeta.getDidDoc().getId(), vm.getIdFragment(), vm.getVerificationMaterial().getPublicKeyJwk()));
+                assertionMethod.add(this.didLogMeta.getResolvedDidDoc().getId() + "#" + vm.getIdFragment());
+                verificationMethod.add(buildVerificationMethodWithPublicKeyJwk(this.didLogMeta.getResolvedDidDoc().getId(), vm));
             }
 
             didDoc.add("assertionMethod", assertionMethod);
@@ -538,7 +536,7 @@ public class WebVerifiableHistoryUpdater extends AbstractDidLogEntryBuilder impl
            "Makes each DID version’s Data Integrity proof apply across the JSON DID log entry object, as is typical with Data Integrity proofs.
            Previously, the Data Integrity proof was generated across the current DIDDoc version, with the versionId as the challenge."
          */
-        try (var did = new Did(super.didLogMeta.getDidDoc().getId())) {
+        try (var did = new Did(super.didLogMeta.getResolvedDidDoc().getId())) {
             var didLogEntry = this.getCryptoSuite().addProof(
                     didLogEntryWithoutProof.toString(), null, JCSHasher.PROOF_PURPOSE_ASSERTION_METHOD, zdt);
             var newDidLog = new StringBuilder(resolvableDidLog.trim()).append(System.lineSeparator()).append(didLogEntry).toString();
@@ -68,6 +68,15 @@ class Base58Test {
         assertEquals(encoded, output, String.format("Expected %s, but got %s", bytesToHex(raw), output));
     }
 
+    @MethodSource("data")
+    @ParameterizedTest(name = "{index}: {0}, {2}")
+    void testEncodeMultibase(byte[] raw, String encoded) {
+        var copy = raw.clone();
+        String output = Base58.encodeMultibase(raw); // MUT
+        assertEquals('z' + encoded, output, String.format("Expected %s, but got %s", bytesToHex(raw), output));
+        assertArrayEquals(copy, raw); // intact
+    }
+
     @MethodSource("data")
     @ParameterizedTest(name = "{index}: {0}, {2}")
     void testDecode(byte[] raw, String encoded) {
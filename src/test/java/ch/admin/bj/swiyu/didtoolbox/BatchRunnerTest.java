@@ -0,0 +1,204 @@
+package ch.admin.bj.swiyu.didtoolbox;
+
+import ch.admin.bj.swiyu.didtoolbox.jcommander.BatchCommand;
+import ch.admin.bj.swiyu.didtoolbox.model.WebVerifiableHistoryDidLogMetaPeeker;
+import com.beust.jcommander.internal.DefaultConsole;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("PMD")
+class BatchRunnerTest extends AbstractUtilTestBase {
+
+    private static String toEntry(String id, String op, String... args) {
+        var array = new JsonArray();
+        for (var arg : args) {
+            array.add(arg);
+        }
+        var entry = new JsonObject();
+        entry.addProperty("id", id);
+        entry.addProperty("op", op);
+        entry.add("args", array);
+        return entry.toString();
+    }
+
+    private static Map<String, JsonObject> runBatch(int parallelism, String manifest, int expectedFailures) throws Exception {
+        var results = Collections.synchronizedList(new ArrayList<String>());
+        var failures = new BatchRunner(parallelism).run(new BufferedReader(new StringReader(manifest)), results::add); // MUT
+        assertEquals(expectedFailures, failures);
+
+        var resultsById = new HashMap<String, JsonObject>();
+        for (var result : results) {
+            var json = JsonParser.parseString(result).getAsJsonObject();
+            resultsById.put(json.has("id") ? json.get("id").getAsString() : "line-" + json.get("line").getAsInt(), json);
+        }
+        return resultsById;
+    }
+
+    private Path writeDidLog(Path tempDir) throws Exception {
+        var didLogFile = tempDir.resolve("did.jsonl");
+        Files.writeString(didLogFile, buildInitialWebVerifiableHistoryDidLogEntry(TEST_CRYPTO_SUITE));
+        return didLogFile;
+    }
+
+    private static String getKid(Path didLogFile) throws Exception {
+        var didLog = Files.readString(didLogFile);
+        return assertDoesNotThrow(() -> WebVerifiableHistoryDidLogMetaPeeker.peek(didLog)).getResolvedDidDoc().getId() + "#my-assert-key-01";
+    }
+
+    @Test
+    void testRunPoPOperations(@TempDir Path tempDir) throws Exception {
+        var didLogFile = writeDidLog(tempDir);
+        var kid = getKid(didLogFile);
+
+        var manifest = new StringBuilder();
+        for (int i = 0; i < 4; i++) {
+            manifest.append(toEntry("create-" + i, "pop-create",
+                    "--nonce", "my_nonce_" + i,
+                    "--did-log-file", didLogFile.toString(),
+                    "--kid", kid,
+                    "--signing-key-file", TEST_DATA_PATH_PREFIX + "assert-key-01")).append('\n');
+        }
+        var results = runBatch(4, manifest.toString(), 0);
+        assertEquals(4, results.size());
+
+        manifest = new StringBuilder();
+        for (int i = 0; i < 4; i++) {
+            var created = results.get("create-" + i);
+            assertEquals("pop-create", created.get("op").getAsString());
+            assertEquals(0, created.get("exitCode").getAsInt());
+            assertTrue(created.get("durationMicros").getAsLong() >= 0);
+            assertFalse(created.has("error"));
+
+            var jwt = created.get("output").getAsString().trim();
+            manifest.append(toEntry("verify-" + i, "pop-verify", "--nonce", "my_nonce_" + i, "--did-log-file", didLogFile.toString(), "--jwt", jwt)).append('\n');
+            // the very same JWT, yet another nonce, hence a failure
+            manifest.append(toEntry("verify-other-" + i, "verify-pop", "--nonce", "another_nonce", "--did-log-file", didLogFile.toString(), "--jwt", jwt)).append('\n');
+        }
+        results = runBatch(2, manifest.toString(), 4);
+        assertEquals(8, results.size());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(0, results.get("verify-" + i).get("exitCode").getAsInt());
+            assertFalse(results.get("verify-" + i).has("error"));
+            var failed = results.get("verify-other-" + i);
+            assertEquals(1, failed.get("exitCode").getAsInt());
+            assertTrue(failed.get("error").getAsString().startsWith("Provided JWT is invalid"));
+        }
+    }
+
+    @Test
+    void testRunInvalidEntries() throws Exception {
+        var manifest = String.join("\n",
+                "not a JSON",
+                "",
+                toEntry("serve", "serve"),
+                toEntry("batch", "batch"),
+                "{\"id\":\"no-op\"}",
+                "{\"id\":\"bad-args\",\"op\":\"create\",\"args\":\"--help\"}",
+                toEntry("missing-params", "update"));
+
+        var results = runBatch(3, manifest, 6);
+        assertEquals(6, results.size());
+        assertTrue(results.get("line-1").get("error").getAsString().startsWith("Malformed manifest entry"));
+        assertTrue(results.get("serve").get("error").getAsString().startsWith("Unsupported op"));
+        assertEquals(3, results.get("serve").get("line").getAsInt()); // blank lines are still counted
+        assertTrue(results.get("batch").get("error").getAsString().startsWith("Unsupported op"));
+        assertTrue(results.get("no-op").get("error").getAsString().startsWith("Unsupported op"));
+        assertTrue(results.get("bad-args").get("error").getAsString().startsWith("Malformed manifest entry"));
+        // reported by the command itself
+        assertEquals(1, results.get("missing-params").get("exitCode").getAsInt());
+        assertFalse(results.get("missing-params").get("error").getAsString().isEmpty());
+    }
+
+    @Test
+    void testRunCreateOperations() throws Exception {
+        var manifest = String.join("\n",
+                // would generate keys into the .didtoolbox directory shared by all the operations
+                toEntry("generated", "create", "-u", "https://example.com"),
+                toEntry("generated-signing-key", "create", "-u", "https://example.com",
+                        "-a", "assert-key-01," + TEST_DATA_PATH_PREFIX + "assert-key-01.pub",
+                        "-t", "auth-key-01," + TEST_DATA_PATH_PREFIX + "auth-key-01.pub"),
+                toEntry("external", "create", "-u", "https://example.com",
+                        "-s", TEST_DATA_PATH_PREFIX + "private.pem",
+                        "-v", TEST_DATA_PATH_PREFIX + "public.pem",
+                        "-a", "assert-key-01," + TEST_DATA_PATH_PREFIX + "assert-key-01.pub",
+                        "-t", "auth-key-01," + TEST_DATA_PATH_PREFIX + "auth-key-01.pub"));
+
+        var results = runBatch(2, manifest, 2);
+        assertEquals(3, results.size());
+        for (var id : List.of("generated", "generated-signing-key")) {
+            assertEquals(1, results.get(id).get("exitCode").getAsInt());
+            assertTrue(results.get(id).get("error").getAsString().startsWith("Generating keys into the .didtoolbox directory is not supported"));
+        }
+        assertEquals(0, results.get("external").get("exitCode").getAsInt(), results.get("external").toString());
+    }
+
+    @Test
+    void testResultSinkFailure() {
+        var manifest = new StringBuilder();
+        for (int i = 0; i < 8; i++) {
+            manifest.append(toEntry("no-op-" + i, "no-op")).append('\n');
+        }
+        var delivered = new AtomicInteger();
+        var exc = assertThrowsExactly(IOException.class, () -> new BatchRunner(2).run(new BufferedReader(new StringReader(manifest.toString())), result -> {
+            if (delivered.incrementAndGet() == 2) {
+                throw new UncheckedIOException(new IOException("No space left on device"));
+            }
+        })); // MUT
+        assertTrue(exc.getMessage().startsWith("Failed to deliver"));
+        assertEquals("No space left on device", exc.getCause().getMessage());
+        assertEquals(2, delivered.get()); // no further results delivered once failed
+    }
+
+    @Test
+    void testInvalidParallelism() {
+        assertThrowsExactly(IllegalArgumentException.class, () -> new BatchRunner(0)); // MUT
+    }
+
+    @Test
+    void testRunBatchCommand(@TempDir Path tempDir) throws Exception {
+        var didLogFile = writeDidLog(tempDir);
+        var manifestFile = tempDir.resolve("manifest.jsonl");
+        Files.writeString(manifestFile, String.join("\n",
+                toEntry("create", "pop-create",
+                        "--nonce", "my_nonce",
+                        "--did-log-file", didLogFile.toString(),
+                        "--kid", getKid(didLogFile),
+                        "--signing-key-file", TEST_DATA_PATH_PREFIX + "assert-key-01"),
+                toEntry("create", "create-pop"))); // missing mandatory parameters
+        var outputFile = tempDir.resolve("results.jsonl");
+
+        var cliOutput = new ByteArrayOutputStream();
+        var exitCode = new Main(new DefaultConsole(new PrintStream(cliOutput))).run(new String[]{
+                BatchCommand.COMMAND_NAME, "-m", manifestFile.toString(), "--parallelism", "2", "-o", outputFile.toString()}); // MUT
+        assertEquals(1, exitCode); // one of the operations failed
+        List<String> results = Files.readAllLines(outputFile);
+        assertEquals(2, results.size());
+        assertEquals(1, results.stream().filter(line -> JsonParser.parseString(line).getAsJsonObject().has("error")).count());
+
+        cliOutput.reset();
+        exitCode = new Main(new DefaultConsole(new PrintStream(cliOutput))).run(new String[]{
+                BatchCommand.COMMAND_NAME, "-m", manifestFile.toString(), "--parallelism", "0"}); // MUT
+        assertEquals(1, exitCode);
+        assertTrue(cliOutput.toString().contains("The parallelism must be positive"));
+    }
+}
@@ -0,0 +1,216 @@
+package ch.admin.bj.swiyu.didtoolbox;
+
+import ch.admin.bj.swiyu.didtoolbox.jcommander.CreateProofOfPossessionCommand;
+import ch.admin.bj.swiyu.didtoolbox.jcommander.VerifyProofOfPossessionCommand;
+import ch.admin.bj.swiyu.didtoolbox.model.WebVerifiableHistoryDidLogMetaPeeker;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("PMD")
+class DidToolboxHttpServerTest extends AbstractUtilTestBase {
+
+    DidToolboxHttpServer server;
+    HttpClient client;
+    String token;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        token = DidToolboxHttpServer.generateToken();
+        server = new DidToolboxHttpServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), token);
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+        client.close();
+    }
+
+    private HttpRequest.Builder newRequest(String path) {
+        return HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + path))
+                .header("Authorization", "Bearer " + token);
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws Exception {
+        var request = newRequest(path)
+                .method(method, body != null ? HttpRequest.BodyPublishers.ofString(body) : HttpRequest.BodyPublishers.noBody())
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private String sendRaw(String request) throws Exception {
+        try (var socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            socket.getOutputStream().write(request.getBytes(StandardCharsets.US_ASCII));
+            socket.getOutputStream().flush();
+            return new String(socket.getInputStream().readAllBytes(), StandardCharsets.US_ASCII);
+        }
+    }
+
+    private static String toBody(String... args) {
+        var array = new JsonArray();
+        for (var arg : args) {
+            array.add(arg);
+        }
+        var body = new JsonObject();
+        body.add("args", array);
+        return body.toString();
+    }
+
+    @Test
+    void testHealth() throws Exception {
+        var response = send("GET", DidToolboxHttpServer.HEALTH_PATH, null); // MUT
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue("Content-Type").orElseThrow().startsWith("application/json"));
+        assertEquals("UP", JsonParser.parseString(response.body()).getAsJsonObject().get("status").getAsString());
+
+        assertEquals(405, send("POST", DidToolboxHttpServer.HEALTH_PATH, "{}").statusCode()); // MUT
+    }
+
+    @Test
+    void testRunPoPCommands(@TempDir Path tempDir) throws Exception {
+        var didLog = buildInitialWebVerifiableHistoryDidLogEntry(TEST_CRYPTO_SUITE);
+        var did = assertDoesNotThrow(() -> WebVerifiableHistoryDidLogMetaPeeker.peek(didLog)).getResolvedDidDoc().getId();
+        var didLogFile = tempDir.resolve("did.jsonl");
+        Files.writeString(didLogFile, didLog);
+
+        var response = send("POST", DidToolboxHttpServer.COMMANDS_PATH + CreateProofOfPossessionCommand.COMMAND_NAME, toBody(
+                "--nonce", "my_nonce",
+                "--did-log-file", didLogFile.toString(),
+                "--kid", did + "#my-assert-key-01",
+                "--signing-key-file", "src/test/data/assert-key-01")); // MUT
+        assertEquals(200, response.statusCode(), response.body());
+        var json = JsonParser.parseString(response.body()).getAsJsonObject();
+        assertEquals(CreateProofOfPossessionCommand.COMMAND_NAME, json.get("command").getAsString());
+        assertEquals(0, json.get("exitCode").getAsInt());
+        assertTrue(json.get("durationMicros").getAsLong() >= 0);
+        var jwt = json.get("output").getAsString().trim();
+
+        // the requests are handled concurrently, each on a virtual thread of its own
+        var futures = new ArrayList<CompletableFuture<HttpResponse<String>>>();
+        for (int i = 0; i < 8; i++) {
+            var request = newRequest(DidToolboxHttpServer.COMMANDS_PATH + VerifyProofOfPossessionCommand.COMMAND_NAME)
+                    .POST(HttpRequest.BodyPublishers.ofString(toBody("--nonce", "my_nonce", "--did-log-file", didLogFile.toString(), "--jwt", jwt)))
+                    .build();
+            futures.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString())); // MUT
+        }
+        for (var future : futures) {
+            assertEquals(200, future.get().statusCode(), future.get().body());
+        }
+
+        // invalid, hence a failure
+        response = send("POST", DidToolboxHttpServer.COMMANDS_PATH + VerifyProofOfPossessionCommand.COMMAND_NAME,
+                toBody("--nonce", "another_nonce", "--did-log-file", didLogFile.toString(), "--jwt", jwt)); // MUT
+        assertEquals(422, response.statusCode());
+        assertEquals(1, JsonParser.parseString(response.body()).getAsJsonObject().get("exitCode").getAsInt());
+
+        var metrics = JsonParser.parseString(send("GET", DidToolboxHttpServer.METRICS_PATH, null).body()).getAsJsonObject() // MUT
+                .getAsJsonObject("commands");
+        assertEquals(1, metrics.getAsJsonObject(CreateProofOfPossessionCommand.COMMAND_NAME).get("count").getAsLong());
+        assertEquals(0, metrics.getAsJsonObject(CreateProofOfPossessionCommand.COMMAND_NAME).get("failures").getAsLong());
+        assertEquals(9, metrics.getAsJsonObject(VerifyProofOfPossessionCommand.COMMAND_NAME).get("count").getAsLong());
+        assertEquals(1, metrics.getAsJsonObject(VerifyProofOfPossessionCommand.COMMAND_NAME).get("failures").getAsLong());
+    }
+
+    @Test
+    void testRunCommandRejected() throws Exception {
+        for (var path : List.of("serve", "no-such-command", "")) {
+            assertEquals(404, send("POST", DidToolboxHttpServer.COMMANDS_PATH + path, toBody()).statusCode()); // MUT
+        }
+        var path = DidToolboxHttpServer.COMMANDS_PATH + VerifyProofOfPossessionCommand.COMMAND_NAME;
+        assertEquals(405, send("GET", path, null).statusCode()); // MUT
+        assertEquals(400, send("POST", path, "not a JSON").statusCode()); // MUT
+        assertEquals(400, send("POST", path, "{\"args\":\"--help\"}").statusCode()); // MUT
+        assertEquals(400, send("POST", path, "").statusCode()); // MUT
+
+        // missing mandatory parameters, as reported by the command itself
+        var response = send("POST", path, toBody()); // MUT
+        assertEquals(422, response.statusCode());
+        assertFalse(JsonParser.parseString(response.body()).getAsJsonObject().get("output").getAsString().isEmpty());
+    }
+
+    @Test
+    void testUnauthorized() throws Exception {
+        var path = DidToolboxHttpServer.COMMANDS_PATH + VerifyProofOfPossessionCommand.COMMAND_NAME;
+        for (var authorization : List.of("", "Bearer ", "Bearer " + DidToolboxHttpServer.generateToken(), "Basic " + token, token)) {
+            var builder = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + path)).POST(HttpRequest.BodyPublishers.ofString(toBody()));
+            if (!authorization.isEmpty()) {
+                builder.header("Authorization", authorization);
+            }
+            var response = client.send(builder.build(), HttpResponse.BodyHandlers.ofString()); // MUT
+            assertEquals(401, response.statusCode(), authorization);
+            assertEquals("Bearer", response.headers().firstValue("WWW-Authenticate").orElseThrow());
+        }
+
+        var response = client.send(HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + DidToolboxHttpServer.METRICS_PATH)).GET().build(),
+                HttpResponse.BodyHandlers.ofString()); // MUT
+        assertEquals(401, response.statusCode());
+
+        // no token required
+        response = client.send(HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + DidToolboxHttpServer.HEALTH_PATH)).GET().build(),
+                HttpResponse.BodyHandlers.ofString()); // MUT
+        assertEquals(200, response.statusCode());
+    }
+
+    @Test
+    void testBrowserRequestsRejected() throws Exception {
+        // even if featuring the token
+        var response = client.send(newRequest(DidToolboxHttpServer.METRICS_PATH).header("Origin", "http://127.0.0.1").GET().build(),
+                HttpResponse.BodyHandlers.ofString()); // MUT
+        assertEquals(403, response.statusCode());
+
+        // e.g. DNS rebinding, as the (restricted) Host header cannot be set via HttpClient
+        var authorization = "Authorization: Bearer " + token + "\r\n";
+        var rawResponse = sendRaw("GET " + DidToolboxHttpServer.METRICS_PATH + " HTTP/1.1\r\nHost: attacker.example:" + server.getPort() + "\r\n"
+                + authorization + "Connection: close\r\n\r\n"); // MUT
+        assertTrue(rawResponse.startsWith("HTTP/1.1 403"), rawResponse);
+
+        rawResponse = sendRaw("GET " + DidToolboxHttpServer.METRICS_PATH + " HTTP/1.1\r\nHost: localhost:" + server.getPort() + "\r\n"
+                + authorization + "Connection: close\r\n\r\n"); // MUT
+        assertTrue(rawResponse.startsWith("HTTP/1.1 200"), rawResponse);
+    }
+
+    @Test
+    void testTokenFile(@TempDir Path tempDir) throws Exception {
+        var tokenFile = tempDir.resolve("token");
+        var created = DidToolboxHttpServer.readOrCreateTokenFile(tokenFile); // MUT
+        assertFalse(created.isBlank());
+        if (Files.getFileAttributeView(tokenFile, PosixFileAttributeView.class) != null) {
+            assertEquals(EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE), Files.getPosixFilePermissions(tokenFile));
+        }
+        assertEquals(created, DidToolboxHttpServer.readOrCreateTokenFile(tokenFile)); // MUT
+
+        if (Files.getFileAttributeView(tokenFile, PosixFileAttributeView.class) != null) {
+            Files.setPosixFilePermissions(tokenFile, PosixFilePermissions.fromString("rw-r--r--"));
+            assertThrowsExactly(IOException.class, () -> DidToolboxHttpServer.readOrCreateTokenFile(tokenFile)); // MUT
+        }
+
+        assertThrowsExactly(IllegalArgumentException.class, () -> new DidToolboxHttpServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), " ")); // MUT
+    }
+}
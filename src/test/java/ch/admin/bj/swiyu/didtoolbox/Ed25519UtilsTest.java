@@ -1,5 +1,9 @@
 package ch.admin.bj.swiyu.didtoolbox;
 
+import org.bouncycastle.asn1.DEROctetString;
+import org.bouncycastle.asn1.edec.EdECObjectIdentifiers;
+import org.bouncycastle.asn1.pkcs.PrivateKeyInfo;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -9,8 +13,11 @@ import java.io.File;
 import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.EdECPrivateKey;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HexFormat;
@@ -143,4 +150,41 @@ class Ed25519UtilsTest extends AbstractUtilTestBase {
             assertEquals(48, actual.length());
         });
     }
+
+    @Test
+    void testToRawPrivateKey() throws Exception {
+        var generator = KeyPairGenerator.getInstance("Ed25519");
+        var keyPair = generator.generateKeyPair();
+        var expected = ((EdECPrivateKey) keyPair.getPrivate()).getBytes().orElseThrow();
+
+        assertArrayEquals(expected, Ed25519Utils.toRawPrivateKey(keyPair.getPrivate())); // MUT
+
+        // the same key, yet delivering no raw form by itself, hence its PKCS #8 encoding (v2, featuring the public key) must be decoded
+        var pkcs8v2 = new PrivateKeyInfo(
+                new AlgorithmIdentifier(EdECObjectIdentifiers.id_Ed25519),
+                new DEROctetString(expected),
+                null,
+                Arrays.copyOfRange(keyPair.getPublic().getEncoded(), 12, 44)).getEncoded(); // the SubjectPublicKeyInfo ends with the raw public key
+        PrivateKey opaqueKey = new PrivateKey() {
+            @Override
+            public String getAlgorithm() {
+                return "Ed25519";
+            }
+
+            @Override
+            public String getFormat() {
+                return "PKCS#8";
+            }
+
+            @Override
+            public byte[] getEncoded() {
+                return pkcs8v2.clone();
+            }
+        };
+        assertArrayEquals(expected, Ed25519Utils.toRawPrivateKey(opaqueKey)); // MUT
+        assertEquals(Ed25519Utils.toMultibase(keyPair.getPrivate()), Ed25519Utils.toMultibase(opaqueKey)); // MUT
+
+        var ecPrivateKey = KeyPairGenerator.getInstance("EC").generateKeyPair().getPrivate();
+        assertThrowsExactly(IllegalArgumentException.class, () -> Ed25519Utils.toRawPrivateKey(ecPrivateKey)); // MUT
+    }
 }
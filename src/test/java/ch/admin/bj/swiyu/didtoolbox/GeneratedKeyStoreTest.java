@@ -0,0 +1,142 @@
+package ch.admin.bj.swiyu.didtoolbox;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSObject;
+import com.nimbusds.jose.Payload;
+import com.nimbusds.jose.crypto.ECDSASigner;
+import com.nimbusds.jose.crypto.ECDSAVerifier;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.Signature;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings({"PMD"})
+class GeneratedKeyStoreTest {
+
+    private static final char[] PASSWORD = "changeit".toCharArray();
+
+    @Test
+    void testWriteAndLoad() throws Exception {
+        var file = Files.createTempDirectory("didtoolbox").resolve("keys.p12");
+        file.toFile().deleteOnExit();
+
+        var keyStore = GeneratedKeyStore.create(PASSWORD);
+        var dids = new String[]{"did:webvh:QmSCID1:example.com", "did:webvh:QmSCID2:example.com"};
+        for (var did : dids) {
+            keyStore.add(did, "auth-key-01", KeyPool.shared().take(KeyPool.Algorithm.EC_P256)); // MUT
+            keyStore.add(did, "id_ed25519", KeyPool.shared().take(KeyPool.Algorithm.ED25519)); // MUT
+        }
+        assertEquals(4, keyStore.size());
+        assertThrowsExactly(IllegalArgumentException.class, () ->
+                keyStore.add(dids[0], "auth-key-01", KeyPool.shared().take(KeyPool.Algorithm.EC_P256))); // MUT
+
+        keyStore.write(file); // MUT
+        try (var siblings = Files.list(file.getParent())) {
+            assertEquals(1, siblings.count()); // no temporary file left behind
+        }
+
+        var loaded = GeneratedKeyStore.load(file, PASSWORD); // MUT
+        assertEquals(4, loaded.size());
+        for (var did : dids) {
+            for (var keyId : new String[]{"auth-key-01", "id_ed25519"}) {
+                var expected = keyStore.getKeyPair(did, keyId);
+                var actual = loaded.getKeyPair(did, keyId); // MUT
+                assertNotNull(actual);
+                assertArrayEquals(expected.getPublic().getEncoded(), actual.getPublic().getEncoded());
+                assertArrayEquals(expected.getPrivate().getEncoded(), actual.getPrivate().getEncoded());
+            }
+
+            // the EC key pair is still operational
+            var ecKeyPair = loaded.getKeyPair(did, "auth-key-01");
+            var jws = new JWSObject(new JWSHeader.Builder(JWSAlgorithm.ES256).build(), new Payload("hello world"));
+            jws.sign(new ECDSASigner((ECPrivateKey) ecKeyPair.getPrivate()));
+            assertTrue(jws.verify(new ECDSAVerifier((ECPublicKey) ecKeyPair.getPublic())));
+
+            // the Ed25519 one as well
+            var edKeyPair = loaded.getKeyPair(did, "id_ed25519");
+            var signer = Signature.getInstance("Ed25519");
+            signer.initSign(edKeyPair.getPrivate());
+            signer.update(new byte[]{1, 2, 3});
+            var signature = signer.sign();
+            var verifier = Signature.getInstance("Ed25519");
+            verifier.initVerify(edKeyPair.getPublic());
+            verifier.update(new byte[]{1, 2, 3});
+            assertTrue(verifier.verify(signature));
+        }
+        assertNull(loaded.getKeyPair(dids[0], "no-such-key"));
+
+        // append and rewrite
+        loaded.add("did:webvh:QmSCID3:example.com", "auth-key-01", KeyPool.shared().take(KeyPool.Algorithm.EC_P256));
+        loaded.write(file); // MUT
+        assertEquals(5, GeneratedKeyStore.load(file, PASSWORD).size());
+
+        assertThrows(IOException.class, () -> GeneratedKeyStore.load(file, "wrong".toCharArray())); // MUT
+    }
+
+    @Test
+    void testAliasesRetainCase() throws Exception {
+        var file = Files.createTempDirectory("didtoolbox").resolve("keys.p12");
+        file.toFile().deleteOnExit();
+
+        // the SCID is base58-encoded, hence case-sensitive, whereas the key ID features characters to be escaped in a CN
+        var did = "did:webvh:QmAbCdEf:example.com%3A8443:path";
+        var keyStore = GeneratedKeyStore.create(PASSWORD);
+        keyStore.add(did, "Key,01+\"x\"", KeyPool.shared().take(KeyPool.Algorithm.EC_P256));
+        keyStore.add(did, "id_ed25519", KeyPool.shared().take(KeyPool.Algorithm.ED25519));
+        keyStore.write(file);
+
+        var loaded = GeneratedKeyStore.load(file, PASSWORD);
+        assertEquals(Set.of(GeneratedKeyStore.toAlias(did, "Key,01+\"x\""), GeneratedKeyStore.toAlias(did, "id_ed25519")),
+                loaded.getAliases()); // MUT
+        assertNotNull(loaded.getKeyPair(did, "id_ed25519"));
+    }
+
+    @Test
+    void testAddAllConcurrently() throws Exception {
+        var file = Files.createTempDirectory("didtoolbox").resolve("keys.p12");
+        file.toFile().deleteOnExit();
+
+        var count = 32;
+        var tasks = new ArrayList<Callable<Void>>();
+        for (int i = 0; i < count; i++) {
+            var did = "did:webvh:QmSCID" + i + ":example.com";
+            tasks.add(() -> {
+                GeneratedKeyStore.addAll(file, PASSWORD, did, Map.of( // MUT
+                        "auth-key-01", KeyPool.shared().take(KeyPool.Algorithm.EC_P256),
+                        "id_ed25519", KeyPool.shared().take(KeyPool.Algorithm.ED25519)));
+                return null;
+            });
+        }
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (var future : executor.invokeAll(tasks)) {
+                assertDoesNotThrow(() -> future.get());
+            }
+        }
+
+        // none of the additions got lost
+        assertEquals(2 * count, GeneratedKeyStore.load(file, PASSWORD).size());
+        try (var siblings = Files.list(file.getParent())) {
+            assertEquals(1, siblings.count());
+        }
+
+        // an alias in use already is rejected, without adding any of the other key pairs
+        assertThrowsExactly(IllegalArgumentException.class, () -> GeneratedKeyStore.addAll(file, PASSWORD, "did:webvh:QmSCID0:example.com", Map.of(
+                "assert-key-01", KeyPool.shared().take(KeyPool.Algorithm.EC_P256),
+                "auth-key-01", KeyPool.shared().take(KeyPool.Algorithm.EC_P256)))); // MUT
+        // a wrong password is reported as such
+        assertThrows(IOException.class, () -> GeneratedKeyStore.addAll(file, "wrong".toCharArray(), "did:webvh:QmSCIDX:example.com",
+                Map.of("auth-key-01", KeyPool.shared().take(KeyPool.Algorithm.EC_P256)))); // MUT
+        assertEquals(2 * count, GeneratedKeyStore.load(file, PASSWORD).size());
+    }
+}
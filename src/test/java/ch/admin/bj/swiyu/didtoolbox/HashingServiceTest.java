@@ -0,0 +1,116 @@
+package ch.admin.bj.swiyu.didtoolbox;
+
+import ch.admin.eid.did_sidekicks.DidSidekicksException;
+import ch.admin.eid.did_sidekicks.JcsSha256Hasher;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings({"PMD"})
+class HashingServiceTest {
+
+    private static List<String> buildJsons(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> "{\"b\":" + i + ",\"a\":\"value-" + i + "\"}")
+                .toList();
+    }
+
+    @Test
+    void testMultihash() {
+        // As suggested by https://multiformats.io/multihash/#sha2-256---256-bits-aka-sha256
+        assertEquals("122041dd7b6443542e75701aa98a0c235951a28a0d851b11564d20022ab11d2589a8",
+                HexFormat.of().formatHex(HashingService.multihash("Merkle–Damgård"))); // MUT
+    }
+
+    @Test
+    void testMultihashAll() {
+        var inputs = buildJsons(1000);
+
+        var actual = HashingService.multihashAll(inputs); // MUT
+
+        assertEquals(inputs.size(), actual.size());
+        for (int i = 0; i < inputs.size(); i++) {
+            // the order must be preserved
+            assertArrayEquals(JCSHasher.multihash(inputs.get(i)), actual.get(i));
+        }
+    }
+
+    @Test
+    void testBase58btcEncodeMultihashAll() {
+        var inputs = buildJsons(500);
+
+        var actual = assertDoesNotThrow(() -> HashingService.base58btcEncodeMultihashAll(inputs)); // MUT
+
+        assertEquals(inputs.size(), actual.size());
+        try (var hasher = JcsSha256Hasher.Companion.build()) {
+            for (int i = 0; i < inputs.size(); i++) {
+                assertEquals(hasher.base58btcEncodeMultihash(inputs.get(i)), actual.get(i));
+            }
+        } catch (DidSidekicksException e) {
+            fail(e);
+        }
+
+        assertThrowsExactly(DidSidekicksException.class, () -> HashingService.base58btcEncodeMultihashAll(List.of("{}", "not a json")));
+    }
+
+    @Test
+    void testConcurrentHashing() {
+        var inputs = buildJsons(100);
+        var expected = inputs.stream().map(HashingService::multihash).toList();
+
+        var tasks = new ArrayList<Callable<Boolean>>();
+        for (int t = 0; t < 16; t++) {
+            tasks.add(() -> {
+                for (int i = 0; i < inputs.size(); i++) {
+                    if (!HexFormat.of().formatHex(expected.get(i)).equals(HexFormat.of().formatHex(HashingService.multihash(inputs.get(i))))
+                            || !HashingService.encodeHex(inputs.get(i)).equals(HashingService.encodeHex(inputs.get(i)))) {
+                        return false;
+                    }
+                }
+                return true;
+            });
+        }
+
+        try (var executor = Executors.newFixedThreadPool(8)) {
+            for (var future : executor.invokeAll(tasks)) {
+                assertTrue(future.get());
+            }
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+    @Test
+    void testHashingOnVirtualThreads() {
+        var inputs = buildJsons(50);
+        var expected = inputs.stream().map(json -> assertDoesNotThrow(() -> HashingService.encodeHex(json))).toList();
+
+        var tasks = new ArrayList<Callable<Boolean>>();
+        for (int t = 0; t < 256; t++) {
+            tasks.add(() -> {
+                for (int i = 0; i < inputs.size(); i++) {
+                    if (!expected.get(i).equals(HashingService.encodeHex(inputs.get(i)))) {
+                        return false;
+                    }
+                }
+                return true;
+            });
+        }
+
+        // each task runs on a thread of its own, while the native hashers are borrowed from a bounded pool
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (var future : executor.invokeAll(tasks)) { // MUT
+                assertTrue(future.get());
+            }
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+}
@@ -17,6 +17,7 @@ import java.time.ZonedDateTime;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HexFormat;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -147,6 +148,19 @@ class JCSHasherTest {
         assertEquals("QmejLZab9j1DuA8fD5593XXGS2WXUgKsh3jYGY8ctaSdyC", NextKeyHashesDidMethodParameter.of("z6MkiwKu88uSsuNP5tYVvcaQSc7ZVpe1248zefnQXtbeHcxE").getNextKeyHash());
     }
 
+    @Test
+    public void testNextKeyHashValueSemantics() {
+
+        var param = NextKeyHashesDidMethodParameter.of("z82Lkvgj5NKYhoFh4hWzax9WicQaVDphN8MMzR3JZhontVfHaoGd9JbC4QRpDvmjQH3BLeQ");
+        var precomputed = NextKeyHashesDidMethodParameter.ofNextKeyHash("QmcbM5bppyT4yyaL35TQQJ2XdSrSNAhH5t6f4ZcuyR4VSv");
+
+        assertEquals(precomputed, param);
+        assertEquals(param, precomputed);
+        assertEquals(precomputed.hashCode(), param.hashCode());
+        assertTrue(Set.of(precomputed).contains(param));
+        assertNotEquals(NextKeyHashesDidMethodParameter.of("z6MkgfFvvWA7sw8WkNWyK3y74kwNVvWc7Qrs5tWnsnqMfLD3"), param);
+    }
+
     @Test
     public void testBuildEntryHash() { // according to https://identity.foundation/didwebvh/v0.3/#didtdw-example
 
@@ -13,11 +13,13 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URL;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.spec.InvalidKeySpecException;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 
 /**
@@ -82,6 +84,42 @@ class JCommanderRunnerTest extends AbstractUtilTestBase {
         //System.out.println(output);
     }
 
+    @Test
+    void testRunCreateDidLogCommandWithKeyStoreOutput() throws IOException {
+
+        var keyStoreFile = Files.createTempDirectory("didtoolbox").resolve("keys.p12");
+        keyStoreFile.toFile().deleteOnExit();
+
+        for (int i = 0; i < 2; i++) {
+            var command = new CreateDidLogCommand();
+            command.keyStoreOutputFile = keyStoreFile.toFile();
+            command.keyStoreOutputPassword = "changeit";
+
+            assertDoesNotThrow(() -> {
+
+                command.identifierRegistryUrl = URL.of(new URI(TEST_DID_URL), null);
+
+                new JCommanderRunner(jCommanderBuilder
+                        .addCommand(CreateDidLogCommand.COMMAND_NAME, command)
+                        .build(),
+                        CreateDidLogCommand.COMMAND_NAME
+                ).runCreateDidLogCommand(command); // MUT
+            });
+        }
+
+        assertFalse(output.isEmpty());
+
+        // the keys of both DIDs end up in the very same key store
+        var keyStore = GeneratedKeyStore.load(keyStoreFile, "changeit".toCharArray());
+        assertEquals(6, keyStore.size());
+        assertEquals(2, keyStore.getAliases().stream().filter(alias -> alias.endsWith("#id_ed25519")).count());
+        try (var siblings = Files.list(keyStoreFile.getParent())) {
+            // no (uniquely named) temporary file left behind
+            assertTrue(siblings.map(sibling -> sibling.getFileName().toString())
+                    .noneMatch(name -> name.startsWith(keyStoreFile.getFileName() + ".") && name.endsWith(".tmp")));
+        }
+    }
+
     @Test
     void testRunCreateDidLogCommandWithKeyPrerotation() {
 
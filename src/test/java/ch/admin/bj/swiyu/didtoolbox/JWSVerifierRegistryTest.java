@@ -0,0 +1,126 @@
+package ch.admin.bj.swiyu.didtoolbox;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.util.Base64URL;
+import com.nimbusds.jwt.SignedJWT;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("PMD")
+class JWSVerifierRegistryTest extends AbstractUtilTestBase {
+
+    private static final Duration ONE_DAY_LONG = Duration.ofDays(1);
+
+    private static OctetKeyPair toOctetKeyPair(String publicKeyMultibase) throws Exception {
+        var encoded = Ed25519Utils.toPublicKey(publicKeyMultibase).getEncoded(); // X.509, i.e. the raw key comes last
+        var raw = Arrays.copyOfRange(encoded, encoded.length - 32, encoded.length);
+        return new OctetKeyPair.Builder(Curve.Ed25519, Base64URL.encode(raw)).build();
+    }
+
+    private static JWK toECKey() throws Exception {
+        return JWK.parse(JwkUtils.loadECPublicJWKasJSON(Path.of(TEST_DATA_PATH_PREFIX + "assert-key-01.pub"), "my-assert-key-01"));
+    }
+
+    @Test
+    void testNewVerifier() throws Exception {
+        assertInstanceOf(Ed25519JWSVerifier.class, JWSVerifierRegistry.newVerifier(toOctetKeyPair(TEST_PUBLIC_KEY_MULTIBASE))); // MUT
+        assertInstanceOf(com.nimbusds.jose.crypto.ECDSAVerifier.class, JWSVerifierRegistry.newVerifier(toECKey())); // MUT
+
+        // unsupported
+        var p384 = new ECKeyGenerator(Curve.P_384).generate().toPublicJWK();
+        assertThrowsExactly(JOSEException.class, () -> JWSVerifierRegistry.newVerifier(p384)); // MUT
+        var x25519 = new OctetKeyPair.Builder(Curve.X25519, Base64URL.encode(new byte[32])).build();
+        assertThrowsExactly(JOSEException.class, () -> JWSVerifierRegistry.newVerifier(x25519)); // MUT
+        var oct = new OctetSequenceKey.Builder(new byte[32]).build();
+        assertThrowsExactly(JOSEException.class, () -> JWSVerifierRegistry.newVerifier(oct)); // MUT
+    }
+
+    @Test
+    void testVerifyEd25519() throws Exception {
+        var proof = new ProofOfPossessionCreator(TEST_POP_JWS_SIGNER).create("my_nonce", ONE_DAY_LONG);
+
+        var verifier = JWSVerifierRegistry.newVerifier(toOctetKeyPair(TEST_PUBLIC_KEY_MULTIBASE));
+        assertTrue(proof.verify(verifier)); // MUT
+
+        // signed by another key
+        var another = new ProofOfPossessionCreator(TEST_POP_JWS_SIGNER_ANOTHER).create("my_nonce", ONE_DAY_LONG);
+        assertFalse(SignedJWT.parse(another.serialize()).verify(verifier)); // MUT
+
+        // ES256-signed
+        var es256 = new ProofOfPossessionCreator(new EcP256ProofOfPossessionJWSSigner("did:webvh:SCID:example.com#key-1")).create("my_nonce", ONE_DAY_LONG);
+        assertThrowsExactly(JOSEException.class, () -> SignedJWT.parse(es256.serialize()).verify(verifier)); // MUT
+    }
+
+    @Test
+    void testVerifyES256() throws Exception {
+        var signer = new EcP256ProofOfPossessionJWSSigner(Path.of(TEST_DATA_PATH_PREFIX + "assert-key-01"), "did:webvh:SCID:example.com#my-assert-key-01");
+        var proof = SignedJWT.parse(new ProofOfPossessionCreator(signer).create("my_nonce", ONE_DAY_LONG).serialize());
+
+        assertTrue(proof.verify(JWSVerifierRegistry.newVerifier(toECKey()))); // MUT
+        // Ed25519 key
+        assertThrowsExactly(JOSEException.class, () -> proof.verify(JWSVerifierRegistry.newVerifier(toOctetKeyPair(TEST_PUBLIC_KEY_MULTIBASE)))); // MUT
+    }
+
+    @Test
+    void testRegister() throws Exception {
+        var registry = new JWSVerifierRegistry();
+        assertNull(registry.get("key-1"));
+
+        var verifier = registry.register("key-1", toOctetKeyPair(TEST_PUBLIC_KEY_MULTIBASE)); // MUT
+        assertSame(verifier, registry.get("key-1"));
+        // already registered
+        assertSame(verifier, registry.register("key-1", toECKey())); // MUT
+        assertEquals(1, registry.size());
+
+        assertInstanceOf(com.nimbusds.jose.crypto.ECDSAVerifier.class, registry.register("key-2", toECKey())); // MUT
+        assertEquals(2, registry.size());
+    }
+
+    /**
+     * A (rough) throughput benchmark of PoP JWT signature verification, per algorithm, using the cached verifiers.
+     * Excluded from regular builds, see the {@code benchmark} Maven profile.
+     */
+    @Test
+    @Tag("benchmark")
+    void benchmarkVerify(TestReporter reporter) throws Exception {
+        var ed25519Proof = SignedJWT.parse(new ProofOfPossessionCreator(TEST_POP_JWS_SIGNER).create("my_nonce", ONE_DAY_LONG).serialize());
+        var ed25519Verifier = JWSVerifierRegistry.newVerifier(toOctetKeyPair(TEST_PUBLIC_KEY_MULTIBASE));
+
+        var es256Signer = new EcP256ProofOfPossessionJWSSigner(Path.of(TEST_DATA_PATH_PREFIX + "assert-key-01"), "did:webvh:SCID:example.com#my-assert-key-01");
+        var es256Proof = SignedJWT.parse(new ProofOfPossessionCreator(es256Signer).create("my_nonce", ONE_DAY_LONG).serialize());
+        var es256Verifier = JWSVerifierRegistry.newVerifier(toECKey());
+
+        var ed25519OpsPerSec = measure(ed25519Proof, ed25519Verifier);
+        var es256OpsPerSec = measure(es256Proof, es256Verifier);
+
+        reporter.publishEntry("PoP verification (ops/s)", String.format("Ed25519 %d, ES256 %d", ed25519OpsPerSec, es256OpsPerSec));
+    }
+
+    private static long measure(SignedJWT proof, JWSVerifier verifier) throws Exception {
+        var iterations = 2_000;
+
+        // warm-up
+        for (int i = 0; i < iterations; i++) {
+            assertTrue(verifier.verify(proof.getHeader(), proof.getSigningInput(), proof.getSignature()));
+        }
+
+        var start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            verifier.verify(proof.getHeader(), proof.getSigningInput(), proof.getSignature()); // MUT
+        }
+        return iterations * 1_000_000_000L / Math.max(1, System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,169 @@
+package ch.admin.bj.swiyu.didtoolbox;
+
+import ch.admin.eid.did_sidekicks.DidSidekicksException;
+import ch.admin.eid.did_sidekicks.JcsSha256Hasher;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings({"PMD"})
+class JcsCanonicalizerTest extends AbstractUtilTestBase {
+
+    final private static JcsSha256Hasher hasher = JcsSha256Hasher.Companion.build();
+
+    @AfterAll
+    static void tearDown() {
+        hasher.close();
+    }
+
+    // As suggested by https://www.rfc-editor.org/rfc/rfc8785#appendix-B
+    private static Collection<Object[]> ieee754Expected() {
+        return Arrays.asList(new Object[][]{
+                {0x0000000000000000L, "0"},
+                {0x8000000000000000L, "0"},
+                {0x0000000000000001L, "5e-324"},
+                {0x8000000000000001L, "-5e-324"},
+                {0x7fefffffffffffffL, "1.7976931348623157e+308"},
+                {0xffefffffffffffffL, "-1.7976931348623157e+308"},
+                {0x4340000000000000L, "9007199254740992"},
+                {0xc340000000000000L, "-9007199254740992"},
+                {0x4430000000000000L, "295147905179352830000"},
+                {0x44b52d02c7e14af5L, "9.999999999999997e+22"},
+                {0x44b52d02c7e14af6L, "1e+23"},
+                {0x44b52d02c7e14af7L, "1.0000000000000003e+23"},
+                {0x444b1ae4d6e2ef4eL, "999999999999999700000"},
+                {0x444b1ae4d6e2ef4fL, "999999999999999900000"},
+                {0x444b1ae4d6e2ef50L, "1e+21"},
+                {0x3eb0c6f7a0b5ed8cL, "0.000001"},
+                {0x3eb0c6f7a0b5ed8dL, "0.0000010000000000000002"},
+                {0x3eb0c6f7a0b5ed8bL, "9.999999999999997e-7"},
+                {0x41b3de4355555553L, "333333333.3333332"},
+                {0x41b3de4355555554L, "333333333.33333325"},
+                {0x41b3de4355555555L, "333333333.3333333"},
+        });
+    }
+
+    private static Collection<String> jsons() {
+        return Arrays.asList(
+                // As suggested by https://www.rfc-editor.org/rfc/rfc8785#section-3.2.2
+                """
+                        {
+                          "numbers": [333333333.33333329, 1E30, 4.50, 2e-3, 0.000000000000000000000000001],
+                          "string": "\\u20ac$\\u000F\\u000aA'\\u0042\\u0022\\u005c\\\\\\"\\/",
+                          "literals": [null, true, false]
+                        }""",
+                // As suggested by https://www.rfc-editor.org/rfc/rfc8785#section-3.2.3
+                """
+                        {
+                          "\\u20ac": "Euro Sign",
+                          "\\r": "Carriage Return",
+                          "\\ufb33": "Hebrew Letter Dalet With Dagesh",
+                          "1": "One",
+                          "\\ud83d\\ude00": "Emoji: Grinning Face",
+                          "\\u0080": "Control",
+                          "\\u00f6": "Latin Small Letter O With Diaeresis"
+                        }""",
+                "{\"a\":{\"z\":[1,2,{\"y\":\"\\t\\b\\f\\u0001\"}],\"b\":-0.5},\"\":[]}",
+                "[]",
+                "{}",
+                "\"Merkle–Damgård\"",
+                buildInitialWebVerifiableHistoryDidLogEntry(TEST_CRYPTO_SUITE),
+                buildInitialTdwDidLogEntry(TEST_CRYPTO_SUITE),
+                buildInitialWebVerifiableHistoryDidLogEntryWithKeyPrerotation(Set.of(TEST_KEY_FILES))
+        );
+    }
+
+    @ParameterizedTest(name = "For IEEE-754 value {0}")
+    @MethodSource("ieee754Expected")
+    void testFormatNumber(long ieee754, String expected) {
+        assertEquals(expected, JcsCanonicalizer.formatNumber(Double.longBitsToDouble(ieee754))); // MUT
+    }
+
+    @Test
+    void testFormatNumberIllegal() {
+        assertThrowsExactly(IllegalArgumentException.class, () -> JcsCanonicalizer.formatNumber(Double.NaN));
+        assertThrowsExactly(IllegalArgumentException.class, () -> JcsCanonicalizer.formatNumber(Double.POSITIVE_INFINITY));
+    }
+
+    @Test
+    void testCanonicalize() {
+        // As suggested by https://www.rfc-editor.org/rfc/rfc8785#section-3.2.4
+        var json = JsonParser.parseString("""
+                {
+                  "numbers": [333333333.33333329, 1E30, 4.50, 2e-3, 0.000000000000000000000000001],
+                  "string": "\\u20ac$\\u000F\\u000aA'\\u0042\\u0022\\u005c\\\\\\"\\/",
+                  "literals": [null, true, false]
+                }""");
+
+        assertEquals("{\"literals\":[null,true,false],\"numbers\":[333333333.3333333,1e+30,4.5,0.002,1e-27],\"string\":\"€$\\u000f\\nA'B\\\"\\\\\\\\\\\"/\"}",
+                new String(JcsCanonicalizer.canonicalize(json), StandardCharsets.UTF_8)); // MUT
+    }
+
+    @ParameterizedTest
+    @MethodSource("jsons")
+    void testConformanceWithNativeHasher(String json) {
+        var jsonElement = JsonParser.parseString(json);
+        try {
+            assertEquals(hasher.encodeHex(json), HashingService.encodeHex(jsonElement)); // MUT
+            assertEquals(hasher.base58btcEncodeMultihash(json), HashingService.base58btcEncodeMultihash(jsonElement)); // MUT
+        } catch (DidSidekicksException e) {
+            fail(e);
+        }
+    }
+
+    @Test
+    void testConformanceWithNativeHasherOnDidLog() {
+        var didLog = buildWebVhDidLog(TEST_CRYPTO_SUITE);
+        for (var line : didLog.split("\\R")) {
+            try {
+                assertEquals(hasher.encodeHex(line), HexFormat.of().formatHex(JcsCanonicalizer.sha256(JsonParser.parseString(line)))); // MUT
+            } catch (DidSidekicksException e) {
+                fail(e);
+            }
+        }
+    }
+
+    @Test
+    void testProofHashDataConformanceWithNativeHasher() {
+        var proof = JsonParser.parseString("{\"type\":\"DataIntegrityProof\",\"cryptosuite\":\"eddsa-jcs-2022\",\"proofPurpose\":\"assertionMethod\"}");
+        for (var line : buildWebVhDidLog(TEST_CRYPTO_SUITE).split("\\R")) {
+            var document = JsonParser.parseString(line);
+            try {
+                assertEquals(hasher.encodeHex(proof.toString()) + hasher.encodeHex(line),
+                        HexFormat.of().formatHex(JcsCanonicalizer.proofHashData(proof, document))); // MUT
+            } catch (DidSidekicksException e) {
+                fail(e);
+            }
+        }
+    }
+
+    @Test
+    void testCanonicalizeLargeDocumentReusesNoGrownBuffer() {
+        var large = new StringBuilder("[");
+        for (int i = 0; i < 5000; i++) {
+            large.append(i > 0 ? "," : "").append("\"value-").append(i).append('"');
+        }
+        var json = JsonParser.parseString(large.append(']').toString());
+        var small = JsonParser.parseString("{\"b\":1,\"a\":2}");
+
+        assertEquals(large.length(), JcsCanonicalizer.canonicalize(json).length); // MUT
+        // the thread-bound buffer must not carry over any bytes of the former (grown) canonicalization
+        assertEquals("{\"a\":2,\"b\":1}", new String(JcsCanonicalizer.canonicalize(small), StandardCharsets.UTF_8)); // MUT
+    }
+
+    @Test
+    void testUnpairedSurrogate() {
+        var json = JsonParser.parseString("\"\\ud83d\"");
+        assertThrowsExactly(IllegalArgumentException.class, () -> JcsCanonicalizer.canonicalize(json)); // MUT
+    }
+}
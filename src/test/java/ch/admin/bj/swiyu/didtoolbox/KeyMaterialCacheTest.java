@@ -0,0 +1,140 @@
+package ch.admin.bj.swiyu.didtoolbox;
+
+import ch.admin.bj.swiyu.didtoolbox.vc_data_integrity.EdDsaJcs2022VcDataIntegrityCryptographicSuite;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings({"PMD"})
+class KeyMaterialCacheTest extends AbstractUtilTestBase {
+
+    @Test
+    void testGetEd25519PublicKeyMultibase() {
+        var cache = new KeyMaterialCache(KeyMaterialCache.DEFAULT_MAX_SIZE);
+
+        for (int i = 0; i < TEST_KEYS.length; i++) {
+            var path = TEST_KEY_FILES[i].toPath();
+            var expected = TEST_KEYS[i][1];
+
+            var actual = assertDoesNotThrow(() -> cache.getEd25519PublicKeyMultibase(path)); // MUT
+            assertEquals(expected, actual);
+            // cached
+            assertSame(actual, assertDoesNotThrow(() -> cache.getEd25519PublicKeyMultibase(path))); // MUT
+
+            var hash = assertDoesNotThrow(() -> cache.getNextKeyHash(path)); // MUT
+            assertEquals(Base58.encode(JCSHasher.multihash(expected)), hash);
+            assertSame(hash, assertDoesNotThrow(() -> cache.getNextKeyHash(path))); // MUT
+        }
+
+        assertEquals(TEST_KEYS.length, cache.size());
+    }
+
+    @Test
+    void testGetECPublicJwk() {
+        var cache = new KeyMaterialCache(KeyMaterialCache.DEFAULT_MAX_SIZE);
+        var path = Path.of(TEST_DATA_PATH_PREFIX + "assert-key-01.pub");
+
+        var jwk = assertDoesNotThrow(() -> cache.getECPublicJwk(path, "my-assert-key-01")); // MUT
+        assertTrue(jwk.contains("\"kid\":\"my-assert-key-01\""));
+        assertTrue(jwk.contains("\"crv\":\"P-256\""));
+        assertFalse(jwk.contains("\"d\""));
+        // built per call, while the key itself is parsed once
+        assertEquals(jwk, assertDoesNotThrow(() -> cache.getECPublicJwk(path, "my-assert-key-01"))); // MUT
+        var another = assertDoesNotThrow(() -> cache.getECPublicJwk(path, "another-kid")); // MUT
+        assertTrue(another.contains("\"kid\":\"another-kid\""));
+        assertSame(assertDoesNotThrow(() -> cache.getECPublicKey(path)), assertDoesNotThrow(() -> cache.getECPublicKey(path))); // MUT
+        assertEquals(1, cache.size());
+
+        // not an EC key
+        assertThrowsExactly(IOException.class, () -> cache.getECPublicKey(TEST_KEY_FILES[0].toPath())); // MUT
+        // no such file
+        assertThrows(IOException.class, () -> cache.getECPublicJwk(Path.of("non-existing.pub"), "kid")); // MUT
+        assertThrows(FileNotFoundException.class, () -> JwkUtils.loadECPublicJWKasJSON(Path.of("non-existing.pub"), "kid"));
+    }
+
+    @Test
+    void testFileChange() throws IOException {
+        var cache = new KeyMaterialCache(KeyMaterialCache.DEFAULT_MAX_SIZE);
+        var tempFile = Files.createTempFile("mykey", ".pem");
+        tempFile.toFile().deleteOnExit();
+
+        Files.writeString(tempFile, TEST_KEYS[0][3]);
+        Files.setLastModifiedTime(tempFile, FileTime.from(Instant.parse(ISO_DATE_TIME)));
+        assertEquals(TEST_KEYS[0][1], assertDoesNotThrow(() -> cache.getEd25519PublicKeyMultibase(tempFile))); // MUT
+
+        // same size, yet different last modification time
+        Files.writeString(tempFile, TEST_KEYS[1][3]);
+        Files.setLastModifiedTime(tempFile, FileTime.from(Instant.parse(ISO_DATE_TIME).plusSeconds(1)));
+        assertEquals(TEST_KEYS[1][1], assertDoesNotThrow(() -> cache.getEd25519PublicKeyMultibase(tempFile))); // MUT
+        assertEquals(1, cache.size());
+
+        // same size and the very same last modification time, yet another file (atomically replaced)
+        var replacement = Files.createTempFile(tempFile.getParent(), "mykey", ".pem");
+        Files.writeString(replacement, TEST_KEYS[0][3]);
+        Files.setLastModifiedTime(replacement, FileTime.from(Instant.parse(ISO_DATE_TIME).plusSeconds(1)));
+        Files.move(replacement, tempFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        assertEquals(TEST_KEYS[0][1], assertDoesNotThrow(() -> cache.getEd25519PublicKeyMultibase(tempFile))); // MUT
+
+        // same size and the very same last modification time, yet rewritten in place
+        Files.writeString(tempFile, TEST_KEYS[1][3]);
+        Files.setLastModifiedTime(tempFile, FileTime.from(Instant.parse(ISO_DATE_TIME).plusSeconds(1)));
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("unix")) { // i.e. ctime is available
+            assertEquals(TEST_KEYS[1][1], assertDoesNotThrow(() -> cache.getEd25519PublicKeyMultibase(tempFile))); // MUT
+        }
+
+        // relative and absolute paths share the same entry
+        assertEquals(TEST_KEYS[1][1], assertDoesNotThrow(() -> cache.getEd25519PublicKeyMultibase(tempFile.toAbsolutePath()))); // MUT
+        assertEquals(1, cache.size());
+
+        // the file is gone
+        Files.delete(tempFile);
+        assertThrows(Exception.class, () -> cache.getEd25519PublicKeyMultibase(tempFile)); // MUT
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testInvalidateAndClear() {
+        var cache = new KeyMaterialCache(2);
+
+        for (var file : TEST_KEY_FILES) {
+            assertDoesNotThrow(() -> cache.getEd25519PublicKeyMultibase(file.toPath()));
+        }
+        assertEquals(2, cache.size()); // bounded
+
+        cache.invalidate(TEST_KEY_FILES[TEST_KEY_FILES.length - 1].toPath()); // MUT
+        assertEquals(1, cache.size());
+
+        cache.clear(); // MUT
+        assertEquals(0, cache.size());
+
+        assertSame(KeyMaterialCache.shared(), KeyMaterialCache.shared());
+    }
+
+    @Test
+    void testInvalidatedByWriter() throws Exception {
+        var tempFile = Files.createTempFile("mykey", ".pem");
+        tempFile.toFile().deleteOnExit();
+        var suite = new EdDsaJcs2022VcDataIntegrityCryptographicSuite();
+        var another = new EdDsaJcs2022VcDataIntegrityCryptographicSuite();
+
+        suite.writePublicKeyPemFile(tempFile);
+        var fileTime = Files.getLastModifiedTime(tempFile);
+        assertEquals(suite.getVerificationKeyMultibase(),
+                assertDoesNotThrow(() -> KeyMaterialCache.shared().getEd25519PublicKeyMultibase(tempFile)));
+
+        // another key of the very same size, yet written within the same file system timestamp granularity
+        another.writePublicKeyPemFile(tempFile); // MUT
+        Files.setLastModifiedTime(tempFile, fileTime);
+        assertEquals(another.getVerificationKeyMultibase(),
+                assertDoesNotThrow(() -> KeyMaterialCache.shared().getEd25519PublicKeyMultibase(tempFile)));
+    }
+}
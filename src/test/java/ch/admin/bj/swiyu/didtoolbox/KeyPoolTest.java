@@ -0,0 +1,72 @@
+package ch.admin.bj.swiyu.didtoolbox;
+
+import ch.admin.bj.swiyu.didtoolbox.vc_data_integrity.EdDsaJcs2022VcDataIntegrityCryptographicSuite;
+import org.junit.jupiter.api.Test;
+
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.EdECPublicKey;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings({"PMD"})
+class KeyPoolTest {
+
+    private static void awaitFull(KeyPool pool, KeyPool.Algorithm algorithm, int capacity) throws InterruptedException {
+        for (int i = 0; i < 500 && pool.getAvailable(algorithm) < capacity; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(capacity, pool.getAvailable(algorithm));
+    }
+
+    @Test
+    void testTake() throws InterruptedException {
+        var capacity = 4;
+        try (var pool = new KeyPool(capacity)) {
+
+            awaitFull(pool, KeyPool.Algorithm.EC_P256, capacity);
+            awaitFull(pool, KeyPool.Algorithm.ED25519, capacity);
+
+            var encodedKeys = new HashSet<String>();
+            for (int i = 0; i < 3 * capacity; i++) {
+                var ecKeyPair = pool.take(KeyPool.Algorithm.EC_P256); // MUT
+                assertInstanceOf(ECPublicKey.class, ecKeyPair.getPublic());
+                assertTrue(encodedKeys.add(Base58.encode(ecKeyPair.getPublic().getEncoded()))); // never handed out twice
+
+                var edKeyPair = pool.take(KeyPool.Algorithm.ED25519); // MUT
+                assertInstanceOf(EdECPublicKey.class, edKeyPair.getPublic());
+                assertTrue(encodedKeys.add(Ed25519Utils.toMultibase(edKeyPair.getPublic())));
+
+                // the suite features the very same key
+                var suite = assertDoesNotThrow(() -> new EdDsaJcs2022VcDataIntegrityCryptographicSuite(Ed25519Utils.toMultibase(edKeyPair.getPrivate())));
+                assertEquals(Ed25519Utils.toMultibase(edKeyPair.getPublic()), suite.getVerificationKeyMultibase());
+            }
+
+            assertTrue(pool.getHitCount() >= 2 * capacity);
+            assertEquals(6L * capacity, pool.getHitCount() + pool.getMissCount());
+        }
+    }
+
+    @Test
+    void testClose() throws InterruptedException {
+        var pool = new KeyPool(2);
+        awaitFull(pool, KeyPool.Algorithm.EC_P256, 2);
+
+        pool.close(); // MUT
+        assertEquals(0, pool.getAvailable(KeyPool.Algorithm.EC_P256));
+        Thread.sleep(50);
+        assertEquals(0, pool.getAvailable(KeyPool.Algorithm.ED25519));
+
+        // still usable, yet on the spot
+        assertNotNull(pool.take(KeyPool.Algorithm.ED25519)); // MUT
+        assertEquals(1, pool.getMissCount());
+
+        // a closed pool is never refilled again
+        pool.start(); // MUT
+        Thread.sleep(50);
+        assertEquals(0, pool.getAvailable(KeyPool.Algorithm.ED25519));
+
+        assertThrowsExactly(IllegalArgumentException.class, () -> new KeyPool(0));
+        assertSame(KeyPool.shared(), KeyPool.shared());
+    }
+}
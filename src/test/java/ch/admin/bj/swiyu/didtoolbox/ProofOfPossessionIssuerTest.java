@@ -0,0 +1,141 @@
+package ch.admin.bj.swiyu.didtoolbox;
+
+import ch.admin.bj.swiyu.didtoolbox.model.WebVerifiableHistoryDidLogMetaPeeker;
+import com.nimbusds.jwt.SignedJWT;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("PMD")
+class ProofOfPossessionIssuerTest extends AbstractUtilTestBase {
+    private static final Duration ONE_DAY_LONG = Duration.ofDays(1);
+
+    /**
+     * The minimum number of ES256 PoP JWTs to issue per second (on a single thread), as asserted by {@link #benchmarkThroughput(TestReporter)}.
+     */
+    private static final int THROUGHPUT_TARGET = 500;
+
+    String didLog;
+    String did;
+    ProofOfPossessionJWSSigner signer;
+    ProofOfPossessionVerifier verifier;
+
+    @BeforeEach
+    void setUp() {
+        didLog = buildInitialWebVerifiableHistoryDidLogEntry(TEST_CRYPTO_SUITE);
+        did = assertDoesNotThrow(() -> WebVerifiableHistoryDidLogMetaPeeker.peek(didLog)).getDidDoc().getId();
+        signer = assertDoesNotThrow(() -> new EcP256ProofOfPossessionJWSSigner(Path.of("src/test/data/assert-key-01"), did + "#my-assert-key-01"));
+        verifier = assertDoesNotThrow(() -> new ProofOfPossessionVerifier(didLog));
+    }
+
+    @Test
+    void testCreate() {
+        var nonce = "my \"quoted\" <nonce>";
+        var issuer = assertDoesNotThrow(() -> new ProofOfPossessionIssuer(signer, ONE_DAY_LONG, verifier)); // MUT
+
+        var proof = assertDoesNotThrow(() -> issuer.create(nonce)); // MUT
+        assertDoesNotThrow(() -> verifier.verify(proof, nonce));
+        var claims = assertDoesNotThrow(proof::getJWTClaimsSet);
+        assertEquals(nonce, claims.getClaim("nonce"));
+        assertEquals(did, claims.getIssuer());
+        assertEquals(did + "#my-assert-key-01", proof.getHeader().getKeyID());
+
+        var serialized = assertDoesNotThrow(() -> issuer.createSerialized(nonce)); // MUT
+        assertTrue(verifier.isValid(assertDoesNotThrow(() -> SignedJWT.parse(serialized)), nonce));
+        assertFalse(verifier.isValid(assertDoesNotThrow(() -> SignedJWT.parse(serialized)), "another_nonce"));
+
+        // the same header and issuer, but a fresh signature each time
+        var another = assertDoesNotThrow(() -> issuer.createSerialized(nonce)); // MUT
+        assertEquals(serialized.substring(0, serialized.indexOf('.')), another.substring(0, another.indexOf('.')));
+        assertNotEquals(serialized, another);
+    }
+
+    @Test
+    void testCreateTimeClaims() {
+        var now = Instant.parse("2030-01-01T00:00:00Z");
+        var issuer = new ProofOfPossessionIssuer(signer, ONE_DAY_LONG, Clock.fixed(now, ZoneOffset.UTC));
+
+        var claims = assertDoesNotThrow(() -> issuer.create("my_nonce").getJWTClaimsSet()); // MUT
+        assertEquals(now, claims.getIssueTime().toInstant());
+        assertEquals(now.plus(ONE_DAY_LONG), claims.getExpirationTime().toInstant());
+        assertEquals(ONE_DAY_LONG, issuer.getExpiresIn());
+    }
+
+    @Test
+    void testSelfVerificationFailed() {
+        var mismatchingSigner = assertDoesNotThrow(() -> new EcP256ProofOfPossessionJWSSigner(did + "#my-assert-key-01")); // a freshly generated key
+        var exc = assertThrowsExactly(ProofOfPossessionVerifierException.class, () -> new ProofOfPossessionIssuer(mismatchingSigner, ONE_DAY_LONG, verifier)); // MUT
+        assertEquals(ProofOfPossessionVerifierException.ErrorCause.INVALID_SIGNATURE, exc.getErrorCause());
+
+        var unknownKeySigner = assertDoesNotThrow(() -> new EcP256ProofOfPossessionJWSSigner(Path.of("src/test/data/assert-key-01"), did + "#no-such-key"));
+        exc = assertThrowsExactly(ProofOfPossessionVerifierException.class, () -> new ProofOfPossessionIssuer(unknownKeySigner, ONE_DAY_LONG, verifier)); // MUT
+        assertEquals(ProofOfPossessionVerifierException.ErrorCause.KEY_MISMATCH, exc.getErrorCause());
+    }
+
+    @Test
+    void testCreateConcurrently() throws Exception {
+        var issuer = assertDoesNotThrow(() -> new ProofOfPossessionIssuer(signer, ONE_DAY_LONG, verifier));
+
+        try (var executor = Executors.newFixedThreadPool(8)) {
+            var tasks = new ArrayList<Callable<Boolean>>();
+            for (int i = 0; i < 64; i++) {
+                var nonce = "my_nonce_" + i;
+                tasks.add(() -> verifier.isValid(issuer.create(nonce), nonce)); // MUT
+            }
+            for (var future : executor.invokeAll(tasks)) {
+                assertTrue(future.get());
+            }
+        }
+    }
+
+    /**
+     * A (rough) throughput benchmark of {@link ProofOfPossessionIssuer#createSerialized(String)} vs. {@link ProofOfPossessionCreator#create(String, Duration)}.
+     * Excluded from regular builds, see the {@code benchmark} Maven profile.
+     */
+    @Test
+    @Tag("benchmark")
+    void benchmarkThroughput(TestReporter reporter) {
+        var issuer = new ProofOfPossessionIssuer(signer, ONE_DAY_LONG);
+        var creator = new ProofOfPossessionCreator(signer);
+        var count = 5_000;
+
+        // warm-up
+        for (int i = 0; i < 500; i++) {
+            var nonce = "warm_up_" + i;
+            assertDoesNotThrow(() -> issuer.createSerialized(nonce));
+            assertDoesNotThrow(() -> creator.create(nonce, ONE_DAY_LONG).serialize());
+        }
+
+        var start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            var nonce = "my_nonce_" + i;
+            assertDoesNotThrow(() -> issuer.createSerialized(nonce)); // MUT
+        }
+        var issuerOpsPerSecond = count * 1_000_000_000L / (System.nanoTime() - start);
+
+        start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            var nonce = "my_nonce_" + i;
+            assertDoesNotThrow(() -> creator.create(nonce, ONE_DAY_LONG).serialize());
+        }
+        var creatorOpsPerSecond = count * 1_000_000_000L / (System.nanoTime() - start);
+
+        reporter.publishEntry("PoP issuance (ops/s)", String.format("ProofOfPossessionIssuer %d, ProofOfPossessionCreator %d",
+                issuerOpsPerSecond, creatorOpsPerSecond));
+
+        assertTrue(issuerOpsPerSecond >= THROUGHPUT_TARGET,
+                "Expected at least %d ops/s, but got %d ops/s".formatted(THROUGHPUT_TARGET, issuerOpsPerSecond));
+    }
+}
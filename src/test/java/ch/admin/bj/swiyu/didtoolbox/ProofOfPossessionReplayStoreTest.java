@@ -0,0 +1,179 @@
+package ch.admin.bj.swiyu.didtoolbox;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("PMD")
+class ProofOfPossessionReplayStoreTest extends AbstractUtilTestBase {
+
+    private static final String ISSUER = "did:webvh:SCID:example.com";
+
+    /**
+     * Self-explanatory.
+     */
+    private static final class MutableClock extends Clock {
+        private Instant instant = Instant.parse(ISO_DATE_TIME);
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return this.instant;
+        }
+
+        void advance(Duration duration) {
+            this.instant = this.instant.plus(duration);
+        }
+    }
+
+    @Test
+    void testTryRecord() {
+        var clock = new MutableClock();
+        var store = new ProofOfPossessionReplayStore(1_000, ProofOfPossessionReplayStore.DEFAULT_BUCKET_WIDTH, clock);
+        var exp = clock.instant().plusSeconds(60);
+
+        assertTrue(store.tryRecord(ISSUER, "my_nonce", exp)); // MUT
+        assertFalse(store.tryRecord(ISSUER, "my_nonce", exp)); // MUT (replay)
+        assertTrue(store.contains(ISSUER, "my_nonce")); // MUT
+        // the same ID, yet another issuer
+        assertTrue(store.tryRecord("did:webvh:SCID:another.com", "my_nonce", exp)); // MUT
+        assertTrue(store.tryRecord(null, "my_nonce", exp)); // MUT
+        assertFalse(store.contains(ISSUER, "another_nonce"));
+        assertEquals(3, store.size());
+
+        // already expired, hence not recorded
+        assertTrue(store.tryRecord(ISSUER, "expired", clock.instant().minusSeconds(1))); // MUT
+        assertFalse(store.contains(ISSUER, "expired"));
+
+        // kept (at least) until expiration
+        clock.advance(Duration.ofSeconds(60));
+        assertFalse(store.tryRecord(ISSUER, "my_nonce", exp)); // MUT
+        clock.advance(Duration.ofSeconds(1));
+        assertFalse(store.contains(ISSUER, "my_nonce")); // MUT
+        assertTrue(store.tryRecord(ISSUER, "my_nonce", clock.instant().plusSeconds(60))); // MUT (slot reused)
+        assertEquals(3, store.size());
+
+        store.clear(); // MUT
+        assertEquals(0, store.size());
+        assertTrue(store.tryRecord(ISSUER, "my_nonce", clock.instant().plusSeconds(60)));
+
+        assertThrowsExactly(IllegalArgumentException.class, () -> new ProofOfPossessionReplayStore(0, Duration.ofSeconds(1)));
+        assertThrowsExactly(IllegalArgumentException.class, () -> new ProofOfPossessionReplayStore(1, Duration.ofMillis(10)));
+    }
+
+    @Test
+    void testBound() {
+        var clock = new MutableClock();
+        var store = new ProofOfPossessionReplayStore(640, Duration.ofSeconds(10), clock);
+        var footprint = store.getFootprintBytes();
+
+        for (int i = 0; i < 100_000; i++) {
+            var exp = clock.instant().plusSeconds(3600 + i); // all live
+            assertTrue(store.tryRecord(ISSUER, "nonce-" + i, exp)); // MUT
+        }
+
+        assertTrue(store.size() <= 640);
+        assertTrue(store.getEvictionCount() > 0);
+        assertEquals(footprint, store.getFootprintBytes()); // never grows
+        // the entries expiring soonest are evicted first
+        assertFalse(store.contains(ISSUER, "nonce-0"));
+        assertTrue(store.contains(ISSUER, "nonce-99999"));
+
+        // once expired, the slots are reclaimed without any eviction
+        clock.advance(Duration.ofDays(30));
+        var evictionCount = store.getEvictionCount();
+        for (int i = 0; i < 100; i++) {
+            assertTrue(store.tryRecord(ISSUER, "another-nonce-" + i, clock.instant().plusSeconds(60))); // MUT
+        }
+        assertEquals(evictionCount, store.getEvictionCount());
+        assertTrue(store.size() <= 640);
+        assertTrue(store.contains(ISSUER, "another-nonce-0"));
+    }
+
+    @Test
+    void testConcurrentReplay() throws Exception {
+        var store = new ProofOfPossessionReplayStore();
+        var exp = Instant.now().plusSeconds(60);
+
+        try (var executor = Executors.newFixedThreadPool(8)) {
+            var tasks = new ArrayList<Callable<Boolean>>();
+            for (int i = 0; i < 64; i++) {
+                tasks.add(() -> store.tryRecord(ISSUER, "my_nonce", exp)); // MUT
+            }
+            var accepted = 0;
+            for (var future : executor.invokeAll(tasks)) {
+                accepted += future.get() ? 1 : 0;
+            }
+            assertEquals(1, accepted); // accepted exactly once
+        }
+    }
+
+    @Test
+    void testNoEvictionWithinCapacity() {
+        var entries = 20_000;
+        // some headroom, as the entries are not evenly distributed over the stripes
+        var store = new ProofOfPossessionReplayStore(entries + entries / 10, ProofOfPossessionReplayStore.DEFAULT_BUCKET_WIDTH);
+        var exp = Instant.now().plus(Duration.ofHours(1));
+
+        for (int i = 0; i < entries; i++) {
+            assertTrue(store.tryRecord(ISSUER, "nonce-" + i, exp)); // MUT
+        }
+        assertEquals(entries, store.size());
+        assertEquals(0, store.getEvictionCount());
+        for (int i = 0; i < entries; i += 97) {
+            assertTrue(store.contains(ISSUER, "nonce-" + i)); // MUT
+        }
+    }
+
+    /**
+     * A (rough) benchmark measuring the footprint and the lookup latency at millions of live entries.
+     * Excluded from regular builds, see the {@code benchmark} Maven profile.
+     */
+    @Test
+    @Tag("benchmark")
+    void benchmarkMillionsOfEntries(TestReporter reporter) {
+        var entries = 2_000_000;
+        // some headroom, as the entries are not evenly distributed over the stripes
+        var store = new ProofOfPossessionReplayStore(entries + entries / 10, ProofOfPossessionReplayStore.DEFAULT_BUCKET_WIDTH);
+        var exp = Instant.now().plus(Duration.ofHours(1));
+
+        var start = System.nanoTime();
+        for (int i = 0; i < entries; i++) {
+            store.tryRecord(ISSUER, "nonce-" + i, exp); // MUT
+        }
+        var recordNanos = (System.nanoTime() - start) / entries;
+
+        var lookups = 200_000;
+        start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            assertTrue(store.contains(ISSUER, "nonce-" + (i * 7 % entries))); // MUT
+        }
+        var lookupNanos = (System.nanoTime() - start) / lookups;
+
+        reporter.publishEntry("Replay store", String.format("%d entries, %d MiB, record %d ns/op, lookup %d ns/op",
+                store.size(), store.getFootprintBytes() >> 20, recordNanos, lookupNanos));
+
+        assertEquals(entries, store.size());
+        assertEquals(0, store.getEvictionCount());
+    }
+}
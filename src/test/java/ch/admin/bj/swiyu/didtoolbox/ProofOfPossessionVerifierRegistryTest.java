@@ -0,0 +1,243 @@
+package ch.admin.bj.swiyu.didtoolbox;
+
+import ch.admin.bj.swiyu.didtoolbox.context.DidLogUpdaterContext;
+import ch.admin.bj.swiyu.didtoolbox.model.TdwDidLogMetaPeeker;
+import ch.admin.bj.swiyu.didtoolbox.model.VerificationMethod;
+import ch.admin.bj.swiyu.didtoolbox.model.WebVerifiableHistoryDidLogMetaPeeker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("PMD")
+class ProofOfPossessionVerifierRegistryTest extends AbstractUtilTestBase {
+    private static final Duration ONE_DAY_LONG = Duration.ofDays(1);
+
+    String didLog;
+    String did;
+    ProofOfPossessionJWSSigner signer;
+    Map<String, String> didLogs;
+    AtomicInteger lookups;
+    DidLogSource source;
+
+    @BeforeEach
+    void setUp() {
+        didLog = buildInitialWebVerifiableHistoryDidLogEntry(TEST_CRYPTO_SUITE);
+        did = assertDoesNotThrow(() -> WebVerifiableHistoryDidLogMetaPeeker.peek(didLog)).getDidDoc().getId();
+        signer = assertDoesNotThrow(() -> new EcP256ProofOfPossessionJWSSigner(Path.of("src/test/data/assert-key-01"), did + "#my-assert-key-01"));
+        didLogs = new ConcurrentHashMap<>(Map.of(did, didLog));
+        lookups = new AtomicInteger();
+        source = d -> {
+            lookups.incrementAndGet();
+            return didLogs.get(d);
+        };
+    }
+
+    @Test
+    void testVerify() {
+        var nonce = "my_nonce";
+        var proof = assertDoesNotThrow(() -> new ProofOfPossessionCreator(signer).create(nonce, ONE_DAY_LONG));
+
+        var registry = new ProofOfPossessionVerifierRegistry(source);
+        assertDoesNotThrow(() -> registry.verify(proof, nonce)); // MUT
+        assertDoesNotThrow(() -> registry.verify(proof, nonce)); // MUT
+        assertEquals(1, registry.getResolveCount()); // resolved once
+        assertEquals(1, registry.size());
+
+        var exc = assertThrowsExactly(ProofOfPossessionVerifierException.class, () -> registry.verify(proof, "another_nonce")); // MUT
+        assertEquals(ProofOfPossessionVerifierException.ErrorCause.INVALID_NONCE, exc.getErrorCause());
+
+        // the issuer is unknown, hence cached (briefly) as such
+        var unknown = assertDoesNotThrow(() -> new ProofOfPossessionCreator(TEST_POP_JWS_SIGNER).create(nonce, ONE_DAY_LONG));
+        exc = assertThrowsExactly(ProofOfPossessionVerifierException.class, () -> registry.verify(unknown, nonce)); // MUT
+        assertEquals(ProofOfPossessionVerifierException.ErrorCause.UNKNOWN_DID, exc.getErrorCause());
+        var lookupCount = lookups.get();
+        exc = assertThrowsExactly(ProofOfPossessionVerifierException.class, () -> registry.verify(unknown, nonce)); // MUT
+        assertEquals(ProofOfPossessionVerifierException.ErrorCause.UNKNOWN_DID, exc.getErrorCause());
+        assertEquals(lookupCount, lookups.get()); // no further lookup
+        assertEquals(2, registry.size());
+
+        // the cheap checks come first, i.e. no lookup at all
+        var expired = assertDoesNotThrow(() -> new ProofOfPossessionCreator(signer).create(nonce, Duration.ofSeconds(-1)));
+        exc = assertThrowsExactly(ProofOfPossessionVerifierException.class, () -> new ProofOfPossessionVerifierRegistry(source).verify(expired, nonce)); // MUT
+        assertEquals(ProofOfPossessionVerifierException.ErrorCause.EXPIRED, exc.getErrorCause());
+        assertEquals(lookupCount, lookups.get());
+
+        registry.invalidate(did); // MUT
+        assertEquals(1, registry.size());
+        assertDoesNotThrow(() -> registry.verify(proof, nonce));
+        assertEquals(2, registry.getResolveCount());
+
+        assertThrowsExactly(IllegalArgumentException.class, () -> new ProofOfPossessionVerifierRegistry(source, 0, ONE_DAY_LONG, ForkJoinPool.commonPool()));
+    }
+
+    @Test
+    void testGetVerifierCoalesced() throws Exception {
+        var start = new CountDownLatch(1);
+        DidLogSource slowSource = d -> {
+            try {
+                start.await(); // let all the lookups pile up
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return source.getDidLog(d);
+        };
+        var registry = new ProofOfPossessionVerifierRegistry(slowSource);
+
+        try (var executor = Executors.newFixedThreadPool(16)) {
+            var tasks = new ArrayList<Callable<ProofOfPossessionVerifier>>();
+            for (int i = 0; i < 16; i++) {
+                tasks.add(() -> registry.getVerifier(did)); // MUT
+            }
+            var futures = tasks.stream().map(executor::submit).toList();
+            Thread.sleep(100);
+            start.countDown();
+
+            var first = futures.getFirst().get();
+            for (var future : futures) {
+                assertSame(first, future.get());
+            }
+        }
+
+        assertEquals(1, registry.getResolveCount()); // resolved by a single thread only
+        assertEquals(1, lookups.get());
+    }
+
+    @Test
+    void testRefresh() {
+        // refreshed upon each lookup, on the calling thread
+        var registry = new ProofOfPossessionVerifierRegistry(source, ProofOfPossessionVerifierRegistry.DEFAULT_MAX_SIZE, Duration.ZERO, Runnable::run);
+
+        var verifier = assertDoesNotThrow(() -> registry.getVerifier(did));
+        // the DID log is unchanged, hence still the same verifier
+        assertSame(verifier, assertDoesNotThrow(() -> registry.getVerifier(did))); // MUT
+        assertTrue(lookups.get() > 1);
+        assertEquals(1, registry.getResolveCount());
+
+        // a new DID version
+        var nextLogEntry = assertDoesNotThrow(() -> DidLogUpdaterContext.builder()
+                .cryptographicSuite(TEST_CRYPTO_SUITE)
+                .assertionMethods(Set.of(VerificationMethod.of("my-assert-key-01", Path.of(TEST_DATA_PATH_PREFIX + "assert-key-01.pub"))))
+                .authentications(Set.of(VerificationMethod.of("my-auth-key-01", Path.of(TEST_DATA_PATH_PREFIX + "auth-key-01.pub"))))
+                .build()
+                .update(didLog));
+        didLogs.put(did, didLog + System.lineSeparator() + nextLogEntry);
+
+        // the stale verifier is still served, while the refresh takes place
+        assertSame(verifier, assertDoesNotThrow(() -> registry.getVerifier(did))); // MUT
+        var refreshed = assertDoesNotThrow(() -> registry.getVerifier(did)); // MUT
+        assertNotSame(verifier, refreshed);
+        assertEquals(2, registry.getResolveCount());
+
+        var nonce = "my_nonce";
+        var proof = assertDoesNotThrow(() -> new ProofOfPossessionCreator(signer).create(nonce, ONE_DAY_LONG));
+        assertDoesNotThrow(() -> registry.verify(proof, nonce));
+
+        // once gone, the DID is unknown
+        didLogs.remove(did);
+        assertDoesNotThrow(() -> registry.getVerifier(did)); // MUT (triggers the refresh)
+        assertEquals(0, registry.size());
+        var exc = assertThrowsExactly(ProofOfPossessionVerifierException.class, () -> registry.getVerifier(did)); // MUT
+        assertEquals(ProofOfPossessionVerifierException.ErrorCause.UNKNOWN_DID, exc.getErrorCause());
+    }
+
+    @Test
+    void testRefreshRejected() {
+        // e.g. a saturated (bounded) or shut down executor
+        var rejecting = new AtomicBoolean(true);
+        var registry = new ProofOfPossessionVerifierRegistry(source, ProofOfPossessionVerifierRegistry.DEFAULT_MAX_SIZE, Duration.ZERO, command -> {
+            if (rejecting.get()) {
+                throw new RejectedExecutionException("saturated");
+            }
+            command.run();
+        });
+
+        var verifier = assertDoesNotThrow(() -> registry.getVerifier(did));
+        didLogs.put(did, didLog + System.lineSeparator() + assertDoesNotThrow(() -> DidLogUpdaterContext.builder()
+                .cryptographicSuite(TEST_CRYPTO_SUITE)
+                .assertionMethods(Set.of(VerificationMethod.of("my-assert-key-01", Path.of(TEST_DATA_PATH_PREFIX + "assert-key-01.pub"))))
+                .authentications(Set.of(VerificationMethod.of("my-auth-key-01", Path.of(TEST_DATA_PATH_PREFIX + "auth-key-01.pub"))))
+                .build()
+                .update(didLog)));
+
+        // the cached verifier keeps on being served
+        assertSame(verifier, assertDoesNotThrow(() -> registry.getVerifier(did))); // MUT
+        assertSame(verifier, assertDoesNotThrow(() -> registry.getVerifier(did))); // MUT
+        var nonce = "my_nonce";
+        var proof = assertDoesNotThrow(() -> new ProofOfPossessionCreator(signer).create(nonce, ONE_DAY_LONG));
+        assertDoesNotThrow(() -> registry.verify(proof, nonce)); // MUT
+        assertEquals(1, registry.getResolveCount());
+
+        // still refreshed, once the executor accepts tasks again
+        rejecting.set(false);
+        assertSame(verifier, assertDoesNotThrow(() -> registry.getVerifier(did))); // MUT
+        assertNotSame(verifier, assertDoesNotThrow(() -> registry.getVerifier(did))); // MUT
+        assertEquals(2, registry.getResolveCount());
+    }
+
+    @Test
+    void testNegativeCacheExpired() {
+        // failed lookups are never cached
+        var registry = new ProofOfPossessionVerifierRegistry(source, ProofOfPossessionVerifierRegistry.DEFAULT_MAX_SIZE,
+                ONE_DAY_LONG, Duration.ZERO, ForkJoinPool.commonPool());
+        var unknownDid = "did:webvh:QmUnknownSCID:example.com";
+
+        assertThrowsExactly(ProofOfPossessionVerifierException.class, () -> registry.getVerifier(unknownDid)); // MUT
+        assertThrowsExactly(ProofOfPossessionVerifierException.class, () -> registry.getVerifier(unknownDid)); // MUT
+        assertEquals(2, lookups.get());
+        assertEquals(0, registry.size());
+
+        // available in the meantime
+        didLogs.put(unknownDid, didLog);
+        var exc = assertThrowsExactly(ProofOfPossessionVerifierException.class, () -> registry.getVerifier(unknownDid)); // MUT
+        // yet of another DID
+        assertEquals(ProofOfPossessionVerifierException.ErrorCause.UNKNOWN_DID, exc.getErrorCause());
+        assertTrue(exc.getMessage().contains(did));
+        assertEquals(0, registry.getResolveCount());
+    }
+
+    @Test
+    void testBound() {
+        var anotherDidLog = buildInitialTdwDidLogEntry(TEST_CRYPTO_SUITE);
+        var anotherDid = assertDoesNotThrow(() -> TdwDidLogMetaPeeker.peek(anotherDidLog)).getDidDoc().getId();
+        didLogs.put(anotherDid, anotherDidLog);
+        var registry = new ProofOfPossessionVerifierRegistry(source, 1, ONE_DAY_LONG, ForkJoinPool.commonPool());
+
+        assertDoesNotThrow(() -> registry.getVerifier(did)); // MUT
+        assertDoesNotThrow(() -> registry.getVerifier(anotherDid)); // MUT
+        assertEquals(1, registry.size()); // the least recently used one is evicted
+        assertDoesNotThrow(() -> registry.getVerifier(did)); // MUT
+        assertEquals(3, registry.getResolveCount());
+    }
+
+    @Test
+    void testOfDirectory(@TempDir Path tempDir) throws Exception {
+        Files.writeString(tempDir.resolve(URLEncoder.encode(did, StandardCharsets.UTF_8) + DidLogSource.DID_LOG_FILE_EXTENSION), didLog);
+
+        var dirSource = DidLogSource.ofDirectory(tempDir);
+        assertEquals(didLog, dirSource.getDidLog(did)); // MUT
+        assertNull(dirSource.getDidLog("did:webvh:QmUnknownSCID:example.com")); // MUT
+
+        var nonce = "my_nonce";
+        var proof = assertDoesNotThrow(() -> new ProofOfPossessionCreator(signer).create(nonce, ONE_DAY_LONG));
+        assertDoesNotThrow(() -> new ProofOfPossessionVerifierRegistry(dirSource).verify(proof, nonce)); // MUT
+    }
+}
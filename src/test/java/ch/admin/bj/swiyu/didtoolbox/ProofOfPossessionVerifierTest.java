@@ -8,6 +8,11 @@ import org.junit.jupiter.api.Test;
 
 import java.nio.file.Path;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -47,6 +52,122 @@ class ProofOfPossessionVerifierTest extends AbstractUtilTestBase {
         assertDoesNotThrow(() -> verifier.verify(proof, nonce));
     }
 
+    @Test
+    void testVerifyConcurrentlyWithCachedVerifier() throws Exception {
+        var verifier = assertDoesNotThrow(() -> new ProofOfPossessionVerifier(didLog));
+
+        try (var executor = Executors.newFixedThreadPool(8)) {
+            var tasks = new ArrayList<Callable<Boolean>>();
+            for (int i = 0; i < 64; i++) {
+                var nonce = "my_nonce_" + i;
+                var proof = assertDoesNotThrow(() -> new ProofOfPossessionCreator(signer).create(nonce, ONE_DAY_LONG));
+                tasks.add(() -> verifier.isValid(proof, nonce)); // MUT
+            }
+            for (var future : executor.invokeAll(tasks)) {
+                assertTrue(future.get());
+            }
+        }
+
+        // built once per key
+        var kid = didDoc.getId() + "#my-assert-key-01";
+        assertSame(assertDoesNotThrow(() -> verifier.getJWSVerifier("my-assert-key-01", kid)),
+                assertDoesNotThrow(() -> verifier.getJWSVerifier("my-assert-key-01", kid))); // MUT
+        var exc = assertThrowsExactly(ProofOfPossessionVerifierException.class, () -> verifier.getJWSVerifier("no-such-key", kid)); // MUT
+        assertEquals(ProofOfPossessionVerifierException.ErrorCause.KEY_MISMATCH, exc.getErrorCause());
+    }
+
+    @Test
+    void testVerifyAll() {
+        var verifier = assertDoesNotThrow(() -> new ProofOfPossessionVerifier(didLog));
+
+        var proofs = new ArrayList<SignedJWT>();
+        var nonces = new HashMap<SignedJWT, String>();
+        for (int i = 0; i < 16; i++) {
+            var nonce = "my_nonce_" + i;
+            var proof = assertDoesNotThrow(() -> new ProofOfPossessionCreator(signer).create(nonce, ONE_DAY_LONG));
+            proofs.add(proof);
+            nonces.put(proof, nonce);
+        }
+        // nonce mismatch
+        var mismatch = assertDoesNotThrow(() -> new ProofOfPossessionCreator(signer).create("foo", ONE_DAY_LONG));
+        proofs.add(mismatch);
+        nonces.put(mismatch, "bar");
+        // key not in DID log
+        var anotherKey = assertDoesNotThrow(() -> new ProofOfPossessionCreator(TEST_POP_JWS_SIGNER).create("foo", ONE_DAY_LONG));
+        proofs.add(anotherKey);
+        nonces.put(anotherKey, "foo");
+        // no nonce to be expected
+        var unknown = assertDoesNotThrow(() -> new ProofOfPossessionCreator(signer).create("foo", ONE_DAY_LONG));
+        proofs.add(unknown);
+
+        try (var executor = Executors.newFixedThreadPool(4)) {
+            var results = verifier.verifyAll(proofs, nonces::get, executor); // MUT
+
+            assertEquals(proofs.size(), results.size());
+            for (int i = 0; i < 16; i++) {
+                assertSame(proofs.get(i), results.get(i).getSignedJWT());
+                assertTrue(results.get(i).isValid());
+                assertNull(results.get(i).getErrorCause());
+            }
+            assertFalse(results.get(16).isValid());
+            assertEquals(ProofOfPossessionVerifierException.ErrorCause.INVALID_NONCE, results.get(16).getErrorCause());
+            assertEquals(ProofOfPossessionVerifierException.ErrorCause.KEY_MISMATCH, results.get(17).getErrorCause());
+            assertEquals(ProofOfPossessionVerifierException.ErrorCause.INVALID_NONCE, results.get(18).getErrorCause());
+        }
+
+        // the very same outcome, using the default executor
+        var results = verifier.verifyAll(proofs, nonces::get); // MUT
+        assertEquals(16, results.stream().filter(ProofOfPossessionVerificationResult::isValid).count());
+        assertTrue(verifier.verifyAll(List.of(), nonces::get).isEmpty()); // MUT
+    }
+
+    @Test
+    void testVerifyAllFailures() {
+        var verifier = assertDoesNotThrow(() -> new ProofOfPossessionVerifier(didLog));
+        var proofs = new ArrayList<SignedJWT>();
+        for (int i = 0; i < 4; i++) {
+            proofs.add(assertDoesNotThrow(() -> new ProofOfPossessionCreator(signer).create("my_nonce", ONE_DAY_LONG)));
+        }
+
+        // a throwing nonce lookup fails the affected JWT only
+        var throwing = proofs.get(1);
+        var results = verifier.verifyAll(proofs, jwt -> {
+            if (jwt == throwing) {
+                throw new IllegalStateException("no nonce");
+            }
+            return "my_nonce";
+        }); // MUT
+        assertEquals(proofs.size(), results.size());
+        assertEquals(ProofOfPossessionVerifierException.ErrorCause.FAILED_TO_VERIFY, results.get(1).getErrorCause());
+        assertEquals(3, results.stream().filter(ProofOfPossessionVerificationResult::isValid).count());
+
+        // a rejecting executor fails all the JWTs it rejects, instead of throwing
+        var executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+        results = assertDoesNotThrow(() -> verifier.verifyAll(proofs, jwt -> "my_nonce", executor)); // MUT
+        assertEquals(proofs.size(), results.size());
+        results.forEach(result -> assertEquals(ProofOfPossessionVerifierException.ErrorCause.FAILED_TO_VERIFY, result.getErrorCause()));
+    }
+
+    @Test
+    void testVerifyReplayed() {
+        var nonce = "my_nonce";
+        var proof = assertDoesNotThrow(() -> new ProofOfPossessionCreator(signer).create(nonce, ONE_DAY_LONG));
+        var verifier = assertDoesNotThrow(() -> new ProofOfPossessionVerifier(didLog));
+        var replayStore = new ProofOfPossessionReplayStore();
+
+        // an invalid JWT is never recorded
+        var exc = assertThrowsExactly(ProofOfPossessionVerifierException.class, () -> verifier.verify(proof, "foo", replayStore)); // MUT
+        assertEquals(ProofOfPossessionVerifierException.ErrorCause.INVALID_NONCE, exc.getErrorCause());
+
+        assertDoesNotThrow(() -> verifier.verify(proof, nonce, replayStore)); // MUT
+        exc = assertThrowsExactly(ProofOfPossessionVerifierException.class, () -> verifier.verify(proof, nonce, replayStore)); // MUT
+        assertEquals(ProofOfPossessionVerifierException.ErrorCause.REPLAYED, exc.getErrorCause());
+
+        // still valid w/o replay protection
+        assertDoesNotThrow(() -> verifier.verify(proof, nonce));
+    }
+
     @Test
     void verify_KeyNotInDidLog() {
         var nonce = "my_nonce";
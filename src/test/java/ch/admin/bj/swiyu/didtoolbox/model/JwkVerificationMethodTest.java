@@ -0,0 +1,94 @@
+package ch.admin.bj.swiyu.didtoolbox.model;
+
+import ch.admin.bj.swiyu.didtoolbox.AbstractUtilTestBase;
+import ch.admin.bj.swiyu.didtoolbox.JcsCanonicalizer;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("PMD")
+class JwkVerificationMethodTest extends AbstractUtilTestBase {
+
+    private static final String PUBLIC_KEY_JWK = "{\"kty\":\"EC\",\"crv\":\"P-256\",\"kid\":\"whatever\",\"x\":\"-MUDoZjNImUbo0vNmdAqhAOPdJoptUC0tlK9xvLrqDg\",\"y\":\"Djlu_TF69xQF5_L3px2FmCDQksM_fIp6kKbHRQLVIb0\"}";
+
+    @Test
+    void testOf() {
+        var vm = assertDoesNotThrow(() -> VerificationMethod.of("my-key-01", PUBLIC_KEY_JWK)); // MUT
+        assertInstanceOf(JwkVerificationMethod.class, vm);
+        var jwkVm = (JwkVerificationMethod) vm;
+
+        // the kid is replaced in place
+        var expected = PUBLIC_KEY_JWK.replace("whatever", "my-key-01");
+        assertEquals(expected, vm.getVerificationMaterial().getPublicKeyJwk());
+        // serialized once
+        assertSame(vm.getVerificationMaterial().getPublicKeyJwk(), vm.getVerificationMaterial().getPublicKeyJwk());
+
+        assertEquals("EC", jwkVm.getKty());
+        assertEquals("P-256", jwkVm.getCrv());
+        assertEquals("-MUDoZjNImUbo0vNmdAqhAOPdJoptUC0tlK9xvLrqDg", jwkVm.getX());
+        assertEquals("Djlu_TF69xQF5_L3px2FmCDQksM_fIp6kKbHRQLVIb0", jwkVm.getY());
+
+        var canonical = new String(jwkVm.getCanonicalPublicKeyJwk(), StandardCharsets.UTF_8);
+        assertEquals("{\"crv\":\"P-256\",\"kid\":\"my-key-01\",\"kty\":\"EC\",\"x\":\"-MUDoZjNImUbo0vNmdAqhAOPdJoptUC0tlK9xvLrqDg\",\"y\":\"Djlu_TF69xQF5_L3px2FmCDQksM_fIp6kKbHRQLVIb0\"}", canonical);
+        assertArrayEquals(JcsCanonicalizer.sha256(JsonParser.parseString(expected)), jwkVm.getPublicKeyJwkSha256());
+
+        // equal by ID fragment only
+        assertEquals(vm, assertDoesNotThrow(() -> VerificationMethod.of("my-key-01", Path.of(TEST_DATA_PATH_PREFIX + "assert-key-01.pub"))));
+    }
+
+    @Test
+    void testImmutability() {
+        var jwkVm = (JwkVerificationMethod) assertDoesNotThrow(() -> VerificationMethod.of("my-key-01", PUBLIC_KEY_JWK));
+        var expected = jwkVm.getPublicKeyJwk();
+
+        var jsonObj = jwkVm.getPublicKeyJwkJsonObject(); // MUT
+        jsonObj.addProperty("kid", "tampered");
+        jsonObj.remove("x");
+        jwkVm.getCanonicalPublicKeyJwk()[0] = 0; // MUT
+        jwkVm.getPublicKeyJwkSha256()[0] = 0; // MUT
+
+        assertEquals(JsonParser.parseString(expected), jwkVm.getPublicKeyJwkJsonObject());
+        assertEquals('{', jwkVm.getCanonicalPublicKeyJwk()[0]);
+        assertArrayEquals(JcsCanonicalizer.sha256(JsonParser.parseString(expected)), jwkVm.getPublicKeyJwkSha256());
+    }
+
+    @Test
+    void testFromPemAndEcKey() {
+        var fromPem = (JwkVerificationMethod) assertDoesNotThrow(() ->
+                VerificationMethod.of("my-assert-key-01", Path.of(TEST_DATA_PATH_PREFIX + "assert-key-01.pub"))); // MUT
+        assertTrue(fromPem.getPublicKeyJwk().contains("\"kid\":\"my-assert-key-01\""));
+        assertEquals("P-256", fromPem.getCrv());
+        assertEquals(VerificationMethod.VM_TYPE_JSON_WEB_KEY_2020, fromPem.getType());
+
+        assertThrowsExactly(VerificationMethodException.class, () -> VerificationMethod.of("my-key-01", "not a JWK")); // MUT
+        assertThrowsExactly(VerificationMethodException.class, () -> VerificationMethod.of("my-key-01", "[]")); // MUT
+        assertThrowsExactly(VerificationMethodException.class, () -> VerificationMethod.of("my-key-01", "{\"kty\":\"EC\",\"crv\":\"P-256\"}")); // MUT
+    }
+
+    @Test
+    void testConcurrentSharing() throws Exception {
+        var vm = assertDoesNotThrow(() -> VerificationMethod.of("my-key-01", PUBLIC_KEY_JWK));
+        var expected = vm.getVerificationMaterial().getPublicKeyJwk();
+
+        try (var executor = Executors.newFixedThreadPool(8)) {
+            var tasks = new ArrayList<Callable<String>>();
+            for (int i = 0; i < 64; i++) {
+                tasks.add(() -> {
+                    var jsonObj = ((JwkVerificationMethod) vm).getPublicKeyJwkJsonObject(); // MUT
+                    jsonObj.addProperty("kid", Thread.currentThread().getName());
+                    return vm.getVerificationMaterial().getPublicKeyJwk(); // MUT
+                });
+            }
+            for (var future : executor.invokeAll(tasks)) {
+                assertEquals(expected, future.get());
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package ch.admin.bj.swiyu.didtoolbox.model;
+
+import ch.admin.bj.swiyu.didtoolbox.AbstractUtilTestBase;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("PMD")
+class ResolvedDidDocumentTest extends AbstractUtilTestBase {
+
+    private static void assertResolvedDidDoc(DidLogMeta didLogMeta) {
+        var resolved = didLogMeta.getResolvedDidDoc(); // MUT
+        assertNotNull(resolved);
+        // converted once and for all
+        assertSame(resolved, didLogMeta.getResolvedDidDoc());
+
+        var didDoc = didLogMeta.getDidDoc();
+        assertEquals(didDoc.getId(), resolved.getId());
+        assertEquals(didDoc.getContext(), resolved.getContext());
+
+        assertEquals(Set.of("my-assert-key-01", "my-auth-key-01"), resolved.getVerificationMethods().keySet());
+        assertEquals(Set.of("my-auth-key-01"), resolved.getAuthentication());
+        assertEquals(Set.of("my-assert-key-01"), resolved.getAssertionMethod());
+        assertTrue(resolved.isAuthentication("my-auth-key-01"));
+        assertFalse(resolved.isAuthentication("my-assert-key-01"));
+        assertTrue(resolved.isAssertionMethod("my-assert-key-01"));
+        assertFalse(resolved.isAssertionMethod("my-auth-key-01"));
+
+        var jwk = resolved.getKey("my-assert-key-01");
+        var ecKey = assertInstanceOf(ECKey.class, jwk);
+        assertEquals(Curve.P_256, ecKey.getCurve());
+        assertNull(resolved.getKey("no-such-key"));
+        assertFalse(resolved.isMalformedKey("my-assert-key-01"));
+        assertFalse(resolved.isMalformedKey("no-such-key"));
+
+        // immutable
+        assertThrows(UnsupportedOperationException.class, () -> resolved.getVerificationMethods().clear());
+        assertThrows(UnsupportedOperationException.class, () -> resolved.getAuthentication().clear());
+        assertThrows(UnsupportedOperationException.class, () -> resolved.getAssertionMethod().clear());
+        assertThrows(UnsupportedOperationException.class, () -> resolved.getContext().clear());
+    }
+
+    @Test
+    void testOfWebVerifiableHistory() {
+        var didLog = buildInitialWebVerifiableHistoryDidLogEntry(TEST_CRYPTO_SUITE);
+        assertResolvedDidDoc(assertDoesNotThrow(() -> WebVerifiableHistoryDidLogMetaPeeker.peek(didLog)));
+    }
+
+    @Test
+    void testOfTdw() {
+        var didLog = buildInitialTdwDidLogEntry(TEST_CRYPTO_SUITE);
+        assertResolvedDidDoc(assertDoesNotThrow(() -> TdwDidLogMetaPeeker.peek(didLog)));
+    }
+
+    @Test
+    void testOf() {
+        var didLog = buildInitialWebVerifiableHistoryDidLogEntry(TEST_CRYPTO_SUITE);
+        var didDoc = assertDoesNotThrow(() -> WebVerifiableHistoryDidLogMetaPeeker.peek(didLog)).getDidDoc();
+
+        var resolved = ResolvedDidDocument.of(didDoc); // MUT
+        // the very same key as (natively) looked up by its fragment
+        assertEquals(assertDoesNotThrow(() -> didDoc.getKey("my-auth-key-01")).getX(), resolved.getKey("my-auth-key-01").toJSONObject().get("x"));
+    }
+}
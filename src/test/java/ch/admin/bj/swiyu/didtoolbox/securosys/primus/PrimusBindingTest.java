@@ -0,0 +1,118 @@
+package ch.admin.bj.swiyu.didtoolbox.securosys.primus;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import java.security.Provider;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("PMD")
+public class PrimusBindingTest {
+
+    /**
+     * Mimics the API of {@code com.securosys.primus.jce.PrimusProvider} relevant to {@link PrimusBinding}.
+     */
+    public static class FakeProvider extends Provider {
+        public FakeProvider() {
+            super("FakePrimus", "1.0", "Fake Primus provider");
+        }
+
+        public String getKeyStoreTypeName() {
+            return "FakePrimusKeyStore";
+        }
+
+        public String getProviderName() {
+            return getName();
+        }
+    }
+
+    /**
+     * Mimics the API of {@code com.securosys.primus.jce.PrimusEncoding} relevant to {@link PrimusBinding}.
+     */
+    public static class FakeEncoding {
+        public static byte[] optionallyUnderifyRS(byte[] signed) {
+            return Arrays.copyOf(signed, 64);
+        }
+    }
+
+    private static PrimusBinding fakeBinding() {
+        return assertDoesNotThrow(() -> PrimusBinding.of(FakeProvider.class.getName(), FakeEncoding.class.getName()));
+    }
+
+    @Test
+    void testBinding() {
+        var binding = fakeBinding(); // MUT
+
+        assertDoesNotThrow(() -> {
+            var provider = binding.newProvider(); // MUT
+            assertInstanceOf(FakeProvider.class, provider);
+            assertEquals("FakePrimusKeyStore", binding.getKeyStoreTypeName(provider)); // MUT
+            assertEquals("FakePrimus", binding.getProviderName(provider)); // MUT
+        });
+
+        assertArrayEquals(new byte[64], binding.optionallyUnderifyRS(new byte[70])); // MUT
+    }
+
+    @Test
+    void testBindingFailsFast() {
+        // the Securosys JCE provider library is not on the test classpath
+        assertThrowsExactly(PrimusKeyStoreInitializationException.class, PrimusBinding::getDefault); // MUT
+        assertThrowsExactly(PrimusKeyStoreInitializationException.class, PrimusKeyStoreLoader::new); // MUT
+
+        assertThrowsExactly(PrimusKeyStoreInitializationException.class, () ->
+                PrimusBinding.of("no.such.Provider", FakeEncoding.class.getName())); // MUT
+        assertThrowsExactly(PrimusKeyStoreInitializationException.class, () ->
+                PrimusBinding.of(FakeProvider.class.getName(), Object.class.getName())); // MUT (no such method)
+        assertThrowsExactly(PrimusKeyStoreInitializationException.class, () ->
+                PrimusBinding.of(FakeEncoding.class.getName(), FakeEncoding.class.getName())); // MUT (not a provider)
+    }
+
+    /**
+     * A (rough) micro-benchmark comparing the per-signature overhead of the former reflective lookup-and-invoke
+     * against the invocation of an already resolved {@link java.lang.invoke.MethodHandle}.
+     * <p>
+     * Excluded from regular builds, see the {@code benchmark} Maven profile.
+     */
+    @Test
+    @Tag("benchmark")
+    void benchmarkOptionallyUnderifyRS(TestReporter reporter) throws Exception {
+        var binding = fakeBinding();
+        var signed = new byte[64];
+        var iterations = 200_000;
+
+        // warm-up
+        for (int i = 0; i < iterations; i++) {
+            reflectiveUnderifyRS(signed);
+            binding.optionallyUnderifyRS(signed);
+        }
+
+        var start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            reflectiveUnderifyRS(signed);
+        }
+        var reflectiveNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            binding.optionallyUnderifyRS(signed); // MUT
+        }
+        var handleNanos = System.nanoTime() - start;
+
+        reporter.publishEntry("optionallyUnderifyRS", String.format("reflective %d ns/op, method handle %d ns/op",
+                reflectiveNanos / iterations, handleNanos / iterations));
+
+        assertArrayEquals(reflectiveUnderifyRS(signed), binding.optionallyUnderifyRS(signed));
+    }
+
+    /**
+     * The way {@link PrimusEd25519VerificationMethodKeyProviderImpl} used to do it, on every signature.
+     */
+    private static byte[] reflectiveUnderifyRS(byte[] signed) throws Exception {
+        return (byte[]) Class.forName(FakeEncoding.class.getName())
+                .getMethod("optionallyUnderifyRS", byte[].class)
+                .invoke(null, signed);
+    }
+}
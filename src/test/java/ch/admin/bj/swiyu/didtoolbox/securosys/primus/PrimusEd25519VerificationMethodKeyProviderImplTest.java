@@ -0,0 +1,205 @@
+package ch.admin.bj.swiyu.didtoolbox.securosys.primus;
+
+import ch.admin.bj.swiyu.didtoolbox.Ed25519Utils;
+import ch.admin.bj.swiyu.didtoolbox.vc_data_integrity.EdDsaJcs2022DataIntegrityProofVerifier;
+import ch.admin.bj.swiyu.didtoolbox.vc_data_integrity.ProofOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyException;
+import java.security.ProviderException;
+import java.security.Security;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Exercises the HSM-backed code paths against the {@link SimulatedPrimusProvider}.
+ */
+@Execution(ExecutionMode.SAME_THREAD) // the simulated appliance is a singleton
+@SuppressWarnings("PMD")
+public class PrimusEd25519VerificationMethodKeyProviderImplTest {
+
+    private static final String ALIAS = "my-ed25519-key";
+
+    @BeforeEach
+    void beforeEach() {
+        SimulatedPrimusProvider.reset();
+        assertDoesNotThrow(() -> SimulatedPrimusProvider.generateKey(ALIAS));
+    }
+
+    @AfterEach
+    void afterEach() {
+        SimulatedPrimusProvider.reset();
+        Security.removeProvider(SimulatedPrimusProvider.NAME);
+    }
+
+    @Test
+    void testGenerateSignature() {
+        assertDoesNotThrow(() -> {
+            var primus = SimulatedPrimusProvider.connect("hsm1");
+            var publicKey = primus.getKeyStore().getCertificate(ALIAS).getPublicKey();
+
+            var keyProvider = new PrimusEd25519VerificationMethodKeyProviderImpl(primus, ALIAS, null); // MUT
+
+            assertEquals(Ed25519Utils.toMultibase(publicKey), keyProvider.getVerificationKeyMultibase());
+            var message = "The quick brown fox jumps over the lazy dog".getBytes(StandardCharsets.UTF_8);
+            var signature = keyProvider.generateSignature(message); // MUT
+            assertEquals(64, signature.length);
+
+            var verifier = java.security.Signature.getInstance("Ed25519", "SunEC");
+            verifier.initVerify(publicKey);
+            verifier.update(message);
+            assertTrue(verifier.verify(signature));
+
+            // also via proof of possession signer
+            var signer = new PrimusEd25519ProofOfPossessionJWSSignerImpl(primus, ALIAS, null, "my-kid"); // MUT
+            assertEquals("my-kid", signer.getKid());
+        });
+
+        assertThrowsExactly(KeyException.class, () ->
+                new PrimusEd25519VerificationMethodKeyProviderImpl(SimulatedPrimusProvider.connect("hsm1"), "no-such-alias", null));
+        assertThrows(Exception.class, () -> SimulatedPrimusProvider.connect(SimulatedPrimusProvider.UNREACHABLE_HOST_PREFIX + "-hsm"));
+    }
+
+    /**
+     * Excluded from regular builds, see the {@code benchmark} Maven profile.
+     */
+    @Test
+    @Tag("benchmark")
+    void benchmarkSigningPipeline(TestReporter reporter) {
+        var keyProvider = assertDoesNotThrow(() ->
+                new PrimusEd25519VerificationMethodKeyProviderImpl(SimulatedPrimusProvider.connect("hsm1"), ALIAS, null));
+
+        SimulatedPrimusProvider.configure(Duration.ofMillis(20), Duration.ofMillis(5), 0);
+        var count = 64;
+        var maxInFlight = 16;
+
+        try (var pipeline = new PrimusSigningPipeline(keyProvider, maxInFlight)) {
+            var futures = new ArrayList<CompletableFuture<byte[]>>();
+            var start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                var message = ("message #" + i).getBytes(StandardCharsets.UTF_8);
+                futures.add(assertDoesNotThrow(() -> pipeline.signAsync(message))); // MUT
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+            var elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+            // sequentially, it would take at least count * (20 - 5) ms
+            assertTrue(elapsedMillis < count * 15L, "elapsed: " + elapsedMillis + "ms");
+            assertEquals(count, pipeline.getLatencyHistogram().getCount());
+            assertTrue(pipeline.getLatencyHistogram().getPercentileNanos(50) >= Duration.ofMillis(15).toNanos());
+            reporter.publishEntry("Simulated HSM signing latency", pipeline.getLatencyHistogram().toString());
+        }
+    }
+
+    @Test
+    void testAddProofs() {
+        var keyProvider = assertDoesNotThrow(() ->
+                new PrimusEd25519VerificationMethodKeyProviderImpl(SimulatedPrimusProvider.connect("hsm1"), ALIAS, null));
+
+        var unsecuredDocuments = new ArrayList<String>();
+        for (int i = 0; i < 20; i++) {
+            unsecuredDocuments.add("{\"id\":\"urn:uuid:" + i + "\"}");
+        }
+        var proofOptions = ProofOptions.builder().dateTime(ZonedDateTime.parse("2023-02-24T23:36:38Z")).build();
+
+        var securedDocuments = assertDoesNotThrow(() -> keyProvider.addProofs(unsecuredDocuments, proofOptions)); // MUT
+        assertEquals(unsecuredDocuments.size(), securedDocuments.size());
+        for (int i = 0; i < unsecuredDocuments.size(); i++) {
+            var index = i;
+            assertTrue(securedDocuments.get(i).contains("urn:uuid:" + i + "\""));
+            assertDoesNotThrow(() -> assertTrue(new EdDsaJcs2022DataIntegrityProofVerifier().verifyProof(securedDocuments.get(index), null)));
+        }
+    }
+
+    @Test
+    void testSigningFailures() {
+        var keyProvider = assertDoesNotThrow(() ->
+                new PrimusEd25519VerificationMethodKeyProviderImpl(SimulatedPrimusProvider.connect("hsm1"), ALIAS, null));
+
+        SimulatedPrimusProvider.configure(Duration.ZERO, Duration.ZERO, 1);
+        assertThrowsExactly(IllegalArgumentException.class, () -> keyProvider.generateSignature(new byte[]{1})); // MUT
+
+        SimulatedPrimusProvider.configure(Duration.ZERO, Duration.ZERO, 0.5);
+        try (var pipeline = new PrimusSigningPipeline(keyProvider, 4)) {
+            var futures = new ArrayList<CompletableFuture<byte[]>>();
+            for (int i = 0; i < 100; i++) {
+                futures.add(assertDoesNotThrow(() -> pipeline.signAsync(new byte[]{1}))); // MUT
+            }
+            var failed = futures.stream().filter(f -> {
+                try {
+                    f.join();
+                    return false;
+                } catch (CompletionException e) {
+                    return true;
+                }
+            }).count();
+            assertTrue(failed > 0 && failed < 100, "failed: " + failed);
+        }
+    }
+
+    @Test
+    void testSessionManagerFailover() {
+        try (var manager = new PrimusSessionManager(
+                List.of(SimulatedPrimusProvider.UNREACHABLE_HOST_PREFIX + "-hsm1", "hsm2"),
+                SimulatedPrimusProvider::connect,
+                session -> session.getKeyStore().size(),
+                Duration.ofMinutes(1))) {
+
+            var keyProvider = assertDoesNotThrow(() -> manager.withSession(session -> // MUT
+                    new PrimusEd25519VerificationMethodKeyProviderImpl(session, ALIAS, null)));
+            assertEquals("hsm2", manager.getCurrentHost());
+            assertEquals(64, keyProvider.generateSignature(new byte[]{1}).length);
+
+            // the session is reused
+            assertDoesNotThrow(() -> manager.withSession(session -> session.getKeyStore().size())); // MUT
+            assertEquals(1, SimulatedPrimusProvider.getLoginCount());
+        }
+    }
+
+    @Test
+    void testSessionBreaksWhileSigning() {
+        try (var manager = new PrimusSessionManager(List.of("hsm1", "hsm2"),
+                SimulatedPrimusProvider::connect,
+                session -> session.getKeyStore().size(),
+                Duration.ofMinutes(1))) {
+
+            var keyProvider = assertDoesNotThrow(() -> manager.withSession(session ->
+                    new PrimusEd25519VerificationMethodKeyProviderImpl(session, ALIAS, null, manager)));
+            var first = assertDoesNotThrow(manager::getSession);
+
+            // the session breaks in the middle of an operation, so the signature is retried against a new session
+            SimulatedPrimusProvider.breakSessions(1);
+            assertEquals(64, keyProvider.generateSignature(new byte[]{1}).length); // MUT
+            assertEquals(1, manager.getReconnectCount());
+            assertNotSame(first, assertDoesNotThrow(manager::getSession));
+            assertEquals(2, SimulatedPrimusProvider.getLoginCount());
+
+            // the key (looked up again via the new session) keeps on being used
+            assertEquals(64, keyProvider.generateSignature(new byte[]{2}).length); // MUT
+            assertEquals(1, manager.getReconnectCount());
+
+            // broken twice in a row
+            SimulatedPrimusProvider.breakSessions(2);
+            assertThrowsExactly(ProviderException.class, () -> keyProvider.generateSignature(new byte[]{3})); // MUT
+        }
+
+        // with no manager, a broken session is simply reported
+        var keyProvider = assertDoesNotThrow(() ->
+                new PrimusEd25519VerificationMethodKeyProviderImpl(SimulatedPrimusProvider.connect("hsm1"), ALIAS, null));
+        SimulatedPrimusProvider.breakSessions(1);
+        assertThrowsExactly(ProviderException.class, () -> keyProvider.generateSignature(new byte[]{1})); // MUT
+    }
+}
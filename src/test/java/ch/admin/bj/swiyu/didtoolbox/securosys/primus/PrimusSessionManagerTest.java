@@ -0,0 +1,202 @@
+package ch.admin.bj.swiyu.didtoolbox.securosys.primus;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.security.KeyStore;
+import java.security.ProviderException;
+import java.security.SignatureException;
+import java.security.UnrecoverableEntryException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("PMD")
+public class PrimusSessionManagerTest {
+
+    private static PrimusKeyStoreLoader newSession() throws Exception {
+        var keyStore = KeyStore.getInstance("PKCS12");
+        keyStore.load(null, null);
+        return new PrimusKeyStoreLoader(keyStore, PrimusBinding.of(PrimusBindingTest.FakeProvider.class.getName(),
+                PrimusBindingTest.FakeEncoding.class.getName()));
+    }
+
+    @Test
+    void testSessionIsReused() {
+        var connects = new AtomicInteger();
+        try (var manager = new PrimusSessionManager(List.of("hsm1", "hsm2"), host -> {
+            connects.incrementAndGet();
+            return newSession();
+        }, session -> session.getKeyStore().size(), Duration.ofMinutes(1))) {
+
+            assertDoesNotThrow(() -> {
+                var session = manager.getSession(); // MUT
+                assertSame(session, manager.getSession()); // MUT
+                assertEquals(0, (int) manager.withSession(s -> s.getKeyStore().size())); // MUT
+            });
+            assertEquals(1, connects.get());
+            assertEquals("hsm1", manager.getCurrentHost());
+            assertTrue(manager.getConnectLatencyNanos("hsm1") >= 0);
+            assertEquals(-1, manager.getProbeLatencyNanos("hsm1")); // no probe yet, and a login is no probe
+            assertEquals(-1, manager.getConnectLatencyNanos("hsm2"));
+            assertEquals(0, manager.getReconnectCount());
+        }
+    }
+
+    @Test
+    void testFailover() {
+        var down = ConcurrentHashMap.<String>newKeySet();
+        down.add("hsm1");
+        try (var manager = new PrimusSessionManager(List.of("hsm1", " hsm2 ", "hsm3"), host -> {
+            if (down.contains(host)) {
+                throw new IOException("connection refused: " + host);
+            }
+            return newSession();
+        }, session -> session.getKeyStore().size(), Duration.ofMinutes(1))) {
+
+            assertDoesNotThrow(manager::getSession); // MUT
+            assertEquals("hsm2", manager.getCurrentHost());
+
+            // the operation fails on the current session, so it is retried on another host
+            down.add("hsm2");
+            var calls = new AtomicInteger();
+            assertEquals("ok", assertDoesNotThrow(() -> manager.withSession(s -> { // MUT
+                if (calls.incrementAndGet() == 1) {
+                    throw new IOException("broken pipe");
+                }
+                return "ok";
+            })));
+            assertEquals("hsm3", manager.getCurrentHost());
+            assertEquals(1, manager.getReconnectCount());
+
+            // none of the hosts is available
+            down.addAll(Set.of("hsm1", "hsm2", "hsm3"));
+            assertThrowsExactly(PrimusKeyStoreInitializationException.class, () -> manager.withSession(s -> { // MUT
+                throw new IOException("broken pipe");
+            }));
+            assertNull(manager.getCurrentHost());
+        }
+    }
+
+    @Test
+    void testBusinessFailureKeepsSession() {
+        var connects = new AtomicInteger();
+        try (var manager = new PrimusSessionManager(List.of("hsm1", "hsm2"), host -> {
+            connects.incrementAndGet();
+            return newSession();
+        }, session -> session.getKeyStore().size(), Duration.ofMinutes(1))) {
+
+            var session = assertDoesNotThrow(manager::getSession);
+
+            // e.g. a wrong password is no reason to fail over, so it is rethrown as is
+            var calls = new AtomicInteger();
+            assertThrowsExactly(UnrecoverableEntryException.class, () -> manager.withSession(s -> { // MUT
+                calls.incrementAndGet();
+                throw new UnrecoverableEntryException("wrong password");
+            }));
+            assertThrowsExactly(IllegalArgumentException.class, () -> manager.withSession(s -> { // MUT
+                calls.incrementAndGet();
+                throw new IllegalArgumentException("signing failed");
+            }));
+            assertEquals(2, calls.get()); // no retry
+            assertEquals(1, connects.get());
+            assertEquals(0, manager.getReconnectCount());
+            assertSame(session, assertDoesNotThrow(manager::getSession));
+        }
+    }
+
+    @Test
+    void testWithSharedSessionOfUnmanagedSession() {
+        var session = assertDoesNotThrow(PrimusSessionManagerTest::newSession);
+
+        // not originating from any shared manager, hence simply run against it
+        assertSame(session, assertDoesNotThrow(() -> PrimusSessionManager.withSharedSession(session, s -> s))); // MUT
+        assertThrowsExactly(UnrecoverableEntryException.class, () -> PrimusSessionManager.withSharedSession(session, s -> { // MUT
+            throw new UnrecoverableEntryException("wrong password");
+        }));
+    }
+
+    @Test
+    void testIsSessionFailure() {
+        assertTrue(PrimusSessionManager.isSessionFailure(new IOException("connection reset")));
+        assertTrue(PrimusSessionManager.isSessionFailure(new ProviderException("HSM unreachable")));
+        assertTrue(PrimusSessionManager.isSessionFailure(new IllegalArgumentException(new SignatureException(new ProviderException()))));
+        assertFalse(PrimusSessionManager.isSessionFailure(new UnrecoverableEntryException("wrong password")));
+        assertFalse(PrimusSessionManager.isSessionFailure(new IllegalArgumentException(new SignatureException("bad input"))));
+    }
+
+    @Test
+    void testHealthProbeReconnects() throws InterruptedException {
+        var probeFailures = new AtomicInteger(1);
+        try (var manager = new PrimusSessionManager(List.of("hsm1", "hsm2"), host -> newSession(), session -> {
+            if (probeFailures.getAndDecrement() > 0) {
+                throw new IOException("session expired");
+            }
+        }, Duration.ofMillis(50))) {
+
+            var first = assertDoesNotThrow(manager::getSession);
+            assertEquals("hsm1", manager.getCurrentHost());
+
+            // the first probe fails, so the session gets replaced (on the other host) in the background
+            for (int i = 0; i < 100 && manager.getReconnectCount() == 0; i++) {
+                Thread.sleep(20);
+            }
+            assertEquals(1, manager.getReconnectCount());
+            assertEquals("hsm2", manager.getCurrentHost());
+            assertNotSame(first, assertDoesNotThrow(manager::getSession));
+
+            // the probe latency of hsm2 gets recorded by the next (successful) probe
+            for (int i = 0; i < 100 && manager.getProbeLatencyNanos("hsm2") < 0; i++) {
+                Thread.sleep(20);
+            }
+            assertTrue(manager.getProbeLatencyNanos("hsm2") >= 0);
+        }
+    }
+
+    @Test
+    void testConnectOutsideLock() throws Exception {
+        var connecting = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var connects = new AtomicInteger();
+        try (var manager = new PrimusSessionManager(List.of("hsm1"), host -> {
+            connects.incrementAndGet();
+            connecting.countDown();
+            release.await();
+            return newSession();
+        }, session -> session.getKeyStore().size(), Duration.ofMinutes(1))) {
+
+            var first = CompletableFuture.supplyAsync(() -> assertDoesNotThrow(manager::getSession)); // MUT
+            assertTrue(connecting.await(5, TimeUnit.SECONDS));
+            var second = CompletableFuture.supplyAsync(() -> assertDoesNotThrow(manager::getSession)); // MUT
+
+            // not blocked by the login in flight
+            assertNull(assertTimeoutPreemptively(Duration.ofSeconds(5), manager::getCurrentHost));
+            assertEquals(0, manager.getReconnectCount());
+
+            release.countDown();
+            assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+            assertEquals(1, connects.get()); // a single login, awaited by both
+            assertEquals("hsm1", manager.getCurrentHost());
+        }
+    }
+
+    @Test
+    void testIllegal() {
+        assertThrowsExactly(IllegalArgumentException.class, () ->
+                new PrimusSessionManager(List.of(), host -> newSession(), session -> {
+                }, Duration.ofMinutes(1)));
+        assertThrowsExactly(IllegalArgumentException.class, () ->
+                new PrimusSessionManager(List.of(" "), host -> newSession(), session -> {
+                }, Duration.ofMinutes(1)));
+        assertThrowsExactly(IllegalArgumentException.class, () ->
+                new PrimusSessionManager(List.of("hsm1"), host -> newSession(), session -> {
+                }, Duration.ZERO));
+    }
+}
@@ -0,0 +1,153 @@
+package ch.admin.bj.swiyu.didtoolbox.securosys.primus;
+
+import ch.admin.bj.swiyu.didtoolbox.Ed25519VerificationMethodKeyProviderImpl;
+import ch.admin.bj.swiyu.didtoolbox.VerificationMethodKeyProvider;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("PMD")
+public class PrimusSigningPipelineTest {
+
+    /**
+     * Simulates an HSM round trip by delaying each signature.
+     */
+    private static class SlowSigner implements VerificationMethodKeyProvider {
+        private final Ed25519VerificationMethodKeyProviderImpl delegate = new Ed25519VerificationMethodKeyProviderImpl();
+        private final AtomicInteger concurrent = new AtomicInteger();
+        private final AtomicInteger maxConcurrent = new AtomicInteger();
+        private final long delayMillis;
+
+        SlowSigner(long delayMillis) {
+            this.delayMillis = delayMillis;
+        }
+
+        @Override
+        public String getVerificationKeyMultibase() {
+            return delegate.getVerificationKeyMultibase();
+        }
+
+        @Override
+        public byte[] generateSignature(byte[] message) {
+            maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(delayMillis);
+                if (message.length == 0) {
+                    throw new IllegalArgumentException("nothing to sign");
+                }
+                return delegate.generateSignature(message);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                concurrent.decrementAndGet();
+            }
+        }
+
+        @Override
+        public boolean isKeyMultibaseInSet(Set<String> multibaseEncodedKeys) {
+            return delegate.isKeyMultibaseInSet(multibaseEncodedKeys);
+        }
+    }
+
+    @Test
+    void testSignAsync() {
+        var signer = new SlowSigner(50);
+        var maxInFlight = 8;
+        var count = 32;
+
+        try (var pipeline = new PrimusSigningPipeline(signer, maxInFlight)) {
+
+            var messages = new ArrayList<byte[]>();
+            var futures = new ArrayList<CompletableFuture<byte[]>>();
+            var start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                var message = ("message #" + i).getBytes(StandardCharsets.UTF_8);
+                messages.add(message);
+                futures.add(assertDoesNotThrow(() -> pipeline.signAsync(message))); // MUT
+                assertTrue(pipeline.getInFlightCount() <= maxInFlight);
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+            var elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+            for (int i = 0; i < count; i++) {
+                // Ed25519 signatures are deterministic
+                assertArrayEquals(signer.delegate.generateSignature(messages.get(i)), futures.get(i).join());
+            }
+
+            assertTrue(signer.maxConcurrent.get() <= maxInFlight);
+            assertTrue(signer.maxConcurrent.get() > 1);
+            // way faster than signing sequentially (count * 50ms)
+            assertTrue(elapsedMillis < count * 50L, "elapsed: " + elapsedMillis + "ms");
+
+            var histogram = pipeline.getLatencyHistogram();
+            assertEquals(count, histogram.getCount());
+            assertTrue(histogram.getMeanNanos() >= 50_000_000L);
+            assertTrue(histogram.getPercentileNanos(99) >= histogram.getPercentileNanos(50));
+            assertTrue(histogram.getMaxNanos() >= 50_000_000L);
+        }
+    }
+
+    @Test
+    void testSignAsyncFailure() {
+        try (var pipeline = new PrimusSigningPipeline(new SlowSigner(1), 2)) {
+
+            var future = assertDoesNotThrow(() -> pipeline.signAsync(new byte[0])); // MUT
+            var exc = assertThrowsExactly(ExecutionException.class, future::get);
+            assertInstanceOf(IllegalArgumentException.class, exc.getCause());
+
+            // the pipeline remains usable
+            assertNotNull(assertDoesNotThrow(() -> pipeline.signAsync(new byte[]{1}).get())); // MUT
+            assertEquals(2, pipeline.getLatencyHistogram().getCount());
+
+            pipeline.close();
+            assertThrowsExactly(IllegalStateException.class, () -> pipeline.signAsync(new byte[]{1}));
+        }
+
+        assertThrowsExactly(IllegalArgumentException.class, () -> new PrimusSigningPipeline(new SlowSigner(1), 0));
+    }
+
+    @Test
+    void testSignAsyncError() {
+        var signer = new SlowSigner(1) {
+            @Override
+            public byte[] generateSignature(byte[] message) {
+                throw new AssertionError("not a RuntimeException");
+            }
+        };
+
+        try (var pipeline = new PrimusSigningPipeline(signer, 1)) {
+            var future = assertDoesNotThrow(() -> pipeline.signAsync(new byte[]{1})); // MUT
+            // completed (exceptionally) rather than left pending forever
+            var exc = assertThrowsExactly(ExecutionException.class, () -> future.get(1, TimeUnit.MINUTES));
+            assertInstanceOf(AssertionError.class, exc.getCause());
+            assertEquals(0, pipeline.getInFlightCount());
+        }
+    }
+
+    @Test
+    void testAsExecutor() {
+        var pipeline = new PrimusSigningPipeline(new SlowSigner(1), 2);
+        var executor = pipeline.asExecutor();
+
+        var ran = new AtomicInteger();
+        var futures = new ArrayList<CompletableFuture<Void>>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(CompletableFuture.runAsync(ran::incrementAndGet, executor)); // MUT
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        assertEquals(10, ran.get());
+        assertEquals(10, pipeline.getLatencyHistogram().getCount());
+
+        pipeline.close();
+        assertThrowsExactly(RejectedExecutionException.class, () -> executor.execute(ran::incrementAndGet));
+    }
+}
@@ -0,0 +1,389 @@
+package ch.admin.bj.swiyu.didtoolbox.securosys.primus;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.*;
+import java.security.cert.Certificate;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.KeySpec;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A local (test-scoped) stand-in for {@code com.securosys.primus.jce.PrimusProvider}, featuring the very same API relied upon
+ * by {@link PrimusBinding}, so that any HSM-backed code path (e.g. {@link PrimusEd25519VerificationMethodKeyProviderImpl},
+ * {@link PrimusSigningPipeline} or {@link PrimusSessionManager}) may be tested (and benchmarked) without a Primus appliance.
+ * <p>
+ * The "appliance" holds Ed25519 keys (see {@link #generateKey(String)}) shared by all the keystores of the provider,
+ * whereas every round trip (login, keystore query, signature) is delayed by a configurable latency (plus/minus jitter)
+ * and signing fails at a configurable rate (see {@link #configure(Duration, Duration, double)}).
+ * A login to any host whose name starts with {@link #UNREACHABLE_HOST_PREFIX} fails.
+ */
+@SuppressWarnings("PMD")
+public class SimulatedPrimusProvider extends Provider {
+
+    public static final String NAME = "SimulatedPrimus";
+    public static final String KEY_STORE_TYPE = "SimulatedPrimusKeyStore";
+    public static final String UNREACHABLE_HOST_PREFIX = "unreachable";
+
+    private static final Map<String, KeyPair> APPLIANCE = new ConcurrentHashMap<>();
+    private static final AtomicLong SIGNATURE_COUNT = new AtomicLong();
+    private static final AtomicLong LOGIN_COUNT = new AtomicLong();
+
+    private static volatile long latencyNanos;
+    private static volatile long jitterNanos;
+    private static volatile double failureRate;
+    private static final AtomicInteger SESSION_BREAKS = new AtomicInteger();
+
+    public SimulatedPrimusProvider() {
+        super(NAME, "1.0", "Simulated Securosys Primus HSM provider (for testing purposes only)");
+        putService(new Service(this, "KeyStore", KEY_STORE_TYPE, KeyStoreSpiImpl.class.getName(), null, null));
+        putService(new Service(this, "Signature", "EdDSA", SignatureSpiImpl.class.getName(), null, null));
+        putService(new Service(this, "KeyFactory", "EC", KeyFactorySpiImpl.class.getName(), null, null));
+    }
+
+    /**
+     * Mimics {@code com.securosys.primus.jce.PrimusProvider#getKeyStoreTypeName}.
+     */
+    public String getKeyStoreTypeName() {
+        return KEY_STORE_TYPE;
+    }
+
+    /**
+     * Mimics {@code com.securosys.primus.jce.PrimusProvider#getProviderName}.
+     */
+    public String getProviderName() {
+        return NAME;
+    }
+
+    /**
+     * Mimics {@code com.securosys.primus.jce.PrimusEncoding}. As Ed25519 signatures are never DER-encoded, nothing to do.
+     */
+    public static class Encoding {
+        public static byte[] optionallyUnderifyRS(byte[] signed) {
+            return signed;
+        }
+    }
+
+    /**
+     * @return the binding to this simulated provider
+     */
+    static PrimusBinding binding() throws PrimusKeyStoreInitializationException {
+        return PrimusBinding.of(SimulatedPrimusProvider.class.getName(), Encoding.class.getName());
+    }
+
+    /**
+     * Logs into the simulated appliance, the same way {@link PrimusKeyStoreLoader#PrimusKeyStoreLoader(String, int, String, String)} does.
+     */
+    static PrimusKeyStoreLoader connect(String host) throws Exception {
+        var loader = new PrimusKeyStoreLoader(binding());
+        loader.getKeyStore().load(PrimusKeyStoreLoader.SecurosysPrimusEnvironment.toStream(host, 2300, "user", "password"), null);
+        return loader;
+    }
+
+    /**
+     * Configures all the round trips to the simulated appliance.
+     *
+     * @param latency     of each round trip
+     * @param jitter      the maximum (random) deviation from the latency, in either direction
+     * @param failureRate the probability of a signature to fail, in range {@code [0, 1]}
+     */
+    public static void configure(Duration latency, Duration jitter, double failureRate) {
+        SimulatedPrimusProvider.latencyNanos = latency.toNanos();
+        SimulatedPrimusProvider.jitterNanos = jitter.toNanos();
+        SimulatedPrimusProvider.failureRate = failureRate;
+    }
+
+    /**
+     * Removes all the keys, resets the configuration and the counters.
+     */
+    public static void reset() {
+        configure(Duration.ZERO, Duration.ZERO, 0);
+        SESSION_BREAKS.set(0);
+        APPLIANCE.clear();
+        SIGNATURE_COUNT.set(0);
+        LOGIN_COUNT.set(0);
+    }
+
+    /**
+     * Generates an Ed25519 key (pair) in the simulated appliance.
+     *
+     * @param alias of the key
+     * @return the public key
+     */
+    public static PublicKey generateKey(String alias) throws GeneralSecurityException {
+        var keyPair = KeyPairGenerator.getInstance("Ed25519", "SunEC").generateKeyPair();
+        APPLIANCE.put(alias, keyPair);
+        return keyPair.getPublic();
+    }
+
+    /**
+     * Lets the next signatures fail as if the session broke (i.e. by throwing {@link ProviderException}).
+     *
+     * @param count the number of signatures to fail
+     */
+    public static void breakSessions(int count) {
+        SESSION_BREAKS.set(count);
+    }
+
+    public static long getSignatureCount() {
+        return SIGNATURE_COUNT.get();
+    }
+
+    public static long getLoginCount() {
+        return LOGIN_COUNT.get();
+    }
+
+    private static void roundTrip() {
+        var jitter = jitterNanos > 0 ? ThreadLocalRandom.current().nextLong(-jitterNanos, jitterNanos + 1) : 0;
+        var delay = Math.max(0, latencyNanos + jitter);
+        if (delay > 0) {
+            try {
+                Thread.sleep(Duration.ofNanos(delay));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static class SimulatedCertificate extends Certificate {
+        private final PublicKey publicKey;
+
+        SimulatedCertificate(PublicKey publicKey) {
+            super("Simulated");
+            this.publicKey = publicKey;
+        }
+
+        @Override
+        public byte[] getEncoded() {
+            return publicKey.getEncoded();
+        }
+
+        @Override
+        public void verify(PublicKey key) {
+        }
+
+        @Override
+        public void verify(PublicKey key, String sigProvider) {
+        }
+
+        @Override
+        public String toString() {
+            return "SimulatedCertificate[" + publicKey + "]";
+        }
+
+        @Override
+        public PublicKey getPublicKey() {
+            return publicKey;
+        }
+    }
+
+    public static class KeyStoreSpiImpl extends KeyStoreSpi {
+
+        @Override
+        public void engineLoad(InputStream stream, char[] password) throws IOException {
+            if (stream == null) {
+                throw new IOException("transport configuration not yet set");
+            }
+            var credentials = new Properties();
+            credentials.load(stream);
+            var host = credentials.getProperty("com.securosys.primus.jce.credentials.host");
+            if (host == null || credentials.getProperty("com.securosys.primus.jce.credentials.user") == null) {
+                throw new IOException("login by properties failed: incomplete credentials");
+            }
+            roundTrip();
+            if (host.startsWith(UNREACHABLE_HOST_PREFIX)) {
+                throw new IOException("login failed into HSM " + host + ": connectivity problem");
+            }
+            LOGIN_COUNT.incrementAndGet();
+        }
+
+        @Override
+        public Key engineGetKey(String alias, char[] password) {
+            roundTrip();
+            var keyPair = APPLIANCE.get(alias);
+            return keyPair != null ? keyPair.getPrivate() : null;
+        }
+
+        @Override
+        public Certificate[] engineGetCertificateChain(String alias) {
+            var cert = engineGetCertificate(alias);
+            return cert != null ? new Certificate[]{cert} : null;
+        }
+
+        @Override
+        public Certificate engineGetCertificate(String alias) {
+            var keyPair = APPLIANCE.get(alias);
+            return keyPair != null ? new SimulatedCertificate(keyPair.getPublic()) : null;
+        }
+
+        @Override
+        public Date engineGetCreationDate(String alias) {
+            return APPLIANCE.containsKey(alias) ? new Date() : null;
+        }
+
+        @Override
+        public void engineSetKeyEntry(String alias, Key key, char[] password, Certificate[] chain) throws KeyStoreException {
+            throw new KeyStoreException("Not supported by the simulated appliance, use generateKey instead");
+        }
+
+        @Override
+        public void engineSetKeyEntry(String alias, byte[] key, Certificate[] chain) throws KeyStoreException {
+            throw new KeyStoreException("Not supported by the simulated appliance, use generateKey instead");
+        }
+
+        @Override
+        public void engineSetCertificateEntry(String alias, Certificate cert) throws KeyStoreException {
+            throw new KeyStoreException("Not supported by the simulated appliance");
+        }
+
+        @Override
+        public void engineDeleteEntry(String alias) {
+            APPLIANCE.remove(alias);
+        }
+
+        @Override
+        public Enumeration<String> engineAliases() {
+            return Collections.enumeration(APPLIANCE.keySet());
+        }
+
+        @Override
+        public boolean engineContainsAlias(String alias) {
+            return APPLIANCE.containsKey(alias);
+        }
+
+        @Override
+        public int engineSize() {
+            roundTrip();
+            return APPLIANCE.size();
+        }
+
+        @Override
+        public boolean engineIsKeyEntry(String alias) {
+            return APPLIANCE.containsKey(alias);
+        }
+
+        @Override
+        public boolean engineIsCertificateEntry(String alias) {
+            return false;
+        }
+
+        @Override
+        public String engineGetCertificateAlias(Certificate cert) {
+            return APPLIANCE.entrySet().stream()
+                    .filter(e -> e.getValue().getPublic().equals(cert.getPublicKey()))
+                    .map(Map.Entry::getKey).findFirst().orElse(null);
+        }
+
+        @Override
+        public void engineStore(OutputStream stream, char[] password) throws IOException {
+            throw new IOException("Not supported by the simulated appliance");
+        }
+    }
+
+    public static class SignatureSpiImpl extends SignatureSpi {
+
+        private Signature delegate;
+        private boolean signing;
+
+        private static Signature newDelegate() throws InvalidKeyException {
+            try {
+                return Signature.getInstance("Ed25519", "SunEC");
+            } catch (NoSuchAlgorithmException | NoSuchProviderException e) {
+                throw new InvalidKeyException(e);
+            }
+        }
+
+        @Override
+        protected void engineInitVerify(PublicKey publicKey) throws InvalidKeyException {
+            this.delegate = newDelegate();
+            this.delegate.initVerify(publicKey);
+            this.signing = false;
+        }
+
+        @Override
+        protected void engineInitSign(PrivateKey privateKey) throws InvalidKeyException {
+            this.delegate = newDelegate();
+            this.delegate.initSign(privateKey);
+            this.signing = true;
+        }
+
+        @Override
+        protected void engineUpdate(byte b) throws SignatureException {
+            this.delegate.update(b);
+        }
+
+        @Override
+        protected void engineUpdate(byte[] b, int off, int len) throws SignatureException {
+            this.delegate.update(b, off, len);
+        }
+
+        @Override
+        protected byte[] engineSign() throws SignatureException {
+            if (!this.signing) {
+                throw new SignatureException("Not initialized for signing");
+            }
+            roundTrip();
+            if (SESSION_BREAKS.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                throw new ProviderException("Simulated broken session");
+            }
+            if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+                throw new SignatureException("Simulated HSM failure");
+            }
+            SIGNATURE_COUNT.incrementAndGet();
+            return this.delegate.sign();
+        }
+
+        @Override
+        protected boolean engineVerify(byte[] sigBytes) throws SignatureException {
+            return this.delegate.verify(sigBytes);
+        }
+
+        @Override
+        @Deprecated
+        protected void engineSetParameter(String param, Object value) {
+            throw new InvalidParameterException("Not supported");
+        }
+
+        @Override
+        @Deprecated
+        protected Object engineGetParameter(String param) {
+            throw new InvalidParameterException("Not supported");
+        }
+    }
+
+    public static class KeyFactorySpiImpl extends KeyFactorySpi {
+
+        @Override
+        protected PublicKey engineGeneratePublic(KeySpec keySpec) throws InvalidKeySpecException {
+            throw new InvalidKeySpecException("Not supported by the simulated appliance");
+        }
+
+        @Override
+        protected PrivateKey engineGeneratePrivate(KeySpec keySpec) throws InvalidKeySpecException {
+            throw new InvalidKeySpecException("Not supported by the simulated appliance");
+        }
+
+        @Override
+        protected <T extends KeySpec> T engineGetKeySpec(Key key, Class<T> keySpec) throws InvalidKeySpecException {
+            throw new InvalidKeySpecException("Not supported by the simulated appliance");
+        }
+
+        /**
+         * The keys of the simulated appliance are regular (SunEC) keys, hence nothing to translate.
+         */
+        @Override
+        protected Key engineTranslateKey(Key key) {
+            return key;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package ch.admin.bj.swiyu.didtoolbox.vc_data_integrity;
+
+import ch.admin.bj.swiyu.didtoolbox.AbstractUtilTestBase;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZonedDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("PMD")
+class EdDsaJcs2022DataIntegrityProofVerifierTest extends AbstractUtilTestBase {
+
+    // As suggested by https://www.w3.org/TR/vc-di-eddsa/#example-credential-without-proof-0
+    private static final String CREDENTIAL_WITHOUT_PROOF = """
+            {
+                 "@context": [
+                     "https://www.w3.org/ns/credentials/v2",
+                     "https://www.w3.org/ns/credentials/examples/v2"
+                 ],
+                 "id": "urn:uuid:58172aac-d8ba-11ed-83dd-0b3aef56cc33",
+                 "type": ["VerifiableCredential", "AlumniCredential"],
+                 "name": "Alumni Credential",
+                 "description": "A minimum viable example of an Alumni Credential.",
+                 "issuer": "https://vc.example/issuers/5678",
+                 "validFrom": "2023-01-01T00:00:00Z",
+                 "credentialSubject": {
+                     "id": "did:example:abcdefgh",
+                     "alumniOf": "The School of Examples"
+                 }
+            }
+            """;
+
+    private static String secureCredential() {
+        return assertDoesNotThrow(() -> new EdDsaJcs2022VcDataIntegrityCryptographicSuite(TEST_PRIVATE_KEY_MULTIBASE)
+                .addProof(CREDENTIAL_WITHOUT_PROOF, "my-challenge", "assertionMethod", ZonedDateTime.parse("2023-02-24T23:36:38Z")));
+    }
+
+    @Test
+    void testVerifyProof() {
+        var verifier = new EdDsaJcs2022DataIntegrityProofVerifier();
+        var securedCredential = secureCredential();
+
+        assertDoesNotThrow(() -> {
+            assertTrue(verifier.verifyProof(securedCredential, null)); // MUT
+            assertTrue(verifier.verifyProof(securedCredential, "{\"proofPurpose\":\"assertionMethod\",\"challenge\":\"my-challenge\"}")); // MUT
+            assertFalse(verifier.verifyProof(securedCredential, "{\"challenge\":\"another-challenge\"}")); // MUT
+            // the same key is decoded only once
+            assertTrue(verifier.verifyProof(securedCredential, null)); // MUT
+        });
+        assertEquals(1, verifier.getCachedKeyCount());
+        assertEquals(0, verifier.getCachedMalformedKeyCount());
+
+        // also via the suite, yet only if the did:key of the proof denotes the verifying key of the suite
+        assertDoesNotThrow(() -> {
+            assertTrue(new EdDsaJcs2022VcDataIntegrityCryptographicSuite(TEST_PRIVATE_KEY_MULTIBASE).verifyProof(securedCredential, null)); // MUT
+            assertFalse(TEST_CRYPTO_SUITE_ANOTHER.verifyProof(securedCredential, null)); // MUT
+        });
+    }
+
+    @Test
+    void testVerifyProofMismatchingFragment() {
+        var verifier = new EdDsaJcs2022DataIntegrityProofVerifier();
+
+        var securedCredential = JsonParser.parseString(secureCredential()).getAsJsonObject();
+        var proof = securedCredential.get("proof").getAsJsonArray().get(0).getAsJsonObject();
+        var verificationMethod = proof.get("verificationMethod").getAsString();
+        var didKey = verificationMethod.substring(0, verificationMethod.indexOf('#'));
+        // the DID denotes the signing key, but the fragment denotes some other key
+        proof.addProperty("verificationMethod", didKey + '#' + TEST_CRYPTO_SUITE_ANOTHER.getVerificationKeyMultibase());
+
+        assertDoesNotThrow(() -> assertFalse(verifier.verifyProof(securedCredential.toString(), null))); // MUT
+    }
+
+    @Test
+    void testVerifyProofTampered() {
+        var verifier = new EdDsaJcs2022DataIntegrityProofVerifier();
+
+        var tampered = JsonParser.parseString(secureCredential()).getAsJsonObject();
+        tampered.addProperty("name", "Tampered Credential");
+        assertDoesNotThrow(() -> assertFalse(verifier.verifyProof(tampered.toString(), null))); // MUT
+
+        var tamperedProof = JsonParser.parseString(secureCredential()).getAsJsonObject();
+        tamperedProof.get("proof").getAsJsonArray().get(0).getAsJsonObject().addProperty("proofPurpose", "authentication");
+        assertDoesNotThrow(() -> assertFalse(verifier.verifyProof(tamperedProof.toString(), null))); // MUT
+    }
+
+    @Test
+    void testVerifyProofMalformedKey() {
+        var verifier = new EdDsaJcs2022DataIntegrityProofVerifier();
+
+        var malformed = JsonParser.parseString(secureCredential()).getAsJsonObject();
+        malformed.get("proof").getAsJsonArray().get(0).getAsJsonObject().addProperty("verificationMethod", "did:key:z6MkInvalid#z6MkInvalid");
+
+        assertDoesNotThrow(() -> {
+            assertFalse(verifier.verifyProof(malformed.toString(), null)); // MUT
+            assertFalse(verifier.verifyProof(malformed.toString(), null)); // MUT (negative cache hit)
+        });
+        assertEquals(0, verifier.getCachedKeyCount());
+        assertEquals(1, verifier.getCachedMalformedKeyCount());
+    }
+
+    @Test
+    void testVerifyProofOnDidLog() {
+        var verifier = new EdDsaJcs2022DataIntegrityProofVerifier();
+
+        for (var didLogEntry : buildWebVhDidLog(TEST_CRYPTO_SUITE).split("\\R")) {
+            assertDoesNotThrow(() -> assertTrue(verifier.verifyProof(didLogEntry, "{\"proofPurpose\":\"assertionMethod\"}"))); // MUT
+        }
+        assertEquals(1, verifier.getCachedKeyCount());
+    }
+
+    @Test
+    void testVerifyProofIllegal() {
+        var verifier = new EdDsaJcs2022DataIntegrityProofVerifier();
+
+        assertThrowsExactly(VcDataIntegrityCryptographicSuiteException.class, () -> verifier.verifyProof("not a json", null));
+        assertThrowsExactly(VcDataIntegrityCryptographicSuiteException.class, () -> verifier.verifyProof(CREDENTIAL_WITHOUT_PROOF, null));
+        assertThrowsExactly(IllegalArgumentException.class, () -> new EdDsaJcs2022DataIntegrityProofVerifier(0));
+    }
+}
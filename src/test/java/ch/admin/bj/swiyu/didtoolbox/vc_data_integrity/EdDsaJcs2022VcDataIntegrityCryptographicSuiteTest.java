@@ -1,17 +1,25 @@
 package ch.admin.bj.swiyu.didtoolbox.vc_data_integrity;
 
 import ch.admin.bj.swiyu.didtoolbox.AbstractUtilTestBase;
+import ch.admin.bj.swiyu.didtoolbox.Base58;
+import ch.admin.bj.swiyu.didtoolbox.Ed25519Utils;
 import com.google.gson.JsonParser;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -93,6 +101,89 @@ class EdDsaJcs2022VcDataIntegrityCryptographicSuiteTest extends AbstractUtilTest
         });
     }
 
+    @DisplayName("Signing/verifying (byte-level) using various existing keys")
+    @ParameterizedTest(name = "Signing/verifying using key: {0}")
+    @MethodSource("keyMessageSignature")
+    public void testSignVerifyByteBuffer(String privateKeyMultibase, String publicKeyMultibase, String message, String expected) {
+
+        assertDoesNotThrow(() -> {
+            var msg = message.getBytes(StandardCharsets.UTF_8);
+
+            var suite = new EdDsaJcs2022VcDataIntegrityCryptographicSuite(privateKeyMultibase);
+
+            var signed = suite.sign(ByteBuffer.wrap(msg)); // MUT
+
+            assertEquals(expected, HexFormat.of().formatHex(signed));
+            assertTrue(suite.verify(ByteBuffer.wrap(msg), ByteBuffer.wrap(signed))); // MUT
+            assertTrue(EdDsaJcs2022VcDataIntegrityCryptographicSuite.verify(
+                    Ed25519Utils.toPublicKey(publicKeyMultibase), ByteBuffer.wrap(msg), ByteBuffer.wrap(signed))); // MUT
+
+            // tampered message
+            assertFalse(suite.verify(ByteBuffer.wrap("tampered".getBytes(StandardCharsets.UTF_8)), ByteBuffer.wrap(signed)));
+            // truncated signature
+            assertFalse(suite.verify(ByteBuffer.wrap(msg), ByteBuffer.wrap(signed, 0, 63)));
+        });
+    }
+
+    @Test
+    public void testSignByteBufferUsingGeneratedOrPemKey() {
+
+        assertDoesNotThrow(() -> {
+            var msg = HexFormat.of().parseHex("00ff7f80"); // not a valid UTF-8 sequence
+            for (var suite : List.of(
+                    new EdDsaJcs2022VcDataIntegrityCryptographicSuite(), // generated key
+                    new EdDsaJcs2022VcDataIntegrityCryptographicSuite(Path.of("src/test/data/private.pem")))) { // PEM-loaded key
+
+                var signed = suite.sign(ByteBuffer.wrap(msg)); // MUT
+
+                assertEquals(64, signed.length);
+                assertTrue(suite.verify(ByteBuffer.wrap(msg), ByteBuffer.wrap(signed))); // MUT
+                assertTrue(suite.verifyStrict(msg, signed)); // MUT
+                // the raw signing path delivers the very same (deterministic) signature as the native key does
+                assertEquals(suite.signingKey.signHex(HexFormat.of().formatHex(msg)).toMultibase(), 'z' + Base58.encode(signed));
+            }
+        });
+    }
+
+    @Test
+    public void testVerifyStrictRejectsMalleableSignatures() {
+
+        assertDoesNotThrow(() -> {
+            var msg = HexFormat.of().parseHex("00ff7f80"); // not a valid UTF-8 sequence
+            var suite = new EdDsaJcs2022VcDataIntegrityCryptographicSuite();
+            var signed = suite.sign(ByteBuffer.wrap(msg));
+            assertTrue(suite.verifyStrict(msg, signed)); // MUT
+
+            // S + L, i.e. a non-canonical scalar
+            var order = BigInteger.TWO.pow(252).add(new BigInteger("27742317777372353535851937790883648493"));
+            var s = Arrays.copyOfRange(signed, 32, 64);
+            reverse(s);
+            var malleated = new BigInteger(1, s).add(order).toByteArray(); // big-endian, fits into 32 bytes
+            var malleatedS = new byte[32];
+            System.arraycopy(malleated, 0, malleatedS, 32 - malleated.length, malleated.length);
+            reverse(malleatedS);
+            var malleatedSignature = Arrays.copyOf(signed, 64);
+            System.arraycopy(malleatedS, 0, malleatedSignature, 32, 32);
+            assertFalse(suite.verifyStrict(msg, malleatedSignature)); // MUT
+
+            // R being the identity point, i.e. of small order
+            var smallOrderR = Arrays.copyOf(signed, 64);
+            Arrays.fill(smallOrderR, 0, 32, (byte) 0);
+            smallOrderR[0] = 1;
+            assertFalse(suite.verifyStrict(msg, smallOrderR)); // MUT
+
+            assertFalse(suite.verifyStrict(msg, Arrays.copyOf(signed, 63))); // MUT
+        });
+    }
+
+    private static void reverse(byte[] bytes) {
+        for (int i = 0, j = bytes.length - 1; i < j; i++, j--) {
+            var b = bytes[i];
+            bytes[i] = bytes[j];
+            bytes[j] = b;
+        }
+    }
+
     @Test
     public void testAddProof() { // according to https://www.w3.org/TR/vc-di-eddsa/#representation-eddsa-jcs-2022
 
@@ -128,4 +219,44 @@ class EdDsaJcs2022VcDataIntegrityCryptographicSuiteTest extends AbstractUtilTest
                     JsonParser.parseString(credentialsWithProof).getAsJsonObject().get("proof").getAsJsonArray().get(0).getAsJsonObject().get("proofValue").getAsString());
         });
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testAddProofs() {
+
+        assertDoesNotThrow(() -> {
+            var suite = new EdDsaJcs2022VcDataIntegrityCryptographicSuite("z3u2en7t5LR2WtQH5PfFqMqwVHBeXouLzo6haApm8XHqvjxq");
+            var dateTime = ZonedDateTime.parse("2023-02-24T23:36:38Z");
+
+            var unsecuredDocuments = new ArrayList<String>();
+            for (int i = 0; i < 50; i++) {
+                unsecuredDocuments.add(i % 2 == 0
+                        ? "{\"@context\":[\"https://www.w3.org/ns/credentials/v2\"],\"id\":\"urn:uuid:" + i + "\"}"
+                        : "{\"id\":\"urn:uuid:" + i + "\"}"); // no @context at all
+            }
+
+            var securedDocuments = suite.addProofs(unsecuredDocuments, ProofOptions.builder()
+                    .challenge("my-challenge")
+                    .proofPurpose("authentication")
+                    .dateTime(dateTime)
+                    .build()); // MUT
+
+            assertEquals(unsecuredDocuments.size(), securedDocuments.size());
+            for (int i = 0; i < unsecuredDocuments.size(); i++) {
+                // the order must be preserved, whereas the outcome must be the same as the one of the single-document counterpart
+                assertEquals(suite.addProof(unsecuredDocuments.get(i), "my-challenge", "authentication", dateTime), securedDocuments.get(i));
+            }
+        });
+
+        var suite = assertDoesNotThrow(() -> new EdDsaJcs2022VcDataIntegrityCryptographicSuite());
+        assertThrowsExactly(VcDataIntegrityCryptographicSuiteException.class, () ->
+                suite.addProofs(List.of("{}", "not a json object"), ProofOptions.builder().build()));
+        // the whole document is parsed, even past the @context
+        assertThrowsExactly(VcDataIntegrityCryptographicSuiteException.class, () ->
+                suite.addProofs(List.of("{\"@context\":[\"https://www.w3.org/ns/credentials/v2\"],\"id\":}"), ProofOptions.builder().build()));
+        // a rejecting executor is reported as a failure, too
+        assertThrowsExactly(VcDataIntegrityCryptographicSuiteException.class, () ->
+                suite.addProofs(List.of("{}"), ProofOptions.builder().build(), command -> {
+                    throw new RejectedExecutionException("shut down");
+                }));
+    }
+}
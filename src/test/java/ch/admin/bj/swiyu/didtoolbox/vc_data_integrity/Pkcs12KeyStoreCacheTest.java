@@ -0,0 +1,128 @@
+package ch.admin.bj.swiyu.didtoolbox.vc_data_integrity;
+
+import ch.admin.bj.swiyu.didtoolbox.AbstractUtilTestBase;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("PMD")
+class Pkcs12KeyStoreCacheTest extends AbstractUtilTestBase {
+
+    // Total 3 (PrivateKeyEntry) entries available in the JKS: myalias/myalias2/myalias3
+    private static final Path KEY_STORE = Path.of(TEST_DATA_PATH_PREFIX + "mykeystore.jks");
+
+    @Test
+    void testGetCryptographicSuite() {
+        try (var cache = new Pkcs12KeyStoreCache(Pkcs12KeyStoreCache.DEFAULT_MAX_SIZE)) {
+
+            var suite = assertDoesNotThrow(() -> cache.getCryptographicSuite(KEY_STORE, "changeit", "myalias", "changeit")); // MUT
+            // same key as loaded the conventional way
+            assertEquals(TEST_CRYPTO_SUITE_JKS.getVerificationKeyMultibase(), suite.getVerificationKeyMultibase());
+
+            for (var alias : new String[]{"myalias", "myalias2", "myalias3"}) {
+                var another = assertDoesNotThrow(() -> cache.getCryptographicSuite(KEY_STORE, "changeit", alias, "changeit")); // MUT
+                var expected = assertDoesNotThrow(() -> new EdDsaJcs2022VcDataIntegrityCryptographicSuite(
+                        Files.newInputStream(KEY_STORE), "changeit", alias, "changeit"));
+                assertEquals(expected.getVerificationKeyMultibase(), another.getVerificationKeyMultibase());
+            }
+
+            // loaded once
+            assertEquals(1, cache.getLoadCount());
+            assertEquals(1, cache.size());
+        }
+    }
+
+    @Test
+    void testWrongPasswordOrAlias() {
+        try (var cache = new Pkcs12KeyStoreCache(Pkcs12KeyStoreCache.DEFAULT_MAX_SIZE)) {
+
+            assertDoesNotThrow(() -> cache.getCryptographicSuite(KEY_STORE, "changeit", "myalias", "changeit"));
+
+            // a wrong password is still reported as such, without evicting the valid entry
+            assertThrowsExactly(VcDataIntegrityCryptographicSuiteException.class, () ->
+                    cache.getCryptographicSuite(KEY_STORE, "wrong", "myalias", "changeit")); // MUT
+            assertThrowsExactly(VcDataIntegrityCryptographicSuiteException.class, () ->
+                    cache.getCryptographicSuite(KEY_STORE, "changeit", "myalias", "wrong")); // MUT
+            assertThrowsExactly(VcDataIntegrityCryptographicSuiteException.class, () ->
+                    cache.getCryptographicSuite(KEY_STORE, "changeit", "no-such-alias", "changeit")); // MUT
+            assertThrowsExactly(VcDataIntegrityCryptographicSuiteException.class, () ->
+                    cache.getCryptographicSuite(Path.of("no-such-keystore.p12"), "changeit", "myalias", "changeit")); // MUT
+
+            assertDoesNotThrow(() -> cache.getCryptographicSuite(KEY_STORE, "changeit", "myalias", "changeit"));
+            assertEquals(1, cache.getLoadCount()); // failed loads are not counted
+            assertEquals(1, cache.size());
+        }
+    }
+
+    @Test
+    void testFileChangeAndEviction() throws IOException {
+        var tempFile = Files.createTempFile("mykeystore", ".p12");
+        tempFile.toFile().deleteOnExit();
+        Files.copy(KEY_STORE, tempFile, StandardCopyOption.REPLACE_EXISTING);
+
+        try (var cache = new Pkcs12KeyStoreCache(1)) {
+
+            assertDoesNotThrow(() -> cache.getCryptographicSuite(tempFile, "changeit", "myalias", "changeit"));
+            assertDoesNotThrow(() -> cache.getCryptographicSuite(tempFile, "changeit", "myalias", "changeit"));
+            assertEquals(1, cache.getLoadCount());
+
+            // the file has changed in the meantime
+            Files.setLastModifiedTime(tempFile, FileTime.from(Instant.parse(ISO_DATE_TIME)));
+            assertDoesNotThrow(() -> cache.getCryptographicSuite(tempFile, "changeit", "myalias", "changeit")); // MUT
+            assertEquals(2, cache.getLoadCount());
+
+            // bounded
+            assertDoesNotThrow(() -> cache.getCryptographicSuite(KEY_STORE, "changeit", "myalias", "changeit")); // MUT
+            assertEquals(1, cache.size());
+            assertDoesNotThrow(() -> cache.getCryptographicSuite(tempFile, "changeit", "myalias", "changeit"));
+            assertEquals(4, cache.getLoadCount());
+
+            cache.invalidate(tempFile); // MUT
+            assertEquals(0, cache.size());
+        }
+    }
+
+    @Test
+    void testConcurrentLoadsAreCoalesced() throws Exception {
+        try (var cache = new Pkcs12KeyStoreCache(Pkcs12KeyStoreCache.DEFAULT_MAX_SIZE);
+             var executor = Executors.newFixedThreadPool(8)) {
+
+            var tasks = new ArrayList<Callable<String>>();
+            for (int i = 0; i < 32; i++) {
+                tasks.add(() -> cache.getCryptographicSuite(KEY_STORE, "changeit", "myalias", "changeit").getVerificationKeyMultibase()); // MUT
+            }
+            for (var future : executor.invokeAll(tasks)) {
+                assertEquals(TEST_CRYPTO_SUITE_JKS.getVerificationKeyMultibase(), future.get());
+            }
+            assertEquals(1, cache.getLoadCount());
+        }
+    }
+
+    @Test
+    void testClose() {
+        var cache = new Pkcs12KeyStoreCache(Pkcs12KeyStoreCache.DEFAULT_MAX_SIZE);
+        assertDoesNotThrow(() -> cache.getCryptographicSuite(KEY_STORE, "changeit", "myalias", "changeit"));
+
+        cache.clear(); // MUT
+        assertEquals(0, cache.size());
+        assertDoesNotThrow(() -> cache.getCryptographicSuite(KEY_STORE, "changeit", "myalias", "changeit"));
+        assertEquals(2, cache.getLoadCount());
+
+        cache.close(); // MUT
+        assertEquals(0, cache.size());
+        assertThrowsExactly(IllegalStateException.class, () -> cache.getCryptographicSuite(KEY_STORE, "changeit", "myalias", "changeit"));
+
+        assertThrowsExactly(IllegalArgumentException.class, () -> new Pkcs12KeyStoreCache(0));
+        assertSame(Pkcs12KeyStoreCache.shared(), Pkcs12KeyStoreCache.shared());
+    }
+}
@@ -0,0 +1,124 @@
+package ch.admin.bj.swiyu.didtoolbox.vc_data_integrity;
+
+import ch.admin.bj.swiyu.didtoolbox.AbstractUtilTestBase;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("PMD")
+class VerificationResultCacheTest extends AbstractUtilTestBase {
+
+    private static final byte[] MESSAGE = "The quick brown fox jumps over the lazy dog".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void testVerifyCachesSuccessesOnly() {
+        var cache = new VerificationResultCache();
+        var calls = new AtomicInteger();
+        var signature = new byte[64];
+
+        // MUT
+        assertTrue(cache.verify(VerificationResultCache.Policy.LENIENT, "z6Mk1", ByteBuffer.wrap(MESSAGE), signature, () -> calls.incrementAndGet() > 0));
+        assertTrue(cache.verify(VerificationResultCache.Policy.LENIENT, "z6Mk1", ByteBuffer.wrap(MESSAGE), signature, () -> calls.incrementAndGet() > 0));
+        assertEquals(1, calls.get()); // verified only once
+
+        // any other key, message or signature is a miss
+        assertTrue(cache.verify(VerificationResultCache.Policy.LENIENT, "z6Mk2", ByteBuffer.wrap(MESSAGE), signature, () -> calls.incrementAndGet() > 0));
+        assertTrue(cache.verify(VerificationResultCache.Policy.LENIENT, "z6Mk1", ByteBuffer.wrap(new byte[]{1}), signature, () -> calls.incrementAndGet() > 0));
+        assertTrue(cache.verify(VerificationResultCache.Policy.LENIENT, "z6Mk1", ByteBuffer.wrap(MESSAGE), new byte[]{1}, () -> calls.incrementAndGet() > 0));
+        assertEquals(4, calls.get());
+
+        // failures are never cached
+        assertFalse(cache.verify(VerificationResultCache.Policy.LENIENT, "z6Mk3", ByteBuffer.wrap(MESSAGE), signature, () -> calls.incrementAndGet() < 0));
+        assertFalse(cache.verify(VerificationResultCache.Policy.LENIENT, "z6Mk3", ByteBuffer.wrap(MESSAGE), signature, () -> calls.incrementAndGet() < 0));
+        assertEquals(6, calls.get());
+
+        var stats = cache.getStatistics();
+        assertEquals(1, stats.getHitCount());
+        assertEquals(6, stats.getMissCount());
+        assertEquals(0, stats.getEvictionCount());
+        assertEquals(4, stats.getSize());
+        assertTrue(stats.getWeightInBytes() > 0);
+    }
+
+    @Test
+    void testVerifyBounded() {
+        var cache = new VerificationResultCache(1024);
+
+        for (int i = 0; i < 100; i++) {
+            // MUT
+            assertTrue(cache.verify(VerificationResultCache.Policy.LENIENT, "z6Mk" + i, ByteBuffer.wrap(MESSAGE), new byte[64], () -> true));
+        }
+
+        var stats = cache.getStatistics();
+        assertTrue(stats.getWeightInBytes() <= 1024);
+        assertTrue(stats.getEvictionCount() > 0);
+        assertEquals(100, stats.getSize() + stats.getEvictionCount());
+
+        cache.clear();
+        assertEquals(0, cache.getStatistics().getSize());
+        assertEquals(0, cache.getStatistics().getWeightInBytes());
+
+        assertThrowsExactly(IllegalArgumentException.class, () -> new VerificationResultCache(0));
+    }
+
+    @Test
+    void testVerifyStrict() {
+        var cache = new VerificationResultCache();
+
+        assertDoesNotThrow(() -> {
+            var suite = new EdDsaJcs2022VcDataIntegrityCryptographicSuite(TEST_PRIVATE_KEY_MULTIBASE);
+            var signature = suite.sign(ByteBuffer.wrap(MESSAGE));
+
+            assertTrue(suite.verifyStrict(MESSAGE, signature, cache)); // MUT
+            assertTrue(suite.verifyStrict(MESSAGE, signature, cache)); // MUT
+            assertFalse(new EdDsaJcs2022VcDataIntegrityCryptographicSuite().verifyStrict(MESSAGE, signature, cache)); // MUT (some other key)
+        });
+
+        var stats = cache.getStatistics();
+        assertEquals(1, stats.getHitCount());
+        assertEquals(2, stats.getMissCount());
+        assertEquals(1, stats.getSize());
+    }
+
+    @Test
+    void testVerifyStrictNotSatisfiedByLenient() {
+        var cache = new VerificationResultCache();
+        var calls = new AtomicInteger();
+        var signature = new byte[64];
+
+        // MUT
+        assertTrue(cache.verify(VerificationResultCache.Policy.LENIENT, "z6Mk1", ByteBuffer.wrap(MESSAGE), signature, () -> calls.incrementAndGet() > 0));
+        assertFalse(cache.verify(VerificationResultCache.Policy.STRICT, "z6Mk1", ByteBuffer.wrap(MESSAGE), signature, () -> calls.incrementAndGet() < 0));
+        assertEquals(2, calls.get()); // the strict verification is run regardless
+
+        assertDoesNotThrow(() -> {
+            var suite = new EdDsaJcs2022VcDataIntegrityCryptographicSuite(TEST_PRIVATE_KEY_MULTIBASE);
+            // e.g. a small-order R, as accepted by a lenient verifier
+            var lenientOnly = new byte[64];
+            lenientOnly[0] = 1;
+            assertTrue(cache.verify(VerificationResultCache.Policy.LENIENT, suite.getVerificationKeyMultibase(), ByteBuffer.wrap(MESSAGE), lenientOnly, () -> true));
+            assertFalse(suite.verifyStrict(MESSAGE, lenientOnly, cache)); // MUT
+        });
+    }
+
+    @Test
+    void testVerifyProof() {
+        var cache = new VerificationResultCache();
+        var verifier = new EdDsaJcs2022DataIntegrityProofVerifier(EdDsaJcs2022DataIntegrityProofVerifier.DEFAULT_KEY_CACHE_SIZE, cache);
+        var didLog = buildWebVhDidLog(TEST_CRYPTO_SUITE).split("\\R");
+
+        for (int audit = 0; audit < 2; audit++) {
+            for (var didLogEntry : didLog) {
+                assertDoesNotThrow(() -> assertTrue(verifier.verifyProof(didLogEntry, null))); // MUT
+            }
+        }
+
+        var stats = cache.getStatistics();
+        assertEquals(didLog.length, stats.getMissCount());
+        assertEquals(didLog.length, stats.getHitCount());
+    }
+}
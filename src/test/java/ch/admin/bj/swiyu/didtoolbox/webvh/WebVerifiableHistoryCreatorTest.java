@@ -8,6 +8,8 @@ import ch.admin.bj.swiyu.didtoolbox.model.DidMethodEnum;
 import ch.admin.bj.swiyu.didtoolbox.model.NamedDidMethodParameters;
 import ch.admin.bj.swiyu.didtoolbox.model.NextKeyHashesDidMethodParameter;
 import ch.admin.bj.swiyu.didtoolbox.model.UpdateKeysDidMethodParameter;
+import ch.admin.bj.swiyu.didtoolbox.model.VerificationMaterial;
+import ch.admin.bj.swiyu.didtoolbox.model.VerificationMethod;
 import ch.admin.bj.swiyu.didtoolbox.vc_data_integrity.EdDsaJcs2022VcDataIntegrityCryptographicSuite;
 import com.google.gson.JsonParser;
 import org.junit.jupiter.api.Assertions;
@@ -284,6 +286,53 @@ public class WebVerifiableHistoryCreatorTest extends AbstractUtilTestBase {
                 """.contains(didLogEntry.get()));
     }
 
+    @DisplayName("Building did:webvh log entry featuring custom (non-JWK) verification method implementations")
+    @Test
+    void testCreateDidLogWithCustomVerificationMethods() {
+
+        // a VerificationMethod implementation living outside the library, i.e. not a JwkVerificationMethod
+        record CustomVerificationMethod(VerificationMethod delegate) implements VerificationMethod {
+            @Override
+            public String getIdFragment() {
+                return delegate.getIdFragment();
+            }
+
+            @Override
+            public String getType() {
+                return delegate.getType();
+            }
+
+            @Override
+            public VerificationMaterial getVerificationMaterial() {
+                return delegate.getVerificationMaterial();
+            }
+        }
+
+        var assertionMethod = TEST_ASSERTION_METHODS.iterator().next();
+        var authentication = TEST_AUTHENTICATIONS.iterator().next();
+
+        AtomicReference<String> didLogEntry = new AtomicReference<>();
+        assertDoesNotThrow(() -> {
+            didLogEntry.set(WebVerifiableHistoryCreator.builder()
+                    .cryptographicSuite(new EdDsaJcs2022VcDataIntegrityCryptographicSuite())
+                    .authentications(Set.of(new CustomVerificationMethod(authentication)))
+                    .assertionMethods(Set.of(new CustomVerificationMethod(assertionMethod)))
+                    .build()
+                    .createDidLog(URL.of(new URI(TEST_DID_URL), null))); // MUT
+        });
+
+        assertDidLogEntry(didLogEntry.get());
+        var verificationMethods = JsonParser.parseString(didLogEntry.get()).getAsJsonObject()
+                .getAsJsonObject("state").getAsJsonArray("verificationMethod");
+        assertEquals(2, verificationMethods.size());
+        for (var vm : verificationMethods) {
+            var id = vm.getAsJsonObject().get("id").getAsString();
+            var expected = id.endsWith("#" + assertionMethod.getIdFragment()) ? assertionMethod : authentication;
+            assertEquals(JsonParser.parseString(expected.getVerificationMaterial().getPublicKeyJwk()),
+                    vm.getAsJsonObject().get("publicKeyJwk"));
+        }
+    }
+
     @DisplayName("Building DID log entry without cryptographic suite (or verification material) throws IncompleteDidLogEntryBuilderException")
     @Test
     void testCreateDidLogWithoutCryptographicSuiteThrowsIncompleteDidLogEntryBuilderException() {